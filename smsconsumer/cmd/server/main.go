@@ -37,6 +37,13 @@ func main() {
 	}
 	brokers := strings.Split(kafkaBrokersEnv, ",")
 
+	// One topic per priority lane; each gets its own reader so a bulk backlog never delays OTP logs.
+	smsTopicsEnv := os.Getenv("SMS_TOPICS")
+	if smsTopicsEnv == "" {
+		smsTopicsEnv = "sms-topic-otp,sms-topic,sms-topic-bulk"
+	}
+	smsTopics := strings.Split(smsTopicsEnv, ",")
+
 	client, err := db.ConnectMongo(mongoURI)
 	if err != nil {
 		log.Fatalf("mongo connect error: %v", err)
@@ -53,13 +60,19 @@ func main() {
 	handler := handlers.NewSmsHandler(svc)
 	userHandler := handlers.NewUserHandler(svc2)
 
-	smsConsumer := kafka.NewSmsConsumer(brokers, "sms-topic", "sms-store-group-v2", svc)
+	smsConsumers := make([]*kafka.SmsConsumer, 0, len(smsTopics))
+	for _, topic := range smsTopics {
+		smsConsumer := kafka.NewSmsConsumer(brokers, topic, smsGroupID(topic), svc)
+		smsConsumer.SmsStart(ctx1)
+		smsConsumers = append(smsConsumers, smsConsumer)
+	}
 	userConsumer := kafka.NewUserConsumer(brokers, "user-topic", "user-store-group-v2", svc2)
-	smsConsumer.SmsStart(ctx1)
 	userConsumer.UserStart(ctx2)
 	defer func() {
-		if err := smsConsumer.Close(); err != nil {
-			log.Printf("smsConsumer close error: %v", err)
+		for _, smsConsumer := range smsConsumers {
+			if err := smsConsumer.Close(); err != nil {
+				log.Printf("smsConsumer close error: %v", err)
+			}
 		}
 		if err := userConsumer.Close(); err != nil {
 			log.Printf("userConsumer close error: %v", err)
@@ -98,4 +111,13 @@ func main() {
 	}
 
 	log.Println("shutdown complete")
-}
\ No newline at end of file
+}
+
+// sms-topic keeps its original group so its committed offsets still apply; every other lane
+// topic gets a group of its own.
+func smsGroupID(topic string) string {
+	if topic == "sms-topic" {
+		return "sms-store-group-v2"
+	}
+	return "sms-store-group-v2-" + topic
+}
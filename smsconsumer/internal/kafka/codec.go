@@ -0,0 +1,190 @@
+package kafka
+
+import (
+	"encoding/binary"
+	"encoding/json"
+	"errors"
+	"fmt"
+
+	"github.com/segmentio/kafka-go"
+)
+
+// Headers stamped by the sender on every record. Records without the encoding
+// header predate the binary format and are JSON.
+const (
+	encodingHeader = "sms-encoding"
+	encodingBinary = "binary"
+
+	binarySchemaVersion = 1
+	// Version 2 sms records append the template id and parameters.
+	binaryTemplateSchemaVersion = 2
+	// Version 3 sms records always have the template fields, then the segment
+	// count and encoding.
+	binarySegmentsSchemaVersion = 3
+
+	binaryTypeSms  = 1
+	binaryTypeUser = 2
+)
+
+var binaryStatuses = []string{"", "SUCCESS", "BLOCKED", "UNBLOCKED"}
+
+var binaryEncodings = []string{"", "GSM7", "UCS2"}
+
+var errTruncated = errors.New("truncated binary record")
+
+func isBinary(m kafka.Message) bool {
+	for _, h := range m.Headers {
+		if h.Key == encodingHeader {
+			return string(h.Value) == encodingBinary
+		}
+	}
+	return false
+}
+
+func decodeSmsEvent(m kafka.Message) (SmsEvent, error) {
+	var ev SmsEvent
+	if !isBinary(m) {
+		err := json.Unmarshal(m.Value, &ev)
+		return ev, err
+	}
+	r := binaryReader{buf: m.Value}
+	if err := r.header(binaryTypeSms); err != nil {
+		return ev, err
+	}
+	ev.MobileNumber = r.mobileNumber()
+	ev.Status = r.status()
+	ev.Message = r.str()
+	if m.Value[0] >= binaryTemplateSchemaVersion {
+		ev.TemplateID = r.str()
+		n := r.uvarint()
+		if r.err == nil && n > 0 {
+			// The count is untrusted; let the map grow rather than preallocate it.
+			ev.Params = make(map[string]string, min(n, 16))
+			for i := uint64(0); i < n && r.err == nil; i++ {
+				k := r.str()
+				ev.Params[k] = r.str()
+			}
+		}
+	}
+	if m.Value[0] == binarySegmentsSchemaVersion {
+		ev.Segments = int(r.uvarint())
+		ev.Encoding = r.code(binaryEncodings)
+	}
+	return ev, r.err
+}
+
+func decodeUserEvent(m kafka.Message) (UserEvent, error) {
+	var ev UserEvent
+	if !isBinary(m) {
+		err := json.Unmarshal(m.Value, &ev)
+		return ev, err
+	}
+	r := binaryReader{buf: m.Value}
+	if err := r.header(binaryTypeUser); err != nil {
+		return ev, err
+	}
+	ev.MobileNumber = r.mobileNumber()
+	ev.Status = r.status()
+	return ev, r.err
+}
+
+// binaryReader walks the v1/v2/v3 layout written by BinaryEventCodec on the sender.
+// The first error sticks and later reads return zero values.
+type binaryReader struct {
+	buf []byte
+	pos int
+	err error
+}
+
+func (r *binaryReader) header(recordType byte) error {
+	if len(r.buf) < 2 {
+		return errTruncated
+	}
+	if r.buf[0] != binarySchemaVersion && (recordType != binaryTypeSms ||
+		r.buf[0] < binaryTemplateSchemaVersion || r.buf[0] > binarySegmentsSchemaVersion) {
+		return fmt.Errorf("unsupported binary schema version %d", r.buf[0])
+	}
+	if r.buf[1] != recordType {
+		return fmt.Errorf("unexpected binary record type %d", r.buf[1])
+	}
+	r.pos = 2
+	return nil
+}
+
+func (r *binaryReader) mobileNumber() string {
+	if r.err != nil {
+		return ""
+	}
+	if len(r.buf)-r.pos < 8 {
+		r.err = errTruncated
+		return ""
+	}
+	n := binary.BigEndian.Uint64(r.buf[r.pos:])
+	r.pos += 8
+	return fmt.Sprintf("%010d", n)
+}
+
+func (r *binaryReader) status() string {
+	if r.err != nil {
+		return ""
+	}
+	if r.pos >= len(r.buf) {
+		r.err = errTruncated
+		return ""
+	}
+	code := int(r.buf[r.pos])
+	r.pos++
+	if code == 0 {
+		return r.str()
+	}
+	if code >= len(binaryStatuses) {
+		r.err = fmt.Errorf("unknown binary status code %d", code)
+		return ""
+	}
+	return binaryStatuses[code]
+}
+
+// code reads a one-byte code; unknown codes map to "".
+func (r *binaryReader) code(codes []string) string {
+	if r.err != nil {
+		return ""
+	}
+	if r.pos >= len(r.buf) {
+		r.err = errTruncated
+		return ""
+	}
+	c := int(r.buf[r.pos])
+	r.pos++
+	if c >= len(codes) {
+		return ""
+	}
+	return codes[c]
+}
+
+func (r *binaryReader) uvarint() uint64 {
+	if r.err != nil {
+		return 0
+	}
+	v, n := binary.Uvarint(r.buf[r.pos:])
+	if n <= 0 {
+		r.err = errTruncated
+		return 0
+	}
+	r.pos += n
+	return v
+}
+
+func (r *binaryReader) str() string {
+	if r.err != nil {
+		return ""
+	}
+	length, n := binary.Uvarint(r.buf[r.pos:])
+	if n <= 0 || uint64(len(r.buf)-r.pos-n) < length {
+		r.err = errTruncated
+		return ""
+	}
+	r.pos += n
+	s := string(r.buf[r.pos : r.pos+int(length)])
+	r.pos += int(length)
+	return s
+}
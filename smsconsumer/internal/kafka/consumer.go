@@ -2,7 +2,6 @@ package kafka
 
 import (
 	"context"
-	"encoding/json"
 	"log"
 	"smsconsumer/internal/models"
 	"smsconsumer/internal/services"
@@ -24,9 +23,13 @@ type UserConsumer struct {
 }
 
 type SmsEvent struct {
-	MobileNumber string  `json:"mobileNumber"`
-	Message      string  `json:"message"`
-	Status       string  `json:"status"`
+	MobileNumber string            `json:"mobileNumber"`
+	Message      string            `json:"message"`
+	Status       string            `json:"status"`
+	TemplateID   string            `json:"templateId"`
+	Params       map[string]string `json:"params"`
+	Segments     int               `json:"segments"`
+	Encoding     string            `json:"encoding"`
 }
 
 type UserEvent struct {
@@ -91,8 +94,8 @@ func (c *SmsConsumer) SmsStart(ctx context.Context) {
 				continue
 			}
 
-			var ev SmsEvent
-			if err := json.Unmarshal(m.Value, &ev); err != nil {
+			ev, err := decodeSmsEvent(m)
+			if err != nil {
 				log.Printf("failed to unmarshal kafka message: %v; msg=%s", err, string(m.Value))
 				if err := c.reader.CommitMessages(ctx, m); err != nil {
 					log.Printf("failed to commit message: %v", err)
@@ -104,6 +107,10 @@ func (c *SmsConsumer) SmsStart(ctx context.Context) {
 				MobileNumber: ev.MobileNumber,
 				Message:      ev.Message,
 				Status:       ev.Status,
+				TemplateID:   ev.TemplateID,
+				Params:       ev.Params,
+				Segments:     ev.Segments,
+				Encoding:     ev.Encoding,
 			}
 
 			if _, err := c.svc.SaveSMS(ctx, rec); err != nil {
@@ -136,8 +143,8 @@ func (c *UserConsumer) UserStart(ctx context.Context) {
 				continue
 			}
 
-			var ev UserEvent
-			if err := json.Unmarshal(m.Value, &ev); err != nil {
+			ev, err := decodeUserEvent(m)
+			if err != nil {
 				log.Printf("failed to unmarshal kafka message: %v; msg=%s", err, string(m.Value))
 				if err := c.reader.CommitMessages(ctx, m); err != nil {
 					log.Printf("failed to commit message: %v", err)
@@ -4,11 +4,18 @@ import (
 	"go.mongodb.org/mongo-driver/bson/primitive"
 )
 
+// Template-only events carry TemplateID and Params instead of Message; the
+// stored record keeps whichever the sender shipped. Segments and Encoding are
+// what the message is billed as, and absent on events from older senders.
 type SmsRecord struct {
 	ID             primitive.ObjectID    `bson:"_id,omitempty" json:"id"`
 	MobileNumber   string                `bson:"mobile_number" json:"mobileNumber"`
-	Message        string                `bson:"message" json:"message"`
+	Message        string                `bson:"message,omitempty" json:"message,omitempty"`
 	Status         string                `bson:"status" json:"status"`
+	TemplateID     string                `bson:"template_id,omitempty" json:"templateId,omitempty"`
+	Params         map[string]string     `bson:"params,omitempty" json:"params,omitempty"`
+	Segments       int                   `bson:"segments,omitempty" json:"segments,omitempty"`
+	Encoding       string                `bson:"encoding,omitempty" json:"encoding,omitempty"`
 }
 
 type UserRecord struct {
@@ -0,0 +1,121 @@
+package com.meesho.smssender.kafka;
+
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meesho.smssender.dto.KafkaSmsData;
+import com.meesho.smssender.util.MobileNumber;
+
+/**
+ * Messages per second produced to an embedded single-node broker with each {@link ProducerProfile}.
+ *
+ * Each invocation sends one sms event with the application's serializer and {@code acks=all}
+ * plus idempotence, as in production, keeping at most {@link #IN_FLIGHT} unacknowledged, so the
+ * score is the sustained rate the broker acknowledges rather than one batch's round trip. At the
+ * end of each trial the producer's own batching telemetry is printed: {@code batch-size-avg},
+ * {@code compression-rate-avg} and {@code record-queue-time-avg}.
+ *
+ * The broker shares the machine with the producer, so absolute numbers are pessimistic; compare
+ * the profiles with each other.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProducerProfileBenchmark {
+
+    static final int IN_FLIGHT = 10_000;
+
+    private static final String TOPIC = "sms-topic";
+
+    @Param({ "latency", "balanced", "throughput" })
+    public String profile;
+
+    @Param({ "JSON", "BINARY" })
+    public WireFormat format;
+
+    private EmbeddedKafkaKraftBroker broker;
+    private KafkaProducer<Long, Object> producer;
+    private KafkaSmsData[] events;
+    private int next;
+    private final Semaphore inFlight = new Semaphore(IN_FLIGHT);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        broker = new EmbeddedKafkaKraftBroker(1, 3, TOPIC);
+        broker.afterPropertiesSet();
+        Map<String, Object> base = Map.of(
+            ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+            ProducerConfig.ACKS_CONFIG, "all",
+            ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true,
+            ProducerConfig.CLIENT_ID_CONFIG, "sms-producer-bench");
+        producer = new KafkaProducer<>(profile(profile).apply(base), new LongSerializer(),
+            new SmsEventSerializer(new ObjectMapper(), format));
+        events = new KafkaSmsData[1000];
+        for (int i = 0; i < events.length; i++) {
+            String number = MobileNumber.format(9_000_000_000L + i * 7919L);
+            events[i] = new KafkaSmsData(number, "Your OTP is " + (100_000 + i * 37 % 900_000)
+                + ". Do not share it with anyone. -Meesho", "SUCCESS", null, null, 1, "GSM7");
+        }
+    }
+
+    @Benchmark
+    public void produce() throws InterruptedException {
+        inFlight.acquire();
+        KafkaSmsData event = events[next++ % events.length];
+        producer.send(new ProducerRecord<>(TOPIC, MobileNumber.parse(event.mobileNumber()), event),
+            (metadata, ex) -> inFlight.release());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        inFlight.acquire(IN_FLIGHT);
+        System.out.printf("%n%s/%s batch-size-avg=%.0f compression-rate-avg=%.3f record-queue-time-avg=%.2fms%n",
+            profile, format, metric("batch-size-avg"), metric("compression-rate-avg"),
+            metric("record-queue-time-avg"));
+        producer.close();
+        broker.destroy();
+    }
+
+    private double metric(String name) {
+        for (Map.Entry<MetricName, ? extends Metric> entry : producer.metrics().entrySet()) {
+            if (entry.getKey().name().equals(name) && entry.getKey().group().equals("producer-metrics")) {
+                return ((Number) entry.getValue().metricValue()).doubleValue();
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static ProducerProfile profile(String name) {
+        return switch (name) {
+            case "latency" -> ProducerProfile.LATENCY;
+            case "throughput" -> ProducerProfile.THROUGHPUT;
+            default -> ProducerProfile.BALANCED;
+        };
+    }
+}
@@ -0,0 +1,60 @@
+package com.meesho.smssender.kafka;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meesho.smssender.dto.KafkaSmsData;
+import com.meesho.smssender.dto.KafkaUserData;
+
+/**
+ * Serialize cost of sms-topic / user-topic values per wire format. The encoded size of each
+ * record is printed once per fork as "bytes/record".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({ "JSON", "BINARY" })
+    public WireFormat format;
+
+    private final KafkaSmsData smsData =
+        new KafkaSmsData("9876543210", "Your OTP is 482913. Do not share it with anyone.", "SUCCESS");
+
+    private final KafkaUserData userData = new KafkaUserData("9876543210", "BLOCKED");
+
+    private SmsEventSerializer serializer;
+
+    @Setup
+    public void setUp() {
+        serializer = new SmsEventSerializer(new ObjectMapper(), format);
+        System.out.println(format + " bytes/record: sms=" + serializer.serialize("sms-topic", smsData).length
+            + " user=" + serializer.serialize("user-topic", userData).length);
+    }
+
+    @Benchmark
+    public byte[] serializeSmsData() {
+        return serializer.serialize("sms-topic", new RecordHeaders(), smsData);
+    }
+
+    @Benchmark
+    public byte[] serializeUserData() {
+        return serializer.serialize("user-topic", new RecordHeaders(), userData);
+    }
+}
@@ -0,0 +1,230 @@
+package com.meesho.smssender.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Open-loop load test of {@code POST /v1/sms/send} at a fixed request rate, end to end through an
+ * embedded Kafka broker.
+ *
+ * The service runs in a {@link LoadTestServer} JVM with the {@code loadtest} profile and
+ * {@code embedded} Kafka, so every accepted message goes through the outbox, the dispatch engine
+ * and a real producer. Requests are sent on a fixed schedule whether or not earlier ones have
+ * answered, and each latency is measured from when its request was due rather than when it was
+ * sent: a server that stalls is charged for the requests it held up (no coordinated omission).
+ * Requests are numbered so every one goes to a different recipient.
+ *
+ * After {@code warmup-seconds} at the target rate, {@code seconds} are measured. Reported: the
+ * achieved rate, latency percentiles, the error rate (non-202 answers, failed requests, and
+ * requests dropped because {@code max-in-flight} were outstanding), and the server's GC pressure
+ * over the window from {@code /actuator/metrics}: allocation rate, collections and pause time.
+ *
+ * Arguments: {@code [rps=2000] [seconds=30] [stack=servlet] [server-heap=512m] [warmup-seconds=10]
+ * [max-in-flight=10000]}.
+ */
+public final class FixedRateLoadTest {
+
+    private static final Pattern STATISTIC = Pattern.compile("\"statistic\":\"([A-Z_]+)\",\"value\":([0-9.E+-]+)");
+
+    // Recipients are never reused, across warmup and measurement alike.
+    private static final AtomicLong NEXT_NUMBER = new AtomicLong(6_000_000_000L);
+
+    public static void main(String[] args) throws Exception {
+        int rps = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        String stack = args.length > 2 ? args[2] : "servlet";
+        String heap = args.length > 3 ? args[3] : "512m";
+        int warmupSeconds = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+        int maxInFlight = args.length > 5 ? Integer.parseInt(args[5]) : 10_000;
+
+        System.out.printf("rps=%d seconds=%d warmup=%ds stack=%s server-heap=%s cpus=%d%n",
+            rps, seconds, warmupSeconds, stack, heap, Runtime.getRuntime().availableProcessors());
+
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Process server = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx" + heap, "-Xms" + heap,
+                "-cp", System.getProperty("java.class.path"),
+                LoadTestServer.class.getName(), stack, Integer.toString(port), "0", "embedded")
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        try {
+            String base = "http://localhost:" + port;
+            HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+            awaitReady(client, base);
+            run(client, base, rps, warmupSeconds, 0);
+            Snapshot before = Snapshot.take(client, base);
+            Result result = run(client, base, rps, seconds, maxInFlight);
+            Snapshot after = Snapshot.take(client, base);
+            report(result, before, after, seconds);
+        } finally {
+            server.destroy();
+            if (!server.waitFor(30, TimeUnit.SECONDS)) {
+                server.destroyForcibly();
+            }
+        }
+    }
+
+    // Sends rps requests a second for the given time. A request due while maxInFlight are still
+    // outstanding is dropped and counted as an error; 0 never drops.
+    private static Result run(HttpClient client, String base, int rps, int seconds, int maxInFlight)
+            throws InterruptedException {
+        URI send = URI.create(base + "/v1/sms/send");
+        long total = (long) rps * seconds;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+        long[] latencies = new long[(int) Math.min(total, Integer.MAX_VALUE - 8)];
+        AtomicInteger recorded = new AtomicInteger();
+        AtomicInteger inFlight = new AtomicInteger();
+        LongAdder errors = new LongAdder();
+        Result result = new Result();
+        long number = NEXT_NUMBER.getAndAdd(total);
+
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long due = start + i * intervalNanos;
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (maxInFlight > 0 && inFlight.get() >= maxInFlight) {
+                result.dropped++;
+                continue;
+            }
+            String body = "{\"mobileNumber\":\"" + (number + i) + "\",\"message\":\"Your OTP is 482913\"}";
+            HttpRequest request = HttpRequest.newBuilder(send)
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+            inFlight.incrementAndGet();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, ex) -> {
+                long done = System.nanoTime();
+                inFlight.decrementAndGet();
+                if (ex != null || response.statusCode() != 202) {
+                    errors.increment();
+                }
+                int k = recorded.getAndIncrement();
+                if (k < latencies.length) {
+                    latencies[k] = done - due;
+                }
+            });
+        }
+        result.sendNanos = System.nanoTime() - start;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        result.unanswered = inFlight.get();
+        int count = Math.min(recorded.get(), latencies.length);
+        result.latencies = Arrays.copyOf(latencies, count);
+        Arrays.sort(result.latencies);
+        result.errors = errors.sum();
+        result.attempted = total;
+        return result;
+    }
+
+    private static void report(Result r, Snapshot before, Snapshot after, int seconds) {
+        long[] l = r.latencies;
+        long failed = r.errors + r.dropped + r.unanswered;
+        double window = seconds;
+        System.out.printf("achieved   %10.0f req/s answered 202 (sender kept up: %s)%n",
+            (l.length - r.errors) / (r.sendNanos / 1e9),
+            r.sendNanos <= TimeUnit.SECONDS.toNanos(seconds) * 101 / 100 ? "yes" : "no");
+        System.out.printf("latency ms p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+            percentile(l, 0.50), percentile(l, 0.90), percentile(l, 0.99), percentile(l, 0.999),
+            l.length == 0 ? 0 : l[l.length - 1] / 1e6);
+        System.out.printf("errors     %.3f%% (%d non-202 or failed, %d dropped at max-in-flight, %d unanswered)%n",
+            100.0 * failed / r.attempted, r.errors, r.dropped, r.unanswered);
+        System.out.printf("delivered  %10.0f msg/s to Kafka (%d accepted, %d delivered in the window)%n",
+            (after.delivered - before.delivered) / window, (long) (after.accepted - before.accepted),
+            (long) (after.delivered - before.delivered));
+        System.out.printf("gc         %.1f MiB/s allocated, %.1f collections/s, %.1f ms/s paused (%.2f%% of the window)%n",
+            (after.allocated - before.allocated) / window / (1 << 20),
+            (after.gcCount - before.gcCount) / window,
+            (after.gcPauseSeconds - before.gcPauseSeconds) * 1000 / window,
+            100 * (after.gcPauseSeconds - before.gcPauseSeconds) / window);
+    }
+
+    private static void awaitReady(HttpClient client, String base) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(180);
+        URI readiness = URI.create(base + "/actuator/health/readiness");
+        while (System.nanoTime() < deadline) {
+            try {
+                if (client.send(HttpRequest.newBuilder(readiness).build(), HttpResponse.BodyHandlers.discarding())
+                        .statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet.
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("Load test server did not become ready on " + base);
+    }
+
+    private static double statistic(HttpClient client, String base, String name, String query, String statistic) {
+        try {
+            HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(base + "/actuator/metrics/" + name + query)).build(),
+                HttpResponse.BodyHandlers.ofString());
+            Matcher m = STATISTIC.matcher(response.body().replace(" ", ""));
+            while (m.find()) {
+                if (m.group(1).equals(statistic)) {
+                    return Double.parseDouble(m.group(2));
+                }
+            }
+            return 0;
+        } catch (IOException e) {
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+
+    // Server counters read at the edges of the measured window.
+    private record Snapshot(double allocated, double gcCount, double gcPauseSeconds, double accepted, double delivered) {
+
+        static Snapshot take(HttpClient client, String base) {
+            return new Snapshot(
+                statistic(client, base, "jvm.gc.memory.allocated", "", "COUNT"),
+                statistic(client, base, "jvm.gc.pause", "", "COUNT"),
+                statistic(client, base, "jvm.gc.pause", "", "TOTAL_TIME"),
+                statistic(client, base, "sms.messages", "?tag=outcome:accepted", "COUNT"),
+                statistic(client, base, "sms.messages", "?tag=outcome:delivered", "COUNT"));
+        }
+    }
+
+    private static final class Result {
+        long attempted;
+        long dropped;
+        long unanswered;
+        long errors;
+        long sendNanos;
+        long[] latencies;
+    }
+}
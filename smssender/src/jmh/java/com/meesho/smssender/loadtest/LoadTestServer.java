@@ -0,0 +1,89 @@
+package com.meesho.smssender.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import com.meesho.smssender.SmssenderApplication;
+import com.meesho.smssender.repository.BlockedNumberRepository;
+import com.meesho.smssender.repository.InMemoryBlockedNumberRepository;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * The application on one web stack with the {@code loadtest} profile: the blocklist is in memory,
+ * and Kafka is either an embedded single-node KRaft broker in this JVM ({@code embedded}) or a
+ * closed port ({@code none}, so only the HTTP path up to the outbox spool is measured). With a
+ * {@code latency-ms} above 0 the blocklist answers "not blocked" after that delay: the blocking
+ * lookup sleeps on the request thread, the reactive one completes from a timer. Everything else
+ * (validation, rate limiter, outbox, dispatch, producer) is the real code.
+ *
+ * Started by {@link WebStackLoadTest} and {@link FixedRateLoadTest} in its own JVM:
+ * {@code LoadTestServer <servlet|reactive> <port> <latency-ms> [none|embedded]}.
+ */
+public final class LoadTestServer {
+
+    private static final String[] TOPICS = {"sms-topic", "sms-topic-otp", "sms-topic-bulk", "user-topic"};
+
+    public static void main(String[] args) throws IOException {
+        String stack = args[0];
+        int port = Integer.parseInt(args[1]);
+        long latencyMs = Long.parseLong(args[2]);
+        boolean embeddedKafka = args.length > 3 && "embedded".equals(args[3]);
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(SmssenderApplication.class);
+        if (latencyMs > 0) {
+            builder.initializers(context -> ((GenericApplicationContext) context).registerBean("simulatedBlocklist",
+                BlockedNumberRepository.class, () -> new SimulatedBlocklist(latencyMs), bd -> bd.setPrimary(true)));
+        }
+        builder.profiles("reactive".equals(stack) ? new String[] {"loadtest", "reactive"} : new String[] {"loadtest"});
+        // Command-line arguments, so they win over application.properties.
+        List<String> properties = new ArrayList<>(List.of(
+            "--server.port=" + port,
+            "--sms.outbox.dir=" + Files.createTempDirectory("sms-loadtest-outbox"),
+            // Unique numbers and no client header: only the number and global limits could trip.
+            "--sms.ratelimit.number.per-second=0",
+            "--sms.ratelimit.global.per-second=0",
+            "--logging.level.root=ERROR",
+            "--logging.level.com.meesho.smssender=OFF"));
+        if (embeddedKafka) {
+            // Sets spring.embedded.kafka.brokers, which the loadtest profile connects to.
+            EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, 8, TOPICS);
+            broker.afterPropertiesSet();
+            Runtime.getRuntime().addShutdownHook(new Thread(broker::destroy, "embedded-kafka-shutdown"));
+        } else {
+            properties.add("--spring.kafka.bootstrap-servers=localhost:9");
+            properties.add("--spring.kafka.producer.properties.max.block.ms=1000");
+        }
+        builder.run(properties.toArray(String[]::new));
+    }
+
+    static class SimulatedBlocklist extends InMemoryBlockedNumberRepository {
+
+        private final Duration latency;
+
+        SimulatedBlocklist(long latencyMs) {
+            this.latency = Duration.ofMillis(latencyMs);
+        }
+
+        @Override
+        public Boolean isBlocked(long mobileNumber) {
+            try {
+                Thread.sleep(latency.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Boolean.FALSE;
+        }
+
+        @Override
+        public Mono<Boolean> isBlockedReactive(long mobileNumber) {
+            return Mono.delay(latency).thenReturn(Boolean.FALSE);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.meesho.smssender.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first request of the packaged service: starts {@code java [jvm-options] -jar <jar>} with
+ * Redis and Kafka pointed at closed ports, and measures from process start until
+ * {@code /actuator/health/readiness} first answers 200 and until the first
+ * {@code POST /v1/sms/send} gets a response. Each mode is started {@code runs} times and the
+ * median is reported.
+ *
+ * Arguments: {@code <jar> [runs=5] [mode=jvm-options ...]}, e.g.
+ * {@code target/smssender.jar 5 plain= cds=-XX:SharedArchiveFile=target/fast-start/application.jsa}.
+ * JVM options within a mode are separated by commas. Without modes the jar is started plainly.
+ */
+public final class StartupTimer {
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of(args[0]).toAbsolutePath();
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        List<String> modes = args.length > 2 ? Arrays.asList(args).subList(2, args.length) : List.of("plain=");
+
+        System.out.printf("jar=%s runs=%d cpus=%d%n", jar.getFileName(), runs, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-12s %12s %16s %8s%n", "mode", "ready ms", "first send ms", "status");
+        for (String mode : modes) {
+            String name = mode.substring(0, mode.indexOf('='));
+            String options = mode.substring(mode.indexOf('=') + 1);
+            long[] ready = new long[runs];
+            long[] firstSend = new long[runs];
+            int status = 0;
+            for (int i = 0; i < runs; i++) {
+                long[] run = run(jar, options.isEmpty() ? List.of() : Arrays.asList(options.split(",")));
+                ready[i] = run[0];
+                firstSend[i] = run[1];
+                status = (int) run[2];
+            }
+            System.out.printf("%-12s %12d %16d %8d%n", name, median(ready), median(firstSend), status);
+        }
+    }
+
+    private static long[] run(Path jar, List<String> jvmOptions) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-jar", jar.toString(),
+            "--server.port=" + port,
+            "--sms.outbox.dir=" + Files.createTempDirectory("sms-startup-outbox"),
+            "--spring.kafka.bootstrap-servers=localhost:9",
+            "--spring.kafka.producer.properties.max.block.ms=1000",
+            "--spring.data.redis.host=localhost",
+            "--spring.data.redis.port=9",
+            "--management.endpoint.health.probes.enabled=true",
+            "--logging.level.root=ERROR"));
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        String base = "http://localhost:" + port;
+        long start = System.nanoTime();
+        Process server = new ProcessBuilder(command)
+            .directory(jar.getParent().toFile())
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        try {
+            long deadline = start + TimeUnit.SECONDS.toNanos(120);
+            while (status(client, HttpRequest.newBuilder(URI.create(base + "/actuator/health/readiness")).build()) != 200) {
+                if (System.nanoTime() > deadline || !server.isAlive()) {
+                    throw new IllegalStateException("Service did not become ready on " + base);
+                }
+                Thread.sleep(5);
+            }
+            long ready = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            int status = status(client, HttpRequest.newBuilder(URI.create(base + "/v1/sms/send"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"mobileNumber\":\"9876543210\",\"message\":\"Your OTP is 482913\"}"))
+                .build());
+            long firstSend = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new long[] { ready, firstSend, status };
+        } finally {
+            server.destroy();
+            if (!server.waitFor(30, TimeUnit.SECONDS)) {
+                server.destroyForcibly();
+            }
+        }
+    }
+
+    private static int status(HttpClient client, HttpRequest request) throws InterruptedException {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
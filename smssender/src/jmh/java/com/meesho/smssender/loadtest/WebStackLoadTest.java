@@ -0,0 +1,195 @@
+package com.meesho.smssender.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop load test of {@code POST /v1/sms/send} on the servlet (Spring MVC) and the reactive
+ * (WebFlux) stack.
+ *
+ * Each stack runs in a {@link LoadTestServer} JVM of its own, with the same heap limit and a
+ * blocklist lookup that takes {@code latency-ms}. The client keeps {@code concurrency} requests in
+ * flight for {@code seconds} after a short warmup, and samples the server's live threads and used
+ * heap from {@code /actuator/metrics} every 250 ms. Reported per stack: throughput, latency
+ * percentiles, non-202 responses, and peak threads and heap.
+ *
+ * Arguments: {@code [concurrency=1000] [seconds=30] [latency-ms=20] [server-heap=512m]}.
+ */
+public final class WebStackLoadTest {
+
+    private static final Pattern VALUE = Pattern.compile("\"statistic\":\"VALUE\",\"value\":([0-9.E+-]+)");
+
+    private static final long WARMUP_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        long latencyMs = args.length > 2 ? Long.parseLong(args[2]) : 20;
+        String heap = args.length > 3 ? args[3] : "512m";
+
+        System.out.printf("concurrency=%d seconds=%d blocklist-latency=%dms server-heap=%s cpus=%d%n",
+            concurrency, seconds, latencyMs, heap, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-9s %10s %9s %9s %9s %8s %8s %10s%n",
+            "stack", "req/s", "p50 ms", "p99 ms", "max ms", "errors", "threads", "heap MiB");
+        for (String stack : List.of("servlet", "reactive")) {
+            System.out.println(run(stack, concurrency, seconds, latencyMs, heap));
+        }
+    }
+
+    private static String run(String stack, int concurrency, int seconds, long latencyMs, String heap)
+            throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Process server = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx" + heap, "-Xms" + heap,
+                "-cp", System.getProperty("java.class.path"),
+                LoadTestServer.class.getName(), stack, Integer.toString(port), Long.toString(latencyMs))
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        try {
+            String base = "http://localhost:" + port;
+            HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+            awaitStarted(client, base);
+            return stack(stack, load(client, base, concurrency, seconds));
+        } finally {
+            server.destroy();
+            if (!server.waitFor(30, TimeUnit.SECONDS)) {
+                server.destroyForcibly();
+            }
+        }
+    }
+
+    private static Result load(HttpClient client, String base, int concurrency, int seconds) throws Exception {
+        URI send = URI.create(base + "/v1/sms/send");
+        Semaphore slots = new Semaphore(concurrency);
+        AtomicLong nextNumber = new AtomicLong(6_000_000_000L);
+        long[] latencies = new long[1 << 22];
+        AtomicInteger recorded = new AtomicInteger();
+        LongAdder errors = new LongAdder();
+        Result result = new Result();
+
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                result.peakThreads = Math.max(result.peakThreads, metric(client, base, "jvm.threads.live", ""));
+                result.peakHeap = Math.max(result.peakHeap, metric(client, base, "jvm.memory.used", "?tag=area:heap"));
+                try {
+                    Thread.sleep(250);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "loadtest-sampler");
+
+        long start = System.nanoTime();
+        long measureFrom = start + WARMUP_NANOS;
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        boolean sampling = false;
+        while (System.nanoTime() < end) {
+            if (!sampling && System.nanoTime() >= measureFrom) {
+                sampler.start();
+                sampling = true;
+            }
+            slots.acquire();
+            String body = "{\"mobileNumber\":\"" + nextNumber.getAndIncrement() + "\",\"message\":\"Your OTP is 482913\"}";
+            HttpRequest request = HttpRequest.newBuilder(send)
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, ex) -> {
+                long done = System.nanoTime();
+                slots.release();
+                if (sent < measureFrom || done > end) {
+                    return;
+                }
+                if (ex != null || response.statusCode() != 202) {
+                    errors.increment();
+                }
+                int i = recorded.getAndIncrement();
+                if (i < latencies.length) {
+                    latencies[i] = done - sent;
+                }
+            });
+        }
+        slots.acquire(concurrency);
+        sampler.interrupt();
+        sampler.join();
+
+        int count = Math.min(recorded.get(), latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        result.throughput = count / (double) seconds;
+        result.p50 = percentile(sorted, 0.50);
+        result.p99 = percentile(sorted, 0.99);
+        result.max = count == 0 ? 0 : sorted[count - 1] / 1e6;
+        result.errors = errors.sum();
+        return result;
+    }
+
+    private static void awaitStarted(HttpClient client, String base) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(120);
+        while (System.nanoTime() < deadline) {
+            if (metric(client, base, "jvm.threads.live", "") > 0) {
+                return;
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("Load test server did not start on " + base);
+    }
+
+    private static double metric(HttpClient client, String base, String name, String query) {
+        try {
+            HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(base + "/actuator/metrics/" + name + query)).build(),
+                HttpResponse.BodyHandlers.ofString());
+            Matcher m = VALUE.matcher(response.body().replace(" ", ""));
+            return m.find() ? Double.parseDouble(m.group(1)) : 0;
+        } catch (IOException e) {
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+
+    private static String stack(String stack, Result r) {
+        return String.format("%-9s %10.0f %9.1f %9.1f %9.1f %8d %8.0f %10.0f",
+            stack, r.throughput, r.p50, r.p99, r.max, r.errors, r.peakThreads, r.peakHeap / (1 << 20));
+    }
+
+    private static final class Result {
+        volatile double peakThreads;
+        volatile double peakHeap;
+        double throughput;
+        double p50;
+        double p99;
+        double max;
+        long errors;
+    }
+}
@@ -0,0 +1,162 @@
+package com.meesho.smssender.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meesho.smssender.dispatch.CircuitBreaker;
+import com.meesho.smssender.dispatch.DispatchEngine;
+import com.meesho.smssender.dispatch.DispatchSettings;
+import com.meesho.smssender.dispatch.Priority;
+import com.meesho.smssender.exception.BlockedNumberException;
+import com.meesho.smssender.exception.DispatchRejectedException;
+import com.meesho.smssender.exception.ThrottledException;
+import com.meesho.smssender.kafka.SmsEventSerializer;
+import com.meesho.smssender.kafka.WireFormat;
+import com.meesho.smssender.idempotency.IdempotencyCache;
+import com.meesho.smssender.template.TemplateRegistry;
+import com.meesho.smssender.metrics.SmsMetrics;
+import com.meesho.smssender.outbox.MappedSpool;
+import com.meesho.smssender.outbox.Outbox;
+import com.meesho.smssender.outbox.OutboxSettings;
+import com.meesho.smssender.outbox.OutboxRouter;
+import com.meesho.smssender.ratelimit.RateLimiter;
+import com.meesho.smssender.ratelimit.RedisSlidingWindowLimiter;
+import com.meesho.smssender.repository.InMemoryBlockedNumberRepository;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+
+/**
+ * Full sendSms path: validation, rate limits, blocklist lookup and the outbox append, with the
+ * drainer delivering to Kafka in the background. Redis is replaced by an in-memory set, Kafka by
+ * an auto-completing {@link MockProducer}, and the gateway by an instantly completing stage, so
+ * the numbers reflect only our own code.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SendSmsBenchmark {
+
+    // The production registry, so histogram recording costs what it does in the service.
+    private final SmsMetrics metrics = new SmsMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+
+    private static final String[] NUMBERS = { "9876543210", "9123456780", "8000000001", "7000000002" };
+
+    private final SmsService smsService = new SmsService();
+
+    private MockProducer<Long, Object> producer;
+
+    private DispatchEngine dispatchEngine;
+
+    private RateLimiter rateLimiter;
+
+    private final List<Outbox> outboxes = new ArrayList<>();
+
+    private Path spoolDir;
+
+    @Setup
+    public void setUp() throws IOException {
+        SmsEventSerializer serializer = new SmsEventSerializer(new ObjectMapper(), WireFormat.JSON);
+        // KafkaTemplate closes the producer after every send; keep the shared instance open.
+        producer = new MockProducer<>(true, null, new LongSerializer(), serializer) {
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+        KafkaTemplate<Long, Object> kafkaTemplate = new KafkaTemplate<>(new MockProducerFactory<>(() -> producer));
+        dispatchEngine = new DispatchEngine((mobileNumber, message) -> CompletableFuture.completedFuture(null), metrics,
+            new CircuitBreaker(), DispatchSettings.DEFAULTS.withConcurrency(1024, 0).withQueueCapacity(1 << 20)
+                .withDrainTimeoutMs(10_000));
+        dispatchEngine.start();
+        spoolDir = Files.createTempDirectory("sms-outbox-bench");
+        for (Priority lane : Priority.values()) {
+            Outbox outbox = new Outbox(lane, "sms-topic-" + lane.lane(), null,
+                new MappedSpool(spoolDir.resolve(lane.lane()), 64 << 20, 1L << 30), kafkaTemplate, dispatchEngine,
+                metrics, OutboxSettings.DEFAULTS.withPerRecipientOrder(false).withDrainTimeoutMs(10_000), null);
+            outbox.start();
+            outboxes.add(outbox);
+        }
+
+        InMemoryBlockedNumberRepository blocklist = new InMemoryBlockedNumberRepository();
+        blocklist.blockNumber(7000000002L);
+
+        ReflectionTestUtils.setField(smsService, "blockedNumberRepo", blocklist);
+        ReflectionTestUtils.setField(smsService, "kafkaTemplate", kafkaTemplate);
+        // Limits high enough never to trip, so the lock-free checks are measured but nothing is throttled.
+        rateLimiter = new RateLimiter(10_000_000, 100_000, 10_000_000, 100_000, 100_000_000, 1_000_000,
+            new RedisSlidingWindowLimiter(null, null, false, 0, 0));
+
+        ReflectionTestUtils.setField(smsService, "blockedNumberRepo", blocklist);
+        ReflectionTestUtils.setField(smsService, "kafkaTemplate", kafkaTemplate);
+        ReflectionTestUtils.setField(smsService, "outbox", new OutboxRouter(outboxes));
+        ReflectionTestUtils.setField(smsService, "rateLimiter", rateLimiter);
+        ReflectionTestUtils.setField(smsService, "metrics", metrics);
+        ReflectionTestUtils.setField(smsService, "idempotency", new IdempotencyCache(null, null, false, false, 1, 1, 1));
+        ReflectionTestUtils.setField(smsService, "templates", new TemplateRegistry(null, null, 1000));
+        ReflectionTestUtils.setField(smsService, "maxSegments", 3);
+    }
+
+    // MockProducer keeps every record it has seen; drop them so the heap stays flat.
+    @TearDown(Level.Iteration)
+    public void clearProducerHistory() {
+        producer.clear();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        outboxes.forEach(Outbox::stop);
+        dispatchEngine.stop();
+        FileSystemUtils.deleteRecursively(spoolDir);
+        rateLimiter.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        String nextNumber() {
+            return NUMBERS[next++ & (NUMBERS.length - 1)];
+        }
+    }
+
+    @Benchmark
+    public void sendSms(Cursor cursor, Blackhole blackhole) {
+        try {
+            smsService.sendSms(cursor.nextNumber(), "Your OTP is 482913. Do not share it with anyone.");
+        } catch (BlockedNumberException | DispatchRejectedException | ThrottledException e) {
+            blackhole.consume(e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.meesho.smssender.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.meesho.smssender.util.SmsSegments;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+    private final SmsService smsService = new SmsService();
+
+    private final String mobileNumber = "9876543210";
+
+    private final String message = "Your OTP is 482913. Do not share it with anyone.";
+
+    private final String longMessage = "Your order #A-1042 {2 items} has shipped and arrives by Friday. "
+        + "Track it in the app or reply STOP to opt out of delivery updates. ".repeat(3);
+
+    private final String unicodeMessage = "आपका OTP 482913 है। इसे किसी के साथ साझा न करें।";
+
+    @Setup
+    public void setUp() {
+        ReflectionTestUtils.setField(smsService, "maxSegments", 3);
+    }
+
+    @Benchmark
+    public long validateMessage() {
+        return smsService.validate(mobileNumber, message);
+    }
+
+    @Benchmark
+    public long validateNumber() {
+        return smsService.validate(mobileNumber);
+    }
+
+    @Benchmark
+    public SmsSegments segmentsGsm() {
+        return SmsSegments.of(longMessage);
+    }
+
+    @Benchmark
+    public SmsSegments segmentsUcs2() {
+        return SmsSegments.of(unicodeMessage);
+    }
+}
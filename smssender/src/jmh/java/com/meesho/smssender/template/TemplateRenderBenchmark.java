@@ -0,0 +1,73 @@
+package com.meesho.smssender.template;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meesho.smssender.dto.KafkaSmsData;
+import com.meesho.smssender.kafka.SmsEventSerializer;
+import com.meesho.smssender.kafka.WireFormat;
+
+/**
+ * {@link MessageTemplate#render} against the ad-hoc alternatives callers use today. The size of
+ * a rendered and a template-only sms-topic record is printed once per fork.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateRenderBenchmark {
+
+    private static final String BODY =
+        "Hi {name}, your order {order} has been shipped and will be delivered by {date}. Track it in the app under My Orders.";
+
+    private final Map<String, String> params = Map.of("name", "Asha", "order", "MS-20931847", "date", "Friday");
+
+    private MessageTemplate template;
+
+    @Setup
+    public void setUp() {
+        template = MessageTemplate.compile("order-shipped", BODY);
+        String rendered = template.render(params);
+        KafkaSmsData event = new KafkaSmsData("9876543210", rendered, "SUCCESS", template.id(), params);
+        ObjectMapper objectMapper = new ObjectMapper();
+        for (WireFormat format : WireFormat.values()) {
+            System.out.println(format + " bytes/record: rendered="
+                + new SmsEventSerializer(objectMapper, format).serialize("sms-topic", new KafkaSmsData("9876543210", rendered, "SUCCESS")).length
+                + " template-only=" + new SmsEventSerializer(objectMapper, format, false).serialize("sms-topic", event).length);
+        }
+    }
+
+    @Benchmark
+    public String compiled() {
+        return template.render(params);
+    }
+
+    @Benchmark
+    public String replaceChain() {
+        String out = BODY;
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            out = out.replace("{" + param.getKey() + "}", param.getValue());
+        }
+        return out;
+    }
+
+    @Benchmark
+    public String format() {
+        return String.format("Hi %s, your order %s has been shipped and will be delivered by %s. Track it in the app under My Orders.",
+            params.get("name"), params.get("order"), params.get("date"));
+    }
+}
@@ -0,0 +1,147 @@
+package com.meesho.smssender.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import com.meesho.smssender.repository.BlocklistFilter;
+import com.meesho.smssender.repository.BlocklistNearCache;
+import com.meesho.smssender.repository.BlocklistUpdate;
+import com.meesho.smssender.repository.RedisBlockedNumberRepository;
+
+// The in-memory blocklist of the loadtest profile has nothing to invalidate.
+@Configuration
+@Profile("!loadtest")
+public class BlocklistCacheConfig {
+
+    @Bean
+    public RedisMessageListenerContainer blocklistInvalidationContainer(
+            RedisConnectionFactory connectionFactory, BlocklistNearCache nearCache, BlocklistFilter filter) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(new InvalidationListener(nearCache, filter),
+            new ChannelTopic(RedisBlockedNumberRepository.INVALIDATION_CHANNEL));
+        // Started by the subscriber below so a missing Redis does not fail application startup.
+        container.setAutoStartup(false);
+        return container;
+    }
+
+    @Bean
+    public SmartLifecycle blocklistInvalidationSubscriber(
+            RedisMessageListenerContainer blocklistInvalidationContainer, BlocklistNearCache nearCache,
+            @Value("${sms.blocklist.near-cache.subscribe-retry-ms:5000}") long retryMs) {
+        return new InvalidationSubscriber(blocklistInvalidationContainer, nearCache, retryMs);
+    }
+
+    /**
+     * Applies {@link BlocklistUpdate}s from every replica (this one included) to the near-cache
+     * and from other replicas to the filter. The container re-subscribes after a dropped
+     * connection, and each subscription makes the filter rebuild, since updates may have been lost.
+     */
+    static class InvalidationListener implements MessageListener, SubscriptionListener {
+
+        private final BlocklistNearCache nearCache;
+        private final BlocklistFilter filter;
+
+        InvalidationListener(BlocklistNearCache nearCache, BlocklistFilter filter) {
+            this.nearCache = nearCache;
+            this.filter = filter;
+        }
+
+        @Override
+        public void onMessage(Message message, byte[] pattern) {
+            BlocklistUpdate update = BlocklistUpdate.parse(new String(message.getBody(), StandardCharsets.US_ASCII));
+            if (update == null) {
+                // Unknown payload: drop everything rather than risk serving a stale entry.
+                nearCache.clear();
+                filter.requestRebuild();
+                return;
+            }
+            for (long mobileNumber : update.mobileNumbers()) {
+                nearCache.invalidate(mobileNumber);
+            }
+            filter.apply(update);
+        }
+
+        @Override
+        public void onChannelSubscribed(byte[] channel, long count) {
+            filter.onSubscribed();
+        }
+
+        @Override
+        public void onChannelUnsubscribed(byte[] channel, long count) {
+            filter.onUnsubscribed();
+        }
+    }
+
+    /**
+     * Keeps retrying the initial pub/sub subscription in the background. Once subscribed, the
+     * container recovers dropped connections on its own. Until then, the near-cache TTL bounds staleness.
+     */
+    static class InvalidationSubscriber implements SmartLifecycle {
+
+        private static final Logger log = LoggerFactory.getLogger(InvalidationSubscriber.class);
+
+        private final RedisMessageListenerContainer container;
+        private final BlocklistNearCache nearCache;
+        private final long retryMs;
+        private ScheduledExecutorService executor;
+
+        InvalidationSubscriber(RedisMessageListenerContainer container, BlocklistNearCache nearCache, long retryMs) {
+            this.container = container;
+            this.nearCache = nearCache;
+            this.retryMs = retryMs;
+        }
+
+        @Override
+        public synchronized void start() {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "blocklist-invalidation-subscriber");
+                t.setDaemon(true);
+                return t;
+            });
+            executor.execute(this::subscribe);
+        }
+
+        private void subscribe() {
+            try {
+                container.start();
+                // Anything cached before the subscription was live may have missed an invalidation.
+                nearCache.clear();
+            } catch (RuntimeException e) {
+                container.stop();
+                log.warn("Blocklist near-cache invalidation subscribe failed, retrying in {} ms: {}", retryMs, e.getMessage());
+                executor.schedule(this::subscribe, retryMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        @Override
+        public synchronized void stop() {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+            container.stop();
+        }
+
+        @Override
+        public synchronized boolean isRunning() {
+            return executor != null;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.meesho.smssender.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.meesho.smssender.dispatch.DispatchSettings;
+
+/**
+ * {@link DispatchSettings} for the {@link com.meesho.smssender.dispatch.DispatchEngine}; any
+ * property left unset keeps its value from {@link DispatchSettings#DEFAULTS}.
+ */
+@Configuration
+public class DispatchConfig {
+
+    @Bean
+    public DispatchSettings dispatchSettings(Environment environment) {
+        DispatchSettings defaults = DispatchSettings.DEFAULTS;
+        return new DispatchSettings(
+            environment.getProperty("sms.dispatch.max-concurrency", Integer.class, defaults.maxConcurrency()),
+            environment.getProperty("sms.lanes.otp.reserved-concurrency", Integer.class, defaults.otpReserved()),
+            environment.getProperty("sms.dispatch.queue-capacity", Integer.class, defaults.queueCapacity()),
+            environment.getProperty("sms.dispatch.completion-threads", Integer.class, defaults.completionThreads()),
+            environment.getProperty("sms.dispatch.drain-timeout-ms", Long.class, defaults.drainTimeoutMs()),
+            environment.getProperty("sms.lanes.otp.weight", Integer.class, defaults.otpWeight()),
+            environment.getProperty("sms.lanes.standard.weight", Integer.class, defaults.standardWeight()),
+            environment.getProperty("sms.lanes.bulk.weight", Integer.class, defaults.bulkWeight()),
+            environment.getProperty("sms.segments.auto-split", Boolean.class, defaults.autoSplit()),
+            environment.getProperty("sms.gateway.timeout-ms", Long.class, defaults.timeoutMs()),
+            environment.getProperty("sms.gateway.limit.min", Integer.class, defaults.minConcurrency()),
+            environment.getProperty("sms.gateway.limit.slow-ms", Long.class, defaults.slowMs()));
+    }
+}
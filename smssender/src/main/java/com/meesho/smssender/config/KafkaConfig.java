@@ -0,0 +1,105 @@
+package com.meesho.smssender.config;
+
+import java.util.List;
+import java.util.Set;
+
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.kafka.autoconfigure.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.core.ProducerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meesho.smssender.kafka.ProducerProfile;
+import com.meesho.smssender.kafka.SmsEventSerializer;
+import com.meesho.smssender.kafka.WireFormat;
+import com.meesho.smssender.retry.RetryTiers;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+
+/**
+ * One producer per {@link ProducerProfile}: the OTP lane sends with {@code latency}, the bulk lane
+ * with {@code throughput}, and everything else (standard lane, user events, retries) with the
+ * primary {@code balanced} template. Each profile's batching and compression can be overridden
+ * with {@code sms.kafka.profiles.<name>.*}.
+ *
+ * Replacing Boot's producer factory means its meter binding is gone too, so every factory
+ * registers the client's own metrics as {@code kafka.producer.*} tagged with the profile:
+ * {@code record.queue.time.avg}, {@code batch.size.avg}, {@code compression.rate.avg} and the
+ * per-topic rates among them.
+ */
+@Configuration
+public class KafkaConfig {
+
+    @Bean
+    public SmsEventSerializer smsEventSerializer(
+            ObjectMapper objectMapper, @Value("${sms.kafka.wire-format:json}") String wireFormat,
+            @Value("${sms.templates.rendered-messages:true}") boolean renderedMessages, RetryTiers retryTiers) {
+        return new SmsEventSerializer(objectMapper, WireFormat.valueOf(wireFormat.toUpperCase()), renderedMessages,
+            Set.copyOf(retryTiers.allTopics()));
+    }
+
+    @Bean
+    @Primary
+    public ProducerFactory<Long, Object> kafkaProducerFactory(KafkaProperties kafkaProperties,
+            SmsEventSerializer smsEventSerializer, MeterRegistry meterRegistry, Environment environment) {
+        return producerFactory(profile(environment, ProducerProfile.BALANCED), kafkaProperties, smsEventSerializer,
+            meterRegistry);
+    }
+
+    @Bean
+    public ProducerFactory<Long, Object> latencyProducerFactory(KafkaProperties kafkaProperties,
+            SmsEventSerializer smsEventSerializer, MeterRegistry meterRegistry, Environment environment) {
+        return producerFactory(profile(environment, ProducerProfile.LATENCY), kafkaProperties, smsEventSerializer,
+            meterRegistry);
+    }
+
+    @Bean
+    public ProducerFactory<Long, Object> throughputProducerFactory(KafkaProperties kafkaProperties,
+            SmsEventSerializer smsEventSerializer, MeterRegistry meterRegistry, Environment environment) {
+        return producerFactory(profile(environment, ProducerProfile.THROUGHPUT), kafkaProperties, smsEventSerializer,
+            meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public KafkaTemplate<Long, Object> kafkaTemplate(ProducerFactory<Long, Object> kafkaProducerFactory) {
+        return new KafkaTemplate<>(kafkaProducerFactory);
+    }
+
+    @Bean
+    public KafkaTemplate<Long, Object> latencyKafkaTemplate(
+            @Qualifier("latencyProducerFactory") ProducerFactory<Long, Object> latencyProducerFactory) {
+        return new KafkaTemplate<>(latencyProducerFactory);
+    }
+
+    @Bean
+    public KafkaTemplate<Long, Object> throughputKafkaTemplate(
+            @Qualifier("throughputProducerFactory") ProducerFactory<Long, Object> throughputProducerFactory) {
+        return new KafkaTemplate<>(throughputProducerFactory);
+    }
+
+    private static DefaultKafkaProducerFactory<Long, Object> producerFactory(ProducerProfile profile,
+            KafkaProperties kafkaProperties, SmsEventSerializer smsEventSerializer, MeterRegistry meterRegistry) {
+        DefaultKafkaProducerFactory<Long, Object> factory = new DefaultKafkaProducerFactory<>(
+            profile.apply(kafkaProperties.buildProducerProperties()), new LongSerializer(), smsEventSerializer);
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry, List.of(Tag.of("profile", profile.name()))));
+        return factory;
+    }
+
+    private static ProducerProfile profile(Environment environment, ProducerProfile defaults) {
+        String prefix = "sms.kafka.profiles." + defaults.name() + ".";
+        return new ProducerProfile(defaults.name(),
+            environment.getProperty(prefix + "linger-ms", Integer.class, defaults.lingerMs()),
+            environment.getProperty(prefix + "batch-size", Integer.class, defaults.batchSize()),
+            environment.getProperty(prefix + "compression-type", defaults.compressionType()));
+    }
+}
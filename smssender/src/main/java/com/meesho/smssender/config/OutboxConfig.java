@@ -0,0 +1,96 @@
+package com.meesho.smssender.config;
+
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import com.meesho.smssender.dispatch.DispatchEngine;
+import com.meesho.smssender.dispatch.Priority;
+import com.meesho.smssender.metrics.SmsMetrics;
+import com.meesho.smssender.outbox.MappedSpool;
+import com.meesho.smssender.outbox.Outbox;
+import com.meesho.smssender.outbox.OutboxSettings;
+import com.meesho.smssender.retry.RetryTiers;
+import com.meesho.smssender.status.DeliveryStatusCache;
+
+/**
+ * One spool and outbox per {@link Priority} lane. The standard lane keeps {@code sms.outbox.dir},
+ * so a spool written before lanes existed is still drained; the others sit next to it. Each lane
+ * produces through the template of its {@link com.meesho.smssender.kafka.ProducerProfile}.
+ */
+@Configuration
+public class OutboxConfig {
+
+    @Value("${sms.outbox.dir:data/outbox}")
+    private String dir;
+
+    @Value("${sms.outbox.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    @Value("${sms.outbox.max-bytes:1073741824}")
+    private long maxBytes;
+
+    @Autowired
+    private Environment environment;
+
+    @Bean(destroyMethod = "close")
+    public MappedSpool otpOutboxSpool() {
+        return new MappedSpool(Path.of(dir + "-otp"), segmentBytes, maxBytes);
+    }
+
+    @Bean(destroyMethod = "close")
+    public MappedSpool outboxSpool() {
+        return new MappedSpool(Path.of(dir), segmentBytes, maxBytes);
+    }
+
+    @Bean(destroyMethod = "close")
+    public MappedSpool bulkOutboxSpool() {
+        return new MappedSpool(Path.of(dir + "-bulk"), segmentBytes, maxBytes);
+    }
+
+    @Bean
+    public Outbox otpOutbox(@Qualifier("latencyKafkaTemplate") KafkaTemplate<Long, Object> kafkaTemplate,
+            DispatchEngine dispatchEngine, SmsMetrics metrics, RetryTiers retryTiers,
+            DeliveryStatusCache statuses, @Value("${sms.lanes.otp.topic:sms-topic-otp}") String topic) {
+        return outbox(Priority.OTP, topic, otpOutboxSpool(), kafkaTemplate, dispatchEngine, metrics, retryTiers, statuses);
+    }
+
+    @Bean
+    public Outbox outbox(KafkaTemplate<Long, Object> kafkaTemplate, DispatchEngine dispatchEngine,
+            SmsMetrics metrics, RetryTiers retryTiers, DeliveryStatusCache statuses,
+            @Value("${sms.lanes.standard.topic:sms-topic}") String topic) {
+        return outbox(Priority.STANDARD, topic, outboxSpool(), kafkaTemplate, dispatchEngine, metrics, retryTiers, statuses);
+    }
+
+    @Bean
+    public Outbox bulkOutbox(@Qualifier("throughputKafkaTemplate") KafkaTemplate<Long, Object> kafkaTemplate,
+            DispatchEngine dispatchEngine, SmsMetrics metrics, RetryTiers retryTiers,
+            DeliveryStatusCache statuses, @Value("${sms.lanes.bulk.topic:sms-topic-bulk}") String topic) {
+        return outbox(Priority.BULK, topic, bulkOutboxSpool(), kafkaTemplate, dispatchEngine, metrics, retryTiers, statuses);
+    }
+
+    private Outbox outbox(Priority lane, String topic, MappedSpool spool, KafkaTemplate<Long, Object> kafkaTemplate,
+            DispatchEngine dispatchEngine, SmsMetrics metrics, RetryTiers retryTiers, DeliveryStatusCache statuses) {
+        String retryTopic = retryTiers.enabled() ? retryTiers.topic(0) : null;
+        return new Outbox(lane, topic, retryTopic, spool, kafkaTemplate, dispatchEngine, metrics, settings(), statuses);
+    }
+
+    // Any property left unset keeps its value from OutboxSettings.DEFAULTS.
+    private OutboxSettings settings() {
+        OutboxSettings defaults = OutboxSettings.DEFAULTS;
+        return new OutboxSettings(
+            environment.getProperty("sms.outbox.drain-batch", Integer.class, defaults.drainBatch()),
+            environment.getProperty("sms.outbox.max-pending", Integer.class, defaults.maxPending()),
+            environment.getProperty("sms.outbox.flush-interval-ms", Long.class, defaults.flushIntervalMs()),
+            environment.getProperty("sms.outbox.retry-backoff-ms", Long.class, defaults.retryBackoffMs()),
+            environment.getProperty("sms.dispatch.drain-timeout-ms", Long.class, defaults.drainTimeoutMs()),
+            environment.getProperty("sms.outbox.per-recipient-order", Boolean.class, defaults.perRecipientOrder()),
+            environment.getProperty("sms.outbox.coalesce-ms", Long.class, defaults.coalesceMs()));
+    }
+}
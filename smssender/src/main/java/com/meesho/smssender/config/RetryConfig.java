@@ -0,0 +1,58 @@
+package com.meesho.smssender.config;
+
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.LongDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.kafka.autoconfigure.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meesho.smssender.dispatch.DispatchEngine;
+import com.meesho.smssender.dto.KafkaSmsData;
+import com.meesho.smssender.kafka.SmsEventDeserializer;
+import com.meesho.smssender.metrics.SmsMetrics;
+import com.meesho.smssender.outbox.OutboxRouter;
+import com.meesho.smssender.retry.RetryListener;
+import com.meesho.smssender.retry.RetryTiers;
+import com.meesho.smssender.status.DeliveryStatusCache;
+import com.meesho.smssender.util.TimerWheel;
+
+/**
+ * Consumer side of the retry tiers. The consumers share Boot's {@code spring.kafka.*} connection
+ * settings but not its consumer group or deserializers; a record that cannot be read is logged
+ * and skipped by the container's error handler.
+ */
+@Configuration
+public class RetryConfig {
+
+    @Bean(destroyMethod = "close")
+    public TimerWheel retryTimerWheel(@Value("${sms.retry.tick-ms:100}") long tickMs,
+            @Value("${sms.retry.wheel-size:512}") int wheelSize) {
+        return new TimerWheel("sms-retry-wheel", tickMs, wheelSize);
+    }
+
+    @Bean
+    public RetryListener retryListener(RetryTiers tiers, KafkaProperties kafkaProperties, ObjectMapper objectMapper,
+            KafkaTemplate<Long, Object> kafkaTemplate, DispatchEngine dispatchEngine, OutboxRouter router,
+            SmsMetrics metrics, DeliveryStatusCache statuses, TimerWheel retryTimerWheel,
+            @Value("${sms.retry.group-id:smssender-retry}") String groupId,
+            @Value("${sms.retry.max-poll-records:500}") int maxPollRecords,
+            @Value("${sms.retry.backoff-ms:1000}") long backoffMs,
+            @Value("${sms.retry.listener.auto-startup:true}") boolean autoStartup) {
+        Map<String, Object> properties = kafkaProperties.buildConsumerProperties();
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        DefaultKafkaConsumerFactory<Long, KafkaSmsData> consumerFactory = new DefaultKafkaConsumerFactory<>(
+            properties, new LongDeserializer(), new ErrorHandlingDeserializer<>(new SmsEventDeserializer(objectMapper)));
+        return new RetryListener(tiers, consumerFactory, kafkaTemplate, dispatchEngine, router, metrics, statuses,
+            retryTimerWheel, backoffMs, tiers.enabled() && autoStartup);
+    }
+}
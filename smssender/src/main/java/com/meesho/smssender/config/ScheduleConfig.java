@@ -0,0 +1,41 @@
+package com.meesho.smssender.config;
+
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.meesho.smssender.schedule.ScheduledSendDispatcher;
+import com.meesho.smssender.schedule.ScheduledSendStore;
+import com.meesho.smssender.service.SmsService;
+import com.meesho.smssender.util.TimerWheel;
+
+/**
+ * Sending side of scheduled sends. The wheel holds one wakeup per owned partition, so it stays
+ * small however many sends are waiting in Redis; its tick bounds how late a send can go out.
+ */
+@Configuration
+public class ScheduleConfig {
+
+    @Bean(destroyMethod = "close")
+    public TimerWheel scheduleTimerWheel(@Value("${sms.schedule.tick-ms:50}") long tickMs,
+            @Value("${sms.schedule.wheel-size:512}") int wheelSize) {
+        return new TimerWheel("sms-schedule-wheel", tickMs, wheelSize);
+    }
+
+    @Bean
+    public ScheduledSendDispatcher scheduledSendDispatcher(ScheduledSendStore store, SmsService smsService,
+            TimerWheel scheduleTimerWheel,
+            @Value("${sms.schedule.batch-size:500}") int batchSize,
+            @Value("${sms.schedule.lease-ms:30000}") long leaseMs,
+            @Value("${sms.schedule.refresh-ms:1000}") long refreshMs,
+            @Value("${sms.schedule.replica-ttl-ms:5000}") long replicaTtlMs,
+            @Value("${sms.schedule.replica-id:}") String replicaId,
+            @Value("${sms.schedule.enabled:true}") boolean enabled) {
+        // A fresh id per start: a restarted replica must not inherit a rank it no longer heartbeats.
+        String id = replicaId.isBlank() ? UUID.randomUUID().toString() : replicaId;
+        return new ScheduledSendDispatcher(store, smsService, scheduleTimerWheel, batchSize, leaseMs, refreshMs,
+            replicaTtlMs, id, enabled);
+    }
+}
@@ -0,0 +1,143 @@
+package com.meesho.smssender.controller;
+
+import java.io.InputStream;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.meesho.smssender.dto.BlockRequest;
+import com.meesho.smssender.dto.BlockResponse;
+import com.meesho.smssender.dto.BulkBlockResponse;
+import com.meesho.smssender.dto.SmsRequest;
+import com.meesho.smssender.dto.SmsResponse;
+import com.meesho.smssender.dto.SmsStatusResponse;
+import com.meesho.smssender.dto.TemplateRequest;
+import com.meesho.smssender.dto.TemplateResponse;
+import com.meesho.smssender.service.SmsService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * {@link SmsController} on WebFlux, active with the {@code reactive} profile.
+ *
+ * Sends never block an event-loop thread: the blocklist lookup uses the reactive Redis client
+ * and the accepted message goes to the outbox spool. Block, unblock and template registration
+ * are rare admin operations on blocking Redis calls, so they run on the bounded elastic
+ * scheduler instead, as do scheduled sends, which are one Redis write per partition.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/v1/sms")
+public class ReactiveSmsController {
+
+    // Buffers requested ahead from the request body while a bulk import is being applied.
+    private static final int BULK_PREFETCH = 4;
+
+    @Autowired
+    private SmsService smsService;
+
+    @PostMapping("/send")
+    public Mono<ResponseEntity<SmsResponse>> func(@RequestBody SmsRequest smsrequest,
+            @RequestHeader(value = SmsController.CLIENT_ID_HEADER, required = false) String clientId) {
+        return smsService.sendSmsReactive(clientId, smsrequest)
+            .map(ReactiveSmsController::enqueued)
+            .switchIfEmpty(Mono.fromSupplier(() -> enqueued(null)));
+    }
+
+    private static ResponseEntity<SmsResponse> enqueued(String id) {
+        return new ResponseEntity<SmsResponse>(
+            new SmsResponse("ENQUEUED", "Message enqueued for delivery", id), org.springframework.http.HttpStatus.ACCEPTED
+        );
+    }
+
+    // A memory read, so it stays on the event loop.
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<SmsStatusResponse>> status(@PathVariable String id) {
+        return Mono.fromCallable(() -> new ResponseEntity<SmsStatusResponse>(
+            smsService.status(id), org.springframework.http.HttpStatus.OK
+        ));
+    }
+
+    @PostMapping("/send/batch")
+    public Mono<ResponseEntity<List<SmsResponse>>> sendBatch(@RequestBody List<SmsRequest> smsRequests,
+            @RequestHeader(value = SmsController.CLIENT_ID_HEADER, required = false) String clientId) {
+        return smsService.sendSmsBatchReactive(clientId, smsRequests)
+            .map(results -> new ResponseEntity<List<SmsResponse>>(results, org.springframework.http.HttpStatus.ACCEPTED));
+    }
+
+    @PostMapping("/schedule")
+    public Mono<ResponseEntity<SmsResponse>> schedule(@RequestBody SmsRequest smsrequest,
+            @RequestHeader(value = SmsController.CLIENT_ID_HEADER, required = false) String clientId) {
+        return Mono.fromCallable(() -> smsService.scheduleSms(clientId, smsrequest))
+            .subscribeOn(Schedulers.boundedElastic())
+            .map(response -> new ResponseEntity<SmsResponse>(response, org.springframework.http.HttpStatus.ACCEPTED));
+    }
+
+    @PostMapping("/schedule/batch")
+    public Mono<ResponseEntity<List<SmsResponse>>> scheduleBatch(@RequestBody List<SmsRequest> smsRequests,
+            @RequestHeader(value = SmsController.CLIENT_ID_HEADER, required = false) String clientId) {
+        return Mono.fromCallable(() -> smsService.scheduleSmsBatch(clientId, smsRequests))
+            .subscribeOn(Schedulers.boundedElastic())
+            .map(results -> new ResponseEntity<List<SmsResponse>>(results, org.springframework.http.HttpStatus.ACCEPTED));
+    }
+
+    @PostMapping("/templates")
+    public Mono<ResponseEntity<TemplateResponse>> registerTemplate(@RequestBody TemplateRequest templateReq) {
+        return Mono.fromCallable(() -> smsService.registerTemplate(templateReq.templateId(), templateReq.body()))
+            .subscribeOn(Schedulers.boundedElastic())
+            .map(response -> new ResponseEntity<TemplateResponse>(response, "REGISTERED".equals(response.status())
+                ? org.springframework.http.HttpStatus.CREATED : org.springframework.http.HttpStatus.OK));
+    }
+
+    @PostMapping("/block")
+    public Mono<ResponseEntity<BlockResponse>> blockUser(@RequestBody BlockRequest blockReq) {
+        return Mono.fromCallable(() -> smsService.blockUser(blockReq.mobileNumber()))
+            .subscribeOn(Schedulers.boundedElastic())
+            .map(changed -> changed == 1
+                ? new ResponseEntity<BlockResponse>(new BlockResponse(blockReq.mobileNumber(), "BLOCKED"), org.springframework.http.HttpStatus.OK)
+                : new ResponseEntity<BlockResponse>(new BlockResponse(blockReq.mobileNumber(), "ALREADY_BLOCKED"), org.springframework.http.HttpStatus.ACCEPTED));
+    }
+
+    @PostMapping("/unblock")
+    public Mono<ResponseEntity<BlockResponse>> unblockUser(@RequestBody BlockRequest blockReq) {
+        return Mono.fromCallable(() -> smsService.unblockUser(blockReq.mobileNumber()))
+            .subscribeOn(Schedulers.boundedElastic())
+            .map(changed -> changed == 1
+                ? new ResponseEntity<BlockResponse>(new BlockResponse(blockReq.mobileNumber(), "UNBLOCKED"), org.springframework.http.HttpStatus.OK)
+                : new ResponseEntity<BlockResponse>(new BlockResponse(blockReq.mobileNumber(), "ALREADY_NOT_BLOCKED"), org.springframework.http.HttpStatus.ACCEPTED));
+    }
+
+    // The body still streams: the import reads it as an InputStream fed with a few buffers at a time.
+    @PostMapping("/block/bulk")
+    public Mono<ResponseEntity<BulkBlockResponse>> blockUsers(@RequestBody Flux<DataBuffer> body) {
+        return Mono.fromCallable(() -> {
+            try (InputStream in = DataBufferUtils.subscriberInputStream(body, BULK_PREFETCH)) {
+                return smsService.blockUsers(in);
+            }
+        }).subscribeOn(Schedulers.boundedElastic())
+            .map(result -> new ResponseEntity<BulkBlockResponse>(result, org.springframework.http.HttpStatus.OK));
+    }
+
+    @PostMapping("/unblock/bulk")
+    public Mono<ResponseEntity<BulkBlockResponse>> unblockUsers(@RequestBody Flux<DataBuffer> body) {
+        return Mono.fromCallable(() -> {
+            try (InputStream in = DataBufferUtils.subscriberInputStream(body, BULK_PREFETCH)) {
+                return smsService.unblockUsers(in);
+            }
+        }).subscribeOn(Schedulers.boundedElastic())
+            .map(result -> new ResponseEntity<BulkBlockResponse>(result, org.springframework.http.HttpStatus.OK));
+    }
+}
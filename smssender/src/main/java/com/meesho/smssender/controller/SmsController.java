@@ -1,30 +1,86 @@
 package com.meesho.smssender.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.meesho.smssender.dto.BlockRequest;
 import com.meesho.smssender.dto.BlockResponse;
+import com.meesho.smssender.dto.BulkBlockResponse;
 import com.meesho.smssender.dto.SmsRequest;
 import com.meesho.smssender.dto.SmsResponse;
+import com.meesho.smssender.dto.SmsStatusResponse;
+import com.meesho.smssender.dto.TemplateRequest;
+import com.meesho.smssender.dto.TemplateResponse;
 import com.meesho.smssender.service.SmsService;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/v1/sms")
 public class SmsController {
 
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+
     @Autowired
     private SmsService smsService;
 
     @PostMapping("/send")
-    public ResponseEntity<SmsResponse> func(@RequestBody SmsRequest smsrequest) {
-        smsService.sendSms(smsrequest.mobileNumber(), smsrequest.message());
+    public ResponseEntity<SmsResponse> func(@RequestBody SmsRequest smsrequest,
+            @RequestHeader(value = CLIENT_ID_HEADER, required = false) String clientId) {
+        String id = smsService.sendSms(clientId, smsrequest);
+        return new ResponseEntity<SmsResponse>(
+            new SmsResponse("ENQUEUED", "Message enqueued for delivery", id), org.springframework.http.HttpStatus.ACCEPTED
+        );
+    }
+
+    // Answered from the in-memory ring of recent statuses; see DeliveryStatusCache.
+    @GetMapping("/{id}")
+    public ResponseEntity<SmsStatusResponse> status(@PathVariable String id) {
+        return new ResponseEntity<SmsStatusResponse>(
+            smsService.status(id), org.springframework.http.HttpStatus.OK
+        );
+    }
+
+    @PostMapping("/send/batch")
+    public ResponseEntity<List<SmsResponse>> sendBatch(@RequestBody List<SmsRequest> smsRequests,
+            @RequestHeader(value = CLIENT_ID_HEADER, required = false) String clientId) {
+        return new ResponseEntity<List<SmsResponse>>(
+            smsService.sendSmsBatch(clientId, smsRequests), org.springframework.http.HttpStatus.ACCEPTED
+        );
+    }
+
+    @PostMapping("/schedule")
+    public ResponseEntity<SmsResponse> schedule(@RequestBody SmsRequest smsrequest,
+            @RequestHeader(value = CLIENT_ID_HEADER, required = false) String clientId) {
         return new ResponseEntity<SmsResponse>(
-            new SmsResponse("ENQUEUED", "Message enqueued for delivery"), org.springframework.http.HttpStatus.ACCEPTED
+            smsService.scheduleSms(clientId, smsrequest), org.springframework.http.HttpStatus.ACCEPTED
+        );
+    }
+
+    @PostMapping("/schedule/batch")
+    public ResponseEntity<List<SmsResponse>> scheduleBatch(@RequestBody List<SmsRequest> smsRequests,
+            @RequestHeader(value = CLIENT_ID_HEADER, required = false) String clientId) {
+        return new ResponseEntity<List<SmsResponse>>(
+            smsService.scheduleSmsBatch(clientId, smsRequests), org.springframework.http.HttpStatus.ACCEPTED
+        );
+    }
+
+    @PostMapping("/templates")
+    public ResponseEntity<TemplateResponse> registerTemplate(@RequestBody TemplateRequest templateReq) {
+        TemplateResponse response = smsService.registerTemplate(templateReq.templateId(), templateReq.body());
+        return new ResponseEntity<TemplateResponse>(
+            response, "REGISTERED".equals(response.status()) ? org.springframework.http.HttpStatus.CREATED : org.springframework.http.HttpStatus.OK
         );
     }
 
@@ -44,4 +100,20 @@ public class SmsController {
         );
     }
 
+    // The body is read as a stream, one number per line (or the first CSV column), so files
+    // with millions of numbers are never held in memory.
+    @PostMapping("/block/bulk")
+    public ResponseEntity<BulkBlockResponse> blockUsers(InputStream body) throws IOException {
+        return new ResponseEntity<BulkBlockResponse>(
+            smsService.blockUsers(body), org.springframework.http.HttpStatus.OK
+        );
+    }
+
+    @PostMapping("/unblock/bulk")
+    public ResponseEntity<BulkBlockResponse> unblockUsers(InputStream body) throws IOException {
+        return new ResponseEntity<BulkBlockResponse>(
+            smsService.unblockUsers(body), org.springframework.http.HttpStatus.OK
+        );
+    }
+
 }
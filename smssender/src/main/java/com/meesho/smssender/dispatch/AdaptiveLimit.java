@@ -0,0 +1,86 @@
+package com.meesho.smssender.dispatch;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * AIMD concurrency limit for gateway calls.
+ *
+ * The limit starts at {@code max}. A call that fails or takes longer than {@code slow} cuts it
+ * by {@link #BACKOFF}, at most once per {@code slow} interval so that one slowdown seen by many
+ * in-flight calls counts once. Each fast success while at least half the limit is in use adds
+ * {@code 1 / limit}, about one slot per round of calls, back up to {@code max}; it never drops
+ * below {@code min}.
+ *
+ * {@link #tryAcquire()} is a CAS on the in-flight count against a volatile limit; only
+ * {@link #sample} takes the lock.
+ */
+class AdaptiveLimit {
+
+    static final double BACKOFF = 0.9;
+
+    private final int min;
+    private final int max;
+    private final long slowNanos;
+    private final LongSupplier clock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+    private double estimate;
+    private long lastDecrease;
+
+    AdaptiveLimit(int min, int max, long slowMs) {
+        this(min, max, slowMs, System::nanoTime);
+    }
+
+    AdaptiveLimit(int min, int max, long slowMs, LongSupplier clock) {
+        this.max = Math.max(max, 0);
+        this.min = Math.min(Math.max(min, 1), this.max);
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowMs);
+        this.clock = clock;
+        this.limit = this.max;
+        this.estimate = this.max;
+        this.lastDecrease = clock.getAsLong() - slowNanos;
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Adjusts the limit after a gateway call, whether or not it held one of these slots.
+     */
+    synchronized void sample(long latencyNanos, boolean failed) {
+        if (failed || latencyNanos > slowNanos) {
+            long now = clock.getAsLong();
+            if (now - lastDecrease >= slowNanos) {
+                estimate = Math.max(min, estimate * BACKOFF);
+                lastDecrease = now;
+            }
+        } else if (inFlight.get() * 2 >= limit) {
+            estimate = Math.min(max, estimate + 1 / estimate);
+        }
+        limit = (int) estimate;
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
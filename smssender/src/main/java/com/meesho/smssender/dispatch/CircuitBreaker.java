@@ -0,0 +1,192 @@
+package com.meesho.smssender.dispatch;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Circuit breaker around the gateway stage.
+ *
+ * While closed, the outcomes of the last {@code window} calls are kept in a ring. Once at least
+ * {@code min-calls} of them are recorded and {@code failure-rate} of them failed (errors and
+ * timeouts alike), the breaker opens and {@link #tryAcquire()} refuses every call for
+ * {@code open-ms}. After that it lets {@code half-open-probes} calls through: if all of them
+ * succeed it closes again, and the first failure reopens it.
+ *
+ * The closed-state check is a single volatile read; only state changes and recording take the
+ * lock, once per finished gateway call.
+ */
+@Component
+public class CircuitBreaker implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean[] window;
+    private final int minCalls;
+    private final double failureRate;
+    private final long openNanos;
+    private final int probes;
+    private final LongSupplier clock;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    private volatile State state = State.CLOSED;
+    private long openUntil;
+    private int index;
+    private int count;
+    private int failures;
+    private int probesLeft;
+    private int probeSuccesses;
+
+    public CircuitBreaker() {
+        this(100, 20, 0.5, 10_000, 5);
+    }
+
+    @Autowired
+    public CircuitBreaker(
+            @Value("${sms.gateway.breaker.window:100}") int window,
+            @Value("${sms.gateway.breaker.min-calls:20}") int minCalls,
+            @Value("${sms.gateway.breaker.failure-rate:0.5}") double failureRate,
+            @Value("${sms.gateway.breaker.open-ms:10000}") long openMs,
+            @Value("${sms.gateway.breaker.half-open-probes:5}") int probes) {
+        this(window, minCalls, failureRate, openMs, probes, System::nanoTime);
+    }
+
+    CircuitBreaker(int window, int minCalls, double failureRate, long openMs, int probes, LongSupplier clock) {
+        if (window < 1 || minCalls < 1 || minCalls > window || probes < 1) {
+            throw new IllegalArgumentException("Breaker needs 1 <= min-calls <= window and at least one probe");
+        }
+        this.window = new boolean[window];
+        this.minCalls = minCalls;
+        this.failureRate = failureRate;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.probes = probes;
+        this.clock = clock;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    /**
+     * Whether a gateway call may start now. In the half-open state each {@code true} uses up one
+     * of the probes.
+     */
+    public boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (clock.getAsLong() - openUntil < 0) {
+                    rejected.increment();
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probesLeft = probes;
+                probeSuccesses = 0;
+                log.info("Gateway circuit half-open, sending {} probe calls.", probes);
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesLeft == 0) {
+                    rejected.increment();
+                    return false;
+                }
+                probesLeft--;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Hands back a {@link #tryAcquire()} whose call never started, so a half-open probe is not
+     * lost to it. Without this, calls refused further on would use up the probes and leave the
+     * breaker half-open for good.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN && probesLeft < probes) {
+            probesLeft++;
+        }
+    }
+
+    /**
+     * Records the outcome of a finished gateway call.
+     */
+    public synchronized void record(boolean success) {
+        switch (state) {
+            case OPEN -> {
+                // A call that started before the breaker opened; the decision is already made.
+            }
+            case HALF_OPEN -> {
+                if (!success) {
+                    log.warn("Gateway probe failed, circuit open again for {} ms.", TimeUnit.NANOSECONDS.toMillis(openNanos));
+                    open();
+                } else if (++probeSuccesses >= probes) {
+                    state = State.CLOSED;
+                    reset();
+                    log.info("Gateway circuit closed after {} successful probes.", probes);
+                }
+            }
+            case CLOSED -> {
+                if (count == window.length) {
+                    if (window[index]) {
+                        failures--;
+                    }
+                } else {
+                    count++;
+                }
+                window[index] = !success;
+                if (!success) {
+                    failures++;
+                }
+                index = (index + 1) % window.length;
+                if (count >= minCalls && failures >= failureRate * count) {
+                    log.warn("Gateway circuit open for {} ms: {} of the last {} calls failed.",
+                        TimeUnit.NANOSECONDS.toMillis(openNanos), failures, count);
+                    open();
+                }
+            }
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = clock.getAsLong() + openNanos;
+        opened.increment();
+        reset();
+    }
+
+    private void reset() {
+        index = 0;
+        count = 0;
+        failures = 0;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sms.gateway.breaker.state", this, b -> b.state().ordinal())
+            .description("Gateway circuit state: 0 closed, 1 open, 2 half-open")
+            .register(registry);
+        FunctionCounter.builder("sms.gateway.breaker.opened", opened, LongAdder::sum)
+            .description("Times the gateway circuit opened")
+            .register(registry);
+        FunctionCounter.builder("sms.gateway.breaker.rejected", rejected, LongAdder::sum)
+            .description("Gateway calls refused while the circuit was open")
+            .register(registry);
+    }
+}
@@ -0,0 +1,337 @@
+package com.meesho.smssender.dispatch;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import com.meesho.smssender.exception.DispatchRejectedException;
+import com.meesho.smssender.exception.GatewayUnavailableException;
+import com.meesho.smssender.metrics.SmsMetrics;
+import com.meesho.smssender.util.SmsSegments;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Runs the gateway stage for accepted messages.
+ *
+ * At most {@code max-concurrency} gateway calls are in flight. Further messages wait in a
+ * bounded queue per {@link Priority} lane, and a full queue is rejected straight away with
+ * {@link DispatchRejectedException} (HTTP 429) instead of buffering without limit. On shutdown,
+ * new work is refused and queued and in-flight messages are drained for up to
+ * {@code drain-timeout-ms}.
+ *
+ * The shared slots follow an {@link AdaptiveLimit}: a slow or failing provider shrinks the number
+ * of concurrent calls, and it grows back once calls are fast again. Every call is failed after
+ * {@code sms.gateway.timeout-ms}, so a hung provider cannot hold slots forever. The
+ * {@link CircuitBreaker} sees every outcome; while it is open, new messages are refused with
+ * {@link GatewayUnavailableException} and queued ones are failed with it rather than waiting.
+ *
+ * A free slot goes to the lanes in proportion to their weights (smooth weighted round-robin), or
+ * to any lane with work when the scheduled one is empty. {@code otp.reserved-concurrency} of the
+ * slots are held back for OTPs, so even with every shared slot taken by bulk traffic an OTP starts
+ * as soon as it is queued.
+ *
+ * With {@code sms.segments.auto-split} on, a multipart message is handed to the gateway as its
+ * separate parts, one after another on the same slot, for providers that do not concatenate.
+ */
+@Component
+public class DispatchEngine implements SmartLifecycle, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(DispatchEngine.class);
+
+    private static final String GATEWAY_UNAVAILABLE = "Gateway circuit is open.";
+
+    private final SmsGateway gateway;
+    private final SmsMetrics metrics;
+    private final Semaphore reserved;
+    private final ArrayBlockingQueue<Task>[] queues;
+    private final int[] schedule;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final ExecutorService completionExecutor;
+    private final long drainTimeoutMs;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final boolean autoSplit;
+    private final AdaptiveLimit limit;
+    private final CircuitBreaker breaker;
+    private final long timeoutMs;
+    private final LongAdder timeouts = new LongAdder();
+
+    private volatile boolean running;
+
+    @Autowired
+    @SuppressWarnings("unchecked")
+    public DispatchEngine(SmsGateway gateway, SmsMetrics metrics, CircuitBreaker breaker, DispatchSettings settings) {
+        this.gateway = gateway;
+        this.metrics = metrics;
+        this.limit = new AdaptiveLimit(settings.minConcurrency(), settings.maxConcurrency() - settings.otpReserved(),
+            settings.slowMs());
+        this.breaker = breaker;
+        this.timeoutMs = settings.timeoutMs();
+        this.reserved = new Semaphore(settings.otpReserved());
+        this.queues = new ArrayBlockingQueue[Priority.values().length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayBlockingQueue<>(settings.queueCapacity());
+        }
+        this.schedule = schedule(new int[] {settings.otpWeight(), settings.standardWeight(), settings.bulkWeight()});
+        AtomicInteger threadCount = new AtomicInteger();
+        this.completionExecutor = Executors.newFixedThreadPool(settings.completionThreads(), r -> {
+            Thread t = new Thread(r, "sms-dispatch-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.drainTimeoutMs = settings.drainTimeoutMs();
+        this.autoSplit = settings.autoSplit();
+    }
+
+    // Smooth weighted round-robin: each round every lane gains its weight and the richest lane
+    // pays the total, so weights 8,3,1 interleave instead of running eight OTPs back to back.
+    static int[] schedule(int[] weights) {
+        int total = 0;
+        for (int weight : weights) {
+            if (weight < 1) {
+                throw new IllegalArgumentException("Lane weights must be positive: " + weight);
+            }
+            total += weight;
+        }
+        int[] schedule = new int[total];
+        int[] current = new int[weights.length];
+        for (int slot = 0; slot < total; slot++) {
+            int best = 0;
+            for (int lane = 0; lane < weights.length; lane++) {
+                current[lane] += weights[lane];
+                if (current[lane] > current[best]) {
+                    best = lane;
+                }
+            }
+            current[best] -= total;
+            schedule[slot] = best;
+        }
+        return schedule;
+    }
+
+    /**
+     * Queues a message for the gateway stage. The returned future completes on a dispatch thread
+     * once the gateway has accepted the message, so callers can chain the Kafka send onto it.
+     *
+     * @throws DispatchRejectedException if the lane is saturated or the engine is shutting down
+     * @throws GatewayUnavailableException while the gateway circuit is open
+     */
+    public CompletableFuture<Void> dispatch(Priority priority, String mobileNumber, String message) {
+        if (!running) {
+            throw new DispatchRejectedException("Dispatcher is not accepting messages.");
+        }
+        if (!breaker.tryAcquire()) {
+            throw new GatewayUnavailableException(GATEWAY_UNAVAILABLE);
+        }
+        Task task = new Task(mobileNumber, message);
+        if (!queues[priority.ordinal()].offer(task)) {
+            breaker.release();
+            throw new DispatchRejectedException("Dispatch queue is full, retry later.");
+        }
+        pump();
+        return task.done;
+    }
+
+    public CompletableFuture<Void> dispatch(String mobileNumber, String message) {
+        return dispatch(Priority.STANDARD, mobileNumber, message);
+    }
+
+    // Start queued tasks while permits are available: a shared permit for whichever lane is
+    // scheduled, else a reserved one for an OTP. A permit released after our empty poll is picked
+    // up by the re-check, so a task offered concurrently is never stranded.
+    private void pump() {
+        ArrayBlockingQueue<Task> otp = queues[Priority.OTP.ordinal()];
+        while (true) {
+            boolean shared;
+            Task task;
+            if (queued() > 0 && limit.tryAcquire()) {
+                shared = true;
+                task = poll();
+            } else if (!otp.isEmpty() && reserved.tryAcquire()) {
+                shared = false;
+                task = otp.poll();
+            } else {
+                return;
+            }
+            if (task == null) {
+                release(shared);
+                continue;
+            }
+            if (breaker.state() == CircuitBreaker.State.OPEN) {
+                // Queued before the circuit opened; hand it back rather than keep it in memory.
+                release(shared);
+                completionExecutor.execute(() -> task.done.completeExceptionally(
+                    new GatewayUnavailableException(GATEWAY_UNAVAILABLE)));
+                continue;
+            }
+            inFlight.incrementAndGet();
+            long start = System.nanoTime();
+            CompletableFuture<Void> call;
+            try {
+                call = send(task);
+                if (timeoutMs > 0) {
+                    call = call.orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+                }
+            } catch (RuntimeException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+            call.whenComplete((v, ex) -> {
+                metrics.record(SmsMetrics.Stage.GATEWAY, start);
+                if (ex instanceof TimeoutException) {
+                    timeouts.increment();
+                }
+                breaker.record(ex == null);
+                limit.sample(System.nanoTime() - start, ex != null);
+                inFlight.decrementAndGet();
+                release(shared);
+                completionExecutor.execute(() -> {
+                    if (ex != null) {
+                        task.done.completeExceptionally(ex);
+                    } else {
+                        task.done.complete(null);
+                    }
+                    pump();
+                });
+            });
+        }
+    }
+
+    private void release(boolean shared) {
+        if (shared) {
+            limit.release();
+        } else {
+            reserved.release();
+        }
+    }
+
+    // Parts go out in order, each once the gateway took the previous one. A failed part fails the
+    // message and the retry sends every part again, as with any at-least-once delivery.
+    private CompletableFuture<Void> send(Task task) {
+        if (!autoSplit) {
+            return gateway.send(task.mobileNumber, task.message);
+        }
+        List<String> parts = SmsSegments.split(task.message);
+        CompletableFuture<Void> call = gateway.send(task.mobileNumber, parts.get(0));
+        for (int i = 1; i < parts.size(); i++) {
+            String part = parts.get(i);
+            call = call.thenCompose(v -> gateway.send(task.mobileNumber, part));
+        }
+        return call;
+    }
+
+    private Task poll() {
+        int slot = Math.floorMod(cursor.getAndIncrement(), schedule.length);
+        Task task = queues[schedule[slot]].poll();
+        for (int lane = 0; task == null && lane < queues.length; lane++) {
+            task = queues[lane].poll();
+        }
+        return task;
+    }
+
+    public int queued() {
+        int queued = 0;
+        for (ArrayBlockingQueue<Task> queue : queues) {
+            queued += queue.size();
+        }
+        return queued;
+    }
+
+    public int queued(Priority priority) {
+        return queues[priority.ordinal()].size();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public int limit() {
+        return limit.limit();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMs);
+        while ((queued() > 0 || inFlight.get() > 0) && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (queued() > 0 || inFlight.get() > 0) {
+            log.warn("Dispatch drain timed out: {} queued and {} in-flight messages not drained.",
+                queued(), inFlight.get());
+        }
+        completionExecutor.shutdown();
+        try {
+            completionExecutor.awaitTermination(drainTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stop after the web server has stopped taking requests; the Kafka producer is only closed
+    // later, when beans are destroyed, so drained messages can still be produced.
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Priority priority : Priority.values()) {
+            Gauge.builder("sms.dispatch.queued", queues[priority.ordinal()], ArrayBlockingQueue::size)
+                .tag("lane", priority.lane())
+                .description("Messages waiting for a gateway slot")
+                .register(registry);
+        }
+        Gauge.builder("sms.dispatch.in_flight", inFlight, AtomicInteger::get)
+            .description("Gateway calls currently in flight")
+            .register(registry);
+        Gauge.builder("sms.dispatch.limit", limit, AdaptiveLimit::limit)
+            .description("Adaptive limit on shared gateway slots")
+            .register(registry);
+        FunctionCounter.builder("sms.gateway.timeouts", timeouts, LongAdder::sum)
+            .description("Gateway calls failed after sms.gateway.timeout-ms")
+            .register(registry);
+    }
+
+    private static final class Task {
+        final String mobileNumber;
+        final String message;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Task(String mobileNumber, String message) {
+            this.mobileNumber = mobileNumber;
+            this.message = message;
+        }
+    }
+}
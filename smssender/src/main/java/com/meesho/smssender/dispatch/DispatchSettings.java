@@ -0,0 +1,68 @@
+package com.meesho.smssender.dispatch;
+
+/**
+ * Limits, lane weights and gateway timings for the {@link DispatchEngine}. {@link #DEFAULTS} holds
+ * the defaults of the matching {@code sms.dispatch.*}, {@code sms.lanes.*} and
+ * {@code sms.gateway.*} properties; tests start from it and change only what they exercise.
+ *
+ * @param maxConcurrency gateway calls in flight at most, the OTP reserve included
+ * @param otpReserved slots only OTPs may use, in {@code [0, maxConcurrency)}
+ * @param queueCapacity messages waiting per lane before new ones are rejected
+ * @param completionThreads threads that complete gateway calls
+ * @param drainTimeoutMs how long shutdown waits for queued and in-flight messages
+ * @param otpWeight share of free slots for the OTP lane
+ * @param standardWeight share of free slots for the standard lane
+ * @param bulkWeight share of free slots for the bulk lane
+ * @param autoSplit whether a multipart message is handed to the gateway part by part
+ * @param timeoutMs how long a gateway call may take before it is failed
+ * @param minConcurrency the fewest shared slots the adaptive limit shrinks to
+ * @param slowMs gateway latency above which the adaptive limit shrinks
+ */
+public record DispatchSettings(int maxConcurrency, int otpReserved, int queueCapacity, int completionThreads,
+        long drainTimeoutMs, int otpWeight, int standardWeight, int bulkWeight, boolean autoSplit, long timeoutMs,
+        int minConcurrency, long slowMs) {
+
+    public static final DispatchSettings DEFAULTS =
+        new DispatchSettings(256, 32, 10_000, 4, 30_000, 8, 3, 1, false, 5000, 8, 2000);
+
+    public DispatchSettings {
+        if (otpReserved < 0 || otpReserved >= maxConcurrency) {
+            throw new IllegalArgumentException("OTP reserved concurrency must be in [0, max-concurrency): " + otpReserved);
+        }
+    }
+
+    public DispatchSettings withConcurrency(int maxConcurrency, int otpReserved) {
+        return new DispatchSettings(maxConcurrency, otpReserved, queueCapacity, completionThreads, drainTimeoutMs,
+            otpWeight, standardWeight, bulkWeight, autoSplit, timeoutMs, minConcurrency, slowMs);
+    }
+
+    public DispatchSettings withQueueCapacity(int queueCapacity) {
+        return new DispatchSettings(maxConcurrency, otpReserved, queueCapacity, completionThreads, drainTimeoutMs,
+            otpWeight, standardWeight, bulkWeight, autoSplit, timeoutMs, minConcurrency, slowMs);
+    }
+
+    public DispatchSettings withCompletionThreads(int completionThreads) {
+        return new DispatchSettings(maxConcurrency, otpReserved, queueCapacity, completionThreads, drainTimeoutMs,
+            otpWeight, standardWeight, bulkWeight, autoSplit, timeoutMs, minConcurrency, slowMs);
+    }
+
+    public DispatchSettings withDrainTimeoutMs(long drainTimeoutMs) {
+        return new DispatchSettings(maxConcurrency, otpReserved, queueCapacity, completionThreads, drainTimeoutMs,
+            otpWeight, standardWeight, bulkWeight, autoSplit, timeoutMs, minConcurrency, slowMs);
+    }
+
+    public DispatchSettings withAutoSplit(boolean autoSplit) {
+        return new DispatchSettings(maxConcurrency, otpReserved, queueCapacity, completionThreads, drainTimeoutMs,
+            otpWeight, standardWeight, bulkWeight, autoSplit, timeoutMs, minConcurrency, slowMs);
+    }
+
+    public DispatchSettings withTimeoutMs(long timeoutMs) {
+        return new DispatchSettings(maxConcurrency, otpReserved, queueCapacity, completionThreads, drainTimeoutMs,
+            otpWeight, standardWeight, bulkWeight, autoSplit, timeoutMs, minConcurrency, slowMs);
+    }
+
+    public DispatchSettings withMinConcurrency(int minConcurrency) {
+        return new DispatchSettings(maxConcurrency, otpReserved, queueCapacity, completionThreads, drainTimeoutMs,
+            otpWeight, standardWeight, bulkWeight, autoSplit, timeoutMs, minConcurrency, slowMs);
+    }
+}
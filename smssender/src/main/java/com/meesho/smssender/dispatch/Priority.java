@@ -0,0 +1,35 @@
+package com.meesho.smssender.dispatch;
+
+import com.meesho.smssender.exception.ValidationException;
+
+/**
+ * Delivery lane of a message. Each lane has its own outbox spool, dispatch queue and Kafka topic,
+ * so a bulk blast never queues ahead of an OTP.
+ */
+public enum Priority {
+    /** One-time passwords and other messages a user is waiting for. */
+    OTP,
+    /** Transactional messages; the lane for requests that do not say. */
+    STANDARD,
+    /** Promotional and other bulk traffic. */
+    BULK;
+
+    /**
+     * Parses a request's priority, case-insensitively; {@code null} or blank means {@link #STANDARD}.
+     */
+    public static Priority parse(String value) {
+        if (value == null || value.isBlank()) {
+            return STANDARD;
+        }
+        for (Priority priority : values()) {
+            if (priority.name().equalsIgnoreCase(value.trim())) {
+                return priority;
+            }
+        }
+        throw new ValidationException("Unknown priority '" + value + "' (expected otp, standard or bulk).");
+    }
+
+    public String lane() {
+        return name().toLowerCase();
+    }
+}
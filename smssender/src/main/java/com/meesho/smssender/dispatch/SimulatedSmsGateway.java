@@ -0,0 +1,44 @@
+package com.meesho.smssender.dispatch;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Stand-in for a third-party provider. The provider latency is simulated with a timer instead
+ * of a sleeping thread, so any number of in-flight calls share one scheduler thread.
+ */
+@Component
+public class SimulatedSmsGateway implements SmsGateway {
+
+    private final long latencyMs;
+    private final ScheduledExecutorService timer;
+
+    public SimulatedSmsGateway(@Value("${sms.gateway.simulated-latency-ms:500}") long latencyMs) {
+        this.latencyMs = latencyMs;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sms-gateway-timer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> send(String mobileNumber, String message) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        timer.schedule(() -> done.complete(null), latencyMs, TimeUnit.MILLISECONDS);
+        return done;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Let already scheduled calls fire so the dispatch engine can drain.
+        timer.shutdown();
+    }
+}
@@ -0,0 +1,12 @@
+package com.meesho.smssender.dispatch;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Downstream SMS provider. Implementations must not block the calling thread; the returned
+ * future completes once the provider has accepted the message.
+ */
+public interface SmsGateway {
+
+    CompletableFuture<Void> send(String mobileNumber, String message);
+}
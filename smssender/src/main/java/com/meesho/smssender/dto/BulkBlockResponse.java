@@ -0,0 +1,5 @@
+package com.meesho.smssender.dto;
+
+import java.util.List;
+
+public record BulkBlockResponse(String status, long changed, long unchanged, long invalid, List<String> errors) {}
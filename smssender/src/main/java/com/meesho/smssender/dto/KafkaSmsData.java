@@ -1,4 +1,34 @@
 package com.meesho.smssender.dto;
 
-public record KafkaSmsData(String mobileNumber, String message, String status) {}
+import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * @param message the rendered text; left out on the wire in template-only mode when
+ *     {@code templateId} is set
+ * @param templateId the registered template the message was rendered from, or {@code null}
+ * @param params the template parameters, or {@code null}
+ * @param segments the number of SMS segments the message is billed as, or 0 if not counted
+ * @param encoding {@code GSM7} or {@code UCS2}, or {@code null} if not counted
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record KafkaSmsData(String mobileNumber, String message, String status, String templateId,
+        Map<String, String> params, @JsonInclude(JsonInclude.Include.NON_DEFAULT) int segments, String encoding) {
+
+    public KafkaSmsData(String mobileNumber, String message, String status) {
+        this(mobileNumber, message, status, null, null);
+    }
+
+    public KafkaSmsData(String mobileNumber, String message, String status, String templateId,
+            Map<String, String> params) {
+        this(mobileNumber, message, status, templateId, params, 0, null);
+    }
+
+    /**
+     * This event without the rendered text, for consumers that render from the template.
+     */
+    public KafkaSmsData withoutMessage() {
+        return new KafkaSmsData(mobileNumber, null, status, templateId, params, segments, encoding);
+    }
+}
@@ -1,3 +1,35 @@
 package com.meesho.smssender.dto;
 
-public record SmsRequest(String mobileNumber, String message) {}
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Either {@code message} or {@code templateId} (with its {@code params}) must be set.
+ *
+ * @param priority {@code otp}, {@code standard} or {@code bulk}; standard if omitted
+ * @param idempotencyKey optional client-chosen id; a retry with the same key returns the first
+ *     result instead of sending again
+ * @param templateId a registered template to render instead of {@code message}
+ * @param params values for the template's placeholders
+ * @param sendAt when to send, for {@code /v1/sms/schedule}; ignored by {@code /v1/sms/send}
+ */
+public record SmsRequest(String mobileNumber, String message, String priority, String idempotencyKey,
+        String templateId, Map<String, String> params, Instant sendAt) {
+
+    public SmsRequest(String mobileNumber, String message, String priority, String idempotencyKey,
+            String templateId, Map<String, String> params) {
+        this(mobileNumber, message, priority, idempotencyKey, templateId, params, null);
+    }
+
+    public SmsRequest(String mobileNumber, String message) {
+        this(mobileNumber, message, null, null, null, null);
+    }
+
+    public SmsRequest(String mobileNumber, String message, String priority) {
+        this(mobileNumber, message, priority, null, null, null);
+    }
+
+    public SmsRequest(String mobileNumber, String message, String priority, String idempotencyKey) {
+        this(mobileNumber, message, priority, idempotencyKey, null, null);
+    }
+}
@@ -1,3 +1,13 @@
 package com.meesho.smssender.dto;
 
-public record SmsResponse(String status, String info) {}
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * @param id the id to poll {@code GET /v1/sms/{id}} with; only on a freshly enqueued message
+ */
+public record SmsResponse(String status, String info, @JsonInclude(JsonInclude.Include.NON_NULL) String id) {
+
+    public SmsResponse(String status, String info) {
+        this(status, info, null);
+    }
+}
@@ -0,0 +1,10 @@
+package com.meesho.smssender.dto;
+
+import java.time.Instant;
+
+/**
+ * @param status ENQUEUED, DELIVERED, RETRYING, COALESCED or FAILED
+ * @param acceptedAt when the message was enqueued
+ * @param updatedAt when it reached {@code status}
+ */
+public record SmsStatusResponse(String id, String status, Instant acceptedAt, Instant updatedAt) {}
@@ -0,0 +1,3 @@
+package com.meesho.smssender.dto;
+
+public record TemplateRequest(String templateId, String body) {}
@@ -0,0 +1,5 @@
+package com.meesho.smssender.dto;
+
+import java.util.List;
+
+public record TemplateResponse(String templateId, String status, List<String> params) {}
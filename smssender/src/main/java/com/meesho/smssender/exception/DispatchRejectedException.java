@@ -0,0 +1,11 @@
+package com.meesho.smssender.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class DispatchRejectedException extends RuntimeException {
+    public DispatchRejectedException(String message) {
+        super(message);
+    }
+}
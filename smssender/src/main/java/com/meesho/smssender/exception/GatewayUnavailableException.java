@@ -0,0 +1,11 @@
+package com.meesho.smssender.exception;
+
+/**
+ * The gateway circuit is open, so the message was not sent. The outbox diverts such messages to
+ * the retry topic instead of holding them in memory.
+ */
+public class GatewayUnavailableException extends DispatchRejectedException {
+    public GatewayUnavailableException(String message) {
+        super(message);
+    }
+}
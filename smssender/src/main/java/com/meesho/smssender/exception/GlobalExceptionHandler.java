@@ -22,4 +22,39 @@ public class GlobalExceptionHandler {
             new SmsResponse("BLOCKED", ex.getMessage()), org.springframework.http.HttpStatus.FORBIDDEN
         );
     }
+
+    @ExceptionHandler(DispatchRejectedException.class)
+    public ResponseEntity<SmsResponse> handleDispatchRejectedException(DispatchRejectedException ex) {
+        return new ResponseEntity<SmsResponse>(
+            new SmsResponse("REJECTED", ex.getMessage()), org.springframework.http.HttpStatus.TOO_MANY_REQUESTS
+        );
+    }
+
+    @ExceptionHandler(ThrottledException.class)
+    public ResponseEntity<SmsResponse> handleThrottledException(ThrottledException ex) {
+        return new ResponseEntity<SmsResponse>(
+            new SmsResponse("THROTTLED", ex.getMessage()), org.springframework.http.HttpStatus.TOO_MANY_REQUESTS
+        );
+    }
+
+    @ExceptionHandler(DuplicateRequestException.class)
+    public ResponseEntity<SmsResponse> handleDuplicateRequestException(DuplicateRequestException ex) {
+        return new ResponseEntity<SmsResponse>(
+            new SmsResponse("IN_PROGRESS", ex.getMessage()), org.springframework.http.HttpStatus.CONFLICT
+        );
+    }
+
+    @ExceptionHandler(MessageNotFoundException.class)
+    public ResponseEntity<SmsResponse> handleMessageNotFoundException(MessageNotFoundException ex) {
+        return new ResponseEntity<SmsResponse>(
+            new SmsResponse("NOT_FOUND", ex.getMessage()), org.springframework.http.HttpStatus.NOT_FOUND
+        );
+    }
+
+    @ExceptionHandler(TemplateConflictException.class)
+    public ResponseEntity<SmsResponse> handleTemplateConflictException(TemplateConflictException ex) {
+        return new ResponseEntity<SmsResponse>(
+            new SmsResponse("CONFLICT", ex.getMessage()), org.springframework.http.HttpStatus.CONFLICT
+        );
+    }
 }
@@ -0,0 +1,11 @@
+package com.meesho.smssender.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class MessageNotFoundException extends RuntimeException {
+    public MessageNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.meesho.smssender.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class TemplateConflictException extends RuntimeException {
+    public TemplateConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,349 @@
+package com.meesho.smssender.idempotency;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.meesho.smssender.dispatch.Priority;
+import com.meesho.smssender.util.LogSampler;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.core.publisher.Mono;
+
+/**
+ * Remembers the outcome of sends that carried an idempotency key, so a client retrying after a
+ * timeout gets the original answer instead of a second SMS.
+ *
+ * A key is claimed as PENDING before the send and replaced by its outcome (ENQUEUED or BLOCKED)
+ * afterwards, together with the id an enqueued message was given, so a replay can hand the same
+ * id back; throttled and rejected sends release it so the retry is attempted again. Claims are
+ * checked in a bounded local LRU first, then with {@code SET NX} in Redis so replicas agree. The
+ * outcome is written back to Redis without waiting; a lost write leaves the key PENDING for at
+ * most {@code pending-ttl-ms}. Keys are scoped to the client id and stored with a fingerprint of
+ * the message, so reusing a key for a different message is caught. If Redis is unavailable the
+ * check falls back to the local cache.
+ */
+@Component
+public class IdempotencyCache implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyCache.class);
+
+    static final String KEY_PREFIX = "sms_idem:";
+
+    // Redis value prefix of a claim whose send has not finished; outcomes use the state name.
+    private static final String PENDING = "PENDING:";
+
+    public static final int MAX_KEY_LENGTH = 128;
+
+    private static final int STRIPES = 16;
+
+    public enum State {
+        ACQUIRED, IN_PROGRESS, MISMATCH, ENQUEUED, BLOCKED
+    }
+
+    /**
+     * The answer to {@link #claim}: either this request now owns the key ({@code ACQUIRED}) or
+     * it is a duplicate of one that does.
+     *
+     * @param messageId for an {@code ENQUEUED} replay, the id the original send was given; 0 if none
+     */
+    public record Claim(String id, long fingerprint, State state, long messageId) {
+
+        public static final Claim NONE = new Claim(null, 0, State.ACQUIRED);
+
+        public Claim(String id, long fingerprint, State state) {
+            this(id, fingerprint, state, 0);
+        }
+
+        public boolean owned() {
+            return state == State.ACQUIRED && id != null;
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+    private final boolean enabled;
+    private final boolean redisEnabled;
+    private final long ttlNanos;
+    private final long pendingTtlNanos;
+    private final Duration ttl;
+    private final Duration pendingTtl;
+    private final LongSupplier nanoClock;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final LongAdder claimed = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder inProgress = new LongAdder();
+    private final LongAdder mismatches = new LongAdder();
+    private final LongAdder redisErrors = new LongAdder();
+    private final LogSampler errorLog = new LogSampler(Duration.ofSeconds(1));
+
+    @Autowired
+    public IdempotencyCache(
+            StringRedisTemplate redisTemplate,
+            ReactiveStringRedisTemplate reactiveRedisTemplate,
+            @Value("${sms.idempotency.enabled:true}") boolean enabled,
+            @Value("${sms.idempotency.redis.enabled:true}") boolean redisEnabled,
+            @Value("${sms.idempotency.local-capacity:100000}") int localCapacity,
+            @Value("${sms.idempotency.ttl-ms:600000}") long ttlMs,
+            @Value("${sms.idempotency.pending-ttl-ms:10000}") long pendingTtlMs) {
+        this(redisTemplate, reactiveRedisTemplate, enabled, redisEnabled, localCapacity, ttlMs, pendingTtlMs,
+            System::nanoTime);
+    }
+
+    IdempotencyCache(StringRedisTemplate redisTemplate, ReactiveStringRedisTemplate reactiveRedisTemplate,
+            boolean enabled, boolean redisEnabled, int localCapacity, long ttlMs, long pendingTtlMs,
+            LongSupplier nanoClock) {
+        this.redisTemplate = redisTemplate;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.enabled = enabled;
+        this.redisEnabled = redisEnabled;
+        this.ttl = Duration.ofMillis(ttlMs);
+        this.pendingTtl = Duration.ofMillis(pendingTtlMs);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.pendingTtlNanos = TimeUnit.MILLISECONDS.toNanos(pendingTtlMs);
+        this.nanoClock = nanoClock;
+        int perStripe = Math.max(1, localCapacity / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    /**
+     * Hash of what a key stands for; a replay with the same key must carry the same message.
+     */
+    public static long fingerprint(long mobileNumber, String message, Priority lane) {
+        long h = 0xcbf29ce484222325L ^ mobileNumber;
+        h = (h ^ lane.ordinal()) * 0x100000001b3L;
+        for (int i = 0; i < message.length(); i++) {
+            h = (h ^ message.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Claims {@code key} for this request, going to Redis only if the local cache has not seen
+     * it. Returns {@link Claim#NONE} when there is no key or the cache is disabled.
+     */
+    public Claim claim(String clientId, String key, long fingerprint) {
+        if (!enabled || key == null) {
+            return Claim.NONE;
+        }
+        String id = id(clientId, key);
+        Claim local = claimLocally(id, fingerprint);
+        if (local.state() != State.ACQUIRED || !redisEnabled) {
+            return count(local);
+        }
+        String value = PENDING + Long.toHexString(fingerprint);
+        try {
+            Boolean set = redisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + id, value, pendingTtl);
+            if (Boolean.TRUE.equals(set)) {
+                return count(local);
+            }
+            return count(resolveRemote(local, redisTemplate.opsForValue().get(KEY_PREFIX + id)));
+        } catch (RuntimeException e) {
+            redisFailed(e);
+            return count(local);
+        }
+    }
+
+    /**
+     * Non-blocking {@link #claim} for the reactive stack.
+     */
+    public Mono<Claim> claimReactive(String clientId, String key, long fingerprint) {
+        if (!enabled || key == null) {
+            return Mono.just(Claim.NONE);
+        }
+        String id = id(clientId, key);
+        Claim local = claimLocally(id, fingerprint);
+        if (local.state() != State.ACQUIRED || !redisEnabled) {
+            return Mono.just(count(local));
+        }
+        String value = PENDING + Long.toHexString(fingerprint);
+        return reactiveRedisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + id, value, pendingTtl)
+            .flatMap(set -> Boolean.TRUE.equals(set)
+                ? Mono.just(local)
+                : reactiveRedisTemplate.opsForValue().get(KEY_PREFIX + id)
+                    .map(remote -> resolveRemote(local, remote))
+                    .defaultIfEmpty(local))
+            .defaultIfEmpty(local)
+            .onErrorResume(RuntimeException.class, e -> {
+                redisFailed(e);
+                return Mono.just(local);
+            })
+            .map(this::count);
+    }
+
+    public void complete(Claim claim, State outcome) {
+        complete(claim, outcome, 0);
+    }
+
+    /**
+     * Records the outcome of an owned claim so that replays return it, with the message id they
+     * get back (0 if there is none). Only ENQUEUED and BLOCKED are final; anything else should
+     * {@link #release} the claim instead.
+     */
+    public void complete(Claim claim, State outcome, long messageId) {
+        if (!claim.owned()) {
+            return;
+        }
+        Stripe stripe = stripe(claim.id());
+        synchronized (stripe) {
+            stripe.put(claim.id(),
+                new Entry(outcome, claim.fingerprint(), messageId, nanoClock.getAsLong() + ttlNanos));
+        }
+        if (redisEnabled) {
+            String value = outcome.name() + ":" + Long.toHexString(claim.fingerprint()) + ":"
+                + Long.toHexString(messageId);
+            reactiveRedisTemplate.opsForValue()
+                .set(KEY_PREFIX + claim.id(), value, ttl)
+                .subscribe(ok -> {}, this::redisFailed);
+        }
+    }
+
+    /**
+     * Gives up an owned claim, so a retry with the same key is processed from scratch.
+     */
+    public void release(Claim claim) {
+        if (!claim.owned()) {
+            return;
+        }
+        Stripe stripe = stripe(claim.id());
+        synchronized (stripe) {
+            stripe.remove(claim.id());
+        }
+        if (redisEnabled) {
+            reactiveRedisTemplate.delete(KEY_PREFIX + claim.id()).subscribe(n -> {}, this::redisFailed);
+        }
+    }
+
+    private Claim claimLocally(String id, long fingerprint) {
+        Stripe stripe = stripe(id);
+        long now = nanoClock.getAsLong();
+        synchronized (stripe) {
+            Entry entry = stripe.get(id);
+            if (entry != null && now - entry.expiresAt < 0) {
+                return new Claim(id, fingerprint, replayState(entry.state, entry.fingerprint, fingerprint),
+                    entry.messageId);
+            }
+            stripe.put(id, new Entry(State.ACQUIRED, fingerprint, 0, now + pendingTtlNanos));
+        }
+        return new Claim(id, fingerprint, State.ACQUIRED);
+    }
+
+    // Another replica already holds the key; mirror its answer locally. The value is
+    // STATE:fingerprint, then :messageId once completed (all hex).
+    private Claim resolveRemote(Claim local, String remote) {
+        if (remote == null) {
+            return local;
+        }
+        int colon = remote.indexOf(':');
+        int idColon = remote.indexOf(':', colon + 1);
+        State state = remote.startsWith(PENDING) ? State.ACQUIRED : State.valueOf(remote.substring(0, colon));
+        long remoteFingerprint = Long.parseUnsignedLong(
+            remote.substring(colon + 1, idColon < 0 ? remote.length() : idColon), 16);
+        long messageId = idColon < 0 ? 0 : Long.parseUnsignedLong(remote.substring(idColon + 1), 16);
+        Stripe stripe = stripe(local.id());
+        synchronized (stripe) {
+            if (state == State.ACQUIRED) {
+                stripe.remove(local.id());
+            } else {
+                stripe.put(local.id(),
+                    new Entry(state, remoteFingerprint, messageId, nanoClock.getAsLong() + ttlNanos));
+            }
+        }
+        return new Claim(local.id(), local.fingerprint(), replayState(state, remoteFingerprint, local.fingerprint()),
+            messageId);
+    }
+
+    private static State replayState(State recorded, long recordedFingerprint, long fingerprint) {
+        if (recordedFingerprint != fingerprint) {
+            return State.MISMATCH;
+        }
+        return recorded == State.ACQUIRED ? State.IN_PROGRESS : recorded;
+    }
+
+    private Claim count(Claim claim) {
+        switch (claim.state()) {
+            case ACQUIRED -> claimed.increment();
+            case IN_PROGRESS -> inProgress.increment();
+            case MISMATCH -> mismatches.increment();
+            default -> duplicates.increment();
+        }
+        return claim;
+    }
+
+    private void redisFailed(Throwable e) {
+        redisErrors.increment();
+        long suppressed = errorLog.sample();
+        if (suppressed >= 0) {
+            log.warn("Idempotency check in Redis failed, using the local cache only: {} ({} similar suppressed)",
+                e.getMessage(), suppressed);
+        }
+    }
+
+    // Length-prefixed so that a client id containing ':' cannot collide with another client's key.
+    private static String id(String clientId, String key) {
+        String client = clientId == null ? "" : clientId;
+        return client.length() + ":" + client + ":" + key;
+    }
+
+    private Stripe stripe(String id) {
+        int h = id.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sms.idempotency.requests", claimed, LongAdder::sum)
+            .tag("result", "new")
+            .description("Sends with an idempotency key, by whether the key had been seen")
+            .register(registry);
+        FunctionCounter.builder("sms.idempotency.requests", duplicates, LongAdder::sum)
+            .tag("result", "duplicate")
+            .description("Sends with an idempotency key, by whether the key had been seen")
+            .register(registry);
+        FunctionCounter.builder("sms.idempotency.requests", inProgress, LongAdder::sum)
+            .tag("result", "in_progress")
+            .description("Sends with an idempotency key, by whether the key had been seen")
+            .register(registry);
+        FunctionCounter.builder("sms.idempotency.requests", mismatches, LongAdder::sum)
+            .tag("result", "mismatch")
+            .description("Sends with an idempotency key, by whether the key had been seen")
+            .register(registry);
+        FunctionCounter.builder("sms.idempotency.redis.errors", redisErrors, LongAdder::sum)
+            .description("Idempotency checks that fell back to the local cache because Redis was unavailable")
+            .register(registry);
+    }
+
+    private record Entry(State state, long fingerprint, long messageId, long expiresAt) {}
+
+    // One LRU segment; callers synchronize on it.
+    private static final class Stripe extends LinkedHashMap<String, Entry> {
+
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > capacity;
+        }
+    }
+}
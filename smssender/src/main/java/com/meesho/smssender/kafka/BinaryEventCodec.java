@@ -0,0 +1,327 @@
+package com.meesho.smssender.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.meesho.smssender.dto.KafkaSmsData;
+import com.meesho.smssender.dto.KafkaUserData;
+import com.meesho.smssender.util.MobileNumber;
+
+/**
+ * Compact binary encoding of {@link KafkaSmsData} and {@link KafkaUserData}.
+ *
+ * <pre>
+ * byte    schema version (1; 2 for an sms record with a template; 3 with a segment count)
+ * byte    record type (1 = sms, 2 = user)
+ * int64   mobile number, big-endian
+ * byte    status code; 0 means the status follows as a string
+ * [string status]            only when the status code is 0
+ * string  message            sms records only; empty when sent template-only
+ * [string templateId]        version 2 and 3; empty without a template
+ * [varint param count]       version 2 and 3
+ * [string name, string value] * param count
+ * [varint segments]          version 3 only
+ * [byte encoding]            version 3 only; 1 = GSM7, 2 = UCS2
+ * </pre>
+ *
+ * Strings are an unsigned varint byte length followed by UTF-8. The output size is computed up
+ * front and the record is written straight into a single exactly-sized array. Records without a
+ * template are written as version 1, byte for byte as before, so only templated records need a
+ * consumer that reads version 2. Records that carry a segment count are written as version 3,
+ * which always has the template fields.
+ */
+public final class BinaryEventCodec {
+
+    public static final byte SCHEMA_VERSION = 1;
+    public static final byte TEMPLATE_SCHEMA_VERSION = 2;
+    public static final byte SEGMENTS_SCHEMA_VERSION = 3;
+
+    static final byte TYPE_SMS = 1;
+    static final byte TYPE_USER = 2;
+
+    private static final String[] STATUSES = { null, "SUCCESS", "BLOCKED", "UNBLOCKED" };
+    private static final String[] ENCODINGS = { null, "GSM7", "UCS2" };
+
+    private BinaryEventCodec() {
+    }
+
+    public static byte[] encode(KafkaSmsData data) {
+        return encode(data, 0);
+    }
+
+    /**
+     * Encodes into an array with the first {@code headroom} bytes left free, for a caller that
+     * frames the record with its own prefix without copying it.
+     */
+    public static byte[] encode(KafkaSmsData data, int headroom) {
+        byte version = schemaVersion(data);
+        int statusCode = statusCode(data.status());
+        int messageLength = utf8Length(data.message());
+        int size = headroom + headerSize(data.status(), statusCode) + varintSize(messageLength) + messageLength;
+        if (version != SCHEMA_VERSION) {
+            size += stringSize(data.templateId());
+            Map<String, String> params = data.params() == null ? Map.of() : data.params();
+            size += varintSize(params.size());
+            for (Map.Entry<String, String> param : params.entrySet()) {
+                size += stringSize(param.getKey()) + stringSize(param.getValue());
+            }
+        }
+        if (version == SEGMENTS_SCHEMA_VERSION) {
+            size += varintSize(data.segments()) + 1;
+        }
+        byte[] out = new byte[size];
+        int pos = writeHeader(out, headroom, TYPE_SMS, data.mobileNumber(), data.status(), statusCode);
+        pos = writeString(out, pos, data.message(), messageLength);
+        out[headroom] = version;
+        if (version != SCHEMA_VERSION) {
+            pos = writeString(out, pos, data.templateId(), utf8Length(data.templateId()));
+            Map<String, String> params = data.params() == null ? Map.of() : data.params();
+            pos = writeVarint(out, pos, params.size());
+            for (Map.Entry<String, String> param : params.entrySet()) {
+                pos = writeString(out, pos, param.getKey(), utf8Length(param.getKey()));
+                pos = writeString(out, pos, param.getValue(), utf8Length(param.getValue()));
+            }
+        }
+        if (version == SEGMENTS_SCHEMA_VERSION) {
+            pos = writeVarint(out, pos, data.segments());
+            out[pos] = (byte) code(ENCODINGS, data.encoding());
+        }
+        return out;
+    }
+
+    /**
+     * The schema version {@link #encode(KafkaSmsData)} writes for this record.
+     */
+    public static byte schemaVersion(KafkaSmsData data) {
+        if (data.segments() > 0) {
+            return SEGMENTS_SCHEMA_VERSION;
+        }
+        return data.templateId() == null ? SCHEMA_VERSION : TEMPLATE_SCHEMA_VERSION;
+    }
+
+    public static byte[] encode(KafkaUserData data) {
+        int statusCode = statusCode(data.status());
+        byte[] out = new byte[headerSize(data.status(), statusCode)];
+        writeHeader(out, 0, TYPE_USER, data.mobileNumber(), data.status(), statusCode);
+        return out;
+    }
+
+    public static KafkaSmsData decodeSms(byte[] data) {
+        return decodeSms(data, 0);
+    }
+
+    /**
+     * Decodes a record that starts at {@code offset} and runs to the end of {@code data}.
+     */
+    public static KafkaSmsData decodeSms(byte[] data, int offset) {
+        Reader reader = new Reader(data, offset, TYPE_SMS);
+        String mobileNumber = MobileNumber.format(reader.readLong());
+        String status = reader.readStatus();
+        String message = reader.readString();
+        byte version = data[offset];
+        if (version == SCHEMA_VERSION) {
+            return new KafkaSmsData(mobileNumber, message, status);
+        }
+        String templateId = reader.readString();
+        int count = reader.readVarint();
+        Map<String, String> params = null;
+        if (count > 0 || !templateId.isEmpty()) {
+            params = new LinkedHashMap<>(Math.max(4, count * 2));
+            for (int i = 0; i < count; i++) {
+                params.put(reader.readString(), reader.readString());
+            }
+        }
+        if (templateId.isEmpty()) {
+            templateId = null;
+        } else if (message.isEmpty()) {
+            message = null;
+        }
+        if (version == TEMPLATE_SCHEMA_VERSION) {
+            return new KafkaSmsData(mobileNumber, message, status, templateId, params);
+        }
+        int segments = reader.readVarint();
+        return new KafkaSmsData(mobileNumber, message, status, templateId, params, segments, reader.readCode(ENCODINGS));
+    }
+
+    public static KafkaUserData decodeUser(byte[] data) {
+        Reader reader = new Reader(data, 0, TYPE_USER);
+        String mobileNumber = MobileNumber.format(reader.readLong());
+        return new KafkaUserData(mobileNumber, reader.readStatus());
+    }
+
+    private static int statusCode(String status) {
+        return code(STATUSES, status);
+    }
+
+    private static int code(String[] codes, String value) {
+        for (int i = 1; i < codes.length; i++) {
+            if (codes[i].equals(value)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static int headerSize(String status, int statusCode) {
+        int size = 1 + 1 + Long.BYTES + 1;
+        if (statusCode == 0) {
+            int statusLength = utf8Length(status);
+            size += varintSize(statusLength) + statusLength;
+        }
+        return size;
+    }
+
+    private static int writeHeader(byte[] out, int base, byte type, String mobileNumber, String status,
+            int statusCode) {
+        out[base] = SCHEMA_VERSION;
+        out[base + 1] = type;
+        long number = MobileNumber.parse(mobileNumber);
+        for (int i = 0; i < Long.BYTES; i++) {
+            out[base + 2 + i] = (byte) (number >>> (56 - 8 * i));
+        }
+        int pos = base + 2 + Long.BYTES;
+        out[pos++] = (byte) statusCode;
+        if (statusCode == 0) {
+            pos = writeString(out, pos, status, utf8Length(status));
+        }
+        return pos;
+    }
+
+    private static int writeVarint(byte[] out, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static int writeString(byte[] out, int pos, String value, int utf8Length) {
+        pos = writeVarint(out, pos, utf8Length);
+        if (value == null) {
+            return pos;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                out[pos++] = (byte) (0xF0 | (cp >> 18));
+                out[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                out[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Lone surrogates become '?', the same as String.getBytes(UTF_8).
+                out[pos++] = '?';
+            } else {
+                out[pos++] = (byte) (0xE0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+
+    static int utf8Length(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static int stringSize(String value) {
+        int length = utf8Length(value);
+        return varintSize(length) + length;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int pos;
+
+        Reader(byte[] data, int offset, byte expectedType) {
+            if (data.length < offset + 2 || data[offset] < SCHEMA_VERSION || data[offset] > SEGMENTS_SCHEMA_VERSION) {
+                throw new IllegalArgumentException("Unsupported binary schema version");
+            }
+            if (data[offset + 1] != expectedType) {
+                throw new IllegalArgumentException("Unexpected binary record type " + data[offset + 1]);
+            }
+            this.data = data;
+            this.pos = offset + 2;
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                value = (value << 8) | (data[pos++] & 0xFF);
+            }
+            return value;
+        }
+
+        String readStatus() {
+            int code = data[pos++] & 0xFF;
+            if (code == 0) {
+                return readString();
+            }
+            if (code >= STATUSES.length) {
+                throw new IllegalArgumentException("Unknown status code " + code);
+            }
+            return STATUSES[code];
+        }
+
+        String readCode(String[] codes) {
+            int code = data[pos++] & 0xFF;
+            return code < codes.length ? codes[code] : null;
+        }
+
+        int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        String readString() {
+            int length = readVarint();
+            String value = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+    }
+}
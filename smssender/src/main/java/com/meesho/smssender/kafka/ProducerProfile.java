@@ -0,0 +1,42 @@
+package com.meesho.smssender.kafka;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+/**
+ * Batching and compression settings for one Kafka producer. Everything else (acks, retries,
+ * idempotence, delivery timeout) comes from {@code spring.kafka.producer.*} and is the same for
+ * every profile, so the durability guarantees do not depend on the lane.
+ *
+ * {@link #LATENCY} sends as soon as the sender thread is free, for OTPs that someone is waiting
+ * on. {@link #THROUGHPUT} waits longer to fill large batches and spends CPU on zstd, which pays
+ * off for bulk sends of near-identical messages. {@link #BALANCED} is the default.
+ *
+ * @param name the profile name; the producer's {@code client.id} gets it as a suffix
+ * @param lingerMs how long a partition batch waits for more records before it is sent
+ * @param batchSize the largest batch per partition, in bytes
+ * @param compressionType {@code none}, {@code lz4}, {@code zstd}, {@code snappy} or {@code gzip}
+ */
+public record ProducerProfile(String name, int lingerMs, int batchSize, String compressionType) {
+
+    public static final ProducerProfile LATENCY = new ProducerProfile("latency", 0, 16_384, "lz4");
+    public static final ProducerProfile BALANCED = new ProducerProfile("balanced", 10, 65_536, "lz4");
+    public static final ProducerProfile THROUGHPUT = new ProducerProfile("throughput", 50, 262_144, "zstd");
+
+    /**
+     * Sets this profile's batching and compression on a copy of the base producer properties.
+     */
+    public Map<String, Object> apply(Map<String, Object> base) {
+        Map<String, Object> properties = new HashMap<>(base);
+        properties.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        properties.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        properties.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        Object clientId = base.get(ProducerConfig.CLIENT_ID_CONFIG);
+        if (clientId != null) {
+            properties.put(ProducerConfig.CLIENT_ID_CONFIG, clientId + "-" + name);
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,57 @@
+package com.meesho.smssender.kafka;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meesho.smssender.dto.KafkaSmsData;
+
+/**
+ * Reads back the sms events {@link SmsEventSerializer} wrote, in whichever {@link WireFormat} the
+ * encoding header names. Records without the header are taken to be JSON.
+ */
+public class SmsEventDeserializer implements Deserializer<KafkaSmsData> {
+
+    private static final byte[] BINARY = WireFormat.BINARY.headerValue().getBytes(StandardCharsets.US_ASCII);
+
+    private final ObjectMapper objectMapper;
+
+    public SmsEventDeserializer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public KafkaSmsData deserialize(String topic, byte[] data) {
+        return data == null ? null : json(data);
+    }
+
+    @Override
+    public KafkaSmsData deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        Header encoding = headers.lastHeader(WireFormat.ENCODING_HEADER);
+        if (encoding != null && Arrays.equals(encoding.value(), BINARY)) {
+            try {
+                return BinaryEventCodec.decodeSms(data);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new SerializationException("Malformed binary sms event on " + topic, e);
+            }
+        }
+        return json(data);
+    }
+
+    private KafkaSmsData json(byte[] data) {
+        try {
+            return objectMapper.readValue(data, KafkaSmsData.class);
+        } catch (IOException e) {
+            throw new SerializationException("Malformed JSON sms event", e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.meesho.smssender.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meesho.smssender.dto.KafkaSmsData;
+import com.meesho.smssender.dto.KafkaUserData;
+
+/**
+ * Value serializer for sms-topic and user-topic. Writes either JSON or {@link BinaryEventCodec}
+ * bytes, depending on the configured {@link WireFormat}, and stamps the encoding and schema
+ * version headers on every record.
+ *
+ * With {@code renderedMessages} off, events rendered from a template are sent as template id and
+ * parameters only; consumers store those instead of the text. Topics in {@code renderedTopics}
+ * (the retry tiers, whose listener sends the text to the gateway) always get the rendered text.
+ */
+public class SmsEventSerializer implements Serializer<Object> {
+
+    private static final byte[][] SCHEMA_VERSIONS = new byte[BinaryEventCodec.SEGMENTS_SCHEMA_VERSION + 1][];
+
+    static {
+        for (int version = 1; version < SCHEMA_VERSIONS.length; version++) {
+            SCHEMA_VERSIONS[version] = String.valueOf(version).getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static final byte[] JSON = WireFormat.JSON.headerValue().getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BINARY = WireFormat.BINARY.headerValue().getBytes(StandardCharsets.US_ASCII);
+
+    private final ObjectMapper objectMapper;
+    private final WireFormat format;
+    private final boolean renderedMessages;
+    private final Set<String> renderedTopics;
+
+    public SmsEventSerializer(ObjectMapper objectMapper, WireFormat format) {
+        this(objectMapper, format, true);
+    }
+
+    public SmsEventSerializer(ObjectMapper objectMapper, WireFormat format, boolean renderedMessages) {
+        this(objectMapper, format, renderedMessages, Set.of());
+    }
+
+    public SmsEventSerializer(ObjectMapper objectMapper, WireFormat format, boolean renderedMessages,
+            Set<String> renderedTopics) {
+        this.objectMapper = objectMapper;
+        this.format = format;
+        this.renderedMessages = renderedMessages;
+        this.renderedTopics = Set.copyOf(renderedTopics);
+    }
+
+    public WireFormat format() {
+        return format;
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return data == null ? null : encode(slim(topic, data), format);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        if (data == null) {
+            return null;
+        }
+        data = slim(topic, data);
+        // Types without a binary layout fall back to JSON; the header tells consumers which one they got.
+        WireFormat actual = format == WireFormat.BINARY && !hasBinaryLayout(data) ? WireFormat.JSON : format;
+        headers.remove(WireFormat.ENCODING_HEADER);
+        headers.remove(WireFormat.SCHEMA_VERSION_HEADER);
+        headers.add(WireFormat.ENCODING_HEADER, actual == WireFormat.BINARY ? BINARY : JSON);
+        headers.add(WireFormat.SCHEMA_VERSION_HEADER, SCHEMA_VERSIONS[data instanceof KafkaSmsData sms
+            ? BinaryEventCodec.schemaVersion(sms) : BinaryEventCodec.SCHEMA_VERSION]);
+        return encode(data, actual);
+    }
+
+    private Object slim(String topic, Object data) {
+        if (!renderedMessages && data instanceof KafkaSmsData sms && sms.templateId() != null
+                && !renderedTopics.contains(topic)) {
+            return sms.withoutMessage();
+        }
+        return data;
+    }
+
+    private byte[] encode(Object data, WireFormat actual) {
+        if (actual == WireFormat.BINARY) {
+            if (data instanceof KafkaSmsData sms) {
+                return BinaryEventCodec.encode(sms);
+            }
+            if (data instanceof KafkaUserData user) {
+                return BinaryEventCodec.encode(user);
+            }
+        }
+        try {
+            return objectMapper.writeValueAsBytes(data);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Failed to serialize " + data.getClass().getSimpleName(), e);
+        }
+    }
+
+    private static boolean hasBinaryLayout(Object data) {
+        return data instanceof KafkaSmsData || data instanceof KafkaUserData;
+    }
+}
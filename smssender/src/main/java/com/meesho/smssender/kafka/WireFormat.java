@@ -0,0 +1,24 @@
+package com.meesho.smssender.kafka;
+
+/**
+ * Value encodings for sms-topic and user-topic records. Every record carries the encoding
+ * and schema version in headers, so consumers can read both formats during a rollout.
+ */
+public enum WireFormat {
+
+    JSON("json"),
+    BINARY("binary");
+
+    public static final String ENCODING_HEADER = "sms-encoding";
+    public static final String SCHEMA_VERSION_HEADER = "sms-schema-version";
+
+    private final String headerValue;
+
+    WireFormat(String headerValue) {
+        this.headerValue = headerValue;
+    }
+
+    public String headerValue() {
+        return headerValue;
+    }
+}
@@ -0,0 +1,82 @@
+package com.meesho.smssender.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.meesho.smssender.util.SmsSegments;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Latency timers for each stage of the send path, counters for message outcomes and the number
+ * of billable segments accepted per encoding.
+ *
+ * Every stage timer publishes a percentile histogram, so p50/p99 can be aggregated across
+ * replicas from {@code /actuator/prometheus}. Meters are registered once up front; recording is
+ * a plain method call with no tag lookup on the hot path.
+ */
+@Component
+public class SmsMetrics {
+
+    public enum Stage {
+        /** Request validation and number parsing. */
+        VALIDATE,
+        /** Blocklist lookup, near-cache included. */
+        BLOCKLIST,
+        /** Gateway call, from hand-off until the provider accepts. */
+        GATEWAY,
+        /** Kafka produce, from send until the broker acknowledges the offset. */
+        KAFKA
+    }
+
+    public enum Outcome {
+        ACCEPTED, SCHEDULED, BLOCKED, THROTTLED, FAILED, REJECTED, DUPLICATE, DELIVERED, COALESCED, DELIVERY_FAILED
+    }
+
+    private final Timer[] stages = new Timer[Stage.values().length];
+    private final Counter[] outcomes = new Counter[Outcome.values().length];
+    private final Counter[] segments = new Counter[SmsSegments.Encoding.values().length];
+
+    public SmsMetrics(MeterRegistry registry) {
+        for (Stage stage : Stage.values()) {
+            stages[stage.ordinal()] = Timer.builder("sms.stage.latency")
+                .tag("stage", stage.name().toLowerCase())
+                .description("Latency of one stage of the send path")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+        }
+        for (Outcome outcome : Outcome.values()) {
+            outcomes[outcome.ordinal()] = Counter.builder("sms.messages")
+                .tag("outcome", outcome.name().toLowerCase())
+                .description("Messages by outcome")
+                .register(registry);
+        }
+        for (SmsSegments.Encoding encoding : SmsSegments.Encoding.values()) {
+            segments[encoding.ordinal()] = Counter.builder("sms.segments")
+                .tag("encoding", encoding.name().toLowerCase())
+                .description("SMS segments accepted for delivery")
+                .register(registry);
+        }
+    }
+
+    /**
+     * Records a stage that started at {@code startNanos}, as returned by {@link System#nanoTime()}.
+     */
+    public void record(Stage stage, long startNanos) {
+        stages[stage.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void increment(Outcome outcome) {
+        outcomes[outcome.ordinal()].increment();
+    }
+
+    public void record(SmsSegments accepted) {
+        segments[accepted.encoding().ordinal()].increment(accepted.count());
+    }
+}
@@ -0,0 +1,298 @@
+package com.meesho.smssender.outbox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only log of opaque records in memory-mapped segment files.
+ *
+ * <pre>
+ * int32   payload length (0 = end of log, -1 = continue in next segment)
+ * int32   CRC32C of the payload
+ * bytes   payload
+ * </pre>
+ *
+ * Offsets are logical: {@code segmentIndex * segmentBytes + position}. A record is published by
+ * writing its length last, and a zero length is always written after it, so a scan stops at the
+ * first record that was never completely written. The committed offset lives in a separate mapped
+ * {@code checkpoint} file, and segments that lie wholly before it are deleted.
+ *
+ * A single thread may append and a single thread may read; {@link #commit} belongs to the reader.
+ * Writes reach the page cache immediately and survive a process crash; {@link #flush} forces them
+ * to disk.
+ */
+public class MappedSpool implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedSpool.class);
+
+    private static final int HEADER_BYTES = 8;
+    private static final int ROLL = -1;
+    private static final String SEGMENT_PREFIX = "spool-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final long maxBytes;
+    private final Map<Long, MappedByteBuffer> segments = new ConcurrentHashMap<>();
+    private final MappedByteBuffer checkpoint;
+
+    private volatile long writeOffset;
+    private volatile long committedOffset;
+
+    public MappedSpool(Path dir, int segmentBytes, long maxBytes) {
+        if (segmentBytes < 1024) {
+            throw new IllegalArgumentException("Spool segment size too small: " + segmentBytes);
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(dir);
+            try (FileChannel channel = FileChannel.open(dir.resolve("checkpoint"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                this.checkpoint = channel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open outbox spool in " + dir, e);
+        }
+        this.committedOffset = checkpoint.getLong(0);
+        this.writeOffset = recover();
+    }
+
+    // Walk forward from the checkpoint to the last complete record and drop anything past it.
+    private long recover() {
+        long offset = committedOffset;
+        long tailSegment = offset / segmentBytes;
+        while (true) {
+            long next = nextRecord(offset);
+            if (next < 0) {
+                break;
+            }
+            offset = next;
+            tailSegment = (offset - 1) / segmentBytes;
+        }
+        long tail = offset;
+        // A torn record leaves bytes behind the tail; clear its length so scans stop here.
+        MappedByteBuffer segment = segment(tail / segmentBytes);
+        int position = (int) (tail % segmentBytes);
+        if (position + Integer.BYTES <= segmentBytes) {
+            segment.putInt(position, 0);
+        }
+        long last = Math.max(tailSegment, tail / segmentBytes);
+        forEachSegmentFile(index -> {
+            if (index > last || index < committedOffset / segmentBytes) {
+                deleteSegment(index);
+            }
+        });
+        return tail;
+    }
+
+    /**
+     * Returns the offset just past the record at {@code offset}, or -1 if there is no complete
+     * record there.
+     */
+    private long nextRecord(long offset) {
+        long start = recordStart(offset);
+        if (start < 0) {
+            return -1;
+        }
+        long index = start / segmentBytes;
+        int position = (int) (start % segmentBytes);
+        MappedByteBuffer segment = segment(index);
+        int length = segment.getInt(position);
+        if (length <= 0 || position + HEADER_BYTES + length > segmentBytes) {
+            return -1;
+        }
+        if (crc(segment, position + HEADER_BYTES, length) != segment.getInt(position + Integer.BYTES)) {
+            return -1;
+        }
+        return start + HEADER_BYTES + length;
+    }
+
+    // Skips segment ends and roll markers; -1 if the segment holding the record does not exist.
+    private long recordStart(long offset) {
+        while (true) {
+            long index = offset / segmentBytes;
+            int position = (int) (offset % segmentBytes);
+            if (position + HEADER_BYTES > segmentBytes) {
+                offset = (index + 1) * segmentBytes;
+                continue;
+            }
+            MappedByteBuffer segment = segmentIfExists(index);
+            if (segment == null) {
+                return -1;
+            }
+            if (segment.getInt(position) == ROLL) {
+                offset = (index + 1) * segmentBytes;
+                continue;
+            }
+            return offset;
+        }
+    }
+
+    /**
+     * Appends a record and returns the offset just past it.
+     *
+     * @throws SpoolFullException if the uncommitted backlog would exceed {@code maxBytes}
+     */
+    public synchronized long append(byte[] payload) {
+        int size = HEADER_BYTES + payload.length;
+        if (size > segmentBytes) {
+            throw new IllegalArgumentException("Record larger than a spool segment: " + payload.length);
+        }
+        long offset = writeOffset;
+        if (offset - committedOffset + size > maxBytes) {
+            throw new SpoolFullException();
+        }
+        long index = offset / segmentBytes;
+        int position = (int) (offset % segmentBytes);
+        if (position + size > segmentBytes) {
+            MappedByteBuffer full = segment(index);
+            index++;
+            position = 0;
+            // The next segment must exist before the roll marker points readers at it.
+            segment(index).putInt(0, 0);
+            if ((int) (offset % segmentBytes) + Integer.BYTES <= segmentBytes) {
+                full.putInt((int) (offset % segmentBytes), ROLL);
+            }
+        }
+        MappedByteBuffer segment = segment(index);
+        segment.put(position + HEADER_BYTES, payload);
+        segment.putInt(position + Integer.BYTES, crc(segment, position + HEADER_BYTES, payload.length));
+        int end = position + size;
+        if (end + Integer.BYTES <= segmentBytes) {
+            segment.putInt(end, 0);
+        }
+        segment.putInt(position, payload.length);
+        long next = index * segmentBytes + end;
+        writeOffset = next;
+        return next;
+    }
+
+    /**
+     * Reads the record at {@code offset}. Returns {@code null} if the reader has caught up with
+     * the writer.
+     */
+    public Record read(long offset) {
+        if (offset >= writeOffset) {
+            return null;
+        }
+        long start = recordStart(offset);
+        long next = nextRecord(start);
+        if (next < 0) {
+            throw new IllegalStateException("Corrupt outbox spool record at offset " + offset);
+        }
+        int position = (int) (start % segmentBytes) + HEADER_BYTES;
+        byte[] payload = new byte[(int) (next - start) - HEADER_BYTES];
+        segment(start / segmentBytes).get(position, payload);
+        return new Record(payload, next);
+    }
+
+    /**
+     * Marks everything before {@code offset} as delivered and deletes segments no longer needed.
+     */
+    public void commit(long offset) {
+        long previous = committedOffset;
+        if (offset <= previous) {
+            return;
+        }
+        checkpoint.putLong(0, offset);
+        committedOffset = offset;
+        for (long index = previous / segmentBytes; index < offset / segmentBytes; index++) {
+            deleteSegment(index);
+        }
+    }
+
+    public void flush() {
+        for (MappedByteBuffer segment : segments.values()) {
+            segment.force();
+        }
+        checkpoint.force();
+    }
+
+    public long writeOffset() {
+        return writeOffset;
+    }
+
+    public long committedOffset() {
+        return committedOffset;
+    }
+
+    /** Bytes appended but not yet committed. */
+    public long backlogBytes() {
+        return writeOffset - committedOffset;
+    }
+
+    @Override
+    public void close() {
+        flush();
+        segments.clear();
+    }
+
+    private MappedByteBuffer segment(long index) {
+        return segments.computeIfAbsent(index, this::map);
+    }
+
+    private MappedByteBuffer segmentIfExists(long index) {
+        MappedByteBuffer segment = segments.get(index);
+        if (segment != null || !Files.exists(segmentPath(index))) {
+            return segment;
+        }
+        return segment(index);
+    }
+
+    private MappedByteBuffer map(long index) {
+        try (FileChannel channel = FileChannel.open(segmentPath(index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map outbox segment " + index, e);
+        }
+    }
+
+    private void deleteSegment(long index) {
+        segments.remove(index);
+        try {
+            Files.deleteIfExists(segmentPath(index));
+        } catch (IOException e) {
+            log.warn("Could not delete outbox segment {}: {}", index, e.getMessage());
+        }
+    }
+
+    private void forEachSegmentFile(LongConsumer action) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                action.accept(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list outbox spool " + dir, e);
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return dir.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private static int crc(MappedByteBuffer segment, int position, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(segment.slice(position, length));
+        return (int) crc.getValue();
+    }
+
+    public record Record(byte[] payload, long nextOffset) {
+    }
+}
@@ -0,0 +1,541 @@
+package com.meesho.smssender.outbox;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import com.meesho.smssender.dispatch.DispatchEngine;
+import com.meesho.smssender.dispatch.Priority;
+import com.meesho.smssender.dto.KafkaSmsData;
+import com.meesho.smssender.exception.DispatchRejectedException;
+import com.meesho.smssender.exception.GatewayUnavailableException;
+import com.meesho.smssender.kafka.BinaryEventCodec;
+import com.meesho.smssender.metrics.SmsMetrics;
+import com.meesho.smssender.metrics.SmsMetrics.Outcome;
+import com.meesho.smssender.metrics.SmsMetrics.Stage;
+import com.meesho.smssender.status.DeliveryStatusCache;
+import com.meesho.smssender.status.DeliveryStatusCache.State;
+import com.meesho.smssender.util.KeySequencer;
+import com.meesho.smssender.util.LogSampler;
+import com.meesho.smssender.util.MobileNumber;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Durable hand-off between the request path and delivery, one per {@link Priority} lane.
+ *
+ * {@link #append} writes the lane's topic event to the {@link MappedSpool} and returns; the HTTP
+ * response is sent only after that write. A single drainer thread then reads the spool in
+ * order. A SUCCESS event goes through the dispatch engine first and is produced once the gateway
+ * accepts it. Any other status is produced as is. The checkpoint advances over the contiguous
+ * prefix of produced records, so everything after it is replayed after a restart (at-least-once).
+ *
+ * Failed produces are retried after {@code retry-backoff-ms} without calling the gateway again.
+ * When the dispatch engine is saturated the drainer waits and reads again, so the spool absorbs
+ * bursts up to {@code max-bytes} before senders see 429. Each lane has its own spool and drainer,
+ * so a bulk backlog never sits in front of an OTP.
+ *
+ * When the gateway call fails, or the gateway circuit is open, the SUCCESS event is produced to
+ * the first retry tier instead, with the lane in the {@link #LANE_HEADER} header, and committed
+ * like any delivered record; the retry listener takes it from there. The spool keeps draining
+ * during a provider outage rather than filling up behind it.
+ *
+ * With {@code per-recipient-order} on, records for the same number are produced in the order they
+ * were appended: each waits in a {@link KeySequencer} until the one before it is produced, while
+ * other numbers keep the pipeline full. A record redirected to the retry tier releases its number
+ * when it reaches the tier, so a message that needs a retry can arrive after later ones. With
+ * {@code coalesce-ms} above 0, a SUCCESS event repeating the text last sent to its number within
+ * that window is committed without a gateway call or a record.
+ *
+ * With a {@link DeliveryStatusCache}, every SUCCESS event is tracked from {@link #append} on, and
+ * its id is spooled in front of the event and sent in the {@link #ID_HEADER} header of the records
+ * produced for it, so the retry listener can keep the status current after the outbox is done.
+ * Such a spool record is a {@code 0} byte, the id (int64, big-endian), then the
+ * {@link BinaryEventCodec} event, whose first byte is never 0.
+ */
+public class Outbox implements SmartLifecycle, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(Outbox.class);
+
+    /** Header on retry-tier records naming the lane the message came from. */
+    public static final String LANE_HEADER = "sms-lane";
+
+    /** Header on records of tracked messages with the id their status is polled by. */
+    public static final String ID_HEADER = "sms-id";
+
+    private static final byte TRACKED = 0;
+    private static final int TRACKED_PREFIX = 1 + Long.BYTES;
+
+    private static final long BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Priority lane;
+    private final String topic;
+    private final String retryTopic;
+    private final MappedSpool spool;
+    private final KafkaTemplate<Long, Object> kafkaTemplate;
+    private final DispatchEngine dispatchEngine;
+    private final SmsMetrics metrics;
+    private final int drainBatch;
+    private final int maxPending;
+    private final long flushIntervalNanos;
+    private final long retryBackoffNanos;
+    private final long drainTimeoutMs;
+    private final KeySequencer sequencer;
+    private final long coalesceNanos;
+    private final DeliveryStatusCache statuses;
+
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private final ConcurrentLinkedQueue<Pending> failed = new ConcurrentLinkedQueue<>();
+    // Records whose turn came up after an earlier one to the same number finished.
+    private final ConcurrentLinkedQueue<Pending> ready = new ConcurrentLinkedQueue<>();
+    // Last text sent to each number inside the coalescing window, oldest first. Drainer only.
+    private final LinkedHashMap<Long, Sent> recent = new LinkedHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder produceFailures = new LongAdder();
+    private final LongAdder redirected = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LogSampler failureLog = new LogSampler(Duration.ofSeconds(1));
+
+    private volatile boolean running;
+    private volatile long stopDeadline;
+    private volatile Thread drainer;
+    private long readOffset;
+    private Pending stalled;
+
+    /**
+     * @param retryTopic where messages go when the gateway fails them or its circuit is open, or
+     *     {@code null} to keep retrying them from the spool
+     * @param statuses where to track delivery of SUCCESS events, or {@code null} not to
+     */
+    public Outbox(Priority lane, String topic, String retryTopic, MappedSpool spool,
+            KafkaTemplate<Long, Object> kafkaTemplate, DispatchEngine dispatchEngine, SmsMetrics metrics,
+            OutboxSettings settings, DeliveryStatusCache statuses) {
+        this.lane = lane;
+        this.topic = topic;
+        this.retryTopic = retryTopic;
+        this.spool = spool;
+        this.kafkaTemplate = kafkaTemplate;
+        this.dispatchEngine = dispatchEngine;
+        this.metrics = metrics;
+        this.drainBatch = settings.drainBatch();
+        this.maxPending = settings.maxPending();
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(settings.flushIntervalMs());
+        this.retryBackoffNanos = TimeUnit.MILLISECONDS.toNanos(settings.retryBackoffMs());
+        this.drainTimeoutMs = settings.drainTimeoutMs();
+        this.sequencer = settings.perRecipientOrder() ? new KeySequencer(Math.min(maxPending, 1 << 16)) : null;
+        this.coalesceNanos = TimeUnit.MILLISECONDS.toNanos(settings.coalesceMs());
+        this.statuses = statuses;
+    }
+
+    public Priority lane() {
+        return lane;
+    }
+
+    public String topic() {
+        return topic;
+    }
+
+    /**
+     * Connects this lane's producer and loads its topic's partitions, so the first drain does not
+     * wait for them. Blocks for up to the producer's {@code max.block.ms} if the broker is down.
+     */
+    public void fetchMetadata() {
+        kafkaTemplate.partitionsFor(topic);
+    }
+
+    /**
+     * Durably records an event for delivery to this lane's topic.
+     *
+     * @return the id its delivery status is tracked by, or {@link DeliveryStatusCache#NO_ID} if it
+     *     is not tracked
+     * @throws DispatchRejectedException if the spool has no room for it
+     */
+    public long append(KafkaSmsData event) {
+        long id = statuses != null && "SUCCESS".equals(event.status()) ? statuses.track() : DeliveryStatusCache.NO_ID;
+        try {
+            spool.append(id == DeliveryStatusCache.NO_ID ? BinaryEventCodec.encode(event) : tracked(event, id));
+        } catch (SpoolFullException e) {
+            if (id != DeliveryStatusCache.NO_ID) {
+                statuses.forget(id);
+            }
+            throw new DispatchRejectedException("Outbox is full, retry later.");
+        }
+        appended.increment();
+        Thread t = drainer;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+        return id;
+    }
+
+    private static byte[] tracked(KafkaSmsData event, long id) {
+        byte[] record = BinaryEventCodec.encode(event, TRACKED_PREFIX);
+        record[0] = TRACKED;
+        ByteBuffer.wrap(record).putLong(1, id);
+        return record;
+    }
+
+    private static Pending read(MappedSpool.Record record) {
+        byte[] payload = record.payload();
+        if (payload[0] == TRACKED) {
+            return new Pending(BinaryEventCodec.decodeSms(payload, TRACKED_PREFIX), ByteBuffer.wrap(payload).getLong(1),
+                record.nextOffset());
+        }
+        return new Pending(BinaryEventCodec.decodeSms(payload), DeliveryStatusCache.NO_ID, record.nextOffset());
+    }
+
+    private void drain() {
+        long lastFlush = System.nanoTime();
+        long nextRetry = lastFlush;
+        while (running || (pendingCount.get() > 0 && System.nanoTime() - stopDeadline < 0)) {
+            long now = System.nanoTime();
+            if (!failed.isEmpty() && now - nextRetry >= 0) {
+                retryFailed();
+                nextRetry = now + retryBackoffNanos;
+            }
+            commitCompleted();
+            int read = startReady() ? (running ? readBatch() : 0) : -1;
+            if (now - lastFlush >= flushIntervalNanos) {
+                spool.flush();
+                lastFlush = now;
+            }
+            if (read <= 0) {
+                LockSupport.parkNanos(this, read < 0 ? BACKOFF_NANOS : flushIntervalNanos);
+            }
+        }
+        commitCompleted();
+        spool.flush();
+    }
+
+    // Returns the number of records started, or -1 if the dispatch engine pushed back.
+    private int readBatch() {
+        int started = 0;
+        while (started < drainBatch && pendingCount.get() < maxPending) {
+            MappedSpool.Record record = spool.read(readOffset);
+            if (record == null) {
+                break;
+            }
+            Pending p = read(record);
+            if (coalesceNanos > 0 && isRepeat(p)) {
+                coalesced.increment();
+                metrics.increment(Outcome.COALESCED);
+                update(p, State.COALESCED);
+                p.done = true;
+            } else {
+                try {
+                    if (sequencer == null) {
+                        start(p);
+                    } else {
+                        startInTurn(p);
+                    }
+                } catch (DispatchRejectedException e) {
+                    return started == 0 ? -1 : started;
+                }
+                if (coalesceNanos > 0) {
+                    remember(p);
+                }
+                pendingCount.incrementAndGet();
+            }
+            readOffset = record.nextOffset();
+            pending.addLast(p);
+            started++;
+        }
+        return started;
+    }
+
+    // Starts p now if nothing to its number is in flight, otherwise once the one before it is done.
+    private void startInTurn(Pending p) {
+        KeySequencer.Turn turn = sequencer.join(p.number);
+        p.turn = turn;
+        if (!turn.isFirst()) {
+            turn.whenReady(() -> {
+                ready.add(p);
+                LockSupport.unpark(drainer);
+            });
+            return;
+        }
+        try {
+            start(p);
+        } catch (DispatchRejectedException e) {
+            sequencer.leave(turn);
+            throw e;
+        }
+    }
+
+    // Returns false if the dispatch engine pushed back; the record keeps its turn and goes first next time.
+    private boolean startReady() {
+        Pending p;
+        while ((p = stalled != null ? stalled : ready.poll()) != null) {
+            try {
+                start(p);
+            } catch (DispatchRejectedException e) {
+                stalled = p;
+                return false;
+            }
+            stalled = null;
+        }
+        return true;
+    }
+
+    // Whether p repeats the text last sent to its number within the window.
+    private boolean isRepeat(Pending p) {
+        if (!p.needsGateway()) {
+            return false;
+        }
+        long now = System.nanoTime();
+        for (Iterator<Sent> it = recent.values().iterator(); it.hasNext() && now - it.next().at >= coalesceNanos; ) {
+            it.remove();
+        }
+        Sent last = recent.get(p.number);
+        return last != null && last.message.equals(p.event.message());
+    }
+
+    // Makes p the last text sent to its number. Only once it has started: a record the dispatch
+    // engine pushed back is read again and must not then look like a repeat of itself.
+    private void remember(Pending p) {
+        if (p.needsGateway()) {
+            recent.remove(p.number);
+            recent.put(p.number, new Sent(p.event.message(), System.nanoTime()));
+        }
+    }
+
+    private void start(Pending p) {
+        CompletableFuture<Void> gateway = p.needsGateway() ? callGateway(p) : CompletableFuture.completedFuture(null);
+        gateway.thenCompose(v -> {
+            long start = System.nanoTime();
+            CompletableFuture<SendResult<Long, Object>> send;
+            if (p.redirected) {
+                send = kafkaTemplate.send(retryRecord(p));
+            } else if (p.id != DeliveryStatusCache.NO_ID) {
+                send = kafkaTemplate.send(withId(new ProducerRecord<>(topic, p.number, p.event), p.id));
+            } else {
+                send = kafkaTemplate.send(topic, p.number, p.event);
+            }
+            return send.whenComplete((result, ex) -> metrics.record(Stage.KAFKA, start));
+        }).whenComplete((result, ex) -> complete(p, result, ex));
+    }
+
+    // Completes normally once the gateway took the message or it was redirected to the retry topic.
+    // A lane with no room throws, so the drainer backs off instead of redirecting a burst.
+    private CompletableFuture<Void> callGateway(Pending p) {
+        CompletableFuture<Void> call;
+        try {
+            call = dispatchEngine.dispatch(lane, p.event.mobileNumber(), p.event.message());
+        } catch (GatewayUnavailableException e) {
+            if (retryTopic == null) {
+                throw e;
+            }
+            call = CompletableFuture.failedFuture(e);
+        }
+        return call.handle((v, ex) -> {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (cause == null) {
+                p.gatewayDone = true;
+            } else if (retryTopic != null) {
+                p.redirected = true;
+            } else {
+                throw new CompletionException(cause);
+            }
+            return null;
+        });
+    }
+
+    private ProducerRecord<Long, Object> retryRecord(Pending p) {
+        ProducerRecord<Long, Object> record = new ProducerRecord<>(retryTopic, p.number, p.event);
+        record.headers().add(LANE_HEADER, lane.lane().getBytes(StandardCharsets.US_ASCII));
+        return withId(record, p.id);
+    }
+
+    /**
+     * Adds the {@link #ID_HEADER} header for a tracked message.
+     */
+    public static ProducerRecord<Long, Object> withId(ProducerRecord<Long, Object> record, long id) {
+        if (id != DeliveryStatusCache.NO_ID) {
+            record.headers().add(ID_HEADER, DeliveryStatusCache.format(id).getBytes(StandardCharsets.US_ASCII));
+        }
+        return record;
+    }
+
+    private void update(Pending p, State state) {
+        if (p.id != DeliveryStatusCache.NO_ID && statuses != null) {
+            statuses.update(p.id, state);
+        }
+    }
+
+    private void complete(Pending p, SendResult<Long, Object> result, Throwable ex) {
+        if (ex != null) {
+            produceFailures.increment();
+            metrics.increment(Outcome.DELIVERY_FAILED);
+            long suppressed = failureLog.sample();
+            if (suppressed >= 0) {
+                log.warn("Outbox delivery of {} to {} failed, will retry ({} similar suppressed)",
+                    p.event.mobileNumber(), topic, suppressed, ex);
+            }
+            failed.add(p);
+            return;
+        }
+        if (p.redirected) {
+            redirected.increment();
+            update(p, State.RETRYING);
+        } else {
+            metrics.increment(Outcome.DELIVERED);
+            update(p, State.DELIVERED);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Delivered {} event for {} at offset {}", p.event.status(), p.event.mobileNumber(),
+                result == null ? -1 : result.getRecordMetadata().offset());
+        }
+        p.done = true;
+        pendingCount.decrementAndGet();
+        if (p.turn != null) {
+            sequencer.leave(p.turn);
+        }
+    }
+
+    // Only the records that had failed on entry; a retry that fails synchronously waits for the next round.
+    private void retryFailed() {
+        for (int i = failed.size(); i > 0; i--) {
+            Pending p = failed.poll();
+            try {
+                start(p);
+            } catch (DispatchRejectedException e) {
+                failed.add(p);
+                return;
+            }
+        }
+    }
+
+    private void commitCompleted() {
+        long committed = -1;
+        while (!pending.isEmpty() && pending.peekFirst().done) {
+            committed = pending.pollFirst().endOffset;
+        }
+        if (committed >= 0) {
+            spool.commit(committed);
+        }
+    }
+
+    @Override
+    public void start() {
+        readOffset = spool.committedOffset();
+        running = true;
+        drainer = new Thread(this::drain, "sms-outbox-drainer-" + lane.lane());
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    // Stop reading new records and give in-flight ones time to be produced. Whatever is still in
+    // the spool is delivered after the next start.
+    @Override
+    public void stop() {
+        stopDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMs);
+        running = false;
+        Thread t = drainer;
+        if (t == null) {
+            return;
+        }
+        LockSupport.unpark(t);
+        try {
+            t.join(drainTimeoutMs + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (pendingCount.get() > 0) {
+            log.warn("Outbox {} drain timed out: {} records still in flight; they will be replayed on restart.",
+                lane.lane(), pendingCount.get());
+        }
+        drainer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stop after the web server and before the dispatch engine, so in-flight records can finish.
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 3072;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sms.outbox.backlog", spool, MappedSpool::backlogBytes)
+            .tag("lane", lane.lane())
+            .baseUnit("bytes")
+            .description("Spooled bytes not yet delivered to Kafka")
+            .register(registry);
+        Gauge.builder("sms.outbox.pending", pendingCount, AtomicInteger::get)
+            .tag("lane", lane.lane())
+            .description("Spooled records being delivered")
+            .register(registry);
+        FunctionCounter.builder("sms.outbox.appended", appended, LongAdder::sum)
+            .tag("lane", lane.lane())
+            .description("Records written to the outbox spool")
+            .register(registry);
+        FunctionCounter.builder("sms.outbox.failures", produceFailures, LongAdder::sum)
+            .tag("lane", lane.lane())
+            .description("Outbox deliveries that failed and were queued for retry")
+            .register(registry);
+        FunctionCounter.builder("sms.outbox.redirected", redirected, LongAdder::sum)
+            .tag("lane", lane.lane())
+            .description("Messages sent to the first retry tier after a failed gateway call")
+            .register(registry);
+        FunctionCounter.builder("sms.outbox.coalesced", coalesced, LongAdder::sum)
+            .tag("lane", lane.lane())
+            .description("Repeats of the text last sent to a number dropped inside the coalescing window")
+            .register(registry);
+        if (sequencer != null) {
+            Gauge.builder("sms.outbox.sequenced", sequencer, KeySequencer::waiting)
+                .tag("lane", lane.lane())
+                .description("Records waiting for an earlier one to the same number to be produced")
+                .register(registry);
+        }
+    }
+
+    private static final class Pending {
+        final KafkaSmsData event;
+        final long id;
+        final long number;
+        final long endOffset;
+        volatile boolean gatewayDone;
+        volatile boolean redirected;
+        volatile boolean done;
+        KeySequencer.Turn turn;
+
+        Pending(KafkaSmsData event, long id, long endOffset) {
+            this.event = event;
+            this.id = id;
+            this.number = MobileNumber.parse(event.mobileNumber());
+            this.endOffset = endOffset;
+        }
+
+        boolean needsGateway() {
+            return "SUCCESS".equals(event.status()) && !gatewayDone && !redirected;
+        }
+    }
+
+    private record Sent(String message, long at) {
+    }
+}
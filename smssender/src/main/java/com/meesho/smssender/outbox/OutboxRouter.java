@@ -0,0 +1,48 @@
+package com.meesho.smssender.outbox;
+
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.meesho.smssender.dispatch.Priority;
+import com.meesho.smssender.dto.KafkaSmsData;
+import com.meesho.smssender.exception.DispatchRejectedException;
+
+/**
+ * Hands each event to the {@link Outbox} of its {@link Priority} lane.
+ */
+@Component
+public class OutboxRouter {
+
+    private final Outbox[] outboxes = new Outbox[Priority.values().length];
+
+    public OutboxRouter(List<Outbox> outboxes) {
+        for (Outbox outbox : outboxes) {
+            this.outboxes[outbox.lane().ordinal()] = outbox;
+        }
+        for (Priority priority : Priority.values()) {
+            if (this.outboxes[priority.ordinal()] == null) {
+                throw new IllegalStateException("No outbox for the " + priority.lane() + " lane");
+            }
+        }
+    }
+
+    /**
+     * @return the id the event's delivery status is tracked by, see {@link Outbox#append}
+     * @throws DispatchRejectedException if the lane's spool has no room for the event
+     */
+    public long append(Priority priority, KafkaSmsData event) {
+        return outboxes[priority.ordinal()].append(event);
+    }
+
+    public String topic(Priority priority) {
+        return outboxes[priority.ordinal()].topic();
+    }
+
+    /**
+     * @see Outbox#fetchMetadata()
+     */
+    public void fetchMetadata(Priority priority) {
+        outboxes[priority.ordinal()].fetchMetadata();
+    }
+}
@@ -0,0 +1,50 @@
+package com.meesho.smssender.outbox;
+
+/**
+ * Drain and ordering settings shared by every lane's {@link Outbox}. {@link #DEFAULTS} holds the
+ * defaults of the matching {@code sms.outbox.*} properties; tests start from it and change only
+ * what they exercise.
+ *
+ * @param drainBatch spool records read per drain pass
+ * @param maxPending records read but not yet produced before the drainer stops reading
+ * @param flushIntervalMs how often the spool is forced to disk, and how long an idle drainer sleeps
+ * @param retryBackoffMs how long a failed produce waits before it is tried again
+ * @param drainTimeoutMs how long shutdown waits for pending records
+ * @param perRecipientOrder whether records for one number are produced strictly in spool order
+ * @param coalesceMs how long a repeat of the text last sent to a number is dropped, or 0 never
+ */
+public record OutboxSettings(int drainBatch, int maxPending, long flushIntervalMs, long retryBackoffMs,
+        long drainTimeoutMs, boolean perRecipientOrder, long coalesceMs) {
+
+    public static final OutboxSettings DEFAULTS = new OutboxSettings(512, 20_000, 100, 1000, 30_000, true, 0);
+
+    public OutboxSettings withDrainBatch(int drainBatch, int maxPending) {
+        return new OutboxSettings(drainBatch, maxPending, flushIntervalMs, retryBackoffMs, drainTimeoutMs,
+            perRecipientOrder, coalesceMs);
+    }
+
+    public OutboxSettings withFlushIntervalMs(long flushIntervalMs) {
+        return new OutboxSettings(drainBatch, maxPending, flushIntervalMs, retryBackoffMs, drainTimeoutMs,
+            perRecipientOrder, coalesceMs);
+    }
+
+    public OutboxSettings withRetryBackoffMs(long retryBackoffMs) {
+        return new OutboxSettings(drainBatch, maxPending, flushIntervalMs, retryBackoffMs, drainTimeoutMs,
+            perRecipientOrder, coalesceMs);
+    }
+
+    public OutboxSettings withDrainTimeoutMs(long drainTimeoutMs) {
+        return new OutboxSettings(drainBatch, maxPending, flushIntervalMs, retryBackoffMs, drainTimeoutMs,
+            perRecipientOrder, coalesceMs);
+    }
+
+    public OutboxSettings withPerRecipientOrder(boolean perRecipientOrder) {
+        return new OutboxSettings(drainBatch, maxPending, flushIntervalMs, retryBackoffMs, drainTimeoutMs,
+            perRecipientOrder, coalesceMs);
+    }
+
+    public OutboxSettings withCoalesceMs(long coalesceMs) {
+        return new OutboxSettings(drainBatch, maxPending, flushIntervalMs, retryBackoffMs, drainTimeoutMs,
+            perRecipientOrder, coalesceMs);
+    }
+}
@@ -0,0 +1,10 @@
+package com.meesho.smssender.outbox;
+
+/**
+ * Thrown by {@link MappedSpool#append} when the undelivered backlog has reached its size limit.
+ */
+public class SpoolFullException extends RuntimeException {
+    public SpoolFullException() {
+        super("Outbox spool is full.");
+    }
+}
@@ -0,0 +1,220 @@
+package com.meesho.smssender.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decides whether a send may proceed. Checks run in order: a token bucket per mobile number, one
+ * per client, one global bucket, and then the optional cluster-wide window in Redis. Tokens
+ * taken by earlier checks are handed back when a later one rejects.
+ *
+ * The local checks are lock-free. Per-key state is one {@link AtomicLong} in a concurrent map.
+ * Buckets that have refilled completely are swept periodically, so the maps only hold recently
+ * active numbers and clients.
+ */
+@Component
+public class RateLimiter implements MeterBinder {
+
+    public enum Scope {
+        NUMBER("Too many messages to this number, retry later."),
+        CLIENT("Client rate limit exceeded, retry later."),
+        GLOBAL("Service send rate exceeded, retry later."),
+        CLUSTER("Too many messages to this number, retry later.");
+
+        private final String message;
+
+        Scope(String message) {
+            this.message = message;
+        }
+
+        public String message() {
+            return message;
+        }
+    }
+
+    private static final long SWEEP_INTERVAL_MS = 30_000;
+
+    private final TokenBucket numberLimit;
+    private final TokenBucket clientLimit;
+    private final TokenBucket globalLimit;
+    private final RedisSlidingWindowLimiter clusterLimiter;
+    private final LongSupplier nanoClock;
+
+    private final Map<Long, AtomicLong> numberState = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> clientState = new ConcurrentHashMap<>();
+    private final AtomicLong globalState;
+    private final LongAdder[] throttled = new LongAdder[Scope.values().length];
+
+    private ScheduledExecutorService sweeper;
+
+    @Autowired
+    public RateLimiter(
+            @Value("${sms.ratelimit.number.per-second:1}") double numberRate,
+            @Value("${sms.ratelimit.number.burst:5}") int numberBurst,
+            @Value("${sms.ratelimit.client.per-second:1000}") double clientRate,
+            @Value("${sms.ratelimit.client.burst:2000}") int clientBurst,
+            @Value("${sms.ratelimit.global.per-second:20000}") double globalRate,
+            @Value("${sms.ratelimit.global.burst:20000}") int globalBurst,
+            RedisSlidingWindowLimiter clusterLimiter) {
+        this(TokenBucket.of(numberRate, numberBurst), TokenBucket.of(clientRate, clientBurst),
+            TokenBucket.of(globalRate, globalBurst), clusterLimiter, System::nanoTime);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sms-ratelimit-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    RateLimiter(TokenBucket numberLimit, TokenBucket clientLimit, TokenBucket globalLimit,
+            RedisSlidingWindowLimiter clusterLimiter, LongSupplier nanoClock) {
+        this.numberLimit = numberLimit;
+        this.clientLimit = clientLimit;
+        this.globalLimit = globalLimit;
+        this.clusterLimiter = clusterLimiter;
+        this.nanoClock = nanoClock;
+        this.globalState = new AtomicLong(nanoClock.getAsLong());
+        for (int i = 0; i < throttled.length; i++) {
+            throttled[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Takes a send permit for the number on behalf of the client.
+     *
+     * @param clientId caller identity, or {@code null} to skip the per-client limit
+     * @return {@code null} if the send may proceed, otherwise the limit that rejected it
+     */
+    public Scope acquire(long mobileNumber, String clientId) {
+        Scope rejected = acquireLocal(mobileNumber, clientId);
+        if (rejected != null) {
+            return rejected;
+        }
+        return clusterLimiter.tryAcquire(mobileNumber) ? null : rejectCluster(mobileNumber, clientId);
+    }
+
+    /**
+     * Non-blocking {@link #acquire} for the reactive stack. The local checks run on the calling
+     * thread; only the cluster-wide window waits on Redis, through the reactive client.
+     *
+     * @return empty if the send may proceed, otherwise the limit that rejected it
+     */
+    public Mono<Scope> acquireReactive(long mobileNumber, String clientId) {
+        Scope rejected = acquireLocal(mobileNumber, clientId);
+        if (rejected != null) {
+            return Mono.just(rejected);
+        }
+        if (!clusterLimiter.isEnabled()) {
+            return Mono.empty();
+        }
+        return clusterLimiter.tryAcquireReactive(mobileNumber)
+            .flatMap(allowed -> allowed ? Mono.empty() : Mono.just(rejectCluster(mobileNumber, clientId)));
+    }
+
+    // The token buckets; tokens taken before a rejecting bucket are handed back.
+    private Scope acquireLocal(long mobileNumber, String clientId) {
+        long now = nanoClock.getAsLong();
+        AtomicLong number = numberLimit == null ? null : state(numberState, mobileNumber, now);
+        if (number != null && !numberLimit.tryAcquire(number, now)) {
+            return reject(Scope.NUMBER);
+        }
+        AtomicLong client = clientLimit == null || clientId == null ? null : state(clientState, clientId, now);
+        if (client != null && !clientLimit.tryAcquire(client, now)) {
+            release(number, null);
+            return reject(Scope.CLIENT);
+        }
+        if (globalLimit != null && !globalLimit.tryAcquire(globalState, now)) {
+            release(number, client);
+            return reject(Scope.GLOBAL);
+        }
+        return null;
+    }
+
+    // The buckets were just drawn from, so the sweeper has not dropped them; if one did refill and
+    // go in between, the token is simply lost.
+    private Scope rejectCluster(long mobileNumber, String clientId) {
+        release(numberLimit == null ? null : numberState.get(mobileNumber),
+            clientLimit == null || clientId == null ? null : clientState.get(clientId));
+        if (globalLimit != null) {
+            globalLimit.release(globalState);
+        }
+        return reject(Scope.CLUSTER);
+    }
+
+    private static <K> AtomicLong state(Map<K, AtomicLong> states, K key, long now) {
+        AtomicLong state = states.get(key);
+        return state != null ? state : states.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    private void release(AtomicLong number, AtomicLong client) {
+        if (number != null) {
+            numberLimit.release(number);
+        }
+        if (client != null) {
+            clientLimit.release(client);
+        }
+    }
+
+    private Scope reject(Scope scope) {
+        throttled[scope.ordinal()].increment();
+        return scope;
+    }
+
+    // A full bucket carries no information, so dropping it is the same as keeping it. A send racing
+    // with the removal may update the dropped copy and go uncounted, which only loses one token.
+    void sweep() {
+        long now = nanoClock.getAsLong();
+        numberState.values().removeIf(state -> TokenBucket.isIdle(state, now));
+        clientState.values().removeIf(state -> TokenBucket.isIdle(state, now));
+    }
+
+    int trackedNumbers() {
+        return numberState.size();
+    }
+
+    public long throttledCount(Scope scope) {
+        return throttled[scope.ordinal()].sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Scope scope : Scope.values()) {
+            FunctionCounter.builder("sms.ratelimit.throttled", throttled[scope.ordinal()], LongAdder::sum)
+                .tag("scope", scope.name().toLowerCase())
+                .description("Sends rejected by a rate limit")
+                .register(registry);
+        }
+        Gauge.builder("sms.ratelimit.tracked", numberState, Map::size)
+            .tag("scope", "number")
+            .description("Rate limit buckets currently held in memory")
+            .register(registry);
+        Gauge.builder("sms.ratelimit.tracked", clientState, Map::size)
+            .tag("scope", "client")
+            .description("Rate limit buckets currently held in memory")
+            .register(registry);
+    }
+}
@@ -0,0 +1,130 @@
+package com.meesho.smssender.ratelimit;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import com.meesho.smssender.util.LogSampler;
+import com.meesho.smssender.util.MobileNumber;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.core.publisher.Mono;
+
+/**
+ * Cluster-wide per-number limit: at most {@code max-per-window} sends to a number in any
+ * {@code window-ms}, shared by all replicas through a Redis sorted set per number.
+ *
+ * Off by default; the local token buckets already stop single-replica bursts, and this adds a
+ * Redis round-trip to every send. The window is trimmed, counted and extended in one script using
+ * the Redis clock, so replica clock skew does not matter. If Redis is unavailable the check
+ * fails open. The reactive stack uses {@link #tryAcquireReactive}, which runs the same script
+ * without blocking the event loop.
+ */
+@Component
+public class RedisSlidingWindowLimiter implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisSlidingWindowLimiter.class);
+
+    static final String KEY_PREFIX = "sms_rate:";
+
+    private static final RedisScript<Long> SCRIPT = new DefaultRedisScript<>(
+        "local t = redis.call('TIME')\n"
+            + "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)\n"
+            + "local window = tonumber(ARGV[1])\n"
+            + "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window)\n"
+            + "if redis.call('ZCARD', KEYS[1]) >= tonumber(ARGV[2]) then return 0 end\n"
+            + "redis.call('ZADD', KEYS[1], now, ARGV[3])\n"
+            + "redis.call('PEXPIRE', KEYS[1], window)\n"
+            + "return 1",
+        Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+    private final boolean enabled;
+    private final String windowMs;
+    private final String maxPerWindow;
+
+    private final LongAdder errors = new LongAdder();
+    private final LogSampler errorLog = new LogSampler(Duration.ofSeconds(1));
+
+    public RedisSlidingWindowLimiter(
+            StringRedisTemplate redisTemplate,
+            ReactiveStringRedisTemplate reactiveRedisTemplate,
+            @Value("${sms.ratelimit.cluster.enabled:false}") boolean enabled,
+            @Value("${sms.ratelimit.cluster.window-ms:60000}") long windowMs,
+            @Value("${sms.ratelimit.cluster.max-per-window:30}") int maxPerWindow) {
+        this.redisTemplate = redisTemplate;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.enabled = enabled;
+        this.windowMs = Long.toString(windowMs);
+        this.maxPerWindow = Integer.toString(maxPerWindow);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean tryAcquire(long mobileNumber) {
+        if (!enabled) {
+            return true;
+        }
+        try {
+            Long allowed = redisTemplate.execute(SCRIPT, keys(mobileNumber), windowMs, maxPerWindow, member());
+            return allowed == null || allowed != 0;
+        } catch (RuntimeException e) {
+            return failOpen(e);
+        }
+    }
+
+    /**
+     * Non-blocking {@link #tryAcquire} for the reactive stack. Emits whether the send may proceed;
+     * like the blocking check, it allows the send if Redis is unavailable.
+     */
+    public Mono<Boolean> tryAcquireReactive(long mobileNumber) {
+        if (!enabled) {
+            return Mono.just(Boolean.TRUE);
+        }
+        return reactiveRedisTemplate.execute(SCRIPT, keys(mobileNumber), List.of(windowMs, maxPerWindow, member()))
+            .next()
+            .map(allowed -> allowed != 0)
+            .defaultIfEmpty(Boolean.TRUE)
+            .onErrorResume(RuntimeException.class, e -> Mono.just(failOpen(e)));
+    }
+
+    private static List<String> keys(long mobileNumber) {
+        return List.of(KEY_PREFIX + MobileNumber.format(mobileNumber));
+    }
+
+    // Members only need to be unique within one window.
+    private static String member() {
+        return Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+
+    private boolean failOpen(RuntimeException e) {
+        errors.increment();
+        long suppressed = errorLog.sample();
+        if (suppressed >= 0) {
+            log.warn("Cluster rate limit check failed, allowing: {} ({} similar suppressed)", e.getMessage(), suppressed);
+        }
+        return true;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sms.ratelimit.cluster.errors", errors, LongAdder::sum)
+            .description("Cluster rate limit checks that failed open because Redis was unavailable")
+            .register(registry);
+    }
+}
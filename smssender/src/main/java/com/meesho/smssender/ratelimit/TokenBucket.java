@@ -0,0 +1,60 @@
+package com.meesho.smssender.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket rules, applied to state kept elsewhere.
+ *
+ * A bucket's whole state is one {@code long}: the time at which it will be full again (GCRA's
+ * "theoretical arrival time"). Taking a token moves that time forward by one refill interval and
+ * is allowed while it stays within {@code burst} intervals of now. One CAS per acquisition, no
+ * locks, and a state at or before now is indistinguishable from a fresh bucket.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long capacityNanos;
+
+    private TokenBucket(long intervalNanos, int burst) {
+        this.intervalNanos = intervalNanos;
+        this.capacityNanos = intervalNanos * burst;
+    }
+
+    /**
+     * Returns the bucket for the given refill rate and burst, or {@code null} if the rate is not
+     * positive, which disables the limit.
+     */
+    static TokenBucket of(double perSecond, int burst) {
+        if (perSecond <= 0) {
+            return null;
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("Rate limit burst must be at least 1: " + burst);
+        }
+        return new TokenBucket(Math.max(1L, Math.round(1_000_000_000d / perSecond)), burst);
+    }
+
+    boolean tryAcquire(AtomicLong state, long now) {
+        while (true) {
+            long full = state.get();
+            long next = Math.max(full, now) + intervalNanos;
+            if (next - now > capacityNanos) {
+                return false;
+            }
+            if (state.compareAndSet(full, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a token taken by {@link #tryAcquire} when a later check rejected the request.
+     */
+    void release(AtomicLong state) {
+        state.addAndGet(-intervalNanos);
+    }
+
+    static boolean isIdle(AtomicLong state, long now) {
+        return state.get() - now <= 0;
+    }
+}
@@ -1,26 +1,49 @@
 package com.meesho.smssender.repository;
 
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
 
-@Repository
-public class BlockedNumberRepository {
-    
-    @Autowired
-    private StringRedisTemplate redisTemplate;
+/**
+ * The blocklist the send path checks. {@link RedisBlockedNumberRepository} is the real one;
+ * {@link InMemoryBlockedNumberRepository} stands in for it under the {@code loadtest} profile.
+ *
+ * Numbers are passed in their canonical {@code long} form. Batch results line up with the input
+ * array.
+ */
+public interface BlockedNumberRepository {
 
-    private final String REDIS_KEY = "blocked_numbers";
+    Boolean isBlocked(long mobileNumber);
 
-    public Boolean isBlocked(String mobileNumber) {
-        return redisTemplate.opsForSet().isMember(REDIS_KEY, mobileNumber);
-    }
+    /**
+     * Non-blocking {@link #isBlocked}. Completes empty if the store gives no answer.
+     */
+    Mono<Boolean> isBlockedReactive(long mobileNumber);
 
-    public Long blockNumber(String mobileNumber) {
-        return redisTemplate.opsForSet().add(REDIS_KEY, mobileNumber);
-    }
+    boolean[] areBlocked(long[] mobileNumbers);
 
-    public Long unblockNumber(String mobileNumber) {
-        return redisTemplate.opsForSet().remove(REDIS_KEY, mobileNumber);
-    }
+    /**
+     * Non-blocking {@link #areBlocked}.
+     */
+    Mono<boolean[]> areBlockedReactive(long[] mobileNumbers);
+
+    /**
+     * Returns 1 if the number was newly blocked, 0 if it already was.
+     */
+    Long blockNumber(long mobileNumber);
+
+    /**
+     * Returns 1 if the number was blocked before, 0 if it was not.
+     */
+    Long unblockNumber(long mobileNumber);
+
+    /**
+     * Blocks the first {@code count} numbers of {@code mobileNumbers}. Returns, per number, whether
+     * it was newly blocked; a number repeated in the chunk is newly blocked only the first time.
+     */
+    boolean[] blockNumbers(long[] mobileNumbers, int count);
+
+    /**
+     * Unblocks the first {@code count} numbers of {@code mobileNumbers}. Returns, per number,
+     * whether it was blocked before.
+     */
+    boolean[] unblockNumbers(long[] mobileNumbers, int count);
 }
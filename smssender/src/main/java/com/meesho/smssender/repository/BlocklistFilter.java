@@ -0,0 +1,335 @@
+package com.meesho.smssender.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * In-memory pre-filter for blocklist lookups: a {@link CountingBloomFilter} of every blocked
+ * number, so a number the filter rules out is known not to be blocked without asking Redis.
+ *
+ * The filter is built by scanning the blocklist keys, and only answers once a build has completed
+ * since the invalidation channel was last (re)subscribed; until then every number is a "maybe".
+ * Local block/unblock calls update it directly and other replicas' changes arrive as
+ * {@link BlocklistUpdate}s. A build also runs every {@code rebuild-interval-ms}, which bounds the
+ * damage of a lost update. While a build runs, blocks are added to both filters and unblocks only
+ * to the live one, so an update racing the scan can at worst leave a false positive until the
+ * next build.
+ */
+@Component
+public class BlocklistFilter implements SmartLifecycle, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(BlocklistFilter.class);
+
+    private static final int SCAN_COUNT = 1000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final BlocklistLayout layout;
+    private final boolean enabled;
+    private final long expectedNumbers;
+    private final double falsePositiveRate;
+    private final long rebuildIntervalNanos;
+    private final long retryMs;
+    private final String origin;
+
+    private final Object lock = new Object();
+    private volatile CountingBloomFilter active;
+    private CountingBloomFilter building;
+    private volatile boolean ready;
+    private volatile boolean subscribed;
+    private volatile long subscriptions;
+    private volatile boolean rebuildRequested;
+    private volatile Thread worker;
+
+    private final LongAdder negatives = new LongAdder();
+    private final LongAdder positives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder builds = new LongAdder();
+
+    @Autowired
+    public BlocklistFilter(
+            StringRedisTemplate redisTemplate,
+            BlocklistLayout layout,
+            @Value("${sms.blocklist.filter.enabled:true}") boolean enabled,
+            @Value("${sms.blocklist.filter.expected-numbers:1000000}") long expectedNumbers,
+            @Value("${sms.blocklist.filter.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${sms.blocklist.filter.rebuild-interval-ms:600000}") long rebuildIntervalMs,
+            @Value("${sms.blocklist.filter.retry-ms:5000}") long retryMs) {
+        this(redisTemplate, layout, enabled, expectedNumbers, falsePositiveRate, rebuildIntervalMs, retryMs,
+            Long.toHexString(ThreadLocalRandom.current().nextLong()));
+    }
+
+    BlocklistFilter(StringRedisTemplate redisTemplate, BlocklistLayout layout, boolean enabled, long expectedNumbers,
+            double falsePositiveRate, long rebuildIntervalMs, long retryMs, String origin) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Blocklist filter false-positive rate out of range: " + falsePositiveRate);
+        }
+        this.redisTemplate = redisTemplate;
+        this.layout = layout;
+        this.enabled = enabled;
+        this.expectedNumbers = expectedNumbers;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildIntervalNanos = TimeUnit.MILLISECONDS.toNanos(rebuildIntervalMs);
+        this.retryMs = retryMs;
+        this.origin = origin;
+    }
+
+    /** Identifies this replica in published {@link BlocklistUpdate}s. */
+    public String origin() {
+        return origin;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Returns {@code false} only if the number is certainly not blocked.
+     */
+    public boolean mightBeBlocked(long mobileNumber) {
+        if (!ready) {
+            return true;
+        }
+        if (active.mightContain(mobileNumber)) {
+            positives.increment();
+            return true;
+        }
+        negatives.increment();
+        return false;
+    }
+
+    /**
+     * Reports the real status of a number {@link #mightBeBlocked} let through, so false positives
+     * can be counted.
+     */
+    public void recordResolved(boolean blocked) {
+        if (ready && !blocked) {
+            falsePositives.increment();
+        }
+    }
+
+    public void onBlocked(long mobileNumber) {
+        synchronized (lock) {
+            if (active != null) {
+                active.add(mobileNumber);
+            }
+            if (building != null) {
+                building.add(mobileNumber);
+            }
+        }
+    }
+
+    public void onUnblocked(long mobileNumber) {
+        synchronized (lock) {
+            if (active != null) {
+                active.remove(mobileNumber);
+            }
+        }
+    }
+
+    /**
+     * Applies a change published by another replica. An update of unknown kind may have been a
+     * block, so its numbers are added.
+     */
+    public void apply(BlocklistUpdate update) {
+        if (origin.equals(update.origin())) {
+            return;
+        }
+        for (long mobileNumber : update.mobileNumbers()) {
+            if (update.op() == BlocklistUpdate.Op.UNBLOCK) {
+                onUnblocked(mobileNumber);
+            } else {
+                onBlocked(mobileNumber);
+            }
+        }
+    }
+
+    /** Updates may have been missed while not subscribed: stop answering until rebuilt. */
+    public void onSubscribed() {
+        subscribed = true;
+        subscriptions++;
+        ready = false;
+        requestRebuild();
+    }
+
+    /** Updates are no longer arriving: stop answering until resubscribed and rebuilt. */
+    public void onUnsubscribed() {
+        subscribed = false;
+        ready = false;
+    }
+
+    public void requestRebuild() {
+        rebuildRequested = true;
+        Thread t = worker;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * Builds a new filter from Redis and swaps it in.
+     */
+    void rebuild() {
+        long subscription = subscriptions;
+        CountingBloomFilter next = new CountingBloomFilter(
+            Math.max(expectedNumbers, cardinality() * 5 / 4), falsePositiveRate);
+        synchronized (lock) {
+            building = next;
+        }
+        long count = 0;
+        try {
+            // Legacy first: a number the migration moves mid-scan is then seen in one place or the other.
+            for (String key : keys()) {
+                try (Cursor<String> cursor = redisTemplate.opsForSet().scan(key,
+                        ScanOptions.scanOptions().count(SCAN_COUNT).build())) {
+                    while (cursor.hasNext()) {
+                        next.add(Long.parseLong(cursor.next()));
+                        count++;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                building = null;
+            }
+            throw e;
+        }
+        synchronized (lock) {
+            active = next;
+            building = null;
+            // A build that started before a resubscription may have missed updates.
+            ready = subscribed && subscription == subscriptions;
+        }
+        builds.increment();
+        log.info("Blocklist filter built: {} numbers, {} KiB, expected false-positive rate {}",
+            count, next.memoryBytes() / 1024, String.format("%.4f", next.expectedFalsePositiveRate()));
+    }
+
+    private List<String> keys() {
+        List<String> keys = new ArrayList<>();
+        if (layout.readsLegacy()) {
+            keys.add(BlocklistLayout.LEGACY_KEY);
+        }
+        if (layout.sharded()) {
+            for (int s = 0; s < layout.shards(); s++) {
+                keys.add(layout.shardKey(s));
+            }
+        }
+        return keys;
+    }
+
+    private long cardinality() {
+        List<String> keys = keys();
+        List<Object> sizes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.setCommands().sCard(key.getBytes(StandardCharsets.US_ASCII));
+            }
+            return null;
+        });
+        long total = 0;
+        for (Object size : sizes) {
+            if (size instanceof Long n) {
+                total += n;
+            }
+        }
+        return total;
+    }
+
+    private void run() {
+        long nextBuild = Long.MAX_VALUE;
+        while (worker == Thread.currentThread()) {
+            if (rebuildRequested || (subscribed && System.nanoTime() - nextBuild >= 0)) {
+                rebuildRequested = false;
+                try {
+                    rebuild();
+                    nextBuild = System.nanoTime() + rebuildIntervalNanos;
+                } catch (RuntimeException e) {
+                    log.warn("Blocklist filter build failed, retrying in {} ms: {}", retryMs, e.getMessage());
+                    rebuildRequested = true;
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(retryMs));
+                    continue;
+                }
+            }
+            LockSupport.parkNanos(this, nextBuild == Long.MAX_VALUE ? TimeUnit.SECONDS.toNanos(60)
+                : Math.max(nextBuild - System.nanoTime(), 0));
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || worker != null) {
+            return;
+        }
+        Thread t = new Thread(this::run, "blocklist-filter");
+        t.setDaemon(true);
+        worker = t;
+        t.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        Thread t = worker;
+        worker = null;
+        ready = false;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return worker != null;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        FunctionCounter.builder("sms.blocklist.filter.lookups", negatives, LongAdder::sum)
+            .tag("result", "negative")
+            .description("Blocklist lookups the filter answered without Redis")
+            .register(registry);
+        FunctionCounter.builder("sms.blocklist.filter.lookups", positives, LongAdder::sum)
+            .tag("result", "positive")
+            .description("Blocklist lookups the filter passed on to the near-cache and Redis")
+            .register(registry);
+        FunctionCounter.builder("sms.blocklist.filter.false.positives", falsePositives, LongAdder::sum)
+            .description("Filter positives that turned out not to be blocked")
+            .register(registry);
+        FunctionCounter.builder("sms.blocklist.filter.builds", builds, LongAdder::sum)
+            .description("Completed filter builds")
+            .register(registry);
+        Gauge.builder("sms.blocklist.filter.expected.fpp", this,
+                f -> f.active == null ? 0 : f.active.expectedFalsePositiveRate())
+            .description("False-positive rate expected from the filter's current fill")
+            .register(registry);
+        Gauge.builder("sms.blocklist.filter.memory", this, f -> f.active == null ? 0 : f.active.memoryBytes())
+            .baseUnit("bytes")
+            .description("Memory held by the live filter")
+            .register(registry);
+        Gauge.builder("sms.blocklist.filter.ready", this, f -> f.ready ? 1 : 0)
+            .description("1 while the filter answers lookups")
+            .register(registry);
+    }
+}
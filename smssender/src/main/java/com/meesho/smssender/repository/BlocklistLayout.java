@@ -0,0 +1,87 @@
+package com.meesho.smssender.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.meesho.smssender.util.MobileNumber;
+
+/**
+ * Where blocked numbers live in Redis.
+ *
+ * {@link Mode#SET} is the original single set {@code blocked_numbers}. {@link Mode#SHARDED}
+ * spreads numbers over {@code shards} sets named {@code blocked_numbers:<shard>}, so no single
+ * key holds the whole blocklist and Redis Cluster can place the shards on different nodes.
+ * {@link Mode#MIGRATING} reads and writes both layouts while {@link BlocklistMigration} moves
+ * the legacy set into the shards.
+ *
+ * The shard is a fixed hash of the number, so every replica maps a number to the same key.
+ * Changing {@code shards} after data has been written orphans it, so pick it once. Members are
+ * all-digit strings, so raising Redis' {@code set-max-intset-entries} to the expected shard size
+ * keeps every shard in the compact integer encoding.
+ */
+@Component
+public class BlocklistLayout {
+
+    public enum Mode {
+        SET, MIGRATING, SHARDED
+    }
+
+    public static final String LEGACY_KEY = "blocked_numbers";
+
+    private static final String SHARD_PREFIX = LEGACY_KEY + ":";
+
+    private final Mode mode;
+    private final int shards;
+    private final String[] shardKeys;
+
+    @Autowired
+    public BlocklistLayout(
+            @Value("${sms.blocklist.layout:set}") String mode,
+            @Value("${sms.blocklist.shards:1024}") int shards) {
+        this(Mode.valueOf(mode.trim().toUpperCase()), shards);
+    }
+
+    BlocklistLayout(Mode mode, int shards) {
+        if (mode != Mode.SET && shards <= 0) {
+            throw new IllegalArgumentException("Blocklist shard count must be positive: " + shards);
+        }
+        this.mode = mode;
+        this.shards = shards;
+        this.shardKeys = new String[Math.max(shards, 0)];
+        for (int i = 0; i < shardKeys.length; i++) {
+            shardKeys[i] = SHARD_PREFIX + i;
+        }
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /** Whether lookups and removals must also consult the legacy set. */
+    public boolean readsLegacy() {
+        return mode != Mode.SHARDED;
+    }
+
+    /** Whether numbers live in shard keys at all. */
+    public boolean sharded() {
+        return mode != Mode.SET;
+    }
+
+    public int shards() {
+        return shards;
+    }
+
+    public int shard(long mobileNumber) {
+        return MobileNumber.shard(mobileNumber, shards);
+    }
+
+    /** The key that holds {@code mobileNumber}: its shard, or the legacy set in {@link Mode#SET}. */
+    public String key(long mobileNumber) {
+        return sharded() ? shardKeys[shard(mobileNumber)] : LEGACY_KEY;
+    }
+
+    public String shardKey(int shard) {
+        return shardKeys[shard];
+    }
+}
@@ -0,0 +1,155 @@
+package com.meesho.smssender.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Moves the legacy {@code blocked_numbers} set into the shards while the layout is
+ * {@link BlocklistLayout.Mode#MIGRATING}.
+ *
+ * A background thread takes random batches of the legacy set and moves each batch with one
+ * script: a member is added to its shard only if this script removed it from the legacy set, so a
+ * concurrent block or unblock is never undone. The script touches the legacy key and the shard
+ * keys together, so it must run while they live on one Redis node, i.e. before the keyspace is
+ * spread over a cluster. Once the legacy set is empty, switch {@code sms.blocklist.layout} to
+ * {@code sharded}.
+ */
+@Component
+public class BlocklistMigration implements SmartLifecycle, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(BlocklistMigration.class);
+
+    private static final RedisScript<Long> MOVE = new DefaultRedisScript<>(
+        "local moved = 0\n"
+            + "for i, member in ipairs(ARGV) do\n"
+            + "  if redis.call('SREM', KEYS[1], member) == 1 then\n"
+            + "    redis.call('SADD', KEYS[i + 1], member)\n"
+            + "    moved = moved + 1\n"
+            + "  end\n"
+            + "end\n"
+            + "return moved",
+        Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final BlocklistLayout layout;
+    private final int batchSize;
+    private final long pauseMs;
+    private final long retryMs;
+
+    private final LongAdder moved = new LongAdder();
+    private volatile boolean done;
+    private volatile Thread worker;
+
+    public BlocklistMigration(
+            StringRedisTemplate redisTemplate,
+            BlocklistLayout layout,
+            @Value("${sms.blocklist.migration.batch-size:500}") int batchSize,
+            @Value("${sms.blocklist.migration.pause-ms:10}") long pauseMs,
+            @Value("${sms.blocklist.migration.retry-ms:5000}") long retryMs) {
+        this.redisTemplate = redisTemplate;
+        this.layout = layout;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+        this.retryMs = retryMs;
+    }
+
+    /**
+     * Moves one batch and returns how many numbers it moved, or -1 if the legacy set is empty.
+     */
+    public long migrateBatch() {
+        Set<String> batch = redisTemplate.opsForSet().distinctRandomMembers(BlocklistLayout.LEGACY_KEY, batchSize);
+        if (batch == null || batch.isEmpty()) {
+            return -1;
+        }
+        List<String> keys = new ArrayList<>(batch.size() + 1);
+        keys.add(BlocklistLayout.LEGACY_KEY);
+        for (String member : batch) {
+            keys.add(layout.key(Long.parseLong(member)));
+        }
+        Long count = redisTemplate.execute(MOVE, keys, batch.toArray());
+        long n = count == null ? 0 : count;
+        moved.add(n);
+        return n;
+    }
+
+    private void run() {
+        log.info("Migrating {} into {} shards", BlocklistLayout.LEGACY_KEY, layout.shards());
+        while (worker == Thread.currentThread()) {
+            long delay = pauseMs;
+            try {
+                if (migrateBatch() < 0) {
+                    done = true;
+                    log.info("Blocklist migration finished after moving {} numbers; set sms.blocklist.layout=sharded",
+                        moved.sum());
+                    return;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Blocklist migration batch failed, retrying in {} ms: {}", retryMs, e.getMessage());
+                delay = retryMs;
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (layout.mode() != BlocklistLayout.Mode.MIGRATING || worker != null) {
+            return;
+        }
+        Thread t = new Thread(this::run, "blocklist-migration");
+        t.setDaemon(true);
+        worker = t;
+        t.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        Thread t = worker;
+        worker = null;
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return worker != null;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (layout.mode() != BlocklistLayout.Mode.MIGRATING) {
+            return;
+        }
+        FunctionCounter.builder("sms.blocklist.migration.moved", moved, LongAdder::sum)
+            .description("Numbers moved from the legacy blocklist set into shards")
+            .register(registry);
+        Gauge.builder("sms.blocklist.migration.done", this, m -> m.done ? 1 : 0)
+            .description("1 once the legacy blocklist set is empty")
+            .register(registry);
+    }
+}
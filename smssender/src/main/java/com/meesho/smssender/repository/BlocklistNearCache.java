@@ -0,0 +1,217 @@
+package com.meesho.smssender.repository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * In-process near-cache for blocklist lookups, keyed by the mobile number as a {@code long}.
+ *
+ * Entries live in a single {@link AtomicLongArray}, 4-way set associative. Each slot packs the
+ * number, the blocked flag and a millisecond expiry tick into one {@code long}, so reads and
+ * writes are lock-free and never tear. Every entry expires after {@code ttl-ms}, which is the
+ * staleness bound if an invalidation published by another replica is lost.
+ *
+ * The expiry tick is 29 bits of milliseconds and wraps every ~6.2 days, so on its own an entry
+ * that expired long ago would come back to life. Every quarter of that range the first lookup
+ * clears expired slots, or every slot if the cache was idle long enough that all of them must
+ * have expired; no surviving entry is ever more than a quarter range old, where the wrapped
+ * comparison is still exact.
+ */
+@Component
+public class BlocklistNearCache implements MeterBinder {
+
+    private static final int WAYS = 4;
+
+    private static final int KEY_BITS = 34;
+    private static final long KEY_MASK = (1L << KEY_BITS) - 1;
+    private static final long BLOCKED_BIT = 1L << KEY_BITS;
+    private static final int TICK_SHIFT = KEY_BITS + 1;
+    private static final int TICK_BITS = Long.SIZE - TICK_SHIFT;
+    private static final long TICK_MASK = (1L << TICK_BITS) - 1;
+    private static final long TICK_HALF_RANGE = 1L << (TICK_BITS - 1);
+    static final long SWEEP_INTERVAL_MS = TICK_HALF_RANGE / 2;
+
+    private final AtomicLongArray slots;
+    private final int bucketMask;
+    private final long ttlTicks;
+    private final LongSupplier nanoClock;
+    private final long epochNanos;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong sweptAt = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @Autowired
+    public BlocklistNearCache(
+            @Value("${sms.blocklist.near-cache.capacity:1048576}") int capacity,
+            @Value("${sms.blocklist.near-cache.ttl-ms:5000}") long ttlMs) {
+        this(capacity, ttlMs, System::nanoTime);
+    }
+
+    BlocklistNearCache(int capacity, long ttlMs, LongSupplier nanoClock) {
+        if (ttlMs < 0 || ttlMs >= SWEEP_INTERVAL_MS) {
+            throw new IllegalArgumentException("Near-cache TTL out of range: " + ttlMs);
+        }
+        int buckets = Integer.highestOneBit(Math.max(capacity / WAYS, 1));
+        this.slots = new AtomicLongArray(buckets * WAYS);
+        this.bucketMask = buckets - 1;
+        this.ttlTicks = ttlMs;
+        this.nanoClock = nanoClock;
+        this.epochNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Returns the cached blocked status, or {@code null} if the number is not cached or has expired.
+     */
+    public Boolean get(long mobileNumber) {
+        if (ttlTicks == 0) {
+            misses.increment();
+            return null;
+        }
+        long key = key(mobileNumber);
+        long now = tick();
+        int base = base(key);
+        for (int i = 0; i < WAYS; i++) {
+            long slot = slots.get(base + i);
+            if ((slot & KEY_MASK) == key && !expired(slot, now)) {
+                hits.increment();
+                return (slot & BLOCKED_BIT) != 0 ? Boolean.TRUE : Boolean.FALSE;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Current invalidation generation. Read it before going to Redis and hand it to
+     * {@link #put(long, boolean, long)} so a lookup racing an invalidation is not cached.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public void put(long mobileNumber, boolean blocked, long expectedGeneration) {
+        if (ttlTicks == 0 || generation.get() != expectedGeneration) {
+            return;
+        }
+        long key = key(mobileNumber);
+        long now = tick();
+        long entry = key | (blocked ? BLOCKED_BIT : 0) | (((now + ttlTicks) & TICK_MASK) << TICK_SHIFT);
+        int base = base(key);
+        int victim = base;
+        long victimRemaining = Long.MAX_VALUE;
+        for (int i = 0; i < WAYS; i++) {
+            long slot = slots.get(base + i);
+            if (slot == 0 || (slot & KEY_MASK) == key || expired(slot, now)) {
+                victim = base + i;
+                break;
+            }
+            long remaining = remaining(slot, now);
+            if (remaining < victimRemaining) {
+                victimRemaining = remaining;
+                victim = base + i;
+            }
+        }
+        slots.set(victim, entry);
+        if (generation.get() != expectedGeneration) {
+            slots.compareAndSet(victim, entry, 0);
+        }
+    }
+
+    public void invalidate(long mobileNumber) {
+        generation.incrementAndGet();
+        invalidations.increment();
+        long key = key(mobileNumber);
+        int base = base(key);
+        for (int i = 0; i < WAYS; i++) {
+            long slot = slots.get(base + i);
+            if ((slot & KEY_MASK) == key) {
+                slots.compareAndSet(base + i, slot, 0);
+            }
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, 0);
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sms.blocklist.nearcache.requests", hits, LongAdder::sum)
+            .tag("result", "hit")
+            .description("Blocklist lookups answered from the near-cache")
+            .register(registry);
+        FunctionCounter.builder("sms.blocklist.nearcache.requests", misses, LongAdder::sum)
+            .tag("result", "miss")
+            .description("Blocklist lookups that fell through to Redis")
+            .register(registry);
+        FunctionCounter.builder("sms.blocklist.nearcache.invalidations", invalidations, LongAdder::sum)
+            .description("Near-cache entries invalidated by block/unblock events")
+            .register(registry);
+    }
+
+    // Keys are offset by one so that an all-zero slot always means "empty".
+    private static long key(long mobileNumber) {
+        return (mobileNumber + 1) & KEY_MASK;
+    }
+
+    private int base(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) ((h ^ (h >>> 32)) & bucketMask) * WAYS;
+    }
+
+    private long tick() {
+        long now = TimeUnit.NANOSECONDS.toMillis(nanoClock.getAsLong() - epochNanos);
+        long swept = sweptAt.get();
+        if (now - swept >= SWEEP_INTERVAL_MS && sweptAt.compareAndSet(swept, now)) {
+            // Everything was put before swept + SWEEP_INTERVAL_MS, so expired by then plus the TTL.
+            sweep(now - swept >= SWEEP_INTERVAL_MS + ttlTicks, now & TICK_MASK);
+        }
+        return now & TICK_MASK;
+    }
+
+    private void sweep(boolean all, long now) {
+        for (int i = 0; i < slots.length(); i++) {
+            long slot = slots.get(i);
+            if (slot != 0 && (all || expired(slot, now))) {
+                slots.compareAndSet(i, slot, 0);
+            }
+        }
+    }
+
+    // Expiry ticks wrap around, so compare them modulo the tick range. A live entry expires at most
+    // one TTL ahead; anything further is an old one seen through the wrap.
+    private long remaining(long slot, long now) {
+        long expiry = slot >>> TICK_SHIFT;
+        long diff = (expiry - now) & TICK_MASK;
+        return diff > ttlTicks ? -1 : diff;
+    }
+
+    private boolean expired(long slot, long now) {
+        return remaining(slot, now) <= 0;
+    }
+}
@@ -0,0 +1,63 @@
+package com.meesho.smssender.repository;
+
+import com.meesho.smssender.util.MobileNumber;
+
+/**
+ * A blocklist change as published on {@link RedisBlockedNumberRepository#INVALIDATION_CHANNEL}:
+ * {@code B|U:<origin>:<number>[,<number>...]}.
+ *
+ * The operation lets other replicas update their {@link BlocklistFilter}, and the origin lets the
+ * publishing replica skip its own message. A bare comma-separated list of numbers (the format
+ * before the operation was added) parses with {@link Op#UNKNOWN}.
+ */
+public record BlocklistUpdate(Op op, String origin, long[] mobileNumbers) {
+
+    public enum Op {
+        BLOCK, UNBLOCK, UNKNOWN
+    }
+
+    static String encode(Op op, String origin, CharSequence mobileNumbers) {
+        return (op == Op.BLOCK ? "B:" : "U:") + origin + ':' + mobileNumbers;
+    }
+
+    /**
+     * Parses a message, or returns {@code null} if it is not one.
+     */
+    public static BlocklistUpdate parse(String message) {
+        Op op = Op.UNKNOWN;
+        String origin = null;
+        String numbers = message;
+        int colon = message.indexOf(':');
+        if (colon >= 0) {
+            int second = message.indexOf(':', colon + 1);
+            if (second < 0) {
+                return null;
+            }
+            switch (message.substring(0, colon)) {
+                case "B" -> op = Op.BLOCK;
+                case "U" -> op = Op.UNBLOCK;
+                default -> {
+                    return null;
+                }
+            }
+            origin = message.substring(colon + 1, second);
+            numbers = message.substring(second + 1);
+        }
+        String[] parts = numbers.split(",");
+        long[] mobileNumbers = new long[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                if (parts[i].length() != MobileNumber.LENGTH) {
+                    return null;
+                }
+                mobileNumbers[i] = Long.parseLong(parts[i]);
+                if (mobileNumbers[i] < 0) {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return new BlocklistUpdate(op, origin, mobileNumbers);
+    }
+}
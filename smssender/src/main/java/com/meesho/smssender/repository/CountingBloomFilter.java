@@ -0,0 +1,116 @@
+package com.meesho.smssender.repository;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counting Bloom filter over mobile numbers with 4-bit counters, 16 to a {@code long}.
+ *
+ * Counters are updated with a CAS on their word, so lookups never block. A counter that reaches
+ * 15 sticks there, since it can no longer tell how many numbers share it; this can only leave a
+ * false positive behind. {@link #remove} does nothing for a number the filter does not contain,
+ * so removing a number that was never added cannot create a false negative for another one.
+ */
+final class CountingBloomFilter {
+
+    private static final int COUNTER_BITS = 4;
+    private static final int PER_WORD = Long.SIZE / COUNTER_BITS;
+    private static final long MAX = (1L << COUNTER_BITS) - 1;
+
+    private final AtomicLongArray words;
+    private final long counters;
+    private final int hashes;
+    private final AtomicLong nonZero = new AtomicLong();
+
+    CountingBloomFilter(long expectedNumbers, double falsePositiveRate) {
+        long n = Math.max(expectedNumbers, 1);
+        double bits = -n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        long wordCount = Math.max((long) Math.ceil(bits / PER_WORD), 1);
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Blocklist filter too large for " + expectedNumbers + " numbers");
+        }
+        this.words = new AtomicLongArray((int) wordCount);
+        this.counters = wordCount * PER_WORD;
+        this.hashes = Math.max(1, (int) Math.round((double) counters / n * Math.log(2)));
+    }
+
+    boolean mightContain(long mobileNumber) {
+        long h1 = mix(mobileNumber);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            if (counter(index(h1 + i * h2)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void add(long mobileNumber) {
+        long h1 = mix(mobileNumber);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            update(index(h1 + i * h2), 1);
+        }
+    }
+
+    void remove(long mobileNumber) {
+        if (!mightContain(mobileNumber)) {
+            return;
+        }
+        long h1 = mix(mobileNumber);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            update(index(h1 + i * h2), -1);
+        }
+    }
+
+    /** Expected false-positive rate at the current fill: (non-zero counters / counters) ^ hashes. */
+    double expectedFalsePositiveRate() {
+        return Math.pow((double) nonZero.get() / counters, hashes);
+    }
+
+    long memoryBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    private void update(long index, int delta) {
+        int word = (int) (index / PER_WORD);
+        int shift = (int) (index % PER_WORD) * COUNTER_BITS;
+        while (true) {
+            long current = words.get(word);
+            long value = (current >>> shift) & MAX;
+            if (value == MAX || (delta < 0 && value == 0)) {
+                return;
+            }
+            long next = current + ((long) delta << shift);
+            if (words.compareAndSet(word, current, next)) {
+                if (value == 0) {
+                    nonZero.incrementAndGet();
+                } else if (value == 1 && delta < 0) {
+                    nonZero.decrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+
+    private long counter(long index) {
+        int word = (int) (index / PER_WORD);
+        int shift = (int) (index % PER_WORD) * COUNTER_BITS;
+        return (words.get(word) >>> shift) & MAX;
+    }
+
+    private long index(long hash) {
+        return Long.remainderUnsigned(hash, counters);
+    }
+
+    // fmix64 from MurmurHash3.
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,73 @@
+package com.meesho.smssender.repository;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Redis-free blocklist for the {@code loadtest} profile and the benchmarks: a concurrent set in
+ * this JVM, with no filter, near-cache or invalidation. Nothing is shared between replicas or
+ * survives a restart.
+ */
+@Repository
+@Profile("loadtest")
+public class InMemoryBlockedNumberRepository implements BlockedNumberRepository {
+
+    private final Set<Long> blocked = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public Boolean isBlocked(long mobileNumber) {
+        return blocked.contains(mobileNumber);
+    }
+
+    @Override
+    public boolean[] areBlocked(long[] mobileNumbers) {
+        boolean[] result = new boolean[mobileNumbers.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = blocked.contains(mobileNumbers[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public Mono<Boolean> isBlockedReactive(long mobileNumber) {
+        return Mono.just(isBlocked(mobileNumber));
+    }
+
+    @Override
+    public Mono<boolean[]> areBlockedReactive(long[] mobileNumbers) {
+        return Mono.just(areBlocked(mobileNumbers));
+    }
+
+    @Override
+    public Long blockNumber(long mobileNumber) {
+        return blocked.add(mobileNumber) ? 1L : 0L;
+    }
+
+    @Override
+    public Long unblockNumber(long mobileNumber) {
+        return blocked.remove(mobileNumber) ? 1L : 0L;
+    }
+
+    @Override
+    public boolean[] blockNumbers(long[] mobileNumbers, int count) {
+        boolean[] changed = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            changed[i] = blocked.add(mobileNumbers[i]);
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean[] unblockNumbers(long[] mobileNumbers, int count) {
+        boolean[] changed = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            changed[i] = blocked.remove(mobileNumbers[i]);
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,402 @@
+package com.meesho.smssender.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.core.ReactiveSetOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.meesho.smssender.util.MobileNumber;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Blocked numbers in Redis, laid out as {@link BlocklistLayout} says: one set, or a set per shard.
+ * Lookups go through the {@link BlocklistFilter} and the {@link BlocklistNearCache} first.
+ * During a migration a number counts as blocked if either layout holds it, blocks land in the
+ * shards and unblocks clear both.
+ *
+ * The lookups also come in a non-blocking form on the reactive Redis template, for the reactive
+ * web stack; filter, near-cache and layout are shared with the blocking form.
+ */
+@Repository
+@Profile("!loadtest")
+public class RedisBlockedNumberRepository implements BlockedNumberRepository {
+
+    public static final String INVALIDATION_CHANNEL = "blocked_numbers:invalidations";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ReactiveStringRedisTemplate reactiveRedisTemplate;
+
+    @Autowired
+    private BlocklistNearCache nearCache;
+
+    @Autowired
+    private BlocklistLayout layout;
+
+    @Autowired
+    private BlocklistFilter filter;
+
+    @Override
+    public Boolean isBlocked(long mobileNumber) {
+        Boolean known = resolveLocally(mobileNumber);
+        if (known != null) {
+            return known;
+        }
+        long generation = nearCache.generation();
+        String member = MobileNumber.format(mobileNumber);
+        Boolean blocked = redisTemplate.opsForSet().isMember(layout.key(mobileNumber), member);
+        if (layout.mode() == BlocklistLayout.Mode.MIGRATING && Boolean.FALSE.equals(blocked)) {
+            blocked = redisTemplate.opsForSet().isMember(BlocklistLayout.LEGACY_KEY, member);
+        }
+        if (blocked != null) {
+            filter.recordResolved(blocked);
+            nearCache.put(mobileNumber, blocked, generation);
+        }
+        return blocked;
+    }
+
+    /**
+     * Non-blocking {@link #isBlocked}. Completes empty if Redis gives no answer.
+     */
+    @Override
+    public Mono<Boolean> isBlockedReactive(long mobileNumber) {
+        Boolean known = resolveLocally(mobileNumber);
+        if (known != null) {
+            return Mono.just(known);
+        }
+        long generation = nearCache.generation();
+        String member = MobileNumber.format(mobileNumber);
+        ReactiveSetOperations<String, String> sets = reactiveRedisTemplate.opsForSet();
+        Mono<Boolean> blocked = sets.isMember(layout.key(mobileNumber), member);
+        if (layout.mode() == BlocklistLayout.Mode.MIGRATING) {
+            blocked = blocked.flatMap(found -> found ? Mono.just(Boolean.TRUE)
+                : sets.isMember(BlocklistLayout.LEGACY_KEY, member));
+        }
+        return blocked.doOnNext(found -> {
+            filter.recordResolved(found);
+            nearCache.put(mobileNumber, found, generation);
+        });
+    }
+
+    // The filter's or near-cache's answer, or null if Redis has to be asked.
+    private Boolean resolveLocally(long mobileNumber) {
+        if (!filter.mightBeBlocked(mobileNumber)) {
+            return Boolean.FALSE;
+        }
+        Boolean cached = nearCache.get(mobileNumber);
+        if (cached != null) {
+            filter.recordResolved(cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Resolves the blocked status of many numbers at once. Numbers the filter rules out are not
+     * blocked; of the rest, near-cache misses are checked in a single round-trip: one SMISMEMBER,
+     * or one per shard pipelined together. The result is aligned with the input array.
+     */
+    @Override
+    public boolean[] areBlocked(long[] mobileNumbers) {
+        boolean[] blocked = new boolean[mobileNumbers.length];
+        int[] missIndex = new int[mobileNumbers.length];
+        int misses = resolveLocally(mobileNumbers, blocked, missIndex);
+        if (misses == 0) {
+            return blocked;
+        }
+        long generation = nearCache.generation();
+        boolean[] found = layout.sharded() ? lookupSharded(mobileNumbers, missIndex, misses)
+            : lookupLegacy(mobileNumbers, missIndex, misses);
+        if (found == null) {
+            return blocked;
+        }
+        for (int j = 0; j < misses; j++) {
+            blocked[missIndex[j]] = found[j];
+            filter.recordResolved(found[j]);
+            nearCache.put(mobileNumbers[missIndex[j]], found[j], generation);
+        }
+        return blocked;
+    }
+
+    /**
+     * Non-blocking {@link #areBlocked}. Near-cache misses are checked with one SMISMEMBER per key
+     * involved, issued together; Lettuce sends them back to back on its shared connection, so
+     * they cost about one round-trip like the pipeline does.
+     */
+    @Override
+    public Mono<boolean[]> areBlockedReactive(long[] mobileNumbers) {
+        boolean[] blocked = new boolean[mobileNumbers.length];
+        int[] missIndex = new int[mobileNumbers.length];
+        int misses = resolveLocally(mobileNumbers, blocked, missIndex);
+        if (misses == 0) {
+            return Mono.just(blocked);
+        }
+        long generation = nearCache.generation();
+        String[] members = new String[misses];
+        Map<String, List<Integer>> byKey = new LinkedHashMap<>();
+        for (int j = 0; j < misses; j++) {
+            long mobileNumber = mobileNumbers[missIndex[j]];
+            members[j] = MobileNumber.format(mobileNumber);
+            String key = layout.sharded() ? layout.key(mobileNumber) : BlocklistLayout.LEGACY_KEY;
+            byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(j);
+        }
+        if (layout.sharded() && layout.readsLegacy()) {
+            List<Integer> all = new ArrayList<>(misses);
+            for (int j = 0; j < misses; j++) {
+                all.add(j);
+            }
+            byKey.put(BlocklistLayout.LEGACY_KEY, all);
+        }
+        List<List<Integer>> groups = new ArrayList<>(byKey.values());
+        ReactiveSetOperations<String, String> sets = reactiveRedisTemplate.opsForSet();
+        // Replies may arrive on different threads; they are merged only once all are in, in the
+        // order the keys were asked.
+        return Flux.fromIterable(byKey.entrySet())
+            .flatMapSequential(entry -> {
+                Object[] values = new Object[entry.getValue().size()];
+                for (int k = 0; k < values.length; k++) {
+                    values[k] = members[entry.getValue().get(k)];
+                }
+                return sets.isMember(entry.getKey(), values).defaultIfEmpty(Map.of());
+            })
+            .collectList()
+            .map(replies -> {
+                boolean[] found = new boolean[misses];
+                for (int g = 0; g < replies.size(); g++) {
+                    for (int j : groups.get(g)) {
+                        found[j] |= Boolean.TRUE.equals(replies.get(g).get(members[j]));
+                    }
+                }
+                for (int j = 0; j < misses; j++) {
+                    blocked[missIndex[j]] = found[j];
+                    filter.recordResolved(found[j]);
+                    nearCache.put(mobileNumbers[missIndex[j]], found[j], generation);
+                }
+                return blocked;
+            });
+    }
+
+    // Fills in what the filter and near-cache know and collects the indexes of the rest;
+    // returns how many were collected.
+    private int resolveLocally(long[] mobileNumbers, boolean[] blocked, int[] missIndex) {
+        int misses = 0;
+        for (int i = 0; i < mobileNumbers.length; i++) {
+            if (!filter.mightBeBlocked(mobileNumbers[i])) {
+                continue;
+            }
+            Boolean cached = nearCache.get(mobileNumbers[i]);
+            if (cached != null) {
+                filter.recordResolved(cached);
+                blocked[i] = cached;
+            } else {
+                missIndex[misses++] = i;
+            }
+        }
+        return misses;
+    }
+
+    private boolean[] lookupLegacy(long[] mobileNumbers, int[] missIndex, int misses) {
+        Object[] members = new Object[misses];
+        for (int j = 0; j < misses; j++) {
+            members[j] = MobileNumber.format(mobileNumbers[missIndex[j]]);
+        }
+        Map<Object, Boolean> result = redisTemplate.opsForSet().isMember(BlocklistLayout.LEGACY_KEY, members);
+        if (result == null) {
+            return null;
+        }
+        boolean[] found = new boolean[misses];
+        for (int j = 0; j < misses; j++) {
+            found[j] = Boolean.TRUE.equals(result.get(members[j]));
+        }
+        return found;
+    }
+
+    // Misses are grouped by shard with a counting sort, then each shard is one SMISMEMBER in a
+    // single pipeline. While migrating, one more SMISMEMBER covers the legacy set.
+    private boolean[] lookupSharded(long[] mobileNumbers, int[] missIndex, int misses) {
+        int shards = layout.shards();
+        int[] shardOf = new int[misses];
+        int[] start = new int[shards + 1];
+        for (int j = 0; j < misses; j++) {
+            shardOf[j] = layout.shard(mobileNumbers[missIndex[j]]);
+            start[shardOf[j] + 1]++;
+        }
+        for (int s = 0; s < shards; s++) {
+            start[s + 1] += start[s];
+        }
+        int[] order = new int[misses];
+        int[] fill = start.clone();
+        byte[][] members = new byte[misses][];
+        for (int j = 0; j < misses; j++) {
+            members[j] = MobileNumber.format(mobileNumbers[missIndex[j]]).getBytes(StandardCharsets.US_ASCII);
+            order[fill[shardOf[j]]++] = j;
+        }
+        boolean legacy = layout.readsLegacy();
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int s = 0; s < shards; s++) {
+                if (start[s] == start[s + 1]) {
+                    continue;
+                }
+                byte[][] values = new byte[start[s + 1] - start[s]][];
+                for (int k = start[s]; k < start[s + 1]; k++) {
+                    values[k - start[s]] = members[order[k]];
+                }
+                connection.setCommands().sMIsMember(
+                    layout.shardKey(s).getBytes(StandardCharsets.US_ASCII), values);
+            }
+            if (legacy) {
+                connection.setCommands().sMIsMember(
+                    BlocklistLayout.LEGACY_KEY.getBytes(StandardCharsets.US_ASCII), members);
+            }
+            return null;
+        });
+        if (replies == null) {
+            return null;
+        }
+        boolean[] found = new boolean[misses];
+        int reply = 0;
+        for (int s = 0; s < shards; s++) {
+            if (start[s] == start[s + 1]) {
+                continue;
+            }
+            List<?> flags = (List<?>) replies.get(reply++);
+            for (int k = start[s]; k < start[s + 1]; k++) {
+                found[order[k]] = Boolean.TRUE.equals(flags.get(k - start[s]));
+            }
+        }
+        if (legacy) {
+            List<?> flags = (List<?>) replies.get(reply);
+            for (int j = 0; j < misses; j++) {
+                found[j] |= Boolean.TRUE.equals(flags.get(j));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Long blockNumber(long mobileNumber) {
+        String member = MobileNumber.format(mobileNumber);
+        Long added = redisTemplate.opsForSet().add(layout.key(mobileNumber), member);
+        if (layout.mode() == BlocklistLayout.Mode.MIGRATING) {
+            // Move the number out of the legacy set; it was newly blocked only if neither held it.
+            Long moved = redisTemplate.opsForSet().remove(BlocklistLayout.LEGACY_KEY, member);
+            if (moved != null && moved > 0) {
+                added = 0L;
+            }
+        }
+        if (added != null && added > 0) {
+            filter.onBlocked(mobileNumber);
+        }
+        invalidate(mobileNumber, member, added, BlocklistUpdate.Op.BLOCK);
+        return added;
+    }
+
+    @Override
+    public Long unblockNumber(long mobileNumber) {
+        String member = MobileNumber.format(mobileNumber);
+        Long removed = redisTemplate.opsForSet().remove(layout.key(mobileNumber), member);
+        if (layout.mode() == BlocklistLayout.Mode.MIGRATING) {
+            Long legacy = redisTemplate.opsForSet().remove(BlocklistLayout.LEGACY_KEY, member);
+            if (legacy != null && legacy > 0) {
+                removed = 1L;
+            }
+        }
+        if (removed != null && removed > 0) {
+            filter.onUnblocked(mobileNumber);
+        }
+        invalidate(mobileNumber, member, removed, BlocklistUpdate.Op.UNBLOCK);
+        return removed;
+    }
+
+    /**
+     * Blocks {@code count} numbers from {@code mobileNumbers} in one pipelined round-trip.
+     * Returns, per number, whether it was newly blocked; a number repeated in the chunk is newly
+     * blocked only the first time.
+     */
+    @Override
+    public boolean[] blockNumbers(long[] mobileNumbers, int count) {
+        return applyBulk(mobileNumbers, count, true);
+    }
+
+    /**
+     * Unblocks {@code count} numbers from {@code mobileNumbers} in one pipelined round-trip.
+     * Returns, per number, whether it was blocked before.
+     */
+    @Override
+    public boolean[] unblockNumbers(long[] mobileNumbers, int count) {
+        return applyBulk(mobileNumbers, count, false);
+    }
+
+    // One SADD/SREM per number so each reply says whether that number changed; while migrating
+    // each number also gets an SREM on the legacy set, with the same meaning as blockNumber.
+    private boolean[] applyBulk(long[] mobileNumbers, int count, boolean block) {
+        boolean migrating = layout.mode() == BlocklistLayout.Mode.MIGRATING;
+        byte[] legacyKey = BlocklistLayout.LEGACY_KEY.getBytes(StandardCharsets.US_ASCII);
+        byte[][] members = new byte[count][];
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < count; i++) {
+                members[i] = MobileNumber.format(mobileNumbers[i]).getBytes(StandardCharsets.US_ASCII);
+                byte[] key = layout.key(mobileNumbers[i]).getBytes(StandardCharsets.US_ASCII);
+                if (block) {
+                    connection.setCommands().sAdd(key, members[i]);
+                } else {
+                    connection.setCommands().sRem(key, members[i]);
+                }
+                if (migrating) {
+                    connection.setCommands().sRem(legacyKey, members[i]);
+                }
+            }
+            return null;
+        });
+        boolean[] changed = new boolean[count];
+        StringBuilder invalidation = new StringBuilder();
+        int step = migrating ? 2 : 1;
+        for (int i = 0; i < count; i++) {
+            boolean primary = isPositive(replies.get(i * step));
+            boolean legacy = migrating && isPositive(replies.get(i * step + 1));
+            changed[i] = block ? primary && !legacy : primary || legacy;
+            nearCache.invalidate(mobileNumbers[i]);
+            if (changed[i]) {
+                if (block) {
+                    filter.onBlocked(mobileNumbers[i]);
+                } else {
+                    filter.onUnblocked(mobileNumbers[i]);
+                }
+                if (invalidation.length() > 0) {
+                    invalidation.append(',');
+                }
+                invalidation.append(MobileNumber.format(mobileNumbers[i]));
+            }
+        }
+        // One message for the whole chunk; subscribers split it on commas.
+        if (invalidation.length() > 0) {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, BlocklistUpdate.encode(
+                block ? BlocklistUpdate.Op.BLOCK : BlocklistUpdate.Op.UNBLOCK, filter.origin(), invalidation));
+        }
+        return changed;
+    }
+
+    private static boolean isPositive(Object reply) {
+        return reply instanceof Long n && n > 0;
+    }
+
+    // Drop the local entry right away; other replicas drop theirs when the message arrives.
+    private void invalidate(long mobileNumber, String member, Long changed, BlocklistUpdate.Op op) {
+        nearCache.invalidate(mobileNumber);
+        if (changed != null && changed > 0) {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, BlocklistUpdate.encode(op, filter.origin(), member));
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.meesho.smssender.retry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.KafkaMessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.SendResult;
+
+import com.meesho.smssender.dispatch.DispatchEngine;
+import com.meesho.smssender.dispatch.Priority;
+import com.meesho.smssender.dto.KafkaSmsData;
+import com.meesho.smssender.exception.DispatchRejectedException;
+import com.meesho.smssender.exception.GatewayUnavailableException;
+import com.meesho.smssender.metrics.SmsMetrics;
+import com.meesho.smssender.metrics.SmsMetrics.Outcome;
+import com.meesho.smssender.outbox.Outbox;
+import com.meesho.smssender.outbox.OutboxRouter;
+import com.meesho.smssender.status.DeliveryStatusCache;
+import com.meesho.smssender.status.DeliveryStatusCache.State;
+import com.meesho.smssender.util.LogSampler;
+import com.meesho.smssender.util.TimerWheel;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Consumes the {@link RetryTiers} topics and tries each message on the gateway again once its
+ * tier's delay has passed since it was produced.
+ *
+ * Every tier has its own listener container, so a 5-minute tier holding its records never stops
+ * the 1-second tier from polling. A record is not waited for on the consumer thread: it goes on
+ * the {@link TimerWheel} and is acknowledged asynchronously once it has been handled. The
+ * container commits only contiguous acknowledged offsets and stops fetching until a poll's
+ * records are all handled, which bounds what each tier holds in memory to one poll.
+ *
+ * When the gateway takes the message, the SUCCESS event is produced to its lane's topic. When it
+ * fails, the message moves to the next tier, or to the dead-letter topic after the last one, with
+ * the failure in the {@link #ERROR_HEADER} header. A produce that fails is retried from memory
+ * after {@code backoff-ms} without calling the gateway again, as is a dispatch the lane had no
+ * room for; neither uses up the tier. A record still waiting at shutdown is not acknowledged and
+ * is delivered again after the next start.
+ *
+ * The {@link Outbox#ID_HEADER} header of a tracked message is carried along, and its status in
+ * the {@link DeliveryStatusCache} becomes DELIVERED or, once dead-lettered, FAILED. Only the
+ * replica that accepted the message knows the id, so elsewhere the update does nothing.
+ */
+public class RetryListener implements SmartLifecycle, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(RetryListener.class);
+
+    /** Header on forwarded records with the failure that moved them on. */
+    public static final String ERROR_HEADER = "sms-retry-error";
+
+    private final RetryTiers tiers;
+    private final KafkaTemplate<Long, Object> kafkaTemplate;
+    private final DispatchEngine dispatchEngine;
+    private final OutboxRouter router;
+    private final SmsMetrics metrics;
+    private final DeliveryStatusCache statuses;
+    private final TimerWheel wheel;
+    private final long backoffMs;
+    private final boolean autoStartup;
+    private final LongSupplier clock;
+    private final List<KafkaMessageListenerContainer<Long, KafkaSmsData>> containers = new ArrayList<>();
+
+    private final AtomicInteger[] scheduled;
+    private final LongAdder[] attempts;
+    private final LongAdder[] succeeded;
+    private final LongAdder[] failed;
+    private final LongAdder deadLettered = new LongAdder();
+    private final LogSampler failureLog = new LogSampler(Duration.ofSeconds(1));
+    private final LogSampler deadLetterLog = new LogSampler(Duration.ofSeconds(1));
+
+    private volatile boolean running;
+
+    public RetryListener(RetryTiers tiers, ConsumerFactory<Long, KafkaSmsData> consumerFactory,
+            KafkaTemplate<Long, Object> kafkaTemplate, DispatchEngine dispatchEngine, OutboxRouter router,
+            SmsMetrics metrics, DeliveryStatusCache statuses, TimerWheel wheel, long backoffMs, boolean autoStartup) {
+        this(tiers, consumerFactory, kafkaTemplate, dispatchEngine, router, metrics, statuses, wheel, backoffMs,
+            autoStartup, System::currentTimeMillis);
+    }
+
+    RetryListener(RetryTiers tiers, ConsumerFactory<Long, KafkaSmsData> consumerFactory,
+            KafkaTemplate<Long, Object> kafkaTemplate, DispatchEngine dispatchEngine, OutboxRouter router,
+            SmsMetrics metrics, DeliveryStatusCache statuses, TimerWheel wheel, long backoffMs, boolean autoStartup,
+            LongSupplier clock) {
+        this.tiers = tiers;
+        this.kafkaTemplate = kafkaTemplate;
+        this.dispatchEngine = dispatchEngine;
+        this.router = router;
+        this.metrics = metrics;
+        this.statuses = statuses;
+        this.wheel = wheel;
+        this.backoffMs = backoffMs;
+        this.autoStartup = autoStartup;
+        this.clock = clock;
+        this.scheduled = new AtomicInteger[tiers.size()];
+        this.attempts = new LongAdder[tiers.size()];
+        this.succeeded = new LongAdder[tiers.size()];
+        this.failed = new LongAdder[tiers.size()];
+        for (int tier = 0; tier < tiers.size(); tier++) {
+            scheduled[tier] = new AtomicInteger();
+            attempts[tier] = new LongAdder();
+            succeeded[tier] = new LongAdder();
+            failed[tier] = new LongAdder();
+            containers.add(container(consumerFactory, tier));
+        }
+    }
+
+    private KafkaMessageListenerContainer<Long, KafkaSmsData> container(
+            ConsumerFactory<Long, KafkaSmsData> consumerFactory, int tier) {
+        ContainerProperties properties = new ContainerProperties(tiers.topic(tier));
+        properties.setAckMode(ContainerProperties.AckMode.MANUAL);
+        properties.setAsyncAcks(true);
+        properties.setMessageListener(
+            (AcknowledgingMessageListener<Long, KafkaSmsData>) (record, ack) -> onMessage(tier, record, ack));
+        KafkaMessageListenerContainer<Long, KafkaSmsData> container =
+            new KafkaMessageListenerContainer<>(consumerFactory, properties);
+        container.setBeanName("sms-retry-" + tiers.label(tier));
+        return container;
+    }
+
+    void onMessage(int tier, ConsumerRecord<Long, KafkaSmsData> record, Acknowledgment ack) {
+        Retry retry = new Retry(tier, record.key(), lane(record), id(record), record.value(), ack);
+        long produced = record.timestamp() >= 0 ? record.timestamp() : clock.getAsLong();
+        scheduled[tier].incrementAndGet();
+        wheel.schedule(produced + tiers.delayMs(tier) - clock.getAsLong(), () -> attempt(retry));
+    }
+
+    private static Priority lane(ConsumerRecord<Long, KafkaSmsData> record) {
+        Header header = record.headers().lastHeader(Outbox.LANE_HEADER);
+        if (header == null) {
+            return Priority.STANDARD;
+        }
+        try {
+            return Priority.parse(new String(header.value(), StandardCharsets.US_ASCII));
+        } catch (RuntimeException e) {
+            return Priority.STANDARD;
+        }
+    }
+
+    private static long id(ConsumerRecord<Long, KafkaSmsData> record) {
+        Header header = record.headers().lastHeader(Outbox.ID_HEADER);
+        return header == null ? DeliveryStatusCache.NO_ID
+            : DeliveryStatusCache.parse(new String(header.value(), StandardCharsets.US_ASCII));
+    }
+
+    private void attempt(Retry r) {
+        CompletableFuture<Void> call;
+        try {
+            call = dispatchEngine.dispatch(r.lane, r.event.mobileNumber(), r.event.message());
+        } catch (GatewayUnavailableException e) {
+            call = CompletableFuture.failedFuture(e);
+        } catch (DispatchRejectedException e) {
+            // The lane is full: wait for room without using up the tier.
+            wheel.schedule(backoffMs, () -> attempt(r));
+            return;
+        }
+        attempts[r.tier].increment();
+        call.whenComplete((v, ex) -> {
+            if (ex == null) {
+                deliver(r);
+            } else {
+                forward(r, ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            }
+        });
+    }
+
+    private void deliver(Retry r) {
+        ProducerRecord<Long, Object> record = new ProducerRecord<>(router.topic(r.lane), r.key, r.event);
+        send(Outbox.withId(record, r.id)).whenComplete((result, ex) -> {
+            if (ex != null) {
+                retryLater(r, ex, () -> deliver(r));
+                return;
+            }
+            succeeded[r.tier].increment();
+            metrics.increment(Outcome.DELIVERED);
+            update(r, State.DELIVERED);
+            done(r);
+        });
+    }
+
+    private void forward(Retry r, Throwable cause) {
+        boolean last = r.tier + 1 == tiers.size();
+        ProducerRecord<Long, Object> record = new ProducerRecord<>(
+            last ? tiers.deadLetterTopic() : tiers.topic(r.tier + 1), r.key, r.event);
+        record.headers().add(Outbox.LANE_HEADER, r.lane.lane().getBytes(StandardCharsets.US_ASCII));
+        record.headers().add(ERROR_HEADER, String.valueOf(cause).getBytes(StandardCharsets.UTF_8));
+        send(Outbox.withId(record, r.id)).whenComplete((result, ex) -> {
+            if (ex != null) {
+                retryLater(r, ex, () -> forward(r, cause));
+                return;
+            }
+            failed[r.tier].increment();
+            if (last) {
+                deadLettered.increment();
+                update(r, State.FAILED);
+                long suppressed = deadLetterLog.sample();
+                if (suppressed >= 0) {
+                    log.warn("Gave up on {} after {} retry tiers, sent to {}: {} ({} similar suppressed)",
+                        r.event.mobileNumber(), tiers.size(), tiers.deadLetterTopic(), cause, suppressed);
+                }
+            }
+            done(r);
+        });
+    }
+
+    private CompletableFuture<SendResult<Long, Object>> send(ProducerRecord<Long, Object> record) {
+        try {
+            return kafkaTemplate.send(record);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void retryLater(Retry r, Throwable ex, Runnable task) {
+        long suppressed = failureLog.sample();
+        if (suppressed >= 0) {
+            log.warn("Retry produce for {} failed, trying again in {} ms ({} similar suppressed)",
+                r.event.mobileNumber(), backoffMs, suppressed, ex);
+        }
+        wheel.schedule(backoffMs, task);
+    }
+
+    private void update(Retry r, State state) {
+        if (r.id != DeliveryStatusCache.NO_ID && statuses != null) {
+            statuses.update(r.id, state);
+        }
+    }
+
+    private void done(Retry r) {
+        scheduled[r.tier].decrementAndGet();
+        r.ack.acknowledge();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        containers.forEach(this::startContainer);
+    }
+
+    // A broker that cannot be reached yet (or not even resolved) must not stop the service from
+    // starting; the container is retried in the background like the blocklist subscription.
+    private void startContainer(KafkaMessageListenerContainer<Long, KafkaSmsData> container) {
+        if (!running || container.isRunning()) {
+            return;
+        }
+        try {
+            container.start();
+        } catch (RuntimeException e) {
+            long suppressed = failureLog.sample();
+            if (suppressed >= 0) {
+                log.warn("Retry listener {} failed to start, retrying in {} ms ({} similar suppressed): {}",
+                    container.getBeanName(), backoffMs, suppressed, e.getMessage());
+            }
+            wheel.schedule(backoffMs, () -> startContainer(container));
+        }
+    }
+
+    // Records still on the wheel are dropped unacknowledged and consumed again after a restart.
+    @Override
+    public void stop() {
+        running = false;
+        containers.forEach(KafkaMessageListenerContainer::stop);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return autoStartup;
+    }
+
+    // Stop together with the outboxes, before the dispatch engine.
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 3072;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (int tier = 0; tier < tiers.size(); tier++) {
+            String label = tiers.label(tier);
+            Gauge.builder("sms.retry.scheduled", scheduled[tier], AtomicInteger::get)
+                .tag("tier", label)
+                .description("Retry records waiting for their delay or being retried")
+                .register(registry);
+            FunctionCounter.builder("sms.retry.attempts", attempts[tier], LongAdder::sum)
+                .tag("tier", label)
+                .description("Gateway calls made from a retry tier")
+                .register(registry);
+            FunctionCounter.builder("sms.retry.succeeded", succeeded[tier], LongAdder::sum)
+                .tag("tier", label)
+                .description("Retried messages the gateway took")
+                .register(registry);
+            FunctionCounter.builder("sms.retry.failed", failed[tier], LongAdder::sum)
+                .tag("tier", label)
+                .description("Retried messages that failed and moved to the next tier or the dead-letter topic")
+                .register(registry);
+        }
+        FunctionCounter.builder("sms.retry.dead_lettered", deadLettered, LongAdder::sum)
+            .description("Messages sent to the dead-letter topic after the last retry tier")
+            .register(registry);
+    }
+
+    private record Retry(int tier, Long key, Priority lane, long id, KafkaSmsData event, Acknowledgment ack) {
+    }
+}
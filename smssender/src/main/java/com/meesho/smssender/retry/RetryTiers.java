@@ -0,0 +1,103 @@
+package com.meesho.smssender.retry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The retry topics and their delays. Tier {@code i} is the topic {@code <topic>-<delay>}, e.g.
+ * {@code sms-topic-retry-30s}; a message that fails there moves to tier {@code i + 1}, and one
+ * that fails the last tier goes to the dead-letter topic.
+ */
+@Component
+public class RetryTiers {
+
+    private final boolean enabled;
+    private final long[] delaysMs;
+    private final String[] labels;
+    private final String[] topics;
+    private final String deadLetterTopic;
+
+    @Autowired
+    public RetryTiers(
+            @Value("${sms.retry.enabled:true}") boolean enabled,
+            @Value("${sms.retry.topic:sms-topic-retry}") String topic,
+            @Value("${sms.retry.delays-ms:1000,30000,300000}") long[] delaysMs,
+            @Value("${sms.retry.dead-letter-topic:sms-topic-dlt}") String deadLetterTopic) {
+        if (delaysMs.length == 0) {
+            throw new IllegalArgumentException("sms.retry.delays-ms needs at least one delay");
+        }
+        this.enabled = enabled;
+        this.delaysMs = delaysMs.clone();
+        this.labels = new String[delaysMs.length];
+        this.topics = new String[delaysMs.length];
+        for (int i = 0; i < delaysMs.length; i++) {
+            if (i > 0 && delaysMs[i] < delaysMs[i - 1]) {
+                throw new IllegalArgumentException("sms.retry.delays-ms must not decrease");
+            }
+            labels[i] = label(delaysMs[i]);
+            topics[i] = topic + "-" + labels[i];
+        }
+        this.deadLetterTopic = deadLetterTopic;
+    }
+
+    /** Whether failed gateway calls go to the retry topics at all. */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public int size() {
+        return delaysMs.length;
+    }
+
+    public String topic(int tier) {
+        return topics[tier];
+    }
+
+    public long delayMs(int tier) {
+        return delaysMs[tier];
+    }
+
+    /** The delay as a short tag value, e.g. {@code 1s} or {@code 5m}. */
+    public String label(int tier) {
+        return labels[tier];
+    }
+
+    public String deadLetterTopic() {
+        return deadLetterTopic;
+    }
+
+    /** The tier whose topic this is, or -1. */
+    public int tierOf(String topic) {
+        for (int i = 0; i < topics.length; i++) {
+            if (topics[i].equals(topic)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Every retry topic and the dead-letter topic. */
+    public List<String> allTopics() {
+        List<String> all = new ArrayList<>(List.of(topics));
+        all.add(deadLetterTopic);
+        return all;
+    }
+
+    static String label(long ms) {
+        if (ms % TimeUnit.HOURS.toMillis(1) == 0 && ms > 0) {
+            return TimeUnit.MILLISECONDS.toHours(ms) + "h";
+        }
+        if (ms % TimeUnit.MINUTES.toMillis(1) == 0 && ms > 0) {
+            return TimeUnit.MILLISECONDS.toMinutes(ms) + "m";
+        }
+        if (ms % 1000 == 0 && ms > 0) {
+            return ms / 1000 + "s";
+        }
+        return ms + "ms";
+    }
+}
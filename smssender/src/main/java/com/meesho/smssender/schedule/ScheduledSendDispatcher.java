@@ -0,0 +1,307 @@
+package com.meesho.smssender.schedule;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import com.meesho.smssender.dto.SmsRequest;
+import com.meesho.smssender.dto.SmsResponse;
+import com.meesho.smssender.schedule.ScheduledSendStore.Claim;
+import com.meesho.smssender.schedule.ScheduledSendStore.Membership;
+import com.meesho.smssender.service.SmsService;
+import com.meesho.smssender.util.LogSampler;
+import com.meesho.smssender.util.TimerWheel;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Sends deferred messages from the {@link ScheduledSendStore} when they are due.
+ *
+ * Every {@code refresh-ms} the replica renews its heartbeat and takes the partitions {@code p}
+ * with {@code p % replicas == its rank} among the live replicas. It then reads the partition
+ * index, one key, and sets one {@link TimerWheel} wakeup per owned partition for that
+ * partition's earliest due time. Memory and timers therefore grow with the partitions, not with
+ * the pending sends, and only partitions with something due are touched.
+ *
+ * A wakeup claims the partition's due sends {@code batch-size} at a time and hands each batch to
+ * {@link SmsService#sendSmsBatch}, which applies rate limits, idempotency keys and the blocklist
+ * as of now and appends to the lane outboxes on their way to {@code sms-topic}. Only final
+ * outcomes are acknowledged. Sends the lane had no room for, sends a rate limit throttled, sends
+ * whose idempotency key is still in flight, and batches that failed outright all stay claimed,
+ * and they come back when the lease runs out after {@code lease-ms}. While replicas join or
+ * leave, two may briefly own the same partition; the claim is atomic, so each send is still taken
+ * once.
+ *
+ * Redis and the send path are called from one worker thread; the wheel only hands work to it.
+ */
+public class ScheduledSendDispatcher implements SmartLifecycle, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduledSendDispatcher.class);
+
+    // Outcomes that may go differently later; anything else is final.
+    private static final Set<String> RETRY_LATER = Set.of("REJECTED", "THROTTLED", "IN_PROGRESS");
+
+    private final ScheduledSendStore store;
+    private final SmsService smsService;
+    private final TimerWheel wheel;
+    private final int batchSize;
+    private final long leaseMs;
+    private final long refreshMs;
+    private final long replicaTtlMs;
+    private final String replicaId;
+    private final boolean autoStartup;
+
+    // Confined to the worker thread.
+    private final boolean[] owned;
+    private final long[] wakeAt;
+
+    private final LongAdder released = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+    private final LogSampler failureLog = new LogSampler(Duration.ofSeconds(1));
+
+    private volatile int ownedCount;
+    private volatile Timer lateness;
+    private volatile ExecutorService worker;
+    private volatile boolean running;
+
+    public ScheduledSendDispatcher(ScheduledSendStore store, SmsService smsService, TimerWheel wheel, int batchSize,
+            long leaseMs, long refreshMs, long replicaTtlMs, String replicaId, boolean autoStartup) {
+        this.store = store;
+        this.smsService = smsService;
+        this.wheel = wheel;
+        this.batchSize = batchSize;
+        this.leaseMs = leaseMs;
+        this.refreshMs = refreshMs;
+        this.replicaTtlMs = replicaTtlMs;
+        this.replicaId = replicaId;
+        this.autoStartup = autoStartup;
+        this.owned = new boolean[store.partitions()];
+        this.wakeAt = new long[store.partitions()];
+        Arrays.fill(wakeAt, Long.MAX_VALUE);
+    }
+
+    public String replicaId() {
+        return replicaId;
+    }
+
+    void refresh() {
+        try {
+            Membership membership = store.heartbeat(replicaId, replicaTtlMs);
+            int rank = membership.replicas().indexOf(replicaId);
+            int replicas = membership.replicas().size();
+            int count = 0;
+            for (int p = 0; p < owned.length; p++) {
+                owned[p] = rank >= 0 && p % replicas == rank;
+                if (owned[p]) {
+                    count++;
+                } else {
+                    wakeAt[p] = Long.MAX_VALUE;
+                }
+            }
+            ownedCount = count;
+            long[] due = store.dueTimes();
+            for (int p = 0; p < owned.length; p++) {
+                if (owned[p] && due[p] != Long.MAX_VALUE) {
+                    wake(p, due[p], membership.now());
+                }
+            }
+        } catch (RuntimeException e) {
+            warn("Scheduled send refresh failed, retrying in " + refreshMs + " ms", e);
+        }
+    }
+
+    // Arms a wakeup for partition p at its due time unless one at least as early is armed.
+    private void wake(int p, long due, long now) {
+        if (due < 0 || due >= wakeAt[p]) {
+            return;
+        }
+        wakeAt[p] = due;
+        wheel.schedule(due - now, () -> submit(() -> fire(p, due)));
+    }
+
+    private void fire(int p, long due) {
+        if (!owned[p] || wakeAt[p] != due) {
+            return;
+        }
+        wakeAt[p] = Long.MAX_VALUE;
+        drain(p);
+    }
+
+    void drain(int p) {
+        try {
+            Claim claim;
+            boolean more;
+            do {
+                claim = store.claim(p, batchSize, leaseMs);
+                // Stop claiming while sends are pushed back; the deferred ones hold the next wakeup.
+                more = release(p, claim) == 0 && claim.members().size() == batchSize;
+            } while (more && running);
+            wake(p, claim.nextDue(), claim.now());
+        } catch (RuntimeException e) {
+            // The index still points at this partition, so the next refresh arms it again.
+            warn("Scheduled sends of partition " + p + " could not be claimed", e);
+        }
+    }
+
+    // Returns how many sends were deferred.
+    private int release(int p, Claim claim) {
+        Map<String, List<String>> byClient = new LinkedHashMap<>();
+        Map<String, ScheduledSms> sends = new LinkedHashMap<>();
+        List<String> done = new ArrayList<>(claim.members().size());
+        int later = 0;
+        for (String member : claim.members()) {
+            ScheduledSms send;
+            try {
+                send = store.read(member);
+            } catch (IllegalArgumentException e) {
+                warn("Dropped an unreadable scheduled send", e);
+                done.add(member);
+                continue;
+            }
+            sends.put(member, send);
+            byClient.computeIfAbsent(send.clientId(), k -> new ArrayList<>()).add(member);
+        }
+        for (Map.Entry<String, List<String>> client : byClient.entrySet()) {
+            List<String> members = client.getValue();
+            List<SmsRequest> requests = new ArrayList<>(members.size());
+            for (String member : members) {
+                requests.add(sends.get(member).request());
+            }
+            List<SmsResponse> results;
+            try {
+                results = smsService.sendSmsBatch(client.getKey(), requests);
+            } catch (RuntimeException e) {
+                later += members.size();
+                warn("Scheduled sends failed, retrying after the " + leaseMs + " ms lease", e);
+                continue;
+            }
+            for (int i = 0; i < members.size(); i++) {
+                if (RETRY_LATER.contains(results.get(i).status())) {
+                    later++;
+                    continue;
+                }
+                done.add(members.get(i));
+                released.increment();
+                Timer timer = lateness;
+                if (timer != null) {
+                    timer.record(Math.max(claim.now() - sends.get(members.get(i)).dueAt(), 0), TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        store.ack(p, done);
+        deferred.add(later);
+        return later;
+    }
+
+    private void scheduleRefresh() {
+        if (running) {
+            wheel.schedule(refreshMs, () -> submit(() -> {
+                refresh();
+                scheduleRefresh();
+            }));
+        }
+    }
+
+    private void submit(Runnable task) {
+        ExecutorService executor = worker;
+        if (!running || executor == null) {
+            return;
+        }
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Stopping.
+        }
+    }
+
+    private void warn(String message, RuntimeException e) {
+        long suppressed = failureLog.sample();
+        if (suppressed >= 0) {
+            log.warn("{} ({} similar suppressed): {}", message, suppressed, e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        worker = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "sms-schedule");
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        submit(() -> {
+            refresh();
+            scheduleRefresh();
+        });
+    }
+
+    // A claim in progress finishes; what is still pending stays in Redis for the other replicas.
+    @Override
+    public void stop() {
+        running = false;
+        ExecutorService executor = worker;
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            store.leave(replicaId);
+        } catch (RuntimeException e) {
+            log.debug("Could not leave the scheduler replica set: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return autoStartup;
+    }
+
+    // Stop before the outboxes, so the last batches still find them open.
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 2048;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sms.schedule.partitions", this, d -> d.ownedCount)
+            .description("Schedule partitions this replica sends from")
+            .register(registry);
+        FunctionCounter.builder("sms.schedule.released", released, LongAdder::sum)
+            .description("Scheduled messages handed to the send path when due")
+            .register(registry);
+        FunctionCounter.builder("sms.schedule.deferred", deferred, LongAdder::sum)
+            .description("Due scheduled messages left for another attempt after their lease")
+            .register(registry);
+        lateness = Timer.builder("sms.schedule.lateness")
+            .description("How long after its due time a scheduled message was released")
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+}
@@ -0,0 +1,272 @@
+package com.meesho.smssender.schedule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meesho.smssender.util.MobileNumber;
+
+/**
+ * Deferred sends in Redis, spread over {@code partitions} sorted sets scored by due time.
+ *
+ * A send lives in {@code sms_scheduled:{<p>}} until it is due, where {@code p} is a fixed hash of
+ * its number. {@link #claim} takes the due members of one partition in a single script and moves
+ * them to {@code sms_scheduled:{<p>}:claimed}, scored by when the claim lapses; they leave it when
+ * {@link #ack acknowledged}, or are claimed again once the lease has passed, so a replica that
+ * dies holding a claim delays its sends but does not lose them. Delivery is therefore at least
+ * once.
+ *
+ * {@code sms_scheduled:index} holds one member per non-empty partition, scored by its earliest due
+ * time or lapse. Replicas read that one key to learn when each partition next needs them, instead
+ * of polling every partition. {@code sms_scheduled:replicas} is the heartbeat set the replicas
+ * split the partitions by.
+ *
+ * The two keys of a partition share the hash tag {@code {<p>}}, so every script touches a single
+ * Redis Cluster slot; the index is in another slot and is written by separate calls. An add only
+ * ever moves its partition's index entry earlier. A claim sets the entry to what it found and
+ * then looks at the partition again, lowering the entry if an add slipped in between, so the
+ * index may briefly be early but never misses a send.
+ *
+ * Every time comparison uses the Redis clock, so clock skew between replicas cannot make one send
+ * early or claim another's lease.
+ */
+@Component
+public class ScheduledSendStore {
+
+    static final String KEY_PREFIX = "sms_scheduled:";
+    static final String INDEX_KEY = KEY_PREFIX + "index";
+    static final String REPLICAS_KEY = KEY_PREFIX + "replicas";
+
+    private static final String NOW = "local t = redis.call('TIME')\n"
+        + "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)\n";
+
+    // KEYS: pending, claimed. Leaves the partition's earliest due time or lapse in next, -1 if empty.
+    private static final String NEXT = "local next = -1\n"
+        + "local first = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')\n"
+        + "if first[2] then next = tonumber(first[2]) end\n"
+        + "first = redis.call('ZRANGE', KEYS[2], 0, 0, 'WITHSCORES')\n"
+        + "if first[2] and (next < 0 or tonumber(first[2]) < next) then next = tonumber(first[2]) end\n";
+
+    // KEYS: pending. ARGV: score and member pairs. Returns the earliest score added.
+    private static final RedisScript<Long> ADD = new DefaultRedisScript<>(
+        "local earliest\n"
+            + "for i = 1, #ARGV, 2 do\n"
+            + "  redis.call('ZADD', KEYS[1], ARGV[i], ARGV[i + 1])\n"
+            + "  local score = tonumber(ARGV[i])\n"
+            + "  if not earliest or score < earliest then earliest = score end\n"
+            + "end\n"
+            + "return earliest",
+        Long.class);
+
+    // KEYS: pending, claimed. ARGV: limit, lease. Returns now, next due, members.
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM = new DefaultRedisScript<>(
+        NOW
+            + "local limit = tonumber(ARGV[1])\n"
+            + "local items = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', now, 'LIMIT', 0, limit)\n"
+            + "if #items < limit then\n"
+            + "  local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', now, 'LIMIT', 0, limit - #items)\n"
+            + "  for _, member in ipairs(due) do\n"
+            + "    redis.call('ZREM', KEYS[1], member)\n"
+            + "    items[#items + 1] = member\n"
+            + "  end\n"
+            + "end\n"
+            + "for _, member in ipairs(items) do redis.call('ZADD', KEYS[2], now + tonumber(ARGV[2]), member) end\n"
+            + NEXT
+            + "table.insert(items, 1, string.format('%d', next))\n"
+            + "table.insert(items, 1, string.format('%d', now))\n"
+            + "return items",
+        List.class);
+
+    // KEYS: pending, claimed. Returns the partition's earliest due time or lapse, -1 if empty.
+    private static final RedisScript<Long> PEEK = new DefaultRedisScript<>(NEXT + "return next", Long.class);
+
+    // KEYS: index. ARGV: partition, time. Moves the partition's entry to time if that is earlier.
+    private static final RedisScript<Long> LOWER = new DefaultRedisScript<>(
+        "local current = redis.call('ZSCORE', KEYS[1], ARGV[1])\n"
+            + "if current and tonumber(current) <= tonumber(ARGV[2]) then return 0 end\n"
+            + "redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1])\n"
+            + "return 1",
+        Long.class);
+
+    // KEYS: replicas. ARGV: replica id, ttl. Returns now, then the live replicas in name order.
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> HEARTBEAT = new DefaultRedisScript<>(
+        NOW
+            + "redis.call('ZADD', KEYS[1], now, ARGV[1])\n"
+            + "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - tonumber(ARGV[2]))\n"
+            + "local replicas = redis.call('ZRANGE', KEYS[1], 0, -1)\n"
+            + "table.sort(replicas)\n"
+            + "table.insert(replicas, 1, string.format('%d', now))\n"
+            + "return replicas",
+        List.class);
+
+    /**
+     * The members taken by one {@link #claim}.
+     *
+     * @param now the Redis clock at the claim, in epoch milliseconds
+     * @param nextDue when the partition next has something due, or -1 if it is empty
+     */
+    public record Claim(long now, long nextDue, List<String> members) {
+    }
+
+    /**
+     * @param now the Redis clock at the heartbeat, in epoch milliseconds
+     * @param replicas the live replica ids, sorted
+     */
+    public record Membership(long now, List<String> replicas) {
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final int partitions;
+    private final String[] pendingKeys;
+    private final String[] claimedKeys;
+
+    @Autowired
+    public ScheduledSendStore(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+            @Value("${sms.schedule.partitions:64}") int partitions) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("Schedule partition count must be positive: " + partitions);
+        }
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.partitions = partitions;
+        this.pendingKeys = new String[partitions];
+        this.claimedKeys = new String[partitions];
+        for (int p = 0; p < partitions; p++) {
+            pendingKeys[p] = KEY_PREFIX + "{" + p + "}";
+            claimedKeys[p] = pendingKeys[p] + ":claimed";
+        }
+    }
+
+    public int partitions() {
+        return partitions;
+    }
+
+    public int partition(long mobileNumber) {
+        return MobileNumber.shard(mobileNumber, partitions);
+    }
+
+    /**
+     * Stores sends, one script call per partition they fall in, then moves each partition's index
+     * entry up to its earliest new send.
+     */
+    public void add(List<ScheduledSms> sends) {
+        List<List<String>> byPartition = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            byPartition.add(null);
+        }
+        for (ScheduledSms send : sends) {
+            int p = partition(MobileNumber.parse(send.mobileNumber()));
+            List<String> args = byPartition.get(p);
+            if (args == null) {
+                args = new ArrayList<>();
+                byPartition.set(p, args);
+            }
+            args.add(Long.toString(send.dueAt()));
+            args.add(write(send));
+        }
+        for (int p = 0; p < partitions; p++) {
+            List<String> args = byPartition.get(p);
+            if (args != null) {
+                Long earliest = redisTemplate.execute(ADD, List.of(pendingKeys[p]), args.toArray());
+                lower(p, earliest);
+            }
+        }
+    }
+
+    /**
+     * Takes up to {@code limit} members of partition {@code p} that are due, or whose earlier claim
+     * has lapsed, and holds them for {@code leaseMs}.
+     */
+    @SuppressWarnings("unchecked")
+    public Claim claim(int p, int limit, long leaseMs) {
+        List<String> reply = redisTemplate.execute(CLAIM, List.of(pendingKeys[p], claimedKeys[p]),
+            Integer.toString(limit), Long.toString(leaseMs));
+        Claim claim = new Claim(Long.parseLong(reply.get(0)), Long.parseLong(reply.get(1)),
+            reply.subList(2, reply.size()));
+        if (claim.nextDue() < 0) {
+            redisTemplate.opsForZSet().remove(INDEX_KEY, Integer.toString(p));
+        } else {
+            redisTemplate.opsForZSet().add(INDEX_KEY, Integer.toString(p), claim.nextDue());
+        }
+        // An add between the claim and the write above may have been overwritten; look again.
+        lower(p, redisTemplate.execute(PEEK, List.of(pendingKeys[p], claimedKeys[p])));
+        return claim;
+    }
+
+    private void lower(int p, Long due) {
+        if (due != null && due >= 0) {
+            redisTemplate.execute(LOWER, List.of(INDEX_KEY), Integer.toString(p), Long.toString(due));
+        }
+    }
+
+    /** Releases claimed members that have been handed on for good. */
+    public void ack(int p, Collection<String> members) {
+        if (!members.isEmpty()) {
+            redisTemplate.opsForZSet().remove(claimedKeys[p], members.toArray());
+        }
+    }
+
+    /**
+     * When each partition next needs attention, in epoch milliseconds by the Redis clock;
+     * {@link Long#MAX_VALUE} for an empty partition.
+     */
+    public long[] dueTimes() {
+        long[] due = new long[partitions];
+        Arrays.fill(due, Long.MAX_VALUE);
+        Set<TypedTuple<String>> index = redisTemplate.opsForZSet().rangeWithScores(INDEX_KEY, 0, -1);
+        if (index != null) {
+            for (TypedTuple<String> entry : index) {
+                int p = Integer.parseInt(entry.getValue());
+                if (p < partitions && entry.getScore() != null) {
+                    due[p] = entry.getScore().longValue();
+                }
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Records that {@code replicaId} is alive and drops replicas not seen for {@code ttlMs}.
+     */
+    @SuppressWarnings("unchecked")
+    public Membership heartbeat(String replicaId, long ttlMs) {
+        List<String> reply = redisTemplate.execute(HEARTBEAT, List.of(REPLICAS_KEY), replicaId, Long.toString(ttlMs));
+        return new Membership(Long.parseLong(reply.get(0)), reply.subList(1, reply.size()));
+    }
+
+    /** Leaves the replica set, so the others take over its partitions without waiting out the ttl. */
+    public void leave(String replicaId) {
+        redisTemplate.opsForZSet().remove(REPLICAS_KEY, replicaId);
+    }
+
+    public ScheduledSms read(String member) {
+        try {
+            return objectMapper.readValue(member, ScheduledSms.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unreadable scheduled send: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private String write(ScheduledSms send) {
+        try {
+            return objectMapper.writeValueAsString(send);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Scheduled send could not be written", e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.meesho.smssender.schedule;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.meesho.smssender.dto.SmsRequest;
+
+/**
+ * A deferred send as it waits in Redis: the request as the client sent it, without
+ * {@code sendAt}, plus who sent it and when it is due.
+ *
+ * @param id random, so that two identical sends scheduled for the same time stay two members
+ * @param clientId the caller identity for rate limits at send time, or {@code null}
+ * @param dueAt when to send, in epoch milliseconds
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ScheduledSms(String id, String clientId, long dueAt, String mobileNumber, String message,
+        String priority, String idempotencyKey, String templateId, Map<String, String> params) {
+
+    public static ScheduledSms of(String id, String clientId, long dueAt, SmsRequest request) {
+        return new ScheduledSms(id, clientId, dueAt, request.mobileNumber(), request.message(), request.priority(),
+            request.idempotencyKey(), request.templateId(), request.params());
+    }
+
+    /** The request to send once due. */
+    public SmsRequest request() {
+        return new SmsRequest(mobileNumber, message, priority, idempotencyKey, templateId, params);
+    }
+}
@@ -1,175 +1,799 @@
 package com.meesho.smssender.service;
 
-import java.util.concurrent.CompletableFuture;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
+import com.meesho.smssender.dispatch.Priority;
+import com.meesho.smssender.dto.BulkBlockResponse;
 import com.meesho.smssender.dto.KafkaSmsData;
 import com.meesho.smssender.dto.KafkaUserData;
+import com.meesho.smssender.dto.SmsRequest;
+import com.meesho.smssender.dto.SmsResponse;
+import com.meesho.smssender.dto.SmsStatusResponse;
+import com.meesho.smssender.dto.TemplateResponse;
 import com.meesho.smssender.exception.BlockedNumberException;
+import com.meesho.smssender.exception.DispatchRejectedException;
+import com.meesho.smssender.exception.DuplicateRequestException;
+import com.meesho.smssender.exception.MessageNotFoundException;
+import com.meesho.smssender.exception.ThrottledException;
 import com.meesho.smssender.exception.ValidationException;
+import com.meesho.smssender.idempotency.IdempotencyCache;
+import com.meesho.smssender.idempotency.IdempotencyCache.Claim;
+import com.meesho.smssender.idempotency.IdempotencyCache.State;
+import com.meesho.smssender.metrics.SmsMetrics;
+import com.meesho.smssender.metrics.SmsMetrics.Outcome;
+import com.meesho.smssender.metrics.SmsMetrics.Stage;
+import com.meesho.smssender.outbox.OutboxRouter;
+import com.meesho.smssender.ratelimit.RateLimiter;
 import com.meesho.smssender.repository.BlockedNumberRepository;
+import com.meesho.smssender.schedule.ScheduledSendStore;
+import com.meesho.smssender.schedule.ScheduledSms;
+import com.meesho.smssender.status.DeliveryStatusCache;
+import com.meesho.smssender.template.MessageTemplate;
+import com.meesho.smssender.template.TemplateRegistry;
+import com.meesho.smssender.util.LogSampler;
+import com.meesho.smssender.util.MobileNumber;
+import com.meesho.smssender.util.MobileNumberReader;
+import com.meesho.smssender.util.SmsSegments;
 
-import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @Service
 public class SmsService {
 
+    private static final Logger log = LoggerFactory.getLogger(SmsService.class);
+
+    private static final String ENQUEUED_MESSAGE = "Message enqueued for delivery";
+    private static final String IN_PROGRESS_MESSAGE = "A send with this idempotency key is still in progress, retry later.";
+    private static final String MISMATCH_MESSAGE = "Idempotency key was already used for a different message.";
+    private static final String SCHEDULED_MESSAGE = "Message scheduled for ";
+
+    private final LogSampler failureLog = new LogSampler(Duration.ofSeconds(1));
+
     @Autowired
     private BlockedNumberRepository blockedNumberRepo;
 
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private KafkaTemplate<Long, Object> kafkaTemplate;
+
+    @Autowired
+    private OutboxRouter outbox;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private IdempotencyCache idempotency;
+
+    @Autowired
+    private TemplateRegistry templates;
+
+    @Autowired
+    private ScheduledSendStore scheduledSends;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private DeliveryStatusCache statuses;
 
     @Autowired
-    Dummy dummy;
+    private SmsMetrics metrics;
+
+    @Value("${sms.batch.max-size:10000}")
+    private int maxBatchSize;
+
+    @Value("${sms.segments.max:3}")
+    private int maxSegments;
+
+    @Value("${sms.blocklist.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
 
-    @PostConstruct
-    public void init() {
+    @Value("${sms.schedule.enabled:true}")
+    private boolean scheduleEnabled;
+
+    @Value("${sms.schedule.max-delay-ms:2592000000}")
+    private long maxScheduleDelayMs;
+
+    /**
+     * Validates a send request and returns the number in its canonical {@code long} form.
+     * Neither the number nor the message is copied on the way.
+     */
+    public long validate(String mobileNumber, String message) {
+        long number = validate(mobileNumber);
+        validateMessage(message);
+        return number;
+    }
+
+    /**
+     * Checks the message against {@code sms.segments.max} and returns the encoding and segment
+     * count it is billed at, counted in one pass over the text.
+     */
+    public SmsSegments validateMessage(String message) {
+        if (message == null || message.isBlank()) {
+            throw new ValidationException("Message content is required.");
+        }
+        SmsSegments segments = SmsSegments.of(message);
+        if (segments.count() > maxSegments) {
+            throw new ValidationException("Message is too long (" + segments.count() + " segments, Max " + maxSegments + ").");
+        }
+        return segments;
+    }
+
+    public long validate(String mobileNumber) {
+        return MobileNumber.parse(mobileNumber);
+    }
+
+    public String sendSms(String mobileNumber, String message) {
+        return sendSms(null, new SmsRequest(mobileNumber, message));
+    }
+
+    public String sendSms(String clientId, String mobileNumber, String message) {
+        return sendSms(clientId, new SmsRequest(mobileNumber, message));
+    }
+
+    public String sendSms(String clientId, String mobileNumber, String message, String priority) {
+        return sendSms(clientId, new SmsRequest(mobileNumber, message, priority));
+    }
+
+    /**
+     * Sends one message. Rate limits are checked before the blocklist, so a throttled burst
+     * costs no Redis lookup; throttled and blocked sends are logged to Kafka and never dispatched.
+     * Accepted messages are written to the outbox before this returns, so an acknowledged message
+     * survives a slow broker or a restart. Each priority lane has its own outbox, dispatch queue and
+     * topic, so bulk traffic cannot delay an OTP.
+     *
+     * A request with a {@code templateId} is rendered from the registered template and then
+     * validated like any other message.
+     *
+     * A send with an idempotency key that was already enqueued or blocked returns the same result,
+     * message id included, without touching the rate limits, the blocklist or the outbox. One that
+     * is still being processed fails with {@link DuplicateRequestException}.
+     *
+     * @param clientId caller identity for the per-client limit, or {@code null} if unknown
+     * @return the id to poll the delivery status by, or {@code null} if the message is not tracked
+     */
+    public String sendSms(String clientId, SmsRequest request) {
+        Admission checked = validate(request, request.templateId() == null ? null : templates.find(request.templateId()));
+        Claim claim = claim(clientId, request.idempotencyKey(), checked);
+        Admission admission = admit(clientId, checked, claim);
+        if (admission == null) {
+            return DeliveryStatusCache.format(claim.messageId());
+        }
+        long start = System.nanoTime();
+        Boolean isBlocked;
         try {
-            kafkaTemplate.partitionsFor("sms-topic");
-            System.out.println("KAFKA WARMUP: Producer classes loaded successfully.");
-        } catch (Exception e) {
-            System.out.println("KAFKA WARMUP WARNING: " + e.getMessage());
+            isBlocked = blockedNumberRepo.isBlocked(admission.number());
+        } catch (RuntimeException e) {
+            idempotency.release(admission.claim());
+            throw e;
         }
+        metrics.record(Stage.BLOCKLIST, start);
+        return enqueue(admission, isBlocked);
+    }
+
+    /**
+     * Non-blocking {@link #sendSms(String, SmsRequest)} for the reactive stack. Only the template
+     * load, the idempotency claim, the cluster-wide rate limit and the blocklist lookup wait on
+     * I/O, and all four go through the reactive Redis client; validation, the local rate limits
+     * and the spool append run on the calling thread. Failures are signalled through the returned
+     * {@code Mono} as the same exceptions. The {@code Mono} carries the message id, and is empty
+     * when the message is not tracked.
+     */
+    public Mono<String> sendSmsReactive(String clientId, SmsRequest request) {
+        Mono<Admission> validated = request.templateId() == null
+            ? Mono.fromCallable(() -> validate(request, null))
+            : templates.findReactive(request.templateId())
+                .map(template -> validate(request, template))
+                .switchIfEmpty(Mono.fromCallable(() -> validate(request, null)));
+        return validated.flatMap(checked -> {
+            Mono<Claim> claim = request.idempotencyKey() == null ? Mono.just(Claim.NONE)
+                : idempotency.claimReactive(clientId, request.idempotencyKey(), fingerprint(checked));
+            return claim.flatMap(c -> {
+                if (replayed(checked, c)) {
+                    return Mono.justOrEmpty(DeliveryStatusCache.format(c.messageId()));
+                }
+                return rateLimiter.acquireReactive(checked.number(), clientId)
+                    .flatMap(throttledBy -> Mono.<Admission>error(throttled(checked, c, throttledBy)))
+                    .switchIfEmpty(Mono.fromSupplier(() -> checked.claimed(c)))
+                    .flatMap(admission -> {
+                        long start = System.nanoTime();
+                        return blockedNumberRepo.isBlockedReactive(admission.number())
+                            .defaultIfEmpty(Boolean.FALSE)
+                            .doOnError(e -> idempotency.release(admission.claim()))
+                            .mapNotNull(isBlocked -> {
+                                metrics.record(Stage.BLOCKLIST, start);
+                                return enqueue(admission, isBlocked);
+                            });
+                    });
+            });
+        });
     }
 
-    public void validate(String mobileNumber, String message) {
-        if (mobileNumber == null || mobileNumber.trim().isEmpty()) {
-            throw new ValidationException("Mobile number cannot be empty.");
+    private Admission validate(SmsRequest request, MessageTemplate template) {
+        long start = System.nanoTime();
+        try {
+            String message = message(request, template);
+            long number = validate(request.mobileNumber());
+            SmsSegments segments = validateMessage(message);
+            Priority lane = Priority.parse(request.priority());
+            validateIdempotencyKey(request.idempotencyKey());
+            return new Admission(number, lane, request, message, segments, Claim.NONE);
+        } catch (ValidationException e) {
+            metrics.increment(Outcome.FAILED);
+            throw e;
+        } finally {
+            metrics.record(Stage.VALIDATE, start);
         }
-        if (mobileNumber.length() != 10) {
-            throw new ValidationException("Mobile number must be exactly 10 digits.");
+    }
+
+    // The text to send: the message as given, or the rendered template.
+    private static String message(SmsRequest request, MessageTemplate template) {
+        if (request.templateId() == null) {
+            return request.message();
         }
-        for (char c : mobileNumber.toCharArray()) {
-            if (!Character.isDigit(c)) {
-                throw new ValidationException("Mobile number must contain only digits.");
-            }
+        if (request.message() != null) {
+            throw new ValidationException("Set either message or templateId, not both.");
         }
-        if (message == null || message.trim().isEmpty()) {
-            throw new ValidationException("Message content is required.");
+        if (template == null) {
+            throw new ValidationException("Unknown template '" + request.templateId() + "'.");
         }
-        if (message.length() > 200) {
-            throw new ValidationException("Message is too long (Max 160 chars).");
+        return template.render(request.params());
+    }
+
+    private static void validateIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return;
+        }
+        if (idempotencyKey.isBlank()) {
+            throw new ValidationException("Idempotency key must not be blank.");
         }
+        if (idempotencyKey.length() > IdempotencyCache.MAX_KEY_LENGTH) {
+            throw new ValidationException("Idempotency key is too long (Max " + IdempotencyCache.MAX_KEY_LENGTH + " chars).");
+        }
+    }
+
+    private Claim claim(String clientId, String idempotencyKey, Admission admission) {
+        return idempotencyKey == null ? Claim.NONE : idempotency.claim(clientId, idempotencyKey, fingerprint(admission));
     }
 
-    public void validate(String mobileNumber) {
-        if (mobileNumber == null || mobileNumber.trim().isEmpty()) {
-            throw new ValidationException("Mobile number cannot be empty.");
+    private static long fingerprint(Admission admission) {
+        return IdempotencyCache.fingerprint(admission.number(), admission.message(), admission.lane());
+    }
+
+    // Replays and rate limits: everything between validation and the blocklist lookup. Returns
+    // null for a replay of a send that was already enqueued; its id is on the claim.
+    private Admission admit(String clientId, Admission admission, Claim claim) {
+        if (replayed(admission, claim)) {
+            return null;
         }
-        if (mobileNumber.length() != 10) {
-            throw new ValidationException("Mobile number must be exactly 10 digits.");
+        RateLimiter.Scope throttledBy = rateLimiter.acquire(admission.number(), clientId);
+        if (throttledBy != null) {
+            throw throttled(admission, claim, throttledBy);
         }
-        for (char c : mobileNumber.toCharArray()) {
-            if (!Character.isDigit(c)) {
-                throw new ValidationException("Mobile number must contain only digits.");
+        return admission.claimed(claim);
+    }
+
+    // True for a replay of a send that was already enqueued; throws for the other replays.
+    private boolean replayed(Admission admission, Claim claim) {
+        switch (claim.state()) {
+            case IN_PROGRESS -> {
+                metrics.increment(Outcome.DUPLICATE);
+                throw new DuplicateRequestException(IN_PROGRESS_MESSAGE);
+            }
+            case MISMATCH -> {
+                metrics.increment(Outcome.FAILED);
+                throw new ValidationException(MISMATCH_MESSAGE);
+            }
+            case BLOCKED -> {
+                metrics.increment(Outcome.DUPLICATE);
+                throw new BlockedNumberException(blockedMessage(admission.request().mobileNumber()));
+            }
+            case ENQUEUED -> {
+                metrics.increment(Outcome.DUPLICATE);
+                return true;
+            }
+            default -> {
+                return false;
             }
         }
     }
 
-    private String serialize(KafkaSmsData data) {
+    private ThrottledException throttled(Admission admission, Claim claim, RateLimiter.Scope throttledBy) {
+        idempotency.release(claim);
+        metrics.increment(Outcome.THROTTLED);
+        logRejectedEvent(admission.lane(), admission.event("THROTTLED"));
+        return new ThrottledException(throttledBy.message());
+    }
+
+    // Returns the message id.
+    private String enqueue(Admission admission, Boolean isBlocked) {
+        if (Boolean.TRUE.equals(isBlocked)) {
+            idempotency.complete(admission.claim(), State.BLOCKED);
+            metrics.increment(Outcome.BLOCKED);
+            logRejectedEvent(admission.lane(), admission.event("BLOCKED"));
+            throw new BlockedNumberException(blockedMessage(admission.request().mobileNumber()));
+        }
+        long id;
         try {
-            return objectMapper.writeValueAsString(data);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to serialize KafkaSmsData", e);
+            id = outbox.append(admission.lane(), admission.event("SUCCESS"));
+        } catch (DispatchRejectedException e) {
+            idempotency.release(admission.claim());
+            metrics.increment(Outcome.REJECTED);
+            throw e;
         }
+        idempotency.complete(admission.claim(), State.ENQUEUED, id);
+        metrics.increment(Outcome.ACCEPTED);
+        metrics.record(admission.segments());
+        return DeliveryStatusCache.format(id);
+    }
+
+    private static String blockedMessage(String mobileNumber) {
+        return "The number " + mobileNumber + " is blocked.";
+    }
+
+    /**
+     * Sends many messages in one call. Every item is validated and blocked numbers are resolved
+     * with a single pipelined lookup. Accepted messages are appended to the outbox back to back,
+     * so the drainer delivers them together. The returned statuses line up with the request list;
+     * items the outbox has no room for are reported as REJECTED, and items over a rate limit as
+     * THROTTLED.
+     */
+    public List<SmsResponse> sendSmsBatch(List<SmsRequest> requests) {
+        return sendSmsBatch(null, requests);
     }
 
-    private String serialize(KafkaUserData data) {
+    public List<SmsResponse> sendSmsBatch(String clientId, List<SmsRequest> requests) {
+        checkBatchSize(requests);
+        Batch batch = validate(requests, templates::find);
+        for (int i = 0; i < batch.claims.length; i++) {
+            String key = batch.requests.get(i).idempotencyKey();
+            if (batch.results[i] == null && key != null) {
+                batch.claims[i] = idempotency.claim(clientId, key, fingerprint(batch, i));
+            }
+        }
+        admit(clientId, batch);
+        if (batch.valid == 0) {
+            return Arrays.asList(batch.results);
+        }
+        long start = System.nanoTime();
+        boolean[] blocked;
         try {
-            return objectMapper.writeValueAsString(data);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to serialize KafkaSmsData", e);
+            blocked = blockedNumberRepo.areBlocked(batch.numbers());
+        } catch (RuntimeException e) {
+            release(batch);
+            throw e;
         }
+        metrics.record(Stage.BLOCKLIST, start);
+        return enqueue(batch, blocked);
     }
 
-    public void sendSms(String mobileNumber, String message) {
-        validate(mobileNumber, message);
-        Boolean isBlocked = blockedNumberRepo.isBlocked(mobileNumber);
-        if (Boolean.TRUE.equals(isBlocked)) {
-            KafkaSmsData payload = new KafkaSmsData(mobileNumber, message, "BLOCKED");
-            kafkaTemplate.send("sms-topic", mobileNumber, serialize(payload))
-                .whenComplete((result, ex) -> {
-                    if (ex != null) {
-                        System.out.println("Failed to log " + "BLOCKED" + " event to Kafka: " + ex.getMessage());
-                    }
-                }
-            );
-            throw new BlockedNumberException("The number " + mobileNumber + " is blocked.");
-        }
-        CompletableFuture.runAsync(() -> dummy.dummy())
-            .thenCompose(v -> {
-                System.out.println("UPDATE: Sleep finished, now sending to Kafka...");
-                KafkaSmsData payload = new KafkaSmsData(mobileNumber, message, "SUCCESS");
-                return kafkaTemplate.send("sms-topic", mobileNumber, serialize(payload));
-            })
-            .whenComplete((result, ex) -> {
-                if (ex != null) {
-                    System.out.println("Failed at some point in the chain" + ex);
-                    ex.printStackTrace();
-                } else {
-                    System.out.println("Success! Kafka offset: " + result.getRecordMetadata().offset());
-                }
+    /**
+     * Non-blocking {@link #sendSmsBatch(String, List)}; template loads, idempotency claims, the
+     * cluster-wide rate limit and the lookup go through the reactive Redis client.
+     */
+    public Mono<List<SmsResponse>> sendSmsBatchReactive(String clientId, List<SmsRequest> requests) {
+        try {
+            checkBatchSize(requests);
+        } catch (RuntimeException e) {
+            return Mono.error(e);
+        }
+        return Flux.fromIterable(requests)
+            .map(request -> request.templateId() == null ? "" : request.templateId())
+            .filter(id -> !id.isEmpty())
+            .distinct()
+            .flatMap(templates::findReactive)
+            .collectMap(MessageTemplate::id)
+            .flatMap(found -> {
+                Batch batch = validate(requests, found::get);
+                return Flux.range(0, batch.claims.length)
+                    .filter(i -> batch.results[i] == null && batch.requests.get(i).idempotencyKey() != null)
+                    .concatMap(i -> idempotency.claimReactive(clientId, batch.requests.get(i).idempotencyKey(), fingerprint(batch, i))
+                        .doOnNext(claim -> batch.claims[i] = claim))
+                    .then(Mono.defer(() -> admitReactive(clientId, batch)))
+                    .then(Mono.defer(() -> {
+                        if (batch.valid == 0) {
+                            return Mono.just(Arrays.asList(batch.results));
+                        }
+                        long start = System.nanoTime();
+                        return blockedNumberRepo.areBlockedReactive(batch.numbers())
+                            .doOnError(e -> release(batch))
+                            .map(blocked -> {
+                                metrics.record(Stage.BLOCKLIST, start);
+                                return enqueue(batch, blocked);
+                            });
+                    }));
+            });
+    }
+
+    private void checkBatchSize(List<SmsRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new ValidationException("Batch must contain at least one message.");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw new ValidationException("Batch is too large (Max " + maxBatchSize + " messages).");
+        }
+    }
+
+    private Batch validate(List<SmsRequest> requests, Function<String, MessageTemplate> templates) {
+        Batch batch = new Batch(requests);
+        for (int i = 0; i < requests.size(); i++) {
+            SmsRequest request = requests.get(i);
+            long start = System.nanoTime();
+            try {
+                String message = message(request, request.templateId() == null ? null : templates.apply(request.templateId()));
+                batch.parsed[i] = validate(request.mobileNumber());
+                batch.segments[i] = validateMessage(message);
+                batch.lanes[i] = Priority.parse(request.priority());
+                validateIdempotencyKey(request.idempotencyKey());
+                batch.messages[i] = message;
+            } catch (ValidationException e) {
+                metrics.increment(Outcome.FAILED);
+                batch.results[i] = new SmsResponse("FAILED", e.getMessage());
+            } finally {
+                metrics.record(Stage.VALIDATE, start);
+            }
+        }
+        return batch;
+    }
+
+    private static long fingerprint(Batch batch, int i) {
+        return IdempotencyCache.fingerprint(batch.parsed[i], batch.messages[i], batch.lanes[i]);
+    }
+
+    private void admit(String clientId, Batch batch) {
+        for (int i = 0; i < batch.results.length; i++) {
+            if (batch.results[i] != null || replayed(batch, i)) {
+                continue;
+            }
+            RateLimiter.Scope throttledBy = rateLimiter.acquire(batch.parsed[i], clientId);
+            if (throttledBy != null) {
+                throttled(batch, i, throttledBy);
+            } else {
+                admitted(batch, i);
             }
-        );
+        }
+    }
+
+    // admit for the reactive stack. Items are checked one after another, so the admitted ones
+    // keep request order.
+    private Mono<Void> admitReactive(String clientId, Batch batch) {
+        return Flux.range(0, batch.results.length)
+            .filter(i -> batch.results[i] == null && !replayed(batch, i))
+            .concatMap(i -> rateLimiter.acquireReactive(batch.parsed[i], clientId)
+                .doOnNext(throttledBy -> throttled(batch, i, throttledBy))
+                .switchIfEmpty(Mono.fromRunnable(() -> admitted(batch, i))))
+            .then();
+    }
+
+    // Records the result of a replayed item; false if the item is new.
+    private boolean replayed(Batch batch, int i) {
+        SmsRequest request = batch.requests.get(i);
+        Claim claim = batch.claims[i];
+        switch (claim.state()) {
+            case IN_PROGRESS -> {
+                metrics.increment(Outcome.DUPLICATE);
+                batch.results[i] = new SmsResponse("IN_PROGRESS", IN_PROGRESS_MESSAGE);
+            }
+            case MISMATCH -> {
+                metrics.increment(Outcome.FAILED);
+                batch.results[i] = new SmsResponse("FAILED", MISMATCH_MESSAGE);
+            }
+            case BLOCKED -> {
+                metrics.increment(Outcome.DUPLICATE);
+                batch.results[i] = new SmsResponse("BLOCKED", blockedMessage(request.mobileNumber()));
+            }
+            case ENQUEUED -> {
+                metrics.increment(Outcome.DUPLICATE);
+                batch.results[i] = new SmsResponse("ENQUEUED", ENQUEUED_MESSAGE,
+                    DeliveryStatusCache.format(claim.messageId()));
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void throttled(Batch batch, int i, RateLimiter.Scope throttledBy) {
+        idempotency.release(batch.claims[i]);
+        metrics.increment(Outcome.THROTTLED);
+        logRejectedEvent(batch.lanes[i], batch.event(i, "THROTTLED"));
+        batch.results[i] = new SmsResponse("THROTTLED", throttledBy.message());
+    }
+
+    private static void admitted(Batch batch, int i) {
+        batch.numbers[batch.valid] = batch.parsed[i];
+        batch.validIndex[batch.valid++] = i;
+    }
+
+    private List<SmsResponse> enqueue(Batch batch, boolean[] blocked) {
+        for (int j = 0; j < batch.valid; j++) {
+            int i = batch.validIndex[j];
+            if (blocked[j]) {
+                idempotency.complete(batch.claims[i], State.BLOCKED);
+                metrics.increment(Outcome.BLOCKED);
+                logRejectedEvent(batch.lanes[i], batch.event(i, "BLOCKED"));
+                batch.results[i] = new SmsResponse("BLOCKED", blockedMessage(batch.requests.get(i).mobileNumber()));
+                continue;
+            }
+            try {
+                long id = outbox.append(batch.lanes[i], batch.event(i, "SUCCESS"));
+                idempotency.complete(batch.claims[i], State.ENQUEUED, id);
+                metrics.increment(Outcome.ACCEPTED);
+                metrics.record(batch.segments[i]);
+                batch.results[i] = new SmsResponse("ENQUEUED", ENQUEUED_MESSAGE, DeliveryStatusCache.format(id));
+            } catch (DispatchRejectedException e) {
+                idempotency.release(batch.claims[i]);
+                metrics.increment(Outcome.REJECTED);
+                batch.results[i] = new SmsResponse("REJECTED", e.getMessage());
+            }
+        }
+        return Arrays.asList(batch.results);
+    }
+
+    private void release(Batch batch) {
+        for (int j = 0; j < batch.valid; j++) {
+            idempotency.release(batch.claims[batch.validIndex[j]]);
+        }
+    }
+
+    private void logRejectedEvent(Priority lane, KafkaSmsData event) {
+        try {
+            outbox.append(lane, event);
+        } catch (DispatchRejectedException e) {
+            long suppressed = failureLog.sample();
+            if (suppressed >= 0) {
+                log.warn("Failed to log {} event to Kafka: {} ({} similar suppressed)", event.status(), e.getMessage(), suppressed);
+            }
+        }
+    }
+
+    /**
+     * The latest delivery status of a message this replica accepted recently, from memory only.
+     *
+     * @throws MessageNotFoundException if the id is unknown here or has been overwritten by newer messages
+     */
+    public SmsStatusResponse status(String id) {
+        DeliveryStatusCache.Status status = statuses.find(id);
+        if (status == null) {
+            throw new MessageNotFoundException("No recent message with id " + id + ".");
+        }
+        return new SmsStatusResponse(id, status.state().name(), Instant.ofEpochMilli(status.acceptedAt()),
+            Instant.ofEpochMilli(status.updatedAt()));
+    }
+
+    /**
+     * Stores a message to be sent at {@code request.sendAt()}. The request is validated now, so a
+     * bad number or an unknown template fails here rather than when it is due; rate limits,
+     * the idempotency key and the blocklist are applied when it is sent, as for
+     * {@link #sendSmsBatch(String, List)}. A {@code sendAt} in the past is due at once.
+     */
+    public SmsResponse scheduleSms(String clientId, SmsRequest request) {
+        validate(request, request.templateId() == null ? null : templates.find(request.templateId()));
+        long dueAt = dueAt(request.sendAt());
+        Instant sendAt = Instant.ofEpochMilli(dueAt);
+        scheduledSends.add(List.of(ScheduledSms.of(scheduleId(), clientId, dueAt, request)));
+        metrics.increment(Outcome.SCHEDULED);
+        return new SmsResponse("SCHEDULED", SCHEDULED_MESSAGE + sendAt);
+    }
+
+    /**
+     * Schedules many messages in one call; the returned statuses line up with the request list.
+     * Items that fail validation are reported as FAILED and the rest are stored together, one
+     * Redis call per partition they fall in.
+     */
+    public List<SmsResponse> scheduleSmsBatch(String clientId, List<SmsRequest> requests) {
+        checkBatchSize(requests);
+        Batch batch = validate(requests, templates::find);
+        List<ScheduledSms> sends = new ArrayList<>(requests.size());
+        for (int i = 0; i < batch.results.length; i++) {
+            if (batch.results[i] != null) {
+                continue;
+            }
+            SmsRequest request = requests.get(i);
+            long dueAt;
+            try {
+                dueAt = dueAt(request.sendAt());
+            } catch (ValidationException e) {
+                batch.results[i] = new SmsResponse("FAILED", e.getMessage());
+                continue;
+            }
+            sends.add(ScheduledSms.of(scheduleId(), clientId, dueAt, request));
+            batch.results[i] = new SmsResponse("SCHEDULED", SCHEDULED_MESSAGE + Instant.ofEpochMilli(dueAt));
+        }
+        if (!sends.isEmpty()) {
+            scheduledSends.add(sends);
+            for (int i = 0; i < sends.size(); i++) {
+                metrics.increment(Outcome.SCHEDULED);
+            }
+        }
+        return Arrays.asList(batch.results);
+    }
+
+    private long dueAt(Instant sendAt) {
+        try {
+            if (!scheduleEnabled) {
+                throw new ValidationException("Scheduled sends are disabled.");
+            }
+            if (sendAt == null) {
+                throw new ValidationException("sendAt is required to schedule a message.");
+            }
+            long now = System.currentTimeMillis();
+            if (sendAt.toEpochMilli() - now > maxScheduleDelayMs) {
+                throw new ValidationException("sendAt is too far ahead (Max " + Duration.ofMillis(maxScheduleDelayMs) + ").");
+            }
+            return Math.max(sendAt.toEpochMilli(), now);
+        } catch (ValidationException e) {
+            metrics.increment(Outcome.FAILED);
+            throw e;
+        }
+    }
+
+    private static String scheduleId() {
+        return Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Registers a message template. Templates cannot be changed once registered; a new wording
+     * needs a new id.
+     */
+    public TemplateResponse registerTemplate(String templateId, String body) {
+        boolean created = templates.register(templateId, body);
+        return new TemplateResponse(templateId, created ? "REGISTERED" : "ALREADY_REGISTERED",
+            MessageTemplate.compile(templateId, body).params());
     }
 
     public Long blockUser(String mobileNumber) {
-        validate(mobileNumber);
-        Long status = blockedNumberRepo.blockNumber(mobileNumber);
+        long number = validate(mobileNumber);
+        Long status = blockedNumberRepo.blockNumber(number);
         if (status == 1) {
             KafkaUserData payload = new KafkaUserData(mobileNumber, "BLOCKED");
-            kafkaTemplate.send("user-topic", mobileNumber, serialize(payload))
-                .whenComplete((result, ex) -> {
-                    if (ex != null) {
-                        System.out.println("Failed to log " + "USER BLOCKING" + " event to Kafka: " + ex.getMessage());
-                    } else {
-                        System.out.println("Success! Kafka offset: " + result.getRecordMetadata().offset());
-                    }
-                }
-            );
+            kafkaTemplate.send("user-topic", number, payload)
+                .whenComplete((result, ex) -> logUserEvent(payload, result, ex));
         }
         return status;
     }
 
     public Long unblockUser(String mobileNumber) {
-        validate(mobileNumber);
-        Long status = blockedNumberRepo.unblockNumber(mobileNumber);
+        long number = validate(mobileNumber);
+        Long status = blockedNumberRepo.unblockNumber(number);
         if (status == 1) {
             KafkaUserData payload = new KafkaUserData(mobileNumber, "UNBLOCKED");
-            kafkaTemplate.send("user-topic", mobileNumber, serialize(payload))
-                .whenComplete((result, ex) -> {
-                    if (ex != null) {
-                        System.out.println("Failed to log " + "USER UNBLOCKING" + " event to Kafka: " + ex.getMessage());
-                    } else {
-                        System.out.println("Success! Kafka offset: " + result.getRecordMetadata().offset());
-                    }
-                }
-            );
+            kafkaTemplate.send("user-topic", number, payload)
+                .whenComplete((result, ex) -> logUserEvent(payload, result, ex));
         }
         return status;
     }
-}
 
-@Service
-class Dummy {
-    @Async
-    public void dummy() {
-        try {
-            Thread.sleep(500);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.out.println("Thread was interrupted.");
+    public BulkBlockResponse blockUsers(InputStream body) throws IOException {
+        return applyBulk(body, true);
+    }
+
+    public BulkBlockResponse unblockUsers(InputStream body) throws IOException {
+        return applyBulk(body, false);
+    }
+
+    /**
+     * Applies a streamed list of numbers to the blocklist in chunks of {@code bulk.chunk-size}:
+     * one pipelined Redis round-trip per chunk, then a user-topic event for every number whose
+     * status changed. Only one chunk is held in memory. Chunks already applied stay applied if a
+     * later one fails; the import is idempotent, so the file can simply be sent again.
+     */
+    private BulkBlockResponse applyBulk(InputStream body, boolean block) throws IOException {
+        MobileNumberReader reader = new MobileNumberReader(body);
+        long[] chunk = new long[bulkChunkSize];
+        int size = 0;
+        long changed = 0;
+        long number;
+        while ((number = reader.next()) >= 0) {
+            chunk[size++] = number;
+            if (size == chunk.length) {
+                changed += applyChunk(chunk, size, block);
+                size = 0;
+            }
+        }
+        if (size > 0) {
+            changed += applyChunk(chunk, size, block);
+        }
+        if (reader.validCount() == 0 && reader.invalidCount() == 0) {
+            throw new ValidationException("Body must contain at least one mobile number.");
         }
+        return new BulkBlockResponse(block ? "BLOCKED" : "UNBLOCKED", changed, reader.validCount() - changed,
+            reader.invalidCount(), reader.errors());
     }
-}
\ No newline at end of file
+
+    private int applyChunk(long[] numbers, int size, boolean block) {
+        boolean[] changed = block ? blockedNumberRepo.blockNumbers(numbers, size)
+            : blockedNumberRepo.unblockNumbers(numbers, size);
+        String status = block ? "BLOCKED" : "UNBLOCKED";
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (!changed[i]) {
+                continue;
+            }
+            count++;
+            KafkaUserData payload = new KafkaUserData(MobileNumber.format(numbers[i]), status);
+            kafkaTemplate.send("user-topic", numbers[i], payload)
+                .whenComplete((result, ex) -> logUserEvent(payload, result, ex));
+        }
+        return count;
+    }
+
+    private void logUserEvent(KafkaUserData payload, SendResult<Long, Object> result, Throwable ex) {
+        if (ex != null) {
+            long suppressed = failureLog.sample();
+            if (suppressed >= 0) {
+                log.warn("Failed to log user {} event to Kafka: {} ({} similar suppressed)",
+                    payload.status(), ex.getMessage(), suppressed);
+            }
+        } else if (log.isDebugEnabled()) {
+            log.debug("User {} event for {} at offset {}", payload.status(), payload.mobileNumber(),
+                result.getRecordMetadata().offset());
+        }
+    }
+
+    // A single send after validation; message is the text to send, rendered if templated.
+    private record Admission(long number, Priority lane, SmsRequest request, String message, SmsSegments segments,
+            Claim claim) {
+
+        Admission claimed(Claim claim) {
+            return new Admission(number, lane, request, message, segments, claim);
+        }
+
+        KafkaSmsData event(String status) {
+            return new KafkaSmsData(request.mobileNumber(), message, status, request.templateId(), request.params(),
+                segments.count(), segments.encoding().name());
+        }
+    }
+
+    // A batch between validation and the blocklist lookup; numbers[j] belongs to request validIndex[j].
+    private static final class Batch {
+        final List<SmsRequest> requests;
+        final SmsResponse[] results;
+        final Priority[] lanes;
+        final long[] parsed;
+        final String[] messages;
+        final SmsSegments[] segments;
+        final Claim[] claims;
+        final long[] numbers;
+        final int[] validIndex;
+        int valid;
+
+        Batch(List<SmsRequest> requests) {
+            this.requests = requests;
+            this.results = new SmsResponse[requests.size()];
+            this.lanes = new Priority[requests.size()];
+            this.parsed = new long[requests.size()];
+            this.messages = new String[requests.size()];
+            this.segments = new SmsSegments[requests.size()];
+            this.claims = new Claim[requests.size()];
+            Arrays.fill(claims, Claim.NONE);
+            this.numbers = new long[requests.size()];
+            this.validIndex = new int[requests.size()];
+        }
+
+        KafkaSmsData event(int i, String status) {
+            SmsRequest request = requests.get(i);
+            return new KafkaSmsData(request.mobileNumber(), messages[i], status, request.templateId(), request.params(),
+                segments[i].count(), segments[i].encoding().name());
+        }
+
+        long[] numbers() {
+            return valid == numbers.length ? numbers : Arrays.copyOf(numbers, valid);
+        }
+    }
+}
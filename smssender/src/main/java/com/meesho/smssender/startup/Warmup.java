@@ -0,0 +1,172 @@
+package com.meesho.smssender.startup;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.meesho.smssender.dispatch.Priority;
+import com.meesho.smssender.dto.KafkaSmsData;
+import com.meesho.smssender.dto.SmsRequest;
+import com.meesho.smssender.dto.SmsResponse;
+import com.meesho.smssender.kafka.BinaryEventCodec;
+import com.meesho.smssender.kafka.SmsEventSerializer;
+import com.meesho.smssender.outbox.OutboxRouter;
+import com.meesho.smssender.service.SmsService;
+import com.meesho.smssender.util.SmsSegments;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Gets the send path ready before the instance reports ready. Spring Boot marks readiness
+ * {@code ACCEPTING_TRAFFIC} only after every {@link ApplicationRunner} has returned, so a load
+ * balancer that follows {@code /actuator/health/readiness} sends no request until this is done.
+ *
+ * The CPU-bound steps (request JSON binding, validation, segment counting, event serialization
+ * and the spool codec) run {@code iterations} times on the calling thread, which loads their
+ * classes and gets them past the interpreter. The connections (Redis, both templates, and every
+ * lane's Kafka producer with its topic metadata) are opened in parallel, and the runner waits for
+ * them at most {@code timeout-ms} in total. A dependency that is down is logged and skipped: it
+ * must not keep the instance out of rotation, and its first real request fails or retries just as
+ * it would without warmup.
+ */
+@Component
+public class Warmup implements ApplicationRunner, MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(Warmup.class);
+
+    private static final String NUMBER = "9876543210";
+    private static final String MESSAGE = "Your OTP is 482913. Do not share it with anyone.";
+    private static final String UNICODE_MESSAGE = "आपका OTP 482913 है। इसे किसी के साथ साझा न करें।";
+    private static final String TOPIC = "sms-topic";
+
+    private final SmsService smsService;
+    private final SmsEventSerializer serializer;
+    private final ObjectProvider<ObjectMapper> jsonMapper;
+    private final StringRedisTemplate redisTemplate;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+    private final OutboxRouter router;
+    private final boolean enabled;
+    private final int iterations;
+    private final long timeoutMs;
+    private final AtomicLong durationNanos = new AtomicLong();
+
+    public Warmup(SmsService smsService, SmsEventSerializer serializer, ObjectProvider<ObjectMapper> jsonMapper,
+            StringRedisTemplate redisTemplate, ReactiveStringRedisTemplate reactiveRedisTemplate, OutboxRouter router,
+            @Value("${sms.warmup.enabled:true}") boolean enabled,
+            @Value("${sms.warmup.iterations:10000}") int iterations,
+            @Value("${sms.warmup.timeout-ms:5000}") long timeoutMs) {
+        this.smsService = smsService;
+        this.serializer = serializer;
+        this.jsonMapper = jsonMapper;
+        this.redisTemplate = redisTemplate;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.router = router;
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        Map<String, CompletableFuture<Void>> connections = connect();
+        exercise();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        int failed = 0;
+        for (Map.Entry<String, CompletableFuture<Void>> connection : connections.entrySet()) {
+            try {
+                connection.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                failed++;
+                log.warn("Warmup: {} did not connect within {} ms", connection.getKey(), timeoutMs);
+            } catch (ExecutionException e) {
+                failed++;
+                log.warn("Warmup: {} failed: {}", connection.getKey(), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        durationNanos.set(System.nanoTime() - start);
+        log.info("Warmup finished in {} ms ({} iterations, {} of {} connections ready)",
+            TimeUnit.NANOSECONDS.toMillis(durationNanos.get()), iterations, connections.size() - failed,
+            connections.size());
+    }
+
+    /**
+     * The request path up to the spool, without its side effects: nothing is rate limited,
+     * looked up, appended or sent.
+     */
+    void exercise() {
+        ObjectMapper mapper = jsonMapper.getIfAvailable();
+        byte[] body = mapper == null ? null : mapper.writeValueAsBytes(new SmsRequest(NUMBER, MESSAGE, "otp"));
+        for (int i = 0; i < iterations; i++) {
+            String message = (i & 1) == 0 ? MESSAGE : UNICODE_MESSAGE;
+            if (mapper != null) {
+                SmsRequest request = mapper.readValue(body, SmsRequest.class);
+                mapper.writeValueAsBytes(new SmsResponse("ENQUEUED", request.priority()));
+            }
+            smsService.validate(NUMBER, message);
+            SmsSegments segments = smsService.validateMessage(message);
+            KafkaSmsData event = new KafkaSmsData(NUMBER, message, "SUCCESS", null, null, segments.count(),
+                segments.encoding().name());
+            BinaryEventCodec.decodeSms(BinaryEventCodec.encode(event));
+            serializer.serialize(TOPIC, event);
+        }
+    }
+
+    private Map<String, CompletableFuture<Void>> connect() {
+        Map<String, CompletableFuture<Void>> connections = new LinkedHashMap<>();
+        connections.put("Redis", async(() -> redisTemplate.execute((RedisCallback<String>) connection -> connection.ping())));
+        connections.put("reactive Redis", async(() -> reactiveRedisTemplate.execute(connection -> connection.ping())
+            .blockLast(Duration.ofMillis(timeoutMs))));
+        for (Priority priority : Priority.values()) {
+            connections.put("Kafka " + priority.lane() + " lane", async(() -> router.fetchMetadata(priority)));
+        }
+        return connections;
+    }
+
+    private static CompletableFuture<Void> async(Runnable task) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                task.run();
+                future.complete(null);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }, "sms-warmup");
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        TimeGauge.builder("sms.warmup.duration", durationNanos, TimeUnit.NANOSECONDS, AtomicLong::doubleValue)
+            .description("Time the startup warmup held back readiness")
+            .register(registry);
+    }
+}
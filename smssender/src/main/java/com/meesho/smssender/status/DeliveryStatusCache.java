@@ -0,0 +1,176 @@
+package com.meesho.smssender.status;
+
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * The latest delivery state of recently accepted messages, for {@code GET /v1/sms/{id}}.
+ *
+ * Ids are handed out in sequence from a random start, and message {@code id} lives in slot
+ * {@code id % capacity} of a fixed ring. The newest {@code capacity} messages are always there and
+ * older ones are overwritten, so memory stays flat however fast messages arrive. Tracking, updating
+ * and looking up are a few atomic operations on one slot, with no lock. The outboxes and the retry
+ * listener update a message's entry as it moves on; a poll is answered from here alone, never from
+ * Redis or the consumer's store.
+ *
+ * The ring is per replica and starts empty. A message accepted by another replica or before a
+ * restart is unknown here, and the random start keeps its id from naming a different message.
+ */
+@Component
+public class DeliveryStatusCache implements MeterBinder {
+
+    /** What {@link #track} never returns; marks an event that is not tracked. */
+    public static final long NO_ID = 0;
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    // The largest power-of-two ring an int can size.
+    static final int MAX_CAPACITY = 1 << 30;
+
+    public enum State {
+        /** In the outbox spool, on its way to the gateway. */
+        ENQUEUED,
+        /** Taken by the gateway and produced to its lane topic. */
+        DELIVERED,
+        /** The gateway failed it; waiting in a retry tier. */
+        RETRYING,
+        /** Dropped as a repeat of the text just sent to the same number. */
+        COALESCED,
+        /** Gave up after the last retry tier; sent to the dead-letter topic. */
+        FAILED
+    }
+
+    /**
+     * @param acceptedAt when the message was spooled, in epoch milliseconds
+     * @param updatedAt when {@code state} was reached, in epoch milliseconds
+     */
+    public record Status(long id, State state, long acceptedAt, long updatedAt) {
+    }
+
+    private final AtomicReferenceArray<Status> slots;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong(ThreadLocalRandom.current().nextLong());
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public DeliveryStatusCache(@Value("${sms.status.capacity:262144}") int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Status capacity must be positive: " + capacity);
+        }
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Status capacity must be at most " + MAX_CAPACITY + ": " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        size = size == capacity ? size : size << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /** Starts tracking a message as {@link State#ENQUEUED} and returns its id. */
+    public long track() {
+        long id = next.getAndIncrement();
+        if (id == NO_ID) {
+            id = next.getAndIncrement();
+        }
+        long now = System.currentTimeMillis();
+        slots.set(slot(id), new Status(id, State.ENQUEUED, now, now));
+        return id;
+    }
+
+    /** Moves a message to {@code state}; does nothing once it has left the ring. */
+    public void update(long id, State state) {
+        int slot = slot(id);
+        Status current;
+        do {
+            current = slots.get(slot);
+            if (current == null || current.id() != id) {
+                return;
+            }
+        } while (!slots.compareAndSet(slot, current,
+            new Status(id, state, current.acceptedAt(), System.currentTimeMillis())));
+    }
+
+    /** Drops a message that was tracked but never accepted. */
+    public void forget(long id) {
+        int slot = slot(id);
+        Status current = slots.get(slot);
+        if (current != null && current.id() == id) {
+            slots.compareAndSet(slot, current, null);
+        }
+    }
+
+    /** The message's latest status, or {@code null} if it is not in the ring. */
+    public Status find(long id) {
+        Status current = slots.get(slot(id));
+        if (current == null || current.id() != id) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return current;
+    }
+
+    /** {@link #find(long)} by the id as {@link #format formatted}; {@code null} for a malformed one. */
+    public Status find(String id) {
+        long parsed = parse(id);
+        if (parsed == NO_ID) {
+            misses.increment();
+            return null;
+        }
+        return find(parsed);
+    }
+
+    /** The id as clients see it: 16 lower-case hex digits, or {@code null} for {@link #NO_ID}. */
+    public static String format(long id) {
+        return id == NO_ID ? null : HEX.toHexDigits(id);
+    }
+
+    /** Reads an id written by {@link #format}; {@link #NO_ID} if it is not one. */
+    public static long parse(String id) {
+        if (id == null || id.length() != 16) {
+            return NO_ID;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (!HexFormat.isHexDigit(id.charAt(i))) {
+                return NO_ID;
+            }
+        }
+        return HexFormat.fromHexDigitsToLong(id);
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    private int slot(long id) {
+        return (int) (id & mask);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sms.status.capacity", this, DeliveryStatusCache::capacity)
+            .description("Recent messages whose delivery status is kept for polling")
+            .register(registry);
+        FunctionCounter.builder("sms.status.lookups", hits, LongAdder::sum)
+            .tag("result", "hit")
+            .description("Status polls answered from the recent-status ring")
+            .register(registry);
+        FunctionCounter.builder("sms.status.lookups", misses, LongAdder::sum)
+            .tag("result", "miss")
+            .description("Status polls answered from the recent-status ring")
+            .register(registry);
+    }
+}
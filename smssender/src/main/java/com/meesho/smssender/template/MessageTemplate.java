@@ -0,0 +1,132 @@
+package com.meesho.smssender.template;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import com.meesho.smssender.exception.ValidationException;
+
+/**
+ * A message body with {@code {name}} placeholders, compiled once into alternating literal and
+ * parameter slots. A doubled brace (<code>{{</code> or <code>}}</code>) stands for a literal one.
+ *
+ * {@link #render} sizes its buffer from the literal length and the parameter values before
+ * writing, so a render allocates the builder and the result and nothing else.
+ */
+public final class MessageTemplate {
+
+    private static final int MAX_NAME_LENGTH = 32;
+
+    private final String id;
+    private final String body;
+    // literals[i] comes before names[i]; the last literal has no name after it.
+    private final String[] literals;
+    private final String[] names;
+    private final int literalLength;
+
+    private MessageTemplate(String id, String body, String[] literals, String[] names) {
+        this.id = id;
+        this.body = body;
+        this.literals = literals;
+        this.names = names;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * @throws ValidationException if a placeholder is unterminated, empty or not a plain name
+     */
+    public static MessageTemplate compile(String id, String body) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < body.length()) {
+            char c = body.charAt(i);
+            if (c == '{' && i + 1 < body.length() && body.charAt(i + 1) == '{') {
+                literal.append('{');
+                i += 2;
+            } else if (c == '}' && i + 1 < body.length() && body.charAt(i + 1) == '}') {
+                literal.append('}');
+                i += 2;
+            } else if (c == '}') {
+                throw new ValidationException("Unmatched '}' at position " + i + " of template '" + id + "'.");
+            } else if (c == '{') {
+                int end = body.indexOf('}', i + 1);
+                if (end < 0) {
+                    throw new ValidationException("Unterminated placeholder at position " + i + " of template '" + id + "'.");
+                }
+                String name = body.substring(i + 1, end);
+                if (!isName(name)) {
+                    throw new ValidationException("Invalid placeholder '{" + name + "}' in template '" + id
+                        + "' (letters, digits and '_', max " + MAX_NAME_LENGTH + " chars).");
+                }
+                literals.add(literal.toString());
+                names.add(name);
+                literal.setLength(0);
+                i = end + 1;
+            } else {
+                literal.append(c);
+                i++;
+            }
+        }
+        literals.add(literal.toString());
+        return new MessageTemplate(id, body, literals.toArray(String[]::new), names.toArray(String[]::new));
+    }
+
+    private static boolean isName(String name) {
+        if (name.isEmpty() || name.length() > MAX_NAME_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public String body() {
+        return body;
+    }
+
+    /**
+     * Distinct parameter names, in order of first use.
+     */
+    public List<String> params() {
+        return List.copyOf(new LinkedHashSet<>(List.of(names)));
+    }
+
+    /**
+     * Fills in every placeholder. Parameters the template does not use are ignored.
+     *
+     * @throws ValidationException if a placeholder has no value
+     */
+    public String render(Map<String, String> params) {
+        if (names.length == 0) {
+            return literals[0];
+        }
+        int length = literalLength;
+        for (String name : names) {
+            String value = params == null ? null : params.get(name);
+            if (value == null) {
+                throw new ValidationException("Missing template parameter '" + name + "'.");
+            }
+            length += value.length();
+        }
+        StringBuilder out = new StringBuilder(length);
+        for (int i = 0; i < names.length; i++) {
+            out.append(literals[i]).append(params.get(names[i]));
+        }
+        return out.append(literals[names.length]).toString();
+    }
+}
@@ -0,0 +1,154 @@
+package com.meesho.smssender.template;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import com.meesho.smssender.exception.TemplateConflictException;
+import com.meesho.smssender.exception.ValidationException;
+import com.meesho.smssender.util.LogSampler;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.core.publisher.Mono;
+
+/**
+ * Registered message templates, shared by all replicas through one Redis hash and compiled into
+ * {@link MessageTemplate}s the first time each replica uses them.
+ *
+ * Templates are immutable once registered: registering an id again with the same body is a
+ * no-op and with a different body a conflict, so cached copies never go stale and need no
+ * invalidation. A changed wording gets a new id.
+ */
+@Component
+public class TemplateRegistry implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(TemplateRegistry.class);
+
+    static final String KEY = "sms_templates";
+
+    private static final Pattern ID = Pattern.compile("[A-Za-z0-9_.-]{1,64}");
+
+    private final StringRedisTemplate redisTemplate;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+    private final int maxBodyLength;
+    private final ConcurrentHashMap<String, MessageTemplate> templates = new ConcurrentHashMap<>();
+
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LogSampler errorLog = new LogSampler(Duration.ofSeconds(1));
+
+    @Autowired
+    public TemplateRegistry(
+            StringRedisTemplate redisTemplate,
+            ReactiveStringRedisTemplate reactiveRedisTemplate,
+            @Value("${sms.templates.max-body-length:1000}") int maxBodyLength) {
+        this.redisTemplate = redisTemplate;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.maxBodyLength = maxBodyLength;
+    }
+
+    /**
+     * Registers a template under {@code id}.
+     *
+     * @return {@code true} if it was new, {@code false} if the same body was already registered
+     * @throws ValidationException if the id or body is malformed
+     * @throws TemplateConflictException if {@code id} is taken by a different body
+     */
+    public boolean register(String id, String body) {
+        if (id == null || !ID.matcher(id).matches()) {
+            throw new ValidationException("Template id must be 1-64 letters, digits, '_', '.' or '-'.");
+        }
+        if (body == null || body.isBlank()) {
+            throw new ValidationException("Template body is required.");
+        }
+        if (body.length() > maxBodyLength) {
+            throw new ValidationException("Template body is too long (Max " + maxBodyLength + " chars).");
+        }
+        MessageTemplate template = MessageTemplate.compile(id, body);
+        if (Boolean.TRUE.equals(redisTemplate.opsForHash().putIfAbsent(KEY, id, body))) {
+            templates.put(id, template);
+            return true;
+        }
+        MessageTemplate existing = find(id);
+        if (existing == null || !existing.body().equals(body)) {
+            throw new TemplateConflictException("Template '" + id + "' is already registered with a different body.");
+        }
+        return false;
+    }
+
+    /**
+     * Returns the compiled template, loading it from Redis on first use, or {@code null} if no
+     * such template is registered or Redis cannot be reached.
+     */
+    public MessageTemplate find(String id) {
+        MessageTemplate template = templates.get(id);
+        if (template != null || !ID.matcher(id).matches()) {
+            return template;
+        }
+        misses.increment();
+        try {
+            Object body = redisTemplate.opsForHash().get(KEY, id);
+            return body == null ? null : cache(id, body.toString());
+        } catch (RuntimeException e) {
+            failed(e);
+            return null;
+        }
+    }
+
+    /**
+     * Non-blocking {@link #find}; empty if there is no such template.
+     */
+    public Mono<MessageTemplate> findReactive(String id) {
+        MessageTemplate template = templates.get(id);
+        if (template != null) {
+            return Mono.just(template);
+        }
+        if (!ID.matcher(id).matches()) {
+            return Mono.empty();
+        }
+        misses.increment();
+        return reactiveRedisTemplate.<String, String>opsForHash().get(KEY, id)
+            .map(body -> cache(id, body))
+            .onErrorResume(RuntimeException.class, e -> {
+                failed(e);
+                return Mono.empty();
+            });
+    }
+
+    private MessageTemplate cache(String id, String body) {
+        return templates.computeIfAbsent(id, k -> MessageTemplate.compile(k, body));
+    }
+
+    private void failed(Throwable e) {
+        errors.increment();
+        long suppressed = errorLog.sample();
+        if (suppressed >= 0) {
+            log.warn("Template lookup in Redis failed: {} ({} similar suppressed)", e.getMessage(), suppressed);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sms.templates.cached", templates, ConcurrentHashMap::size)
+            .description("Compiled templates held by this replica")
+            .register(registry);
+        FunctionCounter.builder("sms.templates.misses", misses, LongAdder::sum)
+            .description("Template lookups that had to go to Redis")
+            .register(registry);
+        FunctionCounter.builder("sms.templates.errors", errors, LongAdder::sum)
+            .description("Template lookups that failed because Redis was unavailable")
+            .register(registry);
+    }
+}
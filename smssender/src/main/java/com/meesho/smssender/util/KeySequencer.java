@@ -0,0 +1,97 @@
+package com.meesho.smssender.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lines up work per key: each {@link Turn} starts only after the one before it for the same key
+ * has {@link #leave left}, while different keys go in parallel.
+ *
+ * <pre>
+ * Turn turn = sequencer.join(number);
+ * if (turn.isFirst()) {
+ *     start(work);
+ * } else {
+ *     turn.whenReady(() -> start(work));
+ * }
+ * ...
+ * sequencer.leave(turn); // once the work is finished
+ * </pre>
+ *
+ * The map holds only the last turn of each key; every turn waits on the completion of the one
+ * before it, so a key's line is a chain of futures. Joining and leaving are one atomic map
+ * operation each, {@code put} and {@code remove(key, turn)}, with no lock of our own, so callers
+ * for unrelated keys only meet on a hash bin. A key with nothing in flight has no entry.
+ */
+public final class KeySequencer {
+
+    private final ConcurrentHashMap<Long, Turn> tails;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public KeySequencer(int expectedKeys) {
+        this.tails = new ConcurrentHashMap<>(expectedKeys);
+    }
+
+    /** Takes the next place in {@code key}'s line. */
+    public Turn join(long key) {
+        Turn turn = new Turn(key);
+        Turn ahead = tails.put(key, turn);
+        turn.ahead = ahead == null ? null : ahead.finished;
+        return turn;
+    }
+
+    /**
+     * Ends a turn, letting the next one for its key start. Also call it for a turn whose work
+     * never started, so the ones behind it are not held forever.
+     */
+    public void leave(Turn turn) {
+        tails.remove(turn.key, turn);
+        turn.finished.complete(null);
+    }
+
+    /** Turns waiting for an earlier one with the same key to leave. */
+    public int waiting() {
+        return waiting.get();
+    }
+
+    /** Keys with a turn in progress or waiting. */
+    public int keys() {
+        return tails.size();
+    }
+
+    public final class Turn {
+        private final long key;
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+        private CompletableFuture<Void> ahead;
+
+        private Turn(long key) {
+            this.key = key;
+        }
+
+        public long key() {
+            return key;
+        }
+
+        /** Whether nothing for this key is still in progress ahead of this turn. */
+        public boolean isFirst() {
+            return ahead == null || ahead.isDone();
+        }
+
+        /**
+         * Runs {@code action} once the turn ahead has left: right away on the caller if it already
+         * has, otherwise on the thread that ends it, so the action should only hand work off.
+         */
+        public void whenReady(Runnable action) {
+            if (isFirst()) {
+                action.run();
+                return;
+            }
+            waiting.incrementAndGet();
+            ahead.thenRun(() -> {
+                waiting.decrementAndGet();
+                action.run();
+            });
+        }
+    }
+}
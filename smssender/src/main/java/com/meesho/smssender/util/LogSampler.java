@@ -0,0 +1,50 @@
+package com.meesho.smssender.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Lets at most one log line through per interval for a recurring event, and counts the ones it
+ * holds back so the next line can report them. Keeps a failing dependency from turning every
+ * message into a log write.
+ *
+ * <pre>
+ * long suppressed = sampler.sample();
+ * if (suppressed >= 0) {
+ *     log.warn("Kafka send failed ({} similar suppressed)", suppressed, ex);
+ * }
+ * </pre>
+ */
+public final class LogSampler {
+
+    private final long intervalNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicLong nextAllowed;
+    private final LongAdder suppressed = new LongAdder();
+
+    public LogSampler(Duration interval) {
+        this(interval, System::nanoTime);
+    }
+
+    LogSampler(Duration interval, LongSupplier nanoClock) {
+        this.intervalNanos = interval.toNanos();
+        this.nanoClock = nanoClock;
+        this.nextAllowed = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * Returns -1 if this occurrence should not be logged, otherwise the number of occurrences
+     * suppressed since the last one that was.
+     */
+    public long sample() {
+        long now = nanoClock.getAsLong();
+        long allowedAt = nextAllowed.get();
+        if (now - allowedAt < 0 || !nextAllowed.compareAndSet(allowedAt, now + intervalNanos)) {
+            suppressed.increment();
+            return -1;
+        }
+        return suppressed.sumThenReset();
+    }
+}
@@ -0,0 +1,59 @@
+package com.meesho.smssender.util;
+
+import com.meesho.smssender.exception.ValidationException;
+
+/**
+ * Canonical form of a mobile number: the 10 digits read as a {@code long}.
+ *
+ * {@link #parse(String)} validates and converts in a single pass over the input without
+ * copying it. The {@code long} is what the blocklist and the Kafka record key use;
+ * {@link #format(long)} restores the zero-padded 10-digit string where text is needed.
+ */
+public final class MobileNumber {
+
+    public static final int LENGTH = 10;
+
+    private MobileNumber() {
+    }
+
+    public static long parse(String mobileNumber) {
+        if (mobileNumber == null || mobileNumber.isBlank()) {
+            throw new ValidationException("Mobile number cannot be empty.");
+        }
+        if (mobileNumber.length() != LENGTH) {
+            throw new ValidationException("Mobile number must be exactly 10 digits.");
+        }
+        long value = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            int digit = mobileNumber.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new ValidationException("Mobile number must contain only digits.");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    public static String format(long mobileNumber) {
+        char[] digits = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + mobileNumber % 10);
+            mobileNumber /= 10;
+        }
+        return new String(digits);
+    }
+
+    /**
+     * Spreads numbers evenly for sharding: fmix64 from MurmurHash3, so consecutive numbers land
+     * on unrelated shards. Fixed, so every replica maps a number to the same shard.
+     */
+    public static int shard(long mobileNumber, int shards) {
+        long h = mobileNumber;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) Long.remainderUnsigned(h, shards);
+    }
+}
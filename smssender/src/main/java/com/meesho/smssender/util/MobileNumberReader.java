@@ -0,0 +1,157 @@
+package com.meesho.smssender.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.meesho.smssender.exception.ValidationException;
+
+/**
+ * Streams mobile numbers out of a newline-delimited or CSV body.
+ *
+ * Each line contributes its first field (up to the first {@code ,}, {@code ;} or tab), with
+ * surrounding spaces and quotes removed; any other columns are ignored. Blank lines, a UTF-8 BOM
+ * and a header line without digits are skipped. Lines that are not a valid number are counted and
+ * the first few are kept with their line number for the response. Only a fixed-size buffer is held,
+ * however large the body.
+ */
+public final class MobileNumberReader {
+
+    private static final int MAX_FIELD = 32;
+    private static final int MAX_ERRORS = 10;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[8192];
+    private final byte[] field = new byte[MAX_FIELD];
+    private int position;
+    private int limit;
+
+    private long lines;
+    private long valid;
+    private long invalid;
+    private final List<String> errors = new ArrayList<>();
+
+    public MobileNumberReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Returns the next valid number, or -1 at the end of the body.
+     */
+    public long next() throws IOException {
+        int b;
+        while ((b = read()) >= 0) {
+            lines++;
+            int length = 0;
+            boolean inField = true;
+            while (b >= 0 && b != '\n') {
+                if (b == ',' || b == ';' || b == '\t') {
+                    inField = false;
+                } else if (inField && b != '\r') {
+                    if (length < MAX_FIELD) {
+                        field[length] = (byte) b;
+                    }
+                    length++;
+                }
+                b = read();
+            }
+            int start = 0;
+            int end = Math.min(length, MAX_FIELD);
+            if (lines == 1 && end >= 3 && field[0] == (byte) 0xEF && field[1] == (byte) 0xBB && field[2] == (byte) 0xBF) {
+                start = 3;
+            }
+            while (start < end && isPadding(field[start])) {
+                start++;
+            }
+            while (end > start && isPadding(field[end - 1])) {
+                end--;
+            }
+            if (start == end) {
+                continue;
+            }
+            long number = length > MAX_FIELD ? -1 : parse(start, end);
+            if (number >= 0) {
+                valid++;
+                return number;
+            }
+            if (lines == 1 && !hasDigit(start, end)) {
+                continue;
+            }
+            reject(start, end, length > MAX_FIELD);
+        }
+        return -1;
+    }
+
+    public long validCount() {
+        return valid;
+    }
+
+    public long invalidCount() {
+        return invalid;
+    }
+
+    /** The first few rejected lines, as {@code "line N: reason"}. */
+    public List<String> errors() {
+        return errors;
+    }
+
+    private long parse(int start, int end) {
+        if (end - start != MobileNumber.LENGTH) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = field[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Rejections are rare, so reuse MobileNumber's messages rather than duplicating them.
+    private void reject(int start, int end, boolean truncated) {
+        invalid++;
+        if (errors.size() >= MAX_ERRORS) {
+            return;
+        }
+        String text = new String(field, start, end - start, StandardCharsets.UTF_8);
+        String reason = "Mobile number must be exactly 10 digits.";
+        if (!truncated) {
+            try {
+                MobileNumber.parse(text);
+            } catch (ValidationException e) {
+                reason = e.getMessage();
+            }
+        }
+        errors.add("line " + lines + ": " + reason);
+    }
+
+    private boolean hasDigit(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (field[i] >= '0' && field[i] <= '9') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPadding(byte b) {
+        return b == ' ' || b == '"' || b == '\'';
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++] & 0xFF;
+    }
+}
@@ -0,0 +1,163 @@
+package com.meesho.smssender.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encoding and multipart segment count of an SMS body, as the carrier bills it.
+ *
+ * A message that fits the GSM 03.38 alphabet is sent as 7-bit GSM: 160 septets in a single
+ * segment, or 153 per segment once a User Data Header is needed for concatenation. Characters
+ * from the extension table ({@code ^ { } \ [ ~ ] | €} and form feed) take an escape septet and
+ * count twice. Anything else switches the whole message to UCS-2: 70 UTF-16 units in one
+ * segment, 67 per part. An escape pair or a surrogate pair is never split across two parts.
+ *
+ * {@link #of(CharSequence)} counts in a single pass over the text without copying it: septets
+ * until the first character outside the alphabet, UTF-16 units from there on. {@link #split(String)}
+ * cuts on exactly the boundaries it counted.
+ *
+ * @param encoding the encoding the message is sent in
+ * @param units septets for GSM-7, UTF-16 code units for UCS-2
+ * @param count number of segments; 0 for an empty message
+ */
+public record SmsSegments(Encoding encoding, int units, int count) {
+
+    public enum Encoding {
+        GSM7(160, 153), UCS2(70, 67);
+
+        private final int single;
+        private final int part;
+
+        Encoding(int single, int part) {
+            this.single = single;
+            this.part = part;
+        }
+
+        /** Units that fit in an unsplit message. */
+        public int single() {
+            return single;
+        }
+
+        /** Units that fit in each part of a concatenated message. */
+        public int part() {
+            return part;
+        }
+    }
+
+    private static final String GSM_BASIC = "@£$¥èéùìòÇ\nØø\rÅå"
+        + "Δ_ΦΓΛΩΠΨΣΘΞÆæßÉ"
+        + " !\"#¤%&'()*+,-./0123456789:;<=>?"
+        + "¡ABCDEFGHIJKLMNOPQRSTUVWXYZÄÖÑÜ§"
+        + "¿abcdefghijklmnopqrstuvwxyzäöñüà";
+    private static final String GSM_EXTENSION = "\f^{}\\[~]|";
+    private static final char EURO = '€';
+
+    // Septets per char below U+0400, 0 where the char has no GSM-7 form. The euro sign is the
+    // only character above the table and is handled on its own.
+    private static final byte[] SEPTETS = new byte[0x400];
+
+    static {
+        for (int i = 0; i < GSM_BASIC.length(); i++) {
+            SEPTETS[GSM_BASIC.charAt(i)] = 1;
+        }
+        for (int i = 0; i < GSM_EXTENSION.length(); i++) {
+            SEPTETS[GSM_EXTENSION.charAt(i)] = 2;
+        }
+    }
+
+    public static SmsSegments of(CharSequence message) {
+        int length = message.length();
+        int septets = 0;
+        int parts = 1;
+        int fill = 0;
+        for (int i = 0; i < length; i++) {
+            int cost = septets(message.charAt(i));
+            if (cost == 0) {
+                return ucs2(message, i);
+            }
+            septets += cost;
+            if (fill + cost > Encoding.GSM7.part) {
+                parts++;
+                fill = cost;
+            } else {
+                fill += cost;
+            }
+        }
+        return new SmsSegments(Encoding.GSM7, septets, count(septets, parts, Encoding.GSM7));
+    }
+
+    // Picks up at the first character GSM-7 cannot carry. Everything before it was one UTF-16 unit
+    // per char with no pairs, so the parts so far follow from the count alone.
+    private static SmsSegments ucs2(CharSequence message, int from) {
+        int length = message.length();
+        int units = from;
+        int parts = Math.max(1, (from + Encoding.UCS2.part - 1) / Encoding.UCS2.part);
+        int fill = from - (parts - 1) * Encoding.UCS2.part;
+        for (int i = from; i < length; i++) {
+            char c = message.charAt(i);
+            int cost = 1;
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(message.charAt(i + 1))) {
+                cost = 2;
+                i++;
+            }
+            units += cost;
+            if (fill + cost > Encoding.UCS2.part) {
+                parts++;
+                fill = cost;
+            } else {
+                fill += cost;
+            }
+        }
+        return new SmsSegments(Encoding.UCS2, units, count(units, parts, Encoding.UCS2));
+    }
+
+    private static int count(int units, int parts, Encoding encoding) {
+        if (units == 0) {
+            return 0;
+        }
+        return units <= encoding.single ? 1 : parts;
+    }
+
+    private static int septets(char c) {
+        if (c < SEPTETS.length) {
+            return SEPTETS[c];
+        }
+        return c == EURO ? 2 : 0;
+    }
+
+    /**
+     * The message cut into the parts it is billed as; a single-segment message is returned whole.
+     */
+    public static List<String> split(String message) {
+        SmsSegments segments = of(message);
+        if (segments.count <= 1) {
+            return List.of(message);
+        }
+        boolean gsm = segments.encoding == Encoding.GSM7;
+        int limit = segments.encoding.part;
+        List<String> parts = new ArrayList<>(segments.count);
+        int start = 0;
+        int fill = 0;
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            int units = 1;
+            if (gsm) {
+                units = septets(c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < message.length()
+                    && Character.isLowSurrogate(message.charAt(i + 1))) {
+                units = 2;
+            }
+            if (fill + units > limit) {
+                parts.add(message.substring(start, i));
+                start = i;
+                fill = 0;
+            }
+            fill += units;
+            if (units == 2 && !gsm) {
+                i++;
+            }
+        }
+        parts.add(message.substring(start));
+        return parts;
+    }
+}
@@ -0,0 +1,197 @@
+package com.meesho.smssender.util;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hierarchical hashed timer wheel for many delayed tasks with coarse deadlines.
+ *
+ * One worker thread advances the innermost wheel every {@code tick}. Each of the {@value #LEVELS}
+ * levels has {@code wheelSize} buckets, and a bucket on level {@code k} spans {@code wheelSize^k}
+ * ticks. A task goes into the bucket of the lowest level whose current turn contains its deadline;
+ * when the ticks reach that bucket, its tasks move down a level, until they reach the innermost
+ * wheel and run. Scheduling is O(1), a task moves at most {@value #LEVELS} times whatever its
+ * delay, and no thread sleeps per task. Deadlines beyond the outermost turn are re-filed once per
+ * outer turn. Deadlines are rounded up to the next tick.
+ *
+ * {@link #schedule} may be called from any thread; new tasks go through a lock-free queue that the
+ * worker moves into the buckets at the start of each tick. Tasks run on the worker thread, so they
+ * should only hand work off.
+ */
+public class TimerWheel implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TimerWheel.class);
+
+    static final int LEVELS = 4;
+
+    private final long tickNanos;
+    private final int bits;
+    private final int mask;
+    private final ArrayDeque<Timeout>[][] levels;
+    private final ConcurrentLinkedQueue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LogSampler failureLog = new LogSampler(Duration.ofSeconds(1));
+    private final Thread worker;
+    private final long startNanos;
+
+    private volatile boolean running = true;
+    private long tick;
+
+    /**
+     * @param wheelSize buckets per turn, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(String name, long tickMs, int wheelSize) {
+        if (tickMs < 1 || wheelSize < 1) {
+            throw new IllegalArgumentException("Timer wheel needs a positive tick and size");
+        }
+        int size = Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        this.bits = Integer.numberOfTrailingZeros(size);
+        this.mask = size - 1;
+        this.levels = new ArrayDeque[LEVELS][size];
+        for (ArrayDeque<Timeout>[] level : levels) {
+            for (int i = 0; i < size; i++) {
+                level[i] = new ArrayDeque<>();
+            }
+        }
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Runs {@code task} on the wheel's thread once {@code delayMs} has passed; a delay of zero or
+     * less runs it on the next tick.
+     *
+     * @throws IllegalStateException if the wheel is closed
+     */
+    public void schedule(long delayMs, Runnable task) {
+        if (!running) {
+            throw new IllegalStateException("Timer wheel is closed");
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(delayMs, 0)) - startNanos;
+        pending.incrementAndGet();
+        incoming.add(new Timeout(deadline, task));
+    }
+
+    /** Tasks scheduled and not yet run. */
+    public int pending() {
+        return pending.get();
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = (tick + 1) * tickNanos;
+            long wait;
+            while (running && (wait = deadline - (System.nanoTime() - startNanos)) > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+            if (!running) {
+                break;
+            }
+            cascade();
+            transferIncoming();
+            expire(levels[0][(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void transferIncoming() {
+        Timeout timeout;
+        while ((timeout = incoming.poll()) != null) {
+            // Ticks count from the start of the wheel; the bucket for tick t expires at (t + 1) * tick.
+            timeout.due = Math.max(ceilDiv(timeout.deadline, tickNanos) - 1, tick);
+            file(timeout);
+        }
+    }
+
+    // Level k holds a task whose deadline falls in one of the next wheelSize level-k blocks, in the
+    // bucket that cascades when the ticks enter the deadline's block; the innermost level holds the
+    // next wheelSize ticks. Tasks past the outermost wheel wait in the outermost bucket that comes
+    // round last and are filed again from there.
+    private void file(Timeout timeout) {
+        if (timeout.due - tick <= mask) {
+            levels[0][(int) (timeout.due & mask)].addLast(timeout);
+            return;
+        }
+        for (int level = 1; level < LEVELS; level++) {
+            int shift = bits * level;
+            if ((timeout.due >>> shift) - (tick >>> shift) <= mask + 1) {
+                levels[level][(int) ((timeout.due >>> shift) & mask)].addLast(timeout);
+                return;
+            }
+        }
+        int shift = bits * (LEVELS - 1);
+        levels[LEVELS - 1][(int) ((tick >>> shift) & mask)].addLast(timeout);
+    }
+
+    // On a tick that starts a new block of level k, that block's bucket moves down. Outer levels go
+    // first, so tasks they hand to an inner bucket that also starts now move on in the same tick.
+    private void cascade() {
+        for (int level = LEVELS - 1; level > 0; level--) {
+            int shift = bits * level;
+            if ((tick & ((1L << shift) - 1)) != 0) {
+                continue;
+            }
+            ArrayDeque<Timeout> bucket = levels[level][(int) ((tick >>> shift) & mask)];
+            for (int n = bucket.size(); n > 0; n--) {
+                file(bucket.pollFirst());
+            }
+        }
+    }
+
+    private void expire(ArrayDeque<Timeout> bucket) {
+        for (Iterator<Timeout> it = bucket.iterator(); it.hasNext();) {
+            Timeout timeout = it.next();
+            it.remove();
+            pending.decrementAndGet();
+            try {
+                timeout.task.run();
+            } catch (RuntimeException e) {
+                long suppressed = failureLog.sample();
+                if (suppressed >= 0) {
+                    log.warn("Timer task failed ({} similar suppressed)", suppressed, e);
+                }
+            }
+        }
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return x <= 0 ? 0 : (x + y - 1) / y;
+    }
+
+    /**
+     * Stops the worker. Tasks that have not run yet are dropped.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Timeout {
+        final long deadline;
+        final Runnable task;
+        long due;
+
+        Timeout(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.meesho.smssender;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.meesho.smssender.controller.ReactiveSmsController;
+import com.meesho.smssender.controller.SmsController;
+
+@SpringBootTest(properties = "sms.outbox.dir=target/test-outbox-reactive",
+	webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+class ReactiveSmssenderApplicationTests {
+
+	@Autowired
+	private ApplicationContext context;
+
+	@Test
+	void contextLoads_onNettyWithReactiveController() {
+		assertThat(context).isInstanceOf(ReactiveWebServerApplicationContext.class);
+		assertThat(((ReactiveWebServerApplicationContext) context).getWebServer().getClass().getSimpleName())
+			.isEqualTo("NettyWebServer");
+		assertThat(context.getBeanNamesForType(ReactiveSmsController.class)).hasSize(1);
+		assertThat(context.getBeanNamesForType(SmsController.class)).isEmpty();
+	}
+
+}
@@ -3,7 +3,7 @@ package com.meesho.smssender;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "sms.outbox.dir=target/test-outbox")
 class SmssenderApplicationTests {
 
 	@Test
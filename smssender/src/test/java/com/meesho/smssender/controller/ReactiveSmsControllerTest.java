@@ -0,0 +1,151 @@
+package com.meesho.smssender.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webflux.test.autoconfigure.WebFluxTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.meesho.smssender.dto.BlockRequest;
+import com.meesho.smssender.dto.BulkBlockResponse;
+import com.meesho.smssender.dto.SmsRequest;
+import com.meesho.smssender.dto.SmsResponse;
+import com.meesho.smssender.dto.SmsStatusResponse;
+import com.meesho.smssender.exception.BlockedNumberException;
+import com.meesho.smssender.exception.MessageNotFoundException;
+import com.meesho.smssender.exception.ThrottledException;
+import com.meesho.smssender.service.SmsService;
+
+import reactor.core.publisher.Mono;
+
+@WebFluxTest(ReactiveSmsController.class)
+@ActiveProfiles("reactive")
+class ReactiveSmsControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private SmsService smsService;
+
+    @Test
+    void sendSms_shouldReturnAccepted_whenRequestIsValid() {
+        when(smsService.sendSmsReactive("shop-a", new SmsRequest("1234567890", "Hello", "otp")))
+            .thenReturn(Mono.just("000000000000002a"));
+
+        webTestClient.post().uri("/v1/sms/send")
+            .header(SmsController.CLIENT_ID_HEADER, "shop-a")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new SmsRequest("1234567890", "Hello", "otp"))
+            .exchange()
+            .expectStatus().isAccepted()
+            .expectBody()
+            .jsonPath("$.status").isEqualTo("ENQUEUED")
+            .jsonPath("$.id").isEqualTo("000000000000002a");
+    }
+
+    @Test
+    void status_shouldReturnLatestDeliveryState() {
+        Instant accepted = Instant.parse("2026-01-01T10:00:00Z");
+        when(smsService.status("000000000000002a")).thenReturn(
+            new SmsStatusResponse("000000000000002a", "RETRYING", accepted, accepted.plusSeconds(2)));
+
+        webTestClient.get().uri("/v1/sms/000000000000002a")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.status").isEqualTo("RETRYING");
+    }
+
+    @Test
+    void status_shouldReturnNotFound_whenIdIsUnknown() {
+        when(smsService.status("nope"))
+            .thenThrow(new MessageNotFoundException("No recent message with id nope."));
+
+        webTestClient.get().uri("/v1/sms/nope")
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectBody().jsonPath("$.status").isEqualTo("NOT_FOUND");
+    }
+
+    @Test
+    void sendSms_shouldReturnForbidden_whenUserIsBlocked() {
+        when(smsService.sendSmsReactive(any(), any(SmsRequest.class)))
+            .thenReturn(Mono.error(new BlockedNumberException("The number is blocked")));
+
+        webTestClient.post().uri("/v1/sms/send")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new SmsRequest("9999999999", "Hello"))
+            .exchange()
+            .expectStatus().isForbidden()
+            .expectBody().jsonPath("$.status").isEqualTo("BLOCKED");
+    }
+
+    @Test
+    void sendSms_shouldReturnTooManyRequests_whenThrottled() {
+        when(smsService.sendSmsReactive(any(), any(SmsRequest.class)))
+            .thenReturn(Mono.error(new ThrottledException("Too many messages to this number, retry later.")));
+
+        webTestClient.post().uri("/v1/sms/send")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new SmsRequest("1234567890", "Hello"))
+            .exchange()
+            .expectStatus().isEqualTo(429)
+            .expectBody().jsonPath("$.status").isEqualTo("THROTTLED");
+    }
+
+    @Test
+    void sendBatch_shouldReturnPerItemStatuses() {
+        when(smsService.sendSmsBatchReactive(any(), anyList())).thenReturn(Mono.just(List.of(
+            new SmsResponse("ENQUEUED", "Message enqueued for delivery"),
+            new SmsResponse("FAILED", "Mobile number must be exactly 10 digits."))));
+
+        webTestClient.post().uri("/v1/sms/send/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(List.of(new SmsRequest("1234567890", "Hello"), new SmsRequest("123", "Hello")))
+            .exchange()
+            .expectStatus().isAccepted()
+            .expectBody()
+            .jsonPath("$[0].status").isEqualTo("ENQUEUED")
+            .jsonPath("$[1].status").isEqualTo("FAILED");
+    }
+
+    @Test
+    void blockUser_shouldReturnAccepted_whenUserAlreadyBlocked() {
+        when(smsService.blockUser("1234567890")).thenReturn(0L);
+
+        webTestClient.post().uri("/v1/sms/block")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new BlockRequest("1234567890"))
+            .exchange()
+            .expectStatus().isAccepted()
+            .expectBody().jsonPath("$.status").isEqualTo("ALREADY_BLOCKED");
+    }
+
+    @Test
+    void blockUsers_shouldStreamBody_toService() throws Exception {
+        when(smsService.blockUsers(any(InputStream.class))).thenAnswer(invocation -> {
+            String body = new String(invocation.<InputStream>getArgument(0).readAllBytes(), StandardCharsets.UTF_8);
+            return new BulkBlockResponse("BLOCKED", body.lines().count(), 0, 0, List.of());
+        });
+
+        webTestClient.post().uri("/v1/sms/block/bulk")
+            .contentType(MediaType.TEXT_PLAIN)
+            .bodyValue("9876543210\n1234567890\n5555555555\n")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.changed").isEqualTo(3);
+        verify(smsService).blockUsers(any(InputStream.class));
+    }
+}
@@ -1,12 +1,19 @@
 package com.meesho.smssender.controller;
 
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
@@ -16,8 +23,17 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.meesho.smssender.dto.BlockRequest;
+import com.meesho.smssender.dto.BulkBlockResponse;
 import com.meesho.smssender.dto.SmsRequest;
+import com.meesho.smssender.dto.SmsResponse;
+import com.meesho.smssender.dto.SmsStatusResponse;
+import com.meesho.smssender.dto.TemplateRequest;
+import com.meesho.smssender.dto.TemplateResponse;
 import com.meesho.smssender.exception.BlockedNumberException;
+import com.meesho.smssender.exception.DispatchRejectedException;
+import com.meesho.smssender.exception.DuplicateRequestException;
+import com.meesho.smssender.exception.MessageNotFoundException;
+import com.meesho.smssender.exception.ThrottledException;
 import com.meesho.smssender.exception.ValidationException;
 import com.meesho.smssender.service.SmsService;
 
@@ -36,12 +52,36 @@ class SmsControllerTest {
     @Test
     void sendSms_shouldReturnAccepted_whenRequestIsValid() throws Exception {
         SmsRequest request = new SmsRequest("1234567890", "Hello");
+        when(smsService.sendSms(any(), any(SmsRequest.class))).thenReturn("000000000000002a");
 
         mockMvc.perform(post("/v1/sms/send")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isAccepted())
-                .andExpect(jsonPath("$.status").value("ENQUEUED"));
+                .andExpect(jsonPath("$.status").value("ENQUEUED"))
+                .andExpect(jsonPath("$.id").value("000000000000002a"));
+    }
+
+    @Test
+    void status_shouldReturnLatestDeliveryState() throws Exception {
+        Instant accepted = Instant.parse("2026-01-01T10:00:00Z");
+        when(smsService.status("000000000000002a")).thenReturn(
+            new SmsStatusResponse("000000000000002a", "DELIVERED", accepted, accepted.plusMillis(600)));
+
+        mockMvc.perform(get("/v1/sms/000000000000002a"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("000000000000002a"))
+                .andExpect(jsonPath("$.status").value("DELIVERED"));
+    }
+
+    @Test
+    void status_shouldReturnNotFound_whenIdIsUnknown() throws Exception {
+        when(smsService.status("00000000000000ff"))
+            .thenThrow(new MessageNotFoundException("No recent message with id 00000000000000ff."));
+
+        mockMvc.perform(get("/v1/sms/00000000000000ff"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.status").value("NOT_FOUND"));
     }
 
     @Test
@@ -49,7 +89,7 @@ class SmsControllerTest {
         SmsRequest request = new SmsRequest("9999999999", "Hello");
         
         doThrow(new BlockedNumberException("The number is blocked"))
-            .when(smsService).sendSms(anyString(), anyString());
+            .when(smsService).sendSms(any(), any(SmsRequest.class));
 
         mockMvc.perform(post("/v1/sms/send")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -63,7 +103,7 @@ class SmsControllerTest {
         SmsRequest request = new SmsRequest("123", "Hello"); // Invalid number
         
         doThrow(new ValidationException("Mobile number must be exactly 10 digits."))
-            .when(smsService).sendSms(anyString(), anyString());
+            .when(smsService).sendSms(any(), any(SmsRequest.class));
 
         mockMvc.perform(post("/v1/sms/send")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -72,6 +112,89 @@ class SmsControllerTest {
                 .andExpect(jsonPath("$.status").value("FAILED"));
     }
 
+    @Test
+    void sendSms_shouldReturnTooManyRequests_whenDispatcherIsSaturated() throws Exception {
+        SmsRequest request = new SmsRequest("1234567890", "Hello");
+
+        doThrow(new DispatchRejectedException("Dispatch queue is full, retry later."))
+            .when(smsService).sendSms(any(), any(SmsRequest.class));
+
+        mockMvc.perform(post("/v1/sms/send")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isTooManyRequests()) // 429
+                .andExpect(jsonPath("$.status").value("REJECTED"));
+    }
+
+    @Test
+    void sendSms_shouldReturnTooManyRequests_whenThrottled() throws Exception {
+        SmsRequest request = new SmsRequest("1234567890", "Hello");
+
+        doThrow(new ThrottledException("Too many messages to this number, retry later."))
+            .when(smsService).sendSms(any(), any(SmsRequest.class));
+
+        mockMvc.perform(post("/v1/sms/send")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isTooManyRequests()) // 429
+                .andExpect(jsonPath("$.status").value("THROTTLED"));
+    }
+
+    @Test
+    void sendSms_shouldReturnConflict_whenSameKeyIsInProgress() throws Exception {
+        SmsRequest request = new SmsRequest("1234567890", "Hello", null, "order-42");
+
+        doThrow(new DuplicateRequestException("A send with this idempotency key is still in progress, retry later."))
+            .when(smsService).sendSms(any(), any(SmsRequest.class));
+
+        mockMvc.perform(post("/v1/sms/send")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict()) // 409
+                .andExpect(jsonPath("$.status").value("IN_PROGRESS"));
+        verify(smsService).sendSms(null, request);
+    }
+
+    @Test
+    void sendSms_shouldPassClientIdHeader_toService() throws Exception {
+        SmsRequest request = new SmsRequest("1234567890", "Hello");
+
+        mockMvc.perform(post("/v1/sms/send")
+                .header(SmsController.CLIENT_ID_HEADER, "shop-a")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted());
+
+        verify(smsService).sendSms("shop-a", request);
+    }
+
+    @Test
+    void sendBatch_shouldReturnPerItemStatuses() throws Exception {
+        List<SmsRequest> requests = List.of(new SmsRequest("1234567890", "Hello"), new SmsRequest("123", "Hello"));
+        when(smsService.sendSmsBatch(any(), anyList())).thenReturn(List.of(
+            new SmsResponse("ENQUEUED", "Message enqueued for delivery"),
+            new SmsResponse("FAILED", "Mobile number must be exactly 10 digits.")));
+
+        mockMvc.perform(post("/v1/sms/send/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$[0].status").value("ENQUEUED"))
+                .andExpect(jsonPath("$[1].status").value("FAILED"));
+    }
+
+    @Test
+    void registerTemplate_shouldReturnCreated_withParams() throws Exception {
+        when(smsService.registerTemplate("otp-v1", "Your OTP is {code}"))
+            .thenReturn(new TemplateResponse("otp-v1", "REGISTERED", List.of("code")));
+
+        mockMvc.perform(post("/v1/sms/templates")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new TemplateRequest("otp-v1", "Your OTP is {code}"))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.params[0]").value("code"));
+    }
+
     @Test
     void blockUser_shouldReturnOk_whenUserBlockedSuccessfully() throws Exception {
         BlockRequest request = new BlockRequest("1234567890");
@@ -95,4 +218,17 @@ class SmsControllerTest {
                 .andExpect(status().isAccepted())
                 .andExpect(jsonPath("$.status").value("ALREADY_BLOCKED"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void blockUsers_shouldStreamBody_andReturnCounts() throws Exception {
+        when(smsService.blockUsers(any(InputStream.class)))
+            .thenReturn(new BulkBlockResponse("BLOCKED", 2, 1, 0, List.of()));
+
+        mockMvc.perform(post("/v1/sms/block/bulk")
+                .contentType(MediaType.TEXT_PLAIN)
+                .content("9876543210\n1234567890\n5555555555\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changed").value(2))
+                .andExpect(jsonPath("$.unchanged").value(1));
+    }
+}
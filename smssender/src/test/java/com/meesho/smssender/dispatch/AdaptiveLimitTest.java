@@ -0,0 +1,73 @@
+package com.meesho.smssender.dispatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptiveLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(300);
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final AdaptiveLimit limit = new AdaptiveLimit(2, 20, 200, now::get);
+
+    @Test
+    void tryAcquire_shouldStopAtTheLimit() {
+        for (int i = 0; i < 20; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+        }
+        assertThat(limit.tryAcquire()).isFalse();
+
+        limit.release();
+
+        assertThat(limit.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void sample_shouldBackOffOncePerSlowInterval() {
+        limit.sample(SLOW, false);
+        limit.sample(SLOW, false);
+        limit.sample(0, true);
+
+        assertThat(limit.limit()).isEqualTo(18);
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+        limit.sample(0, true);
+
+        assertThat(limit.limit()).isEqualTo(16);
+    }
+
+    @Test
+    void sample_shouldNeverGoBelowMin() {
+        for (int i = 0; i < 100; i++) {
+            now.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+            limit.sample(0, true);
+        }
+
+        assertThat(limit.limit()).isEqualTo(2);
+    }
+
+    @Test
+    void sample_shouldGrowBack_onlyWhileTheLimitIsInUse() {
+        limit.sample(SLOW, false);
+        int reduced = limit.limit();
+        for (int i = 0; i < 100; i++) {
+            limit.sample(FAST, false);
+        }
+        assertThat(limit.limit()).isEqualTo(reduced);
+
+        for (int i = 0; i < reduced; i++) {
+            limit.tryAcquire();
+        }
+        for (int i = 0; i < 100; i++) {
+            limit.sample(FAST, false);
+        }
+
+        assertThat(limit.limit()).isGreaterThan(reduced).isLessThanOrEqualTo(20);
+    }
+}
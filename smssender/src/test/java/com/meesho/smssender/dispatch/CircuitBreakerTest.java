@@ -0,0 +1,101 @@
+package com.meesho.smssender.dispatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 1000, 2, now::get);
+
+    @Test
+    void record_shouldStayClosed_untilMinCallsAreSeen() {
+        breaker.record(false);
+        breaker.record(false);
+        breaker.record(false);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void record_shouldOpen_whenFailureRateIsReached() {
+        breaker.record(true);
+        breaker.record(true);
+        breaker.record(false);
+        breaker.record(false);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void record_shouldForgetOutcomesOutsideTheWindow() {
+        CircuitBreaker small = new CircuitBreaker(4, 4, 0.75, 1000, 1, now::get);
+        small.record(false);
+        small.record(false);
+        small.record(true);
+        small.record(true);
+        small.record(false);
+
+        // Three failures so far, but the first has left the window of four.
+        assertThat(small.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void tryAcquire_shouldAllowProbes_afterOpenInterval_andCloseWhenTheySucceed() {
+        trip();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isFalse();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        breaker.record(true);
+        breaker.record(true);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void record_shouldReopen_whenAProbeFails() {
+        trip();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        breaker.record(false);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void release_shouldGiveBackAProbe_thatNeverStarted() {
+        trip();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        breaker.release();
+        breaker.release();
+        breaker.release();
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    private void trip() {
+        for (int i = 0; i < 4; i++) {
+            breaker.record(false);
+        }
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+}
@@ -0,0 +1,279 @@
+package com.meesho.smssender.dispatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.meesho.smssender.exception.DispatchRejectedException;
+import com.meesho.smssender.exception.GatewayUnavailableException;
+import com.meesho.smssender.metrics.SmsMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DispatchEngineTest {
+
+    private final SmsMetrics metrics = new SmsMetrics(new SimpleMeterRegistry());
+
+    private final List<CompletableFuture<Void>> calls = new ArrayList<>();
+
+    private final SmsGateway gateway = (mobileNumber, message) -> {
+        CompletableFuture<Void> call = new CompletableFuture<>();
+        synchronized (calls) {
+            calls.add(call);
+        }
+        return call;
+    };
+
+    // One completion thread and a short drain, so every test stops quickly.
+    private static final DispatchSettings SETTINGS =
+        DispatchSettings.DEFAULTS.withCompletionThreads(1).withDrainTimeoutMs(1000);
+
+    private final DispatchEngine engine = new DispatchEngine(gateway, metrics, new CircuitBreaker(),
+        SETTINGS.withConcurrency(2, 0).withQueueCapacity(2));
+
+    @AfterEach
+    void tearDown() {
+        synchronized (calls) {
+            calls.forEach(call -> call.complete(null));
+        }
+        engine.stop();
+    }
+
+    @Test
+    void dispatch_shouldLimitInFlightCalls_andQueueTheRest() {
+        engine.start();
+
+        engine.dispatch("1234567890", "a");
+        engine.dispatch("1234567890", "b");
+        engine.dispatch("1234567890", "c");
+
+        assertThat(engine.inFlight()).isEqualTo(2);
+        assertThat(engine.queued()).isEqualTo(1);
+    }
+
+    @Test
+    void dispatch_shouldReject_whenQueueIsFull() {
+        engine.start();
+        for (int i = 0; i < 4; i++) {
+            engine.dispatch("1234567890", "msg");
+        }
+
+        assertThatThrownBy(() -> engine.dispatch("1234567890", "overflow"))
+            .isInstanceOf(DispatchRejectedException.class)
+            .hasMessage("Dispatch queue is full, retry later.");
+    }
+
+    @Test
+    void dispatch_shouldStartQueuedCall_whenSlotFrees() throws Exception {
+        engine.start();
+        CompletableFuture<Void> first = engine.dispatch("1234567890", "a");
+        engine.dispatch("1234567890", "b");
+        CompletableFuture<Void> third = engine.dispatch("1234567890", "c");
+
+        calls.get(0).complete(null);
+        first.get(1, TimeUnit.SECONDS);
+        awaitCalls(3);
+        calls.get(2).complete(null);
+
+        third.get(1, TimeUnit.SECONDS);
+        assertThat(engine.queued()).isZero();
+    }
+
+    @Test
+    void dispatch_shouldReject_afterShutdown() {
+        engine.start();
+        engine.stop();
+
+        assertThatThrownBy(() -> engine.dispatch("1234567890", "late"))
+            .isInstanceOf(DispatchRejectedException.class);
+    }
+
+    @Test
+    void dispatch_shouldStartOtp_whenBulkHoldsSharedPermits() {
+        DispatchEngine lanes = new DispatchEngine(gateway, metrics, new CircuitBreaker(),
+            SETTINGS.withConcurrency(2, 1).withQueueCapacity(10));
+        lanes.start();
+        for (int i = 0; i < 3; i++) {
+            lanes.dispatch(Priority.BULK, "1234567890", "promo");
+        }
+
+        lanes.dispatch(Priority.OTP, "1234567890", "otp");
+
+        assertThat(lanes.inFlight()).isEqualTo(2);
+        assertThat(lanes.queued(Priority.BULK)).isEqualTo(2);
+        assertThat(lanes.queued(Priority.OTP)).isZero();
+        synchronized (calls) {
+            calls.forEach(call -> call.complete(null));
+        }
+        lanes.stop();
+    }
+
+    @Test
+    void dispatch_shouldStartQueuedOtp_beforeEarlierBulk() throws Exception {
+        List<String> started = new ArrayList<>();
+        SmsGateway recording = (mobileNumber, message) -> {
+            synchronized (started) {
+                started.add(message);
+            }
+            return gateway.send(mobileNumber, message);
+        };
+        DispatchEngine lanes = new DispatchEngine(recording, metrics, new CircuitBreaker(),
+            SETTINGS.withConcurrency(1, 0).withQueueCapacity(10));
+        lanes.start();
+        lanes.dispatch(Priority.BULK, "1234567890", "bulk-1");
+        lanes.dispatch(Priority.BULK, "1234567890", "bulk-2");
+        lanes.dispatch(Priority.OTP, "1234567890", "otp");
+
+        calls.get(0).complete(null);
+        awaitCalls(2);
+
+        synchronized (started) {
+            assertThat(started).containsExactly("bulk-1", "otp");
+        }
+        synchronized (calls) {
+            calls.forEach(call -> call.complete(null));
+        }
+        lanes.stop();
+    }
+
+    @Test
+    void dispatch_shouldSendPartsInOrder_whenAutoSplitIsOn() throws Exception {
+        List<String> sent = new ArrayList<>();
+        SmsGateway recording = (mobileNumber, message) -> {
+            synchronized (sent) {
+                sent.add(message);
+            }
+            return gateway.send(mobileNumber, message);
+        };
+        DispatchEngine splitting = new DispatchEngine(recording, metrics, new CircuitBreaker(),
+            SETTINGS.withConcurrency(1, 0).withQueueCapacity(10).withAutoSplit(true));
+        splitting.start();
+        String message = "a".repeat(153) + "b".repeat(10);
+
+        CompletableFuture<Void> done = splitting.dispatch("1234567890", message);
+        calls.get(0).complete(null);
+        awaitCalls(2);
+
+        assertThat(done).isNotDone();
+        assertThat(splitting.inFlight()).isEqualTo(1);
+        calls.get(1).complete(null);
+        done.get(1, TimeUnit.SECONDS);
+        synchronized (sent) {
+            assertThat(sent).containsExactly("a".repeat(153), "b".repeat(10));
+        }
+        splitting.stop();
+    }
+
+    @Test
+    void dispatch_shouldRefuse_andFailQueuedMessages_whenCircuitOpens() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1, 0.5, 60_000, 1);
+        DispatchEngine guarded = new DispatchEngine(gateway, metrics, breaker,
+            SETTINGS.withConcurrency(1, 0).withQueueCapacity(10).withMinConcurrency(1));
+        guarded.start();
+        CompletableFuture<Void> first = guarded.dispatch("1234567890", "first");
+        CompletableFuture<Void> queued = guarded.dispatch("1234567890", "queued");
+
+        calls.get(0).completeExceptionally(new IllegalStateException("provider down"));
+
+        assertThatThrownBy(() -> first.get(1, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> queued.get(1, TimeUnit.SECONDS)).hasCauseInstanceOf(GatewayUnavailableException.class);
+        assertThatThrownBy(() -> guarded.dispatch("1234567890", "later"))
+            .isInstanceOf(GatewayUnavailableException.class);
+        assertThat(calls).hasSize(1);
+        guarded.stop();
+    }
+
+    @Test
+    void dispatch_shouldKeepHalfOpenProbes_whenQueueIsFull() throws Exception {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(1, 1, 0.5, 1000, 3, now::get);
+        DispatchEngine guarded = new DispatchEngine(gateway, metrics, breaker,
+            SETTINGS.withConcurrency(1, 0).withQueueCapacity(1).withMinConcurrency(1));
+        guarded.start();
+        breaker.record(false);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        CompletableFuture<Void> first = guarded.dispatch("1234567890", "first");
+        CompletableFuture<Void> second = guarded.dispatch("1234567890", "queued");
+
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> guarded.dispatch("1234567890", "overflow"))
+                .isInstanceOf(DispatchRejectedException.class);
+        }
+        calls.get(0).complete(null);
+        first.get(1, TimeUnit.SECONDS);
+        awaitCalls(2);
+        calls.get(1).complete(null);
+        second.get(1, TimeUnit.SECONDS);
+        CompletableFuture<Void> third = guarded.dispatch("1234567890", "third");
+        awaitCalls(3);
+        calls.get(2).complete(null);
+        third.get(1, TimeUnit.SECONDS);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        guarded.stop();
+    }
+
+    @Test
+    void dispatch_shouldFailCall_andShrinkLimit_whenGatewayTimesOut() throws Exception {
+        DispatchEngine timed = new DispatchEngine(gateway, metrics, new CircuitBreaker(),
+            SETTINGS.withConcurrency(10, 0).withQueueCapacity(10).withTimeoutMs(50).withMinConcurrency(1));
+        timed.start();
+
+        CompletableFuture<Void> done = timed.dispatch("1234567890", "slow");
+
+        assertThatThrownBy(() -> done.get(1, TimeUnit.SECONDS)).hasCauseInstanceOf(TimeoutException.class);
+        assertThat(timed.limit()).isEqualTo(9);
+        assertThat(timed.inFlight()).isZero();
+        timed.stop();
+    }
+
+    @Test
+    void schedule_shouldInterleaveLanesByWeight() {
+        int[] schedule = DispatchEngine.schedule(new int[] {8, 3, 1});
+
+        int[] counts = new int[3];
+        for (int lane : schedule) {
+            counts[lane]++;
+        }
+        assertThat(counts).containsExactly(8, 3, 1);
+        assertThat(schedule).startsWith(0, 1, 0);
+    }
+
+    @Test
+    void stop_shouldDrainQueuedMessages() {
+        SimulatedSmsGateway simulated = new SimulatedSmsGateway(20);
+        DispatchEngine draining = new DispatchEngine(simulated, metrics, new CircuitBreaker(),
+            SETTINGS.withConcurrency(1, 0).withQueueCapacity(10).withDrainTimeoutMs(5000));
+        draining.start();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(draining.dispatch("1234567890", "msg"));
+        }
+
+        draining.stop();
+
+        assertThat(futures).allMatch(f -> f.isDone() && !f.isCompletedExceptionally());
+        simulated.shutdown();
+    }
+
+    private void awaitCalls(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (System.nanoTime() < deadline) {
+            synchronized (calls) {
+                if (calls.size() >= count) {
+                    return;
+                }
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.meesho.smssender.idempotency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import com.meesho.smssender.dispatch.Priority;
+import com.meesho.smssender.idempotency.IdempotencyCache.Claim;
+import com.meesho.smssender.idempotency.IdempotencyCache.State;
+
+import reactor.core.publisher.Mono;
+
+class IdempotencyCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final IdempotencyCache local = new IdempotencyCache(null, null, true, false, 1024, 1000, 100, clock::get);
+
+    @Test
+    void claim_shouldReturnNone_whenThereIsNoKey() {
+        assertThat(local.claim("shop-a", null, 1L)).isSameAs(Claim.NONE);
+    }
+
+    @Test
+    void claim_shouldReportInProgress_untilCompleted() {
+        Claim first = local.claim("shop-a", "key-1", 1L);
+
+        assertThat(first.owned()).isTrue();
+        assertThat(local.claim("shop-a", "key-1", 1L).state()).isEqualTo(State.IN_PROGRESS);
+
+        local.complete(first, State.ENQUEUED);
+
+        assertThat(local.claim("shop-a", "key-1", 1L).state()).isEqualTo(State.ENQUEUED);
+    }
+
+    @Test
+    void claim_shouldScopeKeysByClient() {
+        local.complete(local.claim("shop-a", "key-1", 1L), State.ENQUEUED);
+
+        assertThat(local.claim("shop-b", "key-1", 1L).owned()).isTrue();
+        assertThat(local.claim("shop-a:", "key-1", 1L).owned()).isTrue();
+    }
+
+    @Test
+    void claim_shouldReportMismatch_whenKeyIsReusedForAnotherMessage() {
+        local.complete(local.claim(null, "key-1", 1L), State.ENQUEUED);
+
+        assertThat(local.claim(null, "key-1", 2L).state()).isEqualTo(State.MISMATCH);
+    }
+
+    @Test
+    void claim_shouldBeNewAgain_afterReleaseOrExpiry() {
+        local.release(local.claim(null, "key-1", 1L));
+        assertThat(local.claim(null, "key-1", 1L).owned()).isTrue();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        Claim again = local.claim(null, "key-1", 1L);
+        assertThat(again.owned()).isTrue();
+
+        local.complete(again, State.BLOCKED);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertThat(local.claim(null, "key-1", 1L).owned()).isTrue();
+    }
+
+    @Test
+    void fingerprint_shouldDependOnNumberMessageAndLane() {
+        long fp = IdempotencyCache.fingerprint(1234567890L, "Hello", Priority.STANDARD);
+
+        assertThat(IdempotencyCache.fingerprint(1234567890L, "Hello", Priority.STANDARD)).isEqualTo(fp);
+        assertThat(IdempotencyCache.fingerprint(1234567891L, "Hello", Priority.STANDARD)).isNotEqualTo(fp);
+        assertThat(IdempotencyCache.fingerprint(1234567890L, "Hello!", Priority.STANDARD)).isNotEqualTo(fp);
+        assertThat(IdempotencyCache.fingerprint(1234567890L, "Hello", Priority.OTP)).isNotEqualTo(fp);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void claim_shouldReplayOutcome_recordedByAnotherReplica() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        when(values.get(anyString())).thenReturn("ENQUEUED:" + Long.toHexString(42L));
+        IdempotencyCache cache = new IdempotencyCache(redis, null, true, true, 1024, 1000, 100, clock::get);
+
+        assertThat(cache.claim("shop-a", "key-1", 42L).state()).isEqualTo(State.ENQUEUED);
+        // Answered locally the second time.
+        when(values.get(anyString())).thenThrow(new AssertionError("unexpected Redis call"));
+        assertThat(cache.claim("shop-a", "key-1", 42L).state()).isEqualTo(State.ENQUEUED);
+    }
+
+    @Test
+    void claim_shouldReplayMessageId_ofEnqueuedSend() {
+        local.complete(local.claim("shop-a", "key-1", 1L), State.ENQUEUED, 0x2aL);
+
+        Claim replay = local.claim("shop-a", "key-1", 1L);
+
+        assertThat(replay.state()).isEqualTo(State.ENQUEUED);
+        assertThat(replay.messageId()).isEqualTo(0x2aL);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void claim_shouldReplayMessageId_recordedByAnotherReplica() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        when(values.get(anyString())).thenReturn("ENQUEUED:" + Long.toHexString(-42L) + ":" + Long.toHexString(-7L));
+        IdempotencyCache cache = new IdempotencyCache(redis, null, true, true, 1024, 1000, 100, clock::get);
+
+        assertThat(cache.claim("shop-a", "key-1", -42L).messageId()).isEqualTo(-7L);
+        // Kept in the local entry too.
+        assertThat(cache.claim("shop-a", "key-1", -42L).messageId()).isEqualTo(-7L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void claim_shouldReportInProgress_whenAnotherReplicaHoldsTheKey() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(eq("sms_idem:6:shop-a:key-1"), anyString(), any(Duration.class))).thenReturn(false);
+        when(values.get("sms_idem:6:shop-a:key-1")).thenReturn("PENDING:" + Long.toHexString(-42L));
+        IdempotencyCache cache = new IdempotencyCache(redis, null, true, true, 1024, 1000, 100, clock::get);
+
+        assertThat(cache.claim("shop-a", "key-1", -42L).state()).isEqualTo(State.IN_PROGRESS);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void claim_shouldFallBackToLocalCache_whenRedisIsDown() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+            .thenThrow(new RedisConnectionFailureException("down"));
+        IdempotencyCache cache = new IdempotencyCache(redis, null, true, true, 1024, 1000, 100, clock::get);
+
+        assertThat(cache.claim(null, "key-1", 1L).owned()).isTrue();
+        assertThat(cache.claim(null, "key-1", 1L).state()).isEqualTo(State.IN_PROGRESS);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void claimReactive_shouldOwnKey_whenSetNxSucceeds() {
+        ReactiveStringRedisTemplate redis = mock(ReactiveStringRedisTemplate.class);
+        ReactiveValueOperations<String, String> values = mock(ReactiveValueOperations.class);
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+        IdempotencyCache cache = new IdempotencyCache(null, redis, true, true, 1024, 1000, 100, clock::get);
+
+        assertThat(cache.claimReactive(null, "key-1", 1L).block().owned()).isTrue();
+    }
+}
@@ -0,0 +1,34 @@
+package com.meesho.smssender.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.Test;
+
+class ProducerProfileTest {
+
+    @Test
+    void apply_shouldOverrideBatchingAndCompression_andKeepTheRest() {
+        Map<String, Object> base = Map.of(
+            ProducerConfig.ACKS_CONFIG, "all",
+            ProducerConfig.LINGER_MS_CONFIG, 10,
+            ProducerConfig.CLIENT_ID_CONFIG, "sms-producer-1");
+
+        Map<String, Object> properties = ProducerProfile.THROUGHPUT.apply(base);
+
+        assertThat(properties)
+            .containsEntry(ProducerConfig.ACKS_CONFIG, "all")
+            .containsEntry(ProducerConfig.LINGER_MS_CONFIG, 50)
+            .containsEntry(ProducerConfig.BATCH_SIZE_CONFIG, 262_144)
+            .containsEntry(ProducerConfig.COMPRESSION_TYPE_CONFIG, "zstd")
+            .containsEntry(ProducerConfig.CLIENT_ID_CONFIG, "sms-producer-1-throughput");
+        assertThat(base).containsEntry(ProducerConfig.LINGER_MS_CONFIG, 10);
+    }
+
+    @Test
+    void apply_shouldLeaveClientIdToKafka_whenNoneIsConfigured() {
+        assertThat(ProducerProfile.LATENCY.apply(Map.of())).doesNotContainKey(ProducerConfig.CLIENT_ID_CONFIG);
+    }
+}
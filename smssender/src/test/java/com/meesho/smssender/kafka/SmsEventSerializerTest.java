@@ -0,0 +1,157 @@
+package com.meesho.smssender.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meesho.smssender.dto.KafkaSmsData;
+import com.meesho.smssender.dto.KafkaUserData;
+
+class SmsEventSerializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final KafkaSmsData sms = new KafkaSmsData("0987654321", "Hello ₹100 🎉", "SUCCESS");
+
+    @Test
+    void json_shouldRoundTripThroughJackson_andStampHeaders() throws Exception {
+        SmsEventSerializer serializer = new SmsEventSerializer(objectMapper, WireFormat.JSON);
+        Headers headers = new RecordHeaders();
+
+        byte[] bytes = serializer.serialize("sms-topic", headers, sms);
+
+        assertThat(objectMapper.readValue(bytes, KafkaSmsData.class)).isEqualTo(sms);
+        assertThat(header(headers, WireFormat.ENCODING_HEADER)).isEqualTo("json");
+        assertThat(header(headers, WireFormat.SCHEMA_VERSION_HEADER)).isEqualTo("1");
+    }
+
+    @Test
+    void binary_shouldRoundTripSmsData_andBeSmallerThanJson() {
+        SmsEventSerializer serializer = new SmsEventSerializer(objectMapper, WireFormat.BINARY);
+        Headers headers = new RecordHeaders();
+
+        byte[] bytes = serializer.serialize("sms-topic", headers, sms);
+
+        assertThat(BinaryEventCodec.decodeSms(bytes)).isEqualTo(sms);
+        assertThat(header(headers, WireFormat.ENCODING_HEADER)).isEqualTo("binary");
+        assertThat(bytes.length).isLessThan(new SmsEventSerializer(objectMapper, WireFormat.JSON)
+            .serialize("sms-topic", sms).length / 2);
+    }
+
+    @Test
+    void binary_shouldRoundTripUserData_withUnknownStatus() {
+        KafkaUserData user = new KafkaUserData("9876543210", "SUSPENDED");
+
+        byte[] bytes = BinaryEventCodec.encode(user);
+
+        assertThat(BinaryEventCodec.decodeUser(bytes)).isEqualTo(user);
+    }
+
+    @Test
+    void binary_shouldEncodeUtf8LikeTheJdk() {
+        String message = "aé€😀\uD800z".repeat(40);
+
+        KafkaSmsData decoded = BinaryEventCodec.decodeSms(BinaryEventCodec.encode(new KafkaSmsData("9876543210", message, "SUCCESS")));
+
+        assertThat(decoded.message()).isEqualTo(new String(message.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+        assertThat(BinaryEventCodec.utf8Length(message)).isEqualTo(message.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void binary_shouldFallBackToJson_forTypesWithoutBinaryLayout() {
+        SmsEventSerializer serializer = new SmsEventSerializer(objectMapper, WireFormat.BINARY);
+        Headers headers = new RecordHeaders();
+
+        byte[] bytes = serializer.serialize("sms-topic", headers, Map.of("k", "v"));
+
+        assertThat(new String(bytes, StandardCharsets.UTF_8)).isEqualTo("{\"k\":\"v\"}");
+        assertThat(header(headers, WireFormat.ENCODING_HEADER)).isEqualTo("json");
+    }
+
+    @Test
+    void binary_shouldRoundTripTemplatedSms_asSchemaVersion2() {
+        KafkaSmsData templated = new KafkaSmsData("9876543210", "OTP 4821", "SUCCESS", "otp", Map.of("code", "4821"));
+
+        byte[] bytes = BinaryEventCodec.encode(templated);
+
+        assertThat(bytes[0]).isEqualTo(BinaryEventCodec.TEMPLATE_SCHEMA_VERSION);
+        assertThat(BinaryEventCodec.decodeSms(bytes)).isEqualTo(templated);
+        assertThat(BinaryEventCodec.encode(sms)[0]).isEqualTo(BinaryEventCodec.SCHEMA_VERSION);
+    }
+
+    @Test
+    void binary_shouldRoundTripSegmentCount_asSchemaVersion3() {
+        KafkaSmsData counted = new KafkaSmsData("9876543210", "Hello", "SUCCESS", null, null, 1, "GSM7");
+        KafkaSmsData templated = new KafkaSmsData("9876543210", "नमस्ते 4821", "SUCCESS", "otp", Map.of("code", "4821"), 1, "UCS2");
+        Headers headers = new RecordHeaders();
+
+        byte[] bytes = new SmsEventSerializer(objectMapper, WireFormat.BINARY).serialize("sms-topic", headers, counted);
+
+        assertThat(bytes[0]).isEqualTo(BinaryEventCodec.SEGMENTS_SCHEMA_VERSION);
+        assertThat(header(headers, WireFormat.SCHEMA_VERSION_HEADER)).isEqualTo("3");
+        assertThat(BinaryEventCodec.decodeSms(bytes)).isEqualTo(counted);
+        assertThat(BinaryEventCodec.decodeSms(BinaryEventCodec.encode(templated))).isEqualTo(templated);
+    }
+
+    @Test
+    void json_shouldIncludeSegments_onlyWhenCounted() throws Exception {
+        KafkaSmsData counted = new KafkaSmsData("9876543210", "Hello", "SUCCESS", null, null, 1, "GSM7");
+
+        SmsEventSerializer serializer = new SmsEventSerializer(objectMapper, WireFormat.JSON);
+
+        assertThat(new String(serializer.serialize("sms-topic", counted), StandardCharsets.UTF_8))
+            .isEqualTo("{\"mobileNumber\":\"9876543210\",\"message\":\"Hello\",\"status\":\"SUCCESS\",\"segments\":1,\"encoding\":\"GSM7\"}");
+        assertThat(new String(serializer.serialize("sms-topic", sms), StandardCharsets.UTF_8)).doesNotContain("segments");
+    }
+
+    @Test
+    void templateOnly_shouldDropRenderedMessage_forTemplatedEvents() throws Exception {
+        SmsEventSerializer serializer = new SmsEventSerializer(objectMapper, WireFormat.JSON, false);
+        KafkaSmsData templated = new KafkaSmsData("9876543210", "OTP 4821", "SUCCESS", "otp", Map.of("code", "4821"));
+        Headers headers = new RecordHeaders();
+
+        byte[] bytes = serializer.serialize("sms-topic", headers, templated);
+
+        assertThat(new String(bytes, StandardCharsets.UTF_8))
+            .isEqualTo("{\"mobileNumber\":\"9876543210\",\"status\":\"SUCCESS\",\"templateId\":\"otp\",\"params\":{\"code\":\"4821\"}}");
+        assertThat(header(headers, WireFormat.SCHEMA_VERSION_HEADER)).isEqualTo("2");
+        assertThat(objectMapper.readValue(serializer.serialize("sms-topic", sms), KafkaSmsData.class)).isEqualTo(sms);
+    }
+
+    @Test
+    void templateOnly_shouldKeepRenderedMessage_onRenderedTopics() {
+        SmsEventSerializer serializer = new SmsEventSerializer(objectMapper, WireFormat.BINARY, false,
+            Set.of("sms-topic-retry-1s"));
+        SmsEventDeserializer deserializer = new SmsEventDeserializer(objectMapper);
+        KafkaSmsData templated = new KafkaSmsData("9876543210", "OTP 4821", "SUCCESS", "otp", Map.of("code", "4821"));
+        Headers headers = new RecordHeaders();
+
+        byte[] bytes = serializer.serialize("sms-topic-retry-1s", headers, templated);
+
+        assertThat(deserializer.deserialize("sms-topic-retry-1s", headers, bytes)).isEqualTo(templated);
+    }
+
+    @Test
+    void deserializer_shouldReadBothWireFormats_byEncodingHeader() {
+        SmsEventDeserializer deserializer = new SmsEventDeserializer(objectMapper);
+        for (WireFormat format : WireFormat.values()) {
+            Headers headers = new RecordHeaders();
+            byte[] bytes = new SmsEventSerializer(objectMapper, format).serialize("sms-topic", headers, sms);
+
+            assertThat(deserializer.deserialize("sms-topic", headers, bytes)).isEqualTo(sms);
+        }
+        byte[] json = new SmsEventSerializer(objectMapper, WireFormat.JSON).serialize("sms-topic", sms);
+        assertThat(deserializer.deserialize("sms-topic", new RecordHeaders(), json)).isEqualTo(sms);
+    }
+
+    private static String header(Headers headers, String key) {
+        return new String(headers.lastHeader(key).value(), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,113 @@
+package com.meesho.smssender.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedSpoolTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void read_shouldReturnRecordsInOrder_untilCaughtUp() {
+        MappedSpool spool = new MappedSpool(dir, 4096, 1 << 20);
+        spool.append(bytes("one"));
+        spool.append(bytes("two"));
+
+        assertThat(readAll(spool, 0)).containsExactly("one", "two");
+        assertThat(spool.read(spool.writeOffset())).isNull();
+    }
+
+    @Test
+    void reopen_shouldReplayUncommittedRecords_only() {
+        MappedSpool spool = new MappedSpool(dir, 4096, 1 << 20);
+        long first = spool.append(bytes("delivered"));
+        spool.append(bytes("pending"));
+        spool.commit(first);
+        spool.close();
+
+        MappedSpool reopened = new MappedSpool(dir, 4096, 1 << 20);
+
+        assertThat(reopened.committedOffset()).isEqualTo(first);
+        assertThat(readAll(reopened, reopened.committedOffset())).containsExactly("pending");
+    }
+
+    @Test
+    void append_shouldRollSegments_andCommitShouldDeleteOldOnes() throws IOException {
+        MappedSpool spool = new MappedSpool(dir, 1024, 1 << 20);
+        byte[] payload = new byte[300];
+        long last = 0;
+        for (int i = 0; i < 10; i++) {
+            last = spool.append(payload);
+        }
+
+        assertThat(readAll(spool, 0)).hasSize(10);
+        assertThat(segmentCount()).isGreaterThan(3);
+
+        spool.commit(last);
+
+        assertThat(segmentCount()).isEqualTo(1);
+        assertThat(spool.backlogBytes()).isZero();
+    }
+
+    @Test
+    void reopen_shouldStopAtTornRecord() throws IOException {
+        MappedSpool spool = new MappedSpool(dir, 4096, 1 << 20);
+        long first = spool.append(bytes("complete"));
+        spool.append(bytes("torn"));
+        spool.close();
+        // Flip a payload byte of the second record so its checksum no longer matches.
+        try (FileChannel channel = FileChannel.open(dir.resolve("spool-000000000000.log"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 'X' }), first + 8);
+        }
+
+        MappedSpool reopened = new MappedSpool(dir, 4096, 1 << 20);
+
+        assertThat(reopened.writeOffset()).isEqualTo(first);
+        assertThat(readAll(reopened, 0)).containsExactly("complete");
+        reopened.append(bytes("after"));
+        assertThat(readAll(reopened, 0)).containsExactly("complete", "after");
+    }
+
+    @Test
+    void append_shouldThrow_whenBacklogIsFull() {
+        MappedSpool spool = new MappedSpool(dir, 4096, 64);
+        spool.append(new byte[40]);
+
+        assertThatThrownBy(() -> spool.append(new byte[40])).isInstanceOf(SpoolFullException.class);
+    }
+
+    private static List<String> readAll(MappedSpool spool, long offset) {
+        List<String> records = new ArrayList<>();
+        MappedSpool.Record record;
+        while ((record = spool.read(offset)) != null) {
+            records.add(new String(record.payload(), StandardCharsets.UTF_8));
+            offset = record.nextOffset();
+        }
+        return records;
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().startsWith("spool-")).count();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,314 @@
+package com.meesho.smssender.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import com.meesho.smssender.dispatch.CircuitBreaker;
+import com.meesho.smssender.dispatch.DispatchEngine;
+import com.meesho.smssender.dispatch.DispatchSettings;
+import com.meesho.smssender.dispatch.Priority;
+import com.meesho.smssender.dto.KafkaSmsData;
+import com.meesho.smssender.exception.DispatchRejectedException;
+import com.meesho.smssender.metrics.SmsMetrics;
+import com.meesho.smssender.status.DeliveryStatusCache;
+import com.meesho.smssender.status.DeliveryStatusCache.State;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OutboxTest {
+
+    private final SmsMetrics metrics = new SmsMetrics(new SimpleMeterRegistry());
+
+    @TempDir
+    Path dir;
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<Long, Object> kafkaTemplate = mock(KafkaTemplate.class);
+
+    private final AtomicInteger gatewayCalls = new AtomicInteger();
+
+    // Small batches and short waits, so tests drain and stop quickly.
+    private static final OutboxSettings SETTINGS = OutboxSettings.DEFAULTS.withDrainBatch(64, 1000)
+        .withFlushIntervalMs(10).withRetryBackoffMs(10).withDrainTimeoutMs(1000).withPerRecipientOrder(false);
+
+    private static final DispatchSettings DISPATCH = DispatchSettings.DEFAULTS.withConcurrency(4, 0)
+        .withQueueCapacity(16).withCompletionThreads(1).withDrainTimeoutMs(1000);
+
+    private final DispatchEngine dispatchEngine = new DispatchEngine((mobileNumber, message) -> {
+        gatewayCalls.incrementAndGet();
+        return CompletableFuture.completedFuture(null);
+    }, metrics, new CircuitBreaker(), DISPATCH);
+
+    private MappedSpool spool;
+
+    private Outbox outbox;
+
+    @BeforeEach
+    void setUp() {
+        CompletableFuture<SendResult<Long, Object>> sent = CompletableFuture.completedFuture(null);
+        when(kafkaTemplate.send(anyString(), anyLong(), any())).thenReturn(sent);
+        spool = new MappedSpool(dir, 4096, 1 << 20);
+        outbox = new Outbox(Priority.STANDARD, "sms-topic", null, spool, kafkaTemplate, dispatchEngine, metrics, SETTINGS,
+            null);
+        dispatchEngine.start();
+        outbox.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        outbox.stop();
+        dispatchEngine.stop();
+    }
+
+    @Test
+    void append_shouldDeliverThroughGateway_andCommit() {
+        KafkaSmsData event = new KafkaSmsData("9876543210", "Hello", "SUCCESS");
+
+        outbox.append(event);
+
+        verify(kafkaTemplate, timeout(2000)).send("sms-topic", 9876543210L, event);
+        awaitTrue(() -> spool.backlogBytes() == 0);
+        assertThat(gatewayCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void append_shouldProduceAuditEvents_withoutGateway() {
+        KafkaSmsData event = new KafkaSmsData("9876543210", "Hello", "BLOCKED");
+
+        outbox.append(event);
+
+        verify(kafkaTemplate, timeout(2000)).send("sms-topic", 9876543210L, event);
+        assertThat(gatewayCalls.get()).isZero();
+    }
+
+    @Test
+    void drain_shouldRetryFailedProduce_withoutCallingGatewayAgain() {
+        CompletableFuture<SendResult<Long, Object>> sent = CompletableFuture.completedFuture(null);
+        when(kafkaTemplate.send(anyString(), anyLong(), any()))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+            .thenReturn(sent);
+        KafkaSmsData event = new KafkaSmsData("9876543210", "Hello", "SUCCESS");
+
+        outbox.append(event);
+
+        verify(kafkaTemplate, timeout(2000).times(2)).send("sms-topic", 9876543210L, event);
+        awaitTrue(() -> spool.backlogBytes() == 0);
+        assertThat(gatewayCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void append_shouldReject_whenSpoolIsFull() {
+        outbox.stop();
+        MappedSpool tiny = new MappedSpool(dir.resolve("tiny"), 4096, 32);
+        Outbox full = new Outbox(Priority.STANDARD, "sms-topic", null, tiny, kafkaTemplate, dispatchEngine, metrics, SETTINGS,
+            null);
+        full.append(new KafkaSmsData("9876543210", "Hello", "SUCCESS"));
+
+        assertThatThrownBy(() -> full.append(new KafkaSmsData("9876543210", "Hello", "SUCCESS")))
+            .isInstanceOf(DispatchRejectedException.class)
+            .hasMessage("Outbox is full, retry later.");
+        verify(kafkaTemplate, times(0)).send(anyString(), anyLong(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void drain_shouldRedirectToRetryTopic_whenGatewayCircuitIsOpen() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1, 0.5, 60_000, 1);
+        breaker.record(false);
+        DispatchEngine tripped = new DispatchEngine((mobileNumber, message) -> {
+            gatewayCalls.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }, metrics, breaker, DISPATCH.withMinConcurrency(1));
+        tripped.start();
+        CompletableFuture<SendResult<Long, Object>> sent = CompletableFuture.completedFuture(null);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(sent);
+        MappedSpool otpSpool = new MappedSpool(dir.resolve("otp"), 4096, 1 << 20);
+        Outbox redirecting = new Outbox(Priority.OTP, "sms-topic-otp", "sms-topic-retry", otpSpool, kafkaTemplate,
+            tripped, metrics, SETTINGS, null);
+        redirecting.start();
+        KafkaSmsData event = new KafkaSmsData("9876543210", "Hello", "SUCCESS");
+
+        redirecting.append(event);
+
+        ArgumentCaptor<ProducerRecord<Long, Object>> record = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, timeout(2000)).send(record.capture());
+        assertThat(record.getValue().topic()).isEqualTo("sms-topic-retry");
+        assertThat(record.getValue().key()).isEqualTo(9876543210L);
+        assertThat(record.getValue().value()).isEqualTo(event);
+        assertThat(new String(record.getValue().headers().lastHeader(Outbox.LANE_HEADER).value(), StandardCharsets.US_ASCII))
+            .isEqualTo("otp");
+        awaitTrue(() -> otpSpool.backlogBytes() == 0);
+        assertThat(gatewayCalls.get()).isZero();
+        redirecting.stop();
+        tripped.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void drain_shouldRedirectToRetryTopic_whenGatewayCallFails() {
+        DispatchEngine failing = new DispatchEngine((mobileNumber, message) -> {
+            gatewayCalls.incrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalStateException("provider 500"));
+        }, metrics, new CircuitBreaker(), DISPATCH);
+        failing.start();
+        CompletableFuture<SendResult<Long, Object>> sent = CompletableFuture.completedFuture(null);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(sent);
+        MappedSpool bulkSpool = new MappedSpool(dir.resolve("bulk"), 4096, 1 << 20);
+        Outbox redirecting = new Outbox(Priority.BULK, "sms-topic-bulk", "sms-topic-retry-1s", bulkSpool, kafkaTemplate,
+            failing, metrics, SETTINGS, null);
+        redirecting.start();
+        KafkaSmsData event = new KafkaSmsData("9876543210", "Hello", "SUCCESS");
+
+        redirecting.append(event);
+
+        ArgumentCaptor<ProducerRecord<Long, Object>> record = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, timeout(2000)).send(record.capture());
+        assertThat(record.getValue().topic()).isEqualTo("sms-topic-retry-1s");
+        assertThat(new String(record.getValue().headers().lastHeader(Outbox.LANE_HEADER).value(), StandardCharsets.US_ASCII))
+            .isEqualTo("bulk");
+        awaitTrue(() -> bulkSpool.backlogBytes() == 0);
+        assertThat(gatewayCalls.get()).isEqualTo(1);
+        verify(kafkaTemplate, times(0)).send(anyString(), anyLong(), any());
+        redirecting.stop();
+        failing.stop();
+    }
+
+    @Test
+    void drain_shouldProduceInAppendOrder_whenEarlierGatewayCallToSameNumberIsSlower() {
+        DispatchEngine uneven = new DispatchEngine((mobileNumber, message) -> {
+            gatewayCalls.incrementAndGet();
+            // The first message answers long after the second would have.
+            return "first".equals(message)
+                ? CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS))
+                : CompletableFuture.completedFuture(null);
+        }, metrics, new CircuitBreaker(), DISPATCH);
+        uneven.start();
+        MappedSpool orderedSpool = new MappedSpool(dir.resolve("ordered"), 4096, 1 << 20);
+        Outbox ordered = new Outbox(Priority.STANDARD, "sms-topic", null, orderedSpool, kafkaTemplate, uneven, metrics,
+            SETTINGS.withPerRecipientOrder(true), null);
+        ordered.start();
+        KafkaSmsData first = new KafkaSmsData("9876543210", "first", "SUCCESS");
+        KafkaSmsData second = new KafkaSmsData("9876543210", "second", "SUCCESS");
+
+        ordered.append(first);
+        ordered.append(second);
+
+        ArgumentCaptor<Object> produced = ArgumentCaptor.forClass(Object.class);
+        verify(kafkaTemplate, timeout(2000).times(2)).send(anyString(), anyLong(), produced.capture());
+        assertThat(produced.getAllValues()).containsExactly(first, second);
+        awaitTrue(() -> orderedSpool.backlogBytes() == 0);
+        ordered.stop();
+        uneven.stop();
+    }
+
+    @Test
+    void drain_shouldDropRepeatedText_withinCoalescingWindow() {
+        outbox.stop();
+        MappedSpool coalescingSpool = new MappedSpool(dir.resolve("coalescing"), 4096, 1 << 20);
+        Outbox coalescing = new Outbox(Priority.STANDARD, "sms-topic", null, coalescingSpool, kafkaTemplate,
+            dispatchEngine, metrics, SETTINGS.withPerRecipientOrder(true).withCoalesceMs(60_000), null);
+        coalescing.start();
+        KafkaSmsData hello = new KafkaSmsData("9876543210", "Hello", "SUCCESS");
+        KafkaSmsData bye = new KafkaSmsData("9876543210", "Bye", "SUCCESS");
+
+        coalescing.append(hello);
+        coalescing.append(hello);
+        coalescing.append(new KafkaSmsData("9876543211", "Hello", "SUCCESS"));
+        coalescing.append(bye);
+
+        verify(kafkaTemplate, timeout(2000)).send("sms-topic", 9876543210L, bye);
+        awaitTrue(() -> coalescingSpool.backlogBytes() == 0);
+        verify(kafkaTemplate, times(1)).send("sms-topic", 9876543210L, hello);
+        assertThat(gatewayCalls.get()).isEqualTo(3);
+        coalescing.stop();
+    }
+
+    @Test
+    void drain_shouldStillSend_whenDispatchWasRejectedWithinCoalescingWindow() {
+        outbox.stop();
+        CompletableFuture<Void> held = new CompletableFuture<>();
+        // One call at a time and room for one more, so a third message is pushed back and read again.
+        DispatchEngine narrow = new DispatchEngine((mobileNumber, message) ->
+            "held".equals(message) ? held : CompletableFuture.completedFuture(null), metrics, new CircuitBreaker(),
+            DISPATCH.withConcurrency(1, 0).withQueueCapacity(1));
+        narrow.start();
+        MappedSpool coalescingSpool = new MappedSpool(dir.resolve("rejected"), 4096, 1 << 20);
+        Outbox coalescing = new Outbox(Priority.STANDARD, "sms-topic", null, coalescingSpool, kafkaTemplate,
+            narrow, metrics, SETTINGS.withPerRecipientOrder(true).withCoalesceMs(60_000), null);
+        coalescing.start();
+        KafkaSmsData hello = new KafkaSmsData("9876543212", "Hello", "SUCCESS");
+
+        coalescing.append(new KafkaSmsData("9876543210", "held", "SUCCESS"));
+        coalescing.append(new KafkaSmsData("9876543211", "queued", "SUCCESS"));
+        coalescing.append(hello);
+        awaitTrue(() -> narrow.queued() == 1);
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        held.complete(null);
+
+        verify(kafkaTemplate, timeout(2000)).send("sms-topic", 9876543212L, hello);
+        awaitTrue(() -> coalescingSpool.backlogBytes() == 0);
+        coalescing.stop();
+        narrow.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void append_shouldTrackSuccessEvent_untilDelivered() {
+        outbox.stop();
+        DeliveryStatusCache statuses = new DeliveryStatusCache(16);
+        CompletableFuture<SendResult<Long, Object>> sent = CompletableFuture.completedFuture(null);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(sent);
+        MappedSpool trackedSpool = new MappedSpool(dir.resolve("tracked"), 4096, 1 << 20);
+        Outbox tracking = new Outbox(Priority.STANDARD, "sms-topic", null, trackedSpool, kafkaTemplate,
+            dispatchEngine, metrics, SETTINGS.withPerRecipientOrder(true), statuses);
+        KafkaSmsData event = new KafkaSmsData("9876543210", "Hello", "SUCCESS", "otp", Map.of("code", "1"));
+
+        long id = tracking.append(event);
+        long untracked = tracking.append(new KafkaSmsData("9876543210", "Hello", "BLOCKED"));
+
+        assertThat(statuses.find(id).state()).isEqualTo(State.ENQUEUED);
+        assertThat(untracked).isEqualTo(DeliveryStatusCache.NO_ID);
+        tracking.start();
+        ArgumentCaptor<ProducerRecord<Long, Object>> record = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, timeout(2000)).send(record.capture());
+        assertThat(record.getValue().value()).isEqualTo(event);
+        assertThat(new String(record.getValue().headers().lastHeader(Outbox.ID_HEADER).value(), StandardCharsets.US_ASCII))
+            .isEqualTo(DeliveryStatusCache.format(id));
+        awaitTrue(() -> statuses.find(id).state() == State.DELIVERED);
+        tracking.stop();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.meesho.smssender.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+
+class RateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    private final RedisSlidingWindowLimiter cluster = new RedisSlidingWindowLimiter(null, null, false, 0, 0);
+
+    @Test
+    void acquire_shouldAllowBurst_thenThrottleNumber_untilRefilled() {
+        RateLimiter limiter = new RateLimiter(TokenBucket.of(1, 3), null, null, cluster, clock::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.acquire(9876543210L, null)).isNull();
+        }
+        assertThat(limiter.acquire(9876543210L, null)).isEqualTo(RateLimiter.Scope.NUMBER);
+        assertThat(limiter.acquire(1234567890L, null)).isNull();
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(limiter.acquire(9876543210L, null)).isNull();
+        assertThat(limiter.acquire(9876543210L, null)).isEqualTo(RateLimiter.Scope.NUMBER);
+        assertThat(limiter.throttledCount(RateLimiter.Scope.NUMBER)).isEqualTo(2);
+    }
+
+    @Test
+    void acquire_shouldLimitPerClient_andSkipClientLimit_whenClientUnknown() {
+        RateLimiter limiter = new RateLimiter(null, TokenBucket.of(1, 2), null, cluster, clock::get);
+
+        assertThat(limiter.acquire(1L, "shop-a")).isNull();
+        assertThat(limiter.acquire(2L, "shop-a")).isNull();
+        assertThat(limiter.acquire(3L, "shop-a")).isEqualTo(RateLimiter.Scope.CLIENT);
+        assertThat(limiter.acquire(3L, "shop-b")).isNull();
+        assertThat(limiter.acquire(3L, null)).isNull();
+    }
+
+    @Test
+    void acquire_shouldReturnNumberToken_whenGlobalLimitRejects() {
+        RateLimiter limiter = new RateLimiter(TokenBucket.of(1, 1), null, TokenBucket.of(1, 1), cluster, clock::get);
+
+        assertThat(limiter.acquire(1L, null)).isNull();
+        assertThat(limiter.acquire(2L, null)).isEqualTo(RateLimiter.Scope.GLOBAL);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        // The rejected send did not use up number 2's only token.
+        assertThat(limiter.acquire(2L, null)).isNull();
+    }
+
+    @Test
+    void acquire_shouldReturnLocalToken_whenClusterRejects() {
+        RedisSlidingWindowLimiter redis = mock(RedisSlidingWindowLimiter.class);
+        when(redis.tryAcquire(9876543210L)).thenReturn(false);
+        RateLimiter limiter = new RateLimiter(TokenBucket.of(1, 1), null, null, redis, clock::get);
+
+        assertThat(limiter.acquire(9876543210L, null)).isEqualTo(RateLimiter.Scope.CLUSTER);
+        // The local token was handed back, so the next attempt is again decided by Redis.
+        assertThat(limiter.acquire(9876543210L, null)).isEqualTo(RateLimiter.Scope.CLUSTER);
+    }
+
+    @Test
+    void acquire_shouldNotCallRedis_whenLocalLimitRejects() {
+        RedisSlidingWindowLimiter redis = mock(RedisSlidingWindowLimiter.class);
+        when(redis.tryAcquire(9876543210L)).thenReturn(true);
+        RateLimiter limiter = new RateLimiter(TokenBucket.of(1, 1), null, null, redis, clock::get);
+
+        assertThat(limiter.acquire(9876543210L, null)).isNull();
+        assertThat(limiter.acquire(9876543210L, null)).isEqualTo(RateLimiter.Scope.NUMBER);
+        verify(redis, times(1)).tryAcquire(9876543210L);
+    }
+
+    @Test
+    void acquireReactive_shouldReturnLocalToken_whenClusterRejects() {
+        RedisSlidingWindowLimiter redis = mock(RedisSlidingWindowLimiter.class);
+        when(redis.isEnabled()).thenReturn(true);
+        when(redis.tryAcquireReactive(9876543210L)).thenReturn(Mono.just(false));
+        RateLimiter limiter = new RateLimiter(TokenBucket.of(1, 1), null, TokenBucket.of(1, 1), redis, clock::get);
+
+        assertThat(limiter.acquireReactive(9876543210L, null).block()).isEqualTo(RateLimiter.Scope.CLUSTER);
+        assertThat(limiter.acquireReactive(9876543210L, null).block()).isEqualTo(RateLimiter.Scope.CLUSTER);
+        verify(redis, never()).tryAcquire(anyLong());
+    }
+
+    @Test
+    void acquireReactive_shouldCompleteEmpty_whenAllowed_andSkipRedis_whenLocalLimitRejects() {
+        RedisSlidingWindowLimiter redis = mock(RedisSlidingWindowLimiter.class);
+        when(redis.isEnabled()).thenReturn(true);
+        when(redis.tryAcquireReactive(9876543210L)).thenReturn(Mono.just(true));
+        RateLimiter limiter = new RateLimiter(TokenBucket.of(1, 1), null, null, redis, clock::get);
+
+        assertThat(limiter.acquireReactive(9876543210L, null).blockOptional()).isEmpty();
+        assertThat(limiter.acquireReactive(9876543210L, null).block()).isEqualTo(RateLimiter.Scope.NUMBER);
+        verify(redis, times(1)).tryAcquireReactive(9876543210L);
+    }
+
+    @Test
+    void sweep_shouldDropOnlyRefilledBuckets() {
+        RateLimiter limiter = new RateLimiter(TokenBucket.of(1, 5), null, null, cluster, clock::get);
+        limiter.acquire(1L, null);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        limiter.acquire(2L, null);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+
+        limiter.sweep();
+
+        assertThat(limiter.trackedNumbers()).isEqualTo(1);
+    }
+
+    @Test
+    void of_shouldDisableLimit_whenRateIsNotPositive() {
+        assertThat(TokenBucket.of(0, 5)).isNull();
+    }
+}
@@ -0,0 +1,49 @@
+package com.meesho.smssender.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import reactor.core.publisher.Flux;
+
+class RedisSlidingWindowLimiterTest {
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate = mock(ReactiveStringRedisTemplate.class);
+
+    private final RedisSlidingWindowLimiter limiter =
+        new RedisSlidingWindowLimiter(redisTemplate, reactiveRedisTemplate, true, 60_000, 30);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void tryAcquireReactive_shouldRunScriptOnReactiveClient() {
+        when(reactiveRedisTemplate.execute(any(RedisScript.class), eq(List.of("sms_rate:9876543210")), anyList()))
+            .thenReturn(Flux.just(1L), Flux.just(0L));
+
+        assertThat(limiter.tryAcquireReactive(9876543210L).block()).isTrue();
+        assertThat(limiter.tryAcquireReactive(9876543210L).block()).isFalse();
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void tryAcquireReactive_shouldAllow_whenRedisIsUnavailable() {
+        when(reactiveRedisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+            .thenReturn(Flux.error(new RedisConnectionFailureException("down")));
+
+        assertThat(limiter.tryAcquireReactive(9876543210L).block()).isTrue();
+    }
+}
@@ -0,0 +1,91 @@
+package com.meesho.smssender.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+class BlocklistFilterTest {
+
+    private final BlocklistLayout layout = new BlocklistLayout(BlocklistLayout.Mode.SET, 0);
+
+    @Test
+    void countingFilter_shouldForgetRemovedNumbers_andStayNearTargetRate() {
+        CountingBloomFilter bloom = new CountingBloomFilter(10_000, 0.01);
+        for (long n = 9000000000L; n < 9000010000L; n++) {
+            bloom.add(n);
+        }
+        bloom.remove(9000000000L);
+        bloom.remove(8000000000L);
+
+        int falsePositives = 0;
+        for (long n = 7000000000L; n < 7000100000L; n++) {
+            if (bloom.mightContain(n)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(bloom.mightContain(9000000000L)).isFalse();
+        assertThat(bloom.mightContain(9000009999L)).isTrue();
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+        assertThat(bloom.expectedFalsePositiveRate()).isBetween(0.005, 0.015);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rebuild_shouldLoadBlocklist_andAnswerOnlyOnceSubscribed() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        SetOperations<String, String> sets = mock(SetOperations.class);
+        Cursor<String> cursor = mock(Cursor.class);
+        when(redis.executePipelined(any(RedisCallback.class))).thenReturn(List.of(2L));
+        when(redis.opsForSet()).thenReturn(sets);
+        when(sets.scan(anyString(), any())).thenReturn(cursor);
+        when(cursor.hasNext()).thenReturn(true, true, false, true, true, false);
+        when(cursor.next()).thenReturn("9876543210", "1234567890", "9876543210", "1234567890");
+        BlocklistFilter filter = new BlocklistFilter(redis, layout, true, 1000, 0.01, 60_000, 1000, "r1");
+
+        filter.rebuild();
+        assertThat(filter.mightBeBlocked(5555555555L)).isTrue();
+
+        filter.onSubscribed();
+        filter.rebuild();
+        assertThat(filter.mightBeBlocked(9876543210L)).isTrue();
+        assertThat(filter.mightBeBlocked(5555555555L)).isFalse();
+
+        filter.onUnsubscribed();
+        assertThat(filter.mightBeBlocked(5555555555L)).isTrue();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void apply_shouldFollowOtherReplicas_andIgnoreOwnUpdates() {
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        SetOperations<String, String> sets = mock(SetOperations.class);
+        when(redis.executePipelined(any(RedisCallback.class))).thenReturn(List.of(0L));
+        when(redis.opsForSet()).thenReturn(sets);
+        when(sets.scan(anyString(), any())).thenReturn(mock(Cursor.class));
+        BlocklistFilter filter = new BlocklistFilter(redis, layout, true, 1000, 0.01, 60_000, 1000, "r1");
+        filter.onSubscribed();
+        filter.rebuild();
+
+        filter.apply(BlocklistUpdate.parse("B:r2:9876543210,1234567890"));
+        filter.apply(BlocklistUpdate.parse("B:r1:5555555555"));
+        filter.apply(BlocklistUpdate.parse("U:r2:1234567890"));
+        filter.apply(BlocklistUpdate.parse("6666666666"));
+
+        assertThat(filter.mightBeBlocked(9876543210L)).isTrue();
+        assertThat(filter.mightBeBlocked(1234567890L)).isFalse();
+        assertThat(filter.mightBeBlocked(5555555555L)).isFalse();
+        assertThat(filter.mightBeBlocked(6666666666L)).isTrue();
+        assertThat(BlocklistUpdate.parse("X:r2:9876543210")).isNull();
+    }
+}
@@ -0,0 +1,62 @@
+package com.meesho.smssender.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+@ExtendWith(MockitoExtension.class)
+class BlocklistMigrationTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    private final BlocklistLayout layout = new BlocklistLayout(BlocklistLayout.Mode.MIGRATING, 16);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void migrateBatch_shouldMoveEachMemberToItsShard() {
+        BlocklistMigration migration = new BlocklistMigration(redisTemplate, layout, 2, 0, 0);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.distinctRandomMembers(BlocklistLayout.LEGACY_KEY, 2))
+            .thenReturn(new LinkedHashSet<>(List.of("9876543210", "1234567890")));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(2L);
+
+        assertThat(migration.migrateBatch()).isEqualTo(2);
+
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        verify(redisTemplate).execute(any(RedisScript.class), keys.capture(), eq("9876543210"), eq("1234567890"));
+        assertThat(keys.getValue()).containsExactly(BlocklistLayout.LEGACY_KEY,
+            layout.key(9876543210L), layout.key(1234567890L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void migrateBatch_shouldReportDone_whenLegacySetIsEmpty() {
+        BlocklistMigration migration = new BlocklistMigration(redisTemplate, layout, 2, 0, 0);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.distinctRandomMembers(BlocklistLayout.LEGACY_KEY, 2)).thenReturn(Set.of());
+
+        assertThat(migration.migrateBatch()).isEqualTo(-1);
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+}
@@ -0,0 +1,110 @@
+package com.meesho.smssender.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class BlocklistNearCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final BlocklistNearCache cache = new BlocklistNearCache(64, 1000, clock::get);
+
+    @Test
+    void get_shouldReturnCachedStatus_untilTtlExpires() {
+        cache.put(9876543210L, true, cache.generation());
+        cache.put(1234567890L, false, cache.generation());
+
+        assertThat(cache.get(9876543210L)).isTrue();
+        assertThat(cache.get(1234567890L)).isFalse();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        assertThat(cache.get(9876543210L)).isNull();
+        assertThat(cache.get(1234567890L)).isNull();
+    }
+
+    @Test
+    void get_shouldCacheZeroNumber() {
+        cache.put(0L, true, cache.generation());
+
+        assertThat(cache.get(0L)).isTrue();
+    }
+
+    @Test
+    void invalidate_shouldDropEntry() {
+        cache.put(9876543210L, false, cache.generation());
+
+        cache.invalidate(9876543210L);
+
+        assertThat(cache.get(9876543210L)).isNull();
+    }
+
+    @Test
+    void put_shouldBeIgnored_whenInvalidatedDuringLookup() {
+        long generation = cache.generation();
+        cache.invalidate(9876543210L);
+
+        cache.put(9876543210L, false, generation);
+
+        assertThat(cache.get(9876543210L)).isNull();
+    }
+
+    @Test
+    void put_shouldEvictWithinBucket_whenCapacityIsExceeded() {
+        for (long n = 0; n < 10_000; n++) {
+            cache.put(6000000000L + n, true, cache.generation());
+        }
+
+        assertThat(cache.get(6000000000L + 9_999)).isTrue();
+        assertThat(cache.hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void get_shouldHandleTickWrapAround() {
+        clock.set(TimeUnit.MILLISECONDS.toNanos((1L << 29) - 10));
+        cache.put(9876543210L, true, cache.generation());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(cache.get(9876543210L)).isTrue();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(cache.get(9876543210L)).isNull();
+    }
+
+    @Test
+    void get_shouldMiss_longAfterExpiry_pastHalfTheTickRange() {
+        cache.put(9876543210L, true, cache.generation());
+
+        // Expired 2^28 ms and a bit ago: the wrapped difference alone would read as not yet expired.
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000 + (1L << 28) + 500));
+
+        assertThat(cache.get(9876543210L)).isNull();
+    }
+
+    @Test
+    void get_shouldMiss_whenIdleForAlmostAFullTickRange() {
+        cache.put(9876543210L, true, cache.generation());
+
+        // Lands inside the entry's TTL window once the 29-bit tick wraps.
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos((1L << 29) - 500));
+
+        assertThat(cache.get(9876543210L)).isNull();
+        cache.put(9876543210L, false, cache.generation());
+        assertThat(cache.get(9876543210L)).isFalse();
+    }
+
+    @Test
+    void get_shouldKeepFreshEntries_acrossPeriodicSweeps() {
+        for (int i = 0; i < 8; i++) {
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(BlocklistNearCache.SWEEP_INTERVAL_MS - 200));
+            cache.put(9876543210L, true, cache.generation());
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(400));
+
+            assertThat(cache.get(9876543210L)).isTrue();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.meesho.smssender.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class InMemoryBlockedNumberRepositoryTest {
+
+    private final InMemoryBlockedNumberRepository repository = new InMemoryBlockedNumberRepository();
+
+    @Test
+    void blockNumber_shouldReturn1OnlyTheFirstTime() {
+        assertThat(repository.blockNumber(9876543210L)).isEqualTo(1L);
+        assertThat(repository.blockNumber(9876543210L)).isEqualTo(0L);
+        assertThat(repository.isBlocked(9876543210L)).isTrue();
+        assertThat(repository.isBlockedReactive(9876543210L).block()).isTrue();
+    }
+
+    @Test
+    void areBlocked_shouldLineUpWithInput() {
+        repository.blockNumber(5555555555L);
+
+        assertThat(repository.areBlocked(new long[] {9876543210L, 5555555555L})).containsExactly(false, true);
+        assertThat(repository.areBlockedReactive(new long[] {5555555555L}).block()).containsExactly(true);
+    }
+
+    @Test
+    void blockNumbers_shouldReportRepeatedNumberAsNewOnce() {
+        boolean[] changed = repository.blockNumbers(new long[] {9876543210L, 9876543210L, 5555555555L, 0}, 3);
+
+        assertThat(changed).containsExactly(true, false, true);
+        assertThat(repository.unblockNumbers(new long[] {9876543210L, 1234567890L}, 2)).containsExactly(true, false);
+        assertThat(repository.unblockNumber(5555555555L)).isEqualTo(1L);
+        assertThat(repository.isBlocked(5555555555L)).isFalse();
+    }
+}
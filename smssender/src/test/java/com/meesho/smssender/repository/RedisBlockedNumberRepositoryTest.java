@@ -0,0 +1,344 @@
+package com.meesho.smssender.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisSetCommands;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ReactiveSetOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+class RedisBlockedNumberRepositoryTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    @Mock
+    private ReactiveStringRedisTemplate reactiveRedisTemplate;
+
+    @Mock
+    private ReactiveSetOperations<String, String> reactiveSetOperations;
+
+    @Spy
+    private BlocklistNearCache nearCache = new BlocklistNearCache(1024, 60_000);
+
+    @Spy
+    private BlocklistLayout layout = new BlocklistLayout(BlocklistLayout.Mode.SET, 0);
+
+    @Spy
+    private BlocklistFilter filter = new BlocklistFilter(null, layout, false, 1000, 0.01, 60_000, 1000, "r1");
+
+    @InjectMocks
+    private RedisBlockedNumberRepository repository;
+
+    @Test
+    void isBlocked_shouldReturnTrue_whenInRedis() {
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.isMember(anyString(), eq("1234567890"))).thenReturn(true);
+
+        Boolean result = repository.isBlocked(1234567890L);
+        assertThat(result).isTrue();
+    }
+
+    @Test
+    void blockNumber_shouldReturn1_whenAdded() {
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.add(anyString(), eq("1234567890"))).thenReturn(1L);
+
+        Long result = repository.blockNumber(1234567890L);
+        assertThat(result).isEqualTo(1L);
+    }
+
+    @Test
+    void unblockNumber_shouldReturn1_whenRemoved() {
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.remove(anyString(), eq("1234567890"))).thenReturn(1L);
+
+        Long result = repository.unblockNumber(1234567890L);
+        assertThat(result).isEqualTo(1L);
+    }
+
+    @Test
+    void isBlocked_shouldServeFromNearCache_onRepeatedLookup() {
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.isMember(anyString(), eq("1234567890"))).thenReturn(false);
+
+        assertThat(repository.isBlocked(1234567890L)).isFalse();
+        assertThat(repository.isBlocked(1234567890L)).isFalse();
+
+        verify(setOperations, times(1)).isMember(anyString(), eq("1234567890"));
+        assertThat(nearCache.hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void blockNumber_shouldInvalidateNearCacheAndPublish_whenAdded() {
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.isMember(anyString(), eq("1234567890"))).thenReturn(false, true);
+        when(setOperations.add(anyString(), eq("1234567890"))).thenReturn(1L);
+
+        assertThat(repository.isBlocked(1234567890L)).isFalse();
+        repository.blockNumber(1234567890L);
+
+        assertThat(repository.isBlocked(1234567890L)).isTrue();
+        verify(redisTemplate).convertAndSend(RedisBlockedNumberRepository.INVALIDATION_CHANNEL, "B:r1:1234567890");
+    }
+
+    @Test
+    void unblockNumber_shouldNotPublish_whenNothingChanged() {
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.remove(anyString(), eq("1234567890"))).thenReturn(0L);
+
+        repository.unblockNumber(1234567890L);
+
+        verify(redisTemplate, never()).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    void areBlocked_shouldResolveCacheMissesWithSingleLookup() {
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.isMember(anyString(), eq("1234567890"))).thenReturn(true);
+        when(setOperations.isMember(anyString(), eq((Object) "9876543210"), eq((Object) "5555555555")))
+            .thenReturn(Map.of("9876543210", false, "5555555555", true));
+        repository.isBlocked(1234567890L);
+
+        boolean[] result = repository.areBlocked(new long[] { 1234567890L, 9876543210L, 5555555555L });
+
+        assertThat(result).containsExactly(true, false, true);
+        assertThat(repository.isBlocked(5555555555L)).isTrue();
+        verify(setOperations, never()).isMember(anyString(), eq("5555555555"));
+    }
+
+    @Test
+    void isBlocked_shouldReadOnlyShardKey_whenSharded() {
+        BlocklistLayout sharded = useLayout(BlocklistLayout.Mode.SHARDED);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.isMember(sharded.key(9876543210L), "9876543210")).thenReturn(true);
+
+        assertThat(repository.isBlocked(9876543210L)).isTrue();
+        verify(setOperations, never()).isMember(eq(BlocklistLayout.LEGACY_KEY), any());
+    }
+
+    @Test
+    void isBlocked_shouldFallBackToLegacySet_whenMigrating() {
+        BlocklistLayout migrating = useLayout(BlocklistLayout.Mode.MIGRATING);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.isMember(migrating.key(9876543210L), "9876543210")).thenReturn(false);
+        when(setOperations.isMember(BlocklistLayout.LEGACY_KEY, "9876543210")).thenReturn(true);
+
+        assertThat(repository.isBlocked(9876543210L)).isTrue();
+    }
+
+    @Test
+    void blockNumber_shouldMoveFromLegacySet_andReportNoChange_whenMigrating() {
+        BlocklistLayout migrating = useLayout(BlocklistLayout.Mode.MIGRATING);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.add(migrating.key(9876543210L), "9876543210")).thenReturn(1L);
+        when(setOperations.remove(BlocklistLayout.LEGACY_KEY, "9876543210")).thenReturn(1L);
+
+        assertThat(repository.blockNumber(9876543210L)).isEqualTo(0L);
+        verify(redisTemplate, never()).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    void unblockNumber_shouldClearBothLayouts_whenMigrating() {
+        BlocklistLayout migrating = useLayout(BlocklistLayout.Mode.MIGRATING);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.remove(migrating.key(9876543210L), "9876543210")).thenReturn(0L);
+        when(setOperations.remove(BlocklistLayout.LEGACY_KEY, "9876543210")).thenReturn(1L);
+
+        assertThat(repository.unblockNumber(9876543210L)).isEqualTo(1L);
+        verify(redisTemplate).convertAndSend(RedisBlockedNumberRepository.INVALIDATION_CHANNEL, "U:r1:9876543210");
+    }
+
+    @Test
+    void areBlocked_shouldPipelineOneLookupPerShard_whenMigrating() {
+        BlocklistLayout migrating = useLayout(BlocklistLayout.Mode.MIGRATING);
+        Map<String, Set<String>> redis = Map.of(
+            migrating.key(9000000001L), Set.of("9000000001"),
+            BlocklistLayout.LEGACY_KEY, Set.of("9000000003"));
+        List<String> queriedKeys = new ArrayList<>();
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisSetCommands setCommands = mock(RedisSetCommands.class);
+        when(connection.setCommands()).thenReturn(setCommands);
+        List<Object> replies = new ArrayList<>();
+        when(setCommands.sMIsMember(any(byte[].class), any(byte[][].class))).thenAnswer(invocation -> {
+            String key = new String(invocation.<byte[]>getArgument(0), StandardCharsets.US_ASCII);
+            queriedKeys.add(key);
+            List<Boolean> flags = new ArrayList<>();
+            for (int i = 1; i < invocation.getArguments().length; i++) {
+                String member = new String(invocation.<byte[]>getArgument(i), StandardCharsets.US_ASCII);
+                flags.add(redis.getOrDefault(key, Set.of()).contains(member));
+            }
+            replies.add(flags);
+            return null;
+        });
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+            return replies;
+        });
+
+        long[] numbers = new long[] { 9000000001L, 9000000002L, 9000000003L, 9000000004L };
+        boolean[] result = repository.areBlocked(numbers);
+
+        assertThat(result).containsExactly(true, false, true, false);
+        assertThat(queriedKeys).last().isEqualTo(BlocklistLayout.LEGACY_KEY);
+        assertThat(queriedKeys).doesNotHaveDuplicates();
+        verify(redisTemplate, times(1)).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    void shard_shouldStayInRange_andSpreadConsecutiveNumbers() {
+        BlocklistLayout sharded = new BlocklistLayout(BlocklistLayout.Mode.SHARDED, 64);
+        int[] counts = new int[64];
+        for (long n = 9000000000L; n < 9000064000L; n++) {
+            counts[sharded.shard(n)]++;
+        }
+
+        for (int count : counts) {
+            assertThat(count).isBetween(800, 1200);
+        }
+        assertThat(sharded.key(9000000000L)).isEqualTo("blocked_numbers:" + sharded.shard(9000000000L));
+    }
+
+    @Test
+    void blockNumbers_shouldPipelineChunk_andPublishOneInvalidation() {
+        RedisConnection connection = mock(RedisConnection.class);
+        RedisSetCommands setCommands = mock(RedisSetCommands.class);
+        when(connection.setCommands()).thenReturn(setCommands);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+            return List.of(1L, 0L, 1L);
+        });
+        nearCache.put(9876543210L, false, nearCache.generation());
+
+        boolean[] changed = repository.blockNumbers(new long[] { 9876543210L, 1234567890L, 5555555555L, 0L }, 3);
+
+        assertThat(changed).containsExactly(true, false, true);
+        verify(setCommands, times(3)).sAdd(any(byte[].class), any(byte[].class));
+        verify(redisTemplate).convertAndSend(RedisBlockedNumberRepository.INVALIDATION_CHANNEL, "B:r1:9876543210,5555555555");
+        assertThat(nearCache.get(9876543210L)).isNull();
+    }
+
+    @Test
+    void isBlocked_shouldSkipRedis_whenFilterRulesNumberOut() {
+        readyFilter().onBlocked(1234567890L);
+
+        assertThat(repository.isBlocked(9876543210L)).isFalse();
+        verify(redisTemplate, never()).opsForSet();
+    }
+
+    @Test
+    void isBlocked_shouldConfirmFilterHitInRedis_andForgetUnblockedNumber() {
+        BlocklistFilter ready = readyFilter();
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.isMember(anyString(), eq("1234567890"))).thenReturn(true);
+        when(setOperations.add(anyString(), eq("1234567890"))).thenReturn(1L);
+        when(setOperations.remove(anyString(), eq("1234567890"))).thenReturn(1L);
+
+        repository.blockNumber(1234567890L);
+        assertThat(repository.isBlocked(1234567890L)).isTrue();
+        repository.unblockNumber(1234567890L);
+
+        assertThat(ready.mightBeBlocked(1234567890L)).isFalse();
+    }
+
+    @Test
+    void areBlocked_shouldOnlyLookUpFilterHits() {
+        readyFilter().onBlocked(5555555555L);
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.isMember(anyString(), any(Object[].class))).thenReturn(Map.of("5555555555", true));
+
+        boolean[] result = repository.areBlocked(new long[] { 9876543210L, 5555555555L });
+
+        assertThat(result).containsExactly(false, true);
+    }
+
+    @Test
+    void isBlockedReactive_shouldFallBackToLegacySet_andCacheResult_whenMigrating() {
+        BlocklistLayout migrating = useLayout(BlocklistLayout.Mode.MIGRATING);
+        when(reactiveRedisTemplate.opsForSet()).thenReturn(reactiveSetOperations);
+        when(reactiveSetOperations.isMember(migrating.key(9876543210L), "9876543210")).thenReturn(Mono.just(false));
+        when(reactiveSetOperations.isMember(BlocklistLayout.LEGACY_KEY, "9876543210")).thenReturn(Mono.just(true));
+
+        assertThat(repository.isBlockedReactive(9876543210L).block()).isTrue();
+        assertThat(repository.isBlockedReactive(9876543210L).block()).isTrue();
+
+        verify(reactiveSetOperations, times(1)).isMember(BlocklistLayout.LEGACY_KEY, "9876543210");
+    }
+
+    @Test
+    void areBlockedReactive_shouldMergeShardAndLegacyReplies_whenMigrating() {
+        BlocklistLayout migrating = useLayout(BlocklistLayout.Mode.MIGRATING);
+        long[] numbers = { 9876543210L, 1234567890L };
+        when(reactiveRedisTemplate.opsForSet()).thenReturn(reactiveSetOperations);
+        when(reactiveSetOperations.isMember(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            Map<Object, Boolean> reply = new HashMap<>();
+            for (int i = 1; i < invocation.getArguments().length; i++) {
+                Object member = invocation.getArgument(i);
+                reply.put(member, key.equals(BlocklistLayout.LEGACY_KEY) ? member.equals("1234567890")
+                    : key.equals(migrating.key(9876543210L)) && member.equals("9876543210"));
+            }
+            return Mono.just(reply);
+        });
+
+        boolean[] blocked = repository.areBlockedReactive(numbers).block();
+
+        assertThat(blocked).containsExactly(true, true);
+        verify(reactiveSetOperations).isMember(eq(BlocklistLayout.LEGACY_KEY), any(Object[].class));
+        assertThat(nearCache.get(1234567890L)).isTrue();
+    }
+
+    // A filter that has been built from an empty blocklist while subscribed.
+    @SuppressWarnings("unchecked")
+    private BlocklistFilter readyFilter() {
+        StringRedisTemplate filterRedis = mock(StringRedisTemplate.class);
+        SetOperations<String, String> filterSets = mock(SetOperations.class);
+        when(filterRedis.executePipelined(any(RedisCallback.class))).thenReturn(List.of(0L));
+        when(filterRedis.opsForSet()).thenReturn(filterSets);
+        Cursor<String> empty = mock(Cursor.class);
+        when(filterSets.scan(anyString(), any())).thenReturn(empty);
+        BlocklistFilter ready = new BlocklistFilter(filterRedis, layout, true, 1000, 0.01, 60_000, 1000, "r1");
+        ready.onSubscribed();
+        ready.rebuild();
+        ReflectionTestUtils.setField(repository, "filter", ready);
+        return ready;
+    }
+
+    private BlocklistLayout useLayout(BlocklistLayout.Mode mode) {
+        BlocklistLayout layout = new BlocklistLayout(mode, 16);
+        ReflectionTestUtils.setField(repository, "layout", layout);
+        return layout;
+    }
+}
@@ -0,0 +1,213 @@
+package com.meesho.smssender.retry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.SendResult;
+
+import com.meesho.smssender.dispatch.DispatchEngine;
+import com.meesho.smssender.dispatch.Priority;
+import com.meesho.smssender.dto.KafkaSmsData;
+import com.meesho.smssender.exception.DispatchRejectedException;
+import com.meesho.smssender.exception.GatewayUnavailableException;
+import com.meesho.smssender.metrics.SmsMetrics;
+import com.meesho.smssender.outbox.Outbox;
+import com.meesho.smssender.outbox.OutboxRouter;
+import com.meesho.smssender.status.DeliveryStatusCache;
+import com.meesho.smssender.status.DeliveryStatusCache.State;
+import com.meesho.smssender.util.TimerWheel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SuppressWarnings("unchecked")
+class RetryListenerTest {
+
+    private static final KafkaSmsData EVENT = new KafkaSmsData("9876543210", "Hello", "SUCCESS");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RetryTiers tiers = new RetryTiers(true, "sms-topic-retry", new long[] {10, 300}, "sms-topic-dlt");
+    private final KafkaTemplate<Long, Object> kafkaTemplate = mock(KafkaTemplate.class);
+    private final DispatchEngine dispatchEngine = mock(DispatchEngine.class);
+    private final OutboxRouter router = mock(OutboxRouter.class);
+    private final Acknowledgment ack = mock(Acknowledgment.class);
+    private final TimerWheel wheel = new TimerWheel("test-retry-wheel", 1, 64);
+    private final DeliveryStatusCache statuses = new DeliveryStatusCache(16);
+
+    private RetryListener listener;
+
+    @BeforeEach
+    void setUp() {
+        CompletableFuture<SendResult<Long, Object>> sent = CompletableFuture.completedFuture(null);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(sent);
+        when(router.topic(Priority.OTP)).thenReturn("sms-topic-otp");
+        listener = new RetryListener(tiers, mock(ConsumerFactory.class), kafkaTemplate, dispatchEngine, router,
+            new SmsMetrics(registry), statuses, wheel, 10, false);
+        listener.bindTo(registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        wheel.close();
+    }
+
+    @Test
+    void onMessage_shouldProduceToLaneTopic_whenGatewaySucceeds() {
+        when(dispatchEngine.dispatch(Priority.OTP, "9876543210", "Hello")).thenReturn(CompletableFuture.completedFuture(null));
+
+        listener.onMessage(0, record("sms-topic-retry-10ms", System.currentTimeMillis()), ack);
+
+        verify(ack, timeout(2000)).acknowledge();
+        ProducerRecord<Long, Object> sent = sent();
+        assertThat(sent.topic()).isEqualTo("sms-topic-otp");
+        assertThat(sent.key()).isEqualTo(9876543210L);
+        assertThat(sent.value()).isEqualTo(EVENT);
+        assertThat(count("sms.retry.attempts", "10ms")).isEqualTo(1);
+        assertThat(count("sms.retry.succeeded", "10ms")).isEqualTo(1);
+        assertThat(registry.get("sms.retry.scheduled").tag("tier", "10ms").gauge().value()).isZero();
+    }
+
+    @Test
+    void onMessage_shouldForwardToNextTier_whenGatewayFails() {
+        when(dispatchEngine.dispatch(Priority.OTP, "9876543210", "Hello"))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("provider 500")));
+
+        listener.onMessage(0, record("sms-topic-retry-10ms", System.currentTimeMillis()), ack);
+
+        verify(ack, timeout(2000)).acknowledge();
+        ProducerRecord<Long, Object> sent = sent();
+        assertThat(sent.topic()).isEqualTo("sms-topic-retry-300ms");
+        assertThat(header(sent, Outbox.LANE_HEADER)).isEqualTo("otp");
+        assertThat(header(sent, RetryListener.ERROR_HEADER)).contains("provider 500");
+        assertThat(count("sms.retry.failed", "10ms")).isEqualTo(1);
+        assertThat(count("sms.retry.dead_lettered", null)).isZero();
+    }
+
+    @Test
+    void onMessage_shouldDeadLetter_whenLastTierFails() {
+        when(dispatchEngine.dispatch(Priority.OTP, "9876543210", "Hello"))
+            .thenThrow(new GatewayUnavailableException("Gateway circuit is open."));
+
+        listener.onMessage(1, record("sms-topic-retry-300ms", System.currentTimeMillis() - 1000), ack);
+
+        verify(ack, timeout(2000)).acknowledge();
+        assertThat(sent().topic()).isEqualTo("sms-topic-dlt");
+        assertThat(count("sms.retry.failed", "300ms")).isEqualTo(1);
+        assertThat(count("sms.retry.dead_lettered", null)).isEqualTo(1);
+    }
+
+    @Test
+    void onMessage_shouldWaitForTierDelay() {
+        when(dispatchEngine.dispatch(Priority.OTP, "9876543210", "Hello")).thenReturn(CompletableFuture.completedFuture(null));
+
+        listener.onMessage(1, record("sms-topic-retry-300ms", System.currentTimeMillis()), ack);
+
+        verify(dispatchEngine, after(100).never()).dispatch(any(Priority.class), any(), any());
+        verify(ack, timeout(2000)).acknowledge();
+    }
+
+    @Test
+    void onMessage_shouldRetryProduce_withoutCallingGatewayAgain() {
+        CompletableFuture<SendResult<Long, Object>> sent = CompletableFuture.completedFuture(null);
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+            .thenReturn(sent);
+        when(dispatchEngine.dispatch(Priority.OTP, "9876543210", "Hello")).thenReturn(CompletableFuture.completedFuture(null));
+
+        listener.onMessage(0, record("sms-topic-retry-10ms", System.currentTimeMillis()), ack);
+
+        verify(ack, timeout(2000)).acknowledge();
+        verify(kafkaTemplate, times(2)).send(any(ProducerRecord.class));
+        verify(dispatchEngine, times(1)).dispatch(any(Priority.class), any(), any());
+    }
+
+    @Test
+    void onMessage_shouldWaitWithoutUsingTier_whenLaneIsSaturated() {
+        when(dispatchEngine.dispatch(Priority.OTP, "9876543210", "Hello"))
+            .thenThrow(new DispatchRejectedException("Dispatch queue full"))
+            .thenReturn(CompletableFuture.completedFuture(null));
+
+        listener.onMessage(0, record("sms-topic-retry-10ms", System.currentTimeMillis()), ack);
+
+        verify(ack, timeout(2000)).acknowledge();
+        assertThat(sent().topic()).isEqualTo("sms-topic-otp");
+        assertThat(count("sms.retry.attempts", "10ms")).isEqualTo(1);
+    }
+
+    @Test
+    void onMessage_shouldMarkTrackedMessageDelivered_andKeepItsId() {
+        long id = statuses.track();
+        statuses.update(id, State.RETRYING);
+        when(dispatchEngine.dispatch(Priority.OTP, "9876543210", "Hello")).thenReturn(CompletableFuture.completedFuture(null));
+
+        listener.onMessage(0, record("sms-topic-retry-10ms", System.currentTimeMillis(), id), ack);
+
+        verify(ack, timeout(2000)).acknowledge();
+        assertThat(header(sent(), Outbox.ID_HEADER)).isEqualTo(DeliveryStatusCache.format(id));
+        assertThat(statuses.find(id).state()).isEqualTo(State.DELIVERED);
+    }
+
+    @Test
+    void onMessage_shouldMarkTrackedMessageFailed_whenDeadLettered() {
+        long id = statuses.track();
+        when(dispatchEngine.dispatch(Priority.OTP, "9876543210", "Hello"))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("provider 500")));
+
+        listener.onMessage(1, record("sms-topic-retry-300ms", System.currentTimeMillis() - 1000, id), ack);
+
+        verify(ack, timeout(2000)).acknowledge();
+        assertThat(header(sent(), Outbox.ID_HEADER)).isEqualTo(DeliveryStatusCache.format(id));
+        assertThat(statuses.find(id).state()).isEqualTo(State.FAILED);
+    }
+
+    private static ConsumerRecord<Long, KafkaSmsData> record(String topic, long timestamp) {
+        return record(topic, timestamp, DeliveryStatusCache.NO_ID);
+    }
+
+    private static ConsumerRecord<Long, KafkaSmsData> record(String topic, long timestamp, long id) {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(Outbox.LANE_HEADER, "otp".getBytes(StandardCharsets.US_ASCII));
+        if (id != DeliveryStatusCache.NO_ID) {
+            headers.add(Outbox.ID_HEADER, DeliveryStatusCache.format(id).getBytes(StandardCharsets.US_ASCII));
+        }
+        return new ConsumerRecord<>(topic, 0, 0, timestamp, TimestampType.CREATE_TIME, 8, 32, 9876543210L, EVENT,
+            headers, Optional.empty());
+    }
+
+    private ProducerRecord<Long, Object> sent() {
+        ArgumentCaptor<ProducerRecord<Long, Object>> record = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, timeout(2000).atLeastOnce()).send(record.capture());
+        return record.getValue();
+    }
+
+    private static String header(ProducerRecord<Long, Object> record, String name) {
+        return new String(record.headers().lastHeader(name).value(), StandardCharsets.UTF_8);
+    }
+
+    private double count(String name, String tier) {
+        return tier == null
+            ? registry.get(name).functionCounter().count()
+            : registry.get(name).tag("tier", tier).functionCounter().count();
+    }
+}
@@ -0,0 +1,177 @@
+package com.meesho.smssender.schedule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.meesho.smssender.dto.SmsRequest;
+import com.meesho.smssender.dto.SmsResponse;
+import com.meesho.smssender.schedule.ScheduledSendStore.Claim;
+import com.meesho.smssender.schedule.ScheduledSendStore.Membership;
+import com.meesho.smssender.service.SmsService;
+import com.meesho.smssender.util.TimerWheel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ScheduledSendDispatcherTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final SmsResponse ENQUEUED = new SmsResponse("ENQUEUED", "Message enqueued for delivery");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ScheduledSendStore store = mock(ScheduledSendStore.class);
+    private final SmsService smsService = mock(SmsService.class);
+    private final TimerWheel wheel = new TimerWheel("test-schedule-wheel", 1, 64);
+
+    private ScheduledSendDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        when(store.partitions()).thenReturn(4);
+        dispatcher = new ScheduledSendDispatcher(store, smsService, wheel, 10, 30_000, 50, 5_000, "b", false);
+        dispatcher.bindTo(registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.stop();
+        wheel.close();
+    }
+
+    @Test
+    void drain_shouldSendDueMessagesAndAck() {
+        claim(0, "m1", "m2");
+        stored("m1", "client-a", "9876543210");
+        stored("m2", "client-a", "5555555555");
+        when(smsService.sendSmsBatch(eq("client-a"), anyList())).thenReturn(List.of(ENQUEUED, ENQUEUED));
+
+        dispatcher.drain(0);
+
+        verify(smsService).sendSmsBatch("client-a",
+            List.of(new SmsRequest("9876543210", "Hello"), new SmsRequest("5555555555", "Hello")));
+        verify(store).ack(0, List.of("m1", "m2"));
+        assertThat(registry.get("sms.schedule.released").functionCounter().count()).isEqualTo(2);
+        assertThat(registry.get("sms.schedule.lateness").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void drain_shouldSendEachClientsMessagesUnderItsOwnLimits() {
+        claim(0, "m1", "m2");
+        stored("m1", "client-a", "9876543210");
+        stored("m2", "client-b", "5555555555");
+        when(smsService.sendSmsBatch(anyString(), anyList())).thenReturn(List.of(ENQUEUED));
+
+        dispatcher.drain(0);
+
+        verify(smsService).sendSmsBatch("client-a", List.of(new SmsRequest("9876543210", "Hello")));
+        verify(smsService).sendSmsBatch("client-b", List.of(new SmsRequest("5555555555", "Hello")));
+        verify(store).ack(0, List.of("m1", "m2"));
+    }
+
+    @Test
+    void drain_shouldLeaveRejectedMessagesClaimed_whenLaneIsFull() {
+        claim(0, "m1", "m2");
+        stored("m1", "client-a", "9876543210");
+        stored("m2", "client-a", "5555555555");
+        when(smsService.sendSmsBatch(eq("client-a"), anyList()))
+            .thenReturn(List.of(ENQUEUED, new SmsResponse("REJECTED", "Outbox is full")));
+
+        dispatcher.drain(0);
+
+        verify(store).ack(0, List.of("m1"));
+        assertThat(registry.get("sms.schedule.deferred").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void drain_shouldReleaseThrottledMessages_onALaterLease() {
+        claim(0, "m1", "m2", "m3");
+        stored("m1", "client-a", "9876543210");
+        stored("m2", "client-a", "5555555555");
+        stored("m3", "client-a", "4444444444");
+        when(smsService.sendSmsBatch(eq("client-a"), anyList()))
+            .thenReturn(List.of(ENQUEUED, new SmsResponse("THROTTLED", "Too many messages for this client"),
+                new SmsResponse("IN_PROGRESS", "A send with this idempotency key is still in progress")));
+
+        dispatcher.drain(0);
+
+        verify(store).ack(0, List.of("m1"));
+        assertThat(registry.get("sms.schedule.deferred").functionCounter().count()).isEqualTo(2);
+
+        // The lease lapsed, so the same two are claimed again and now go through.
+        claim(0, "m2", "m3");
+        when(smsService.sendSmsBatch("client-a",
+                List.of(new SmsRequest("5555555555", "Hello"), new SmsRequest("4444444444", "Hello"))))
+            .thenReturn(List.of(ENQUEUED, ENQUEUED));
+
+        dispatcher.drain(0);
+
+        verify(store).ack(0, List.of("m2", "m3"));
+        assertThat(registry.get("sms.schedule.released").functionCounter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void drain_shouldAckNothing_whenSendFails() {
+        claim(0, "m1");
+        stored("m1", "client-a", "9876543210");
+        when(smsService.sendSmsBatch(eq("client-a"), anyList())).thenThrow(new IllegalStateException("Redis is down"));
+
+        dispatcher.drain(0);
+
+        verify(store).ack(0, List.of());
+        assertThat(registry.get("sms.schedule.deferred").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void drain_shouldDropUnreadableMessages() {
+        claim(0, "garbage");
+        when(store.read("garbage")).thenThrow(new IllegalArgumentException("Unreadable scheduled send"));
+
+        dispatcher.drain(0);
+
+        verify(store).ack(0, List.of("garbage"));
+        verify(smsService, never()).sendSmsBatch(anyString(), anyList());
+    }
+
+    @Test
+    void start_shouldDrainOnlyPartitionsOfItsRank() {
+        when(store.heartbeat("b", 5_000)).thenReturn(new Membership(NOW, List.of("a", "b")));
+        when(store.dueTimes()).thenReturn(new long[] {NOW, NOW, NOW, NOW});
+        when(store.claim(anyInt(), anyInt(), anyLong())).thenReturn(new Claim(NOW, -1, List.of()));
+
+        dispatcher.start();
+
+        verify(store, timeout(2000)).claim(1, 10, 30_000);
+        verify(store, timeout(2000)).claim(3, 10, 30_000);
+        verify(store, after(200).never()).claim(eq(0), anyInt(), anyLong());
+        verify(store, never()).claim(eq(2), anyInt(), anyLong());
+        assertThat(registry.get("sms.schedule.partitions").gauge().value()).isEqualTo(2);
+
+        dispatcher.stop();
+
+        verify(store).leave("b");
+    }
+
+    private void claim(int p, String... members) {
+        when(store.claim(p, 10, 30_000)).thenReturn(new Claim(NOW, -1, List.of(members)));
+    }
+
+    private void stored(String member, String clientId, String mobileNumber) {
+        when(store.read(member)).thenReturn(ScheduledSms.of(member, clientId, NOW - 100,
+            new SmsRequest(mobileNumber, "Hello")));
+    }
+}
@@ -0,0 +1,85 @@
+package com.meesho.smssender.schedule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meesho.smssender.dto.SmsRequest;
+
+import io.lettuce.core.cluster.SlotHash;
+
+@ExtendWith(MockitoExtension.class)
+class ScheduledSendStoreTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    private ScheduledSendStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new ScheduledSendStore(redisTemplate, new ObjectMapper(), 16);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void claim_shouldKeepEachScriptInOneClusterSlot_andIndexOutside() {
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(invocation ->
+            ((RedisScript<?>) invocation.getArgument(0)).getResultType() == List.class
+                ? List.of(Long.toString(NOW), Long.toString(NOW + 500), "m1")
+                : NOW + 500);
+
+        ScheduledSendStore.Claim claim = store.claim(3, 10, 30_000);
+
+        assertThat(claim.members()).containsExactly("m1");
+        verify(zSetOperations).add(ScheduledSendStore.INDEX_KEY, "3", NOW + 500);
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        verify(redisTemplate, atLeastOnce()).execute(any(RedisScript.class), keys.capture(), any(Object[].class));
+        assertThat(keys.getAllValues()).allSatisfy(this::assertOneSlot);
+        assertThat(keys.getAllValues().get(0)).containsExactly("sms_scheduled:{3}", "sms_scheduled:{3}:claimed");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void add_shouldMoveIndexEntryToEarliestSend() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(NOW, 1L);
+        ScheduledSms send = ScheduledSms.of("s1", "client-a", NOW, new SmsRequest("9876543210", "Hello"));
+        int p = store.partition(9876543210L);
+
+        store.add(List.of(send));
+
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        verify(redisTemplate, atLeastOnce()).execute(any(RedisScript.class), keys.capture(), any(Object[].class));
+        assertThat(keys.getAllValues()).containsExactly(List.of("sms_scheduled:{" + p + "}"),
+            List.of(ScheduledSendStore.INDEX_KEY));
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(ScheduledSendStore.INDEX_KEY)),
+            eq(Integer.toString(p)), eq(Long.toString(NOW)));
+    }
+
+    private void assertOneSlot(List<String> keys) {
+        assertThat(keys).extracting(SlotHash::getSlot).containsOnly(SlotHash.getSlot(keys.get(0)));
+    }
+}
@@ -2,45 +2,100 @@ package com.meesho.smssender.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
-
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.meesho.smssender.dispatch.Priority;
+import com.meesho.smssender.dto.BulkBlockResponse;
+import com.meesho.smssender.dto.KafkaSmsData;
+import com.meesho.smssender.dto.SmsRequest;
+import com.meesho.smssender.dto.SmsResponse;
+import com.meesho.smssender.dto.SmsStatusResponse;
 import com.meesho.smssender.exception.BlockedNumberException;
+import com.meesho.smssender.exception.DispatchRejectedException;
+import com.meesho.smssender.exception.DuplicateRequestException;
+import com.meesho.smssender.exception.MessageNotFoundException;
+import com.meesho.smssender.exception.ThrottledException;
 import com.meesho.smssender.exception.ValidationException;
+import com.meesho.smssender.idempotency.IdempotencyCache;
+import com.meesho.smssender.idempotency.IdempotencyCache.Claim;
+import com.meesho.smssender.idempotency.IdempotencyCache.State;
+import com.meesho.smssender.metrics.SmsMetrics;
+import com.meesho.smssender.outbox.OutboxRouter;
+import com.meesho.smssender.ratelimit.RateLimiter;
 import com.meesho.smssender.repository.BlockedNumberRepository;
+import com.meesho.smssender.schedule.ScheduledSendStore;
+import com.meesho.smssender.schedule.ScheduledSms;
+import com.meesho.smssender.status.DeliveryStatusCache;
+import com.meesho.smssender.template.MessageTemplate;
+import com.meesho.smssender.template.TemplateRegistry;
+import com.meesho.smssender.util.SmsSegments;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
 
 @ExtendWith(MockitoExtension.class)
 class SmsServiceTest {
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @Mock
     private BlockedNumberRepository blockedNumberRepo;
 
     @Mock
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private KafkaTemplate<Long, Object> kafkaTemplate;
 
-    @Spy
-    private ObjectMapper objectMapper = new ObjectMapper(); // Use real object mapper
+    @Mock
+    private OutboxRouter outbox;
+
+    @Mock
+    private RateLimiter rateLimiter;
 
     @Mock
-    private Dummy dummy;
+    private IdempotencyCache idempotency;
+
+    @Mock
+    private TemplateRegistry templates;
+
+    @Mock
+    private ScheduledSendStore scheduledSends;
+
+    @Spy
+    private SmsMetrics metrics = new SmsMetrics(meterRegistry);
+
+    @Spy
+    private DeliveryStatusCache statuses = new DeliveryStatusCache(16);
 
     @InjectMocks
     private SmsService smsService;
@@ -48,8 +103,14 @@ class SmsServiceTest {
     @BeforeEach
     void setUp() {
         // Mock KafkaTemplate return to avoid NPE on .whenComplete() chains
-        CompletableFuture<SendResult<String, String>> future = CompletableFuture.completedFuture(null);
-        lenient().when(kafkaTemplate.send(anyString(), anyString(), anyString())).thenReturn(future);
+        CompletableFuture<SendResult<Long, Object>> future = CompletableFuture.completedFuture(null);
+        lenient().when(kafkaTemplate.send(anyString(), anyLong(), any())).thenReturn(future);
+        lenient().when(rateLimiter.acquireReactive(anyLong(), any())).thenReturn(Mono.empty());
+        ReflectionTestUtils.setField(smsService, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(smsService, "bulkChunkSize", 2);
+        ReflectionTestUtils.setField(smsService, "maxSegments", 3);
+        ReflectionTestUtils.setField(smsService, "scheduleEnabled", true);
+        ReflectionTestUtils.setField(smsService, "maxScheduleDelayMs", Duration.ofDays(30).toMillis());
     }
 
     // --- Validation Tests ---
@@ -84,48 +145,523 @@ class SmsServiceTest {
 
     @Test
     void validate_shouldThrowException_whenMessageIsTooLong() {
-        String longMsg = "a".repeat(201);
+        String longMsg = "a".repeat(460);
         assertThatThrownBy(() -> smsService.sendSms("1234567890", longMsg))
             .isInstanceOf(ValidationException.class)
-            .hasMessage("Message is too long (Max 160 chars).");
+            .hasMessage("Message is too long (4 segments, Max 3).");
+    }
+
+    @Test
+    void validate_shouldCountUcs2Segments_whenMessageIsNotGsm() {
+        assertThat(smsService.validateMessage("a".repeat(459))).isEqualTo(new SmsSegments(SmsSegments.Encoding.GSM7, 459, 3));
+        assertThatThrownBy(() -> smsService.validateMessage("नमस्ते ".repeat(30)))
+            .isInstanceOf(ValidationException.class)
+            .hasMessage("Message is too long (4 segments, Max 3).");
+    }
+
+    @Test
+    void sendSms_shouldRecordSegments_inEventAndMetrics() {
+        String message = "Order shipped ✓ ".repeat(5);
+        when(blockedNumberRepo.isBlocked(1234567890L)).thenReturn(false);
+
+        smsService.sendSms("1234567890", message);
+
+        verify(outbox).append(Priority.STANDARD, new KafkaSmsData("1234567890", message, "SUCCESS", null, null, 2, "UCS2"));
+        assertThat(meterRegistry.get("sms.segments").tag("encoding", "ucs2").counter().count()).isEqualTo(2.0);
     }
 
     // --- Send SMS Logic ---
 
     @Test
-    void sendSms_shouldThrowExceptionAndLogToKafka_whenUserIsBlocked() throws JsonProcessingException {
+    void sendSms_shouldReturnTrackedId_whenMessageIsSpooled() {
+        when(blockedNumberRepo.isBlocked(1234567890L)).thenReturn(false);
+        when(outbox.append(eq(Priority.STANDARD), any(KafkaSmsData.class))).thenReturn(0x2aL);
+
+        assertThat(smsService.sendSms("1234567890", "Hello")).isEqualTo("000000000000002a");
+    }
+
+    @Test
+    void sendSms_shouldThrowExceptionAndLogToKafka_whenUserIsBlocked() {
         // Arrange
         String mobile = "9999999999";
         String msg = "Hello";
-        when(blockedNumberRepo.isBlocked(mobile)).thenReturn(true);
+        when(blockedNumberRepo.isBlocked(9999999999L)).thenReturn(true);
 
         // Act & Assert
         assertThatThrownBy(() -> smsService.sendSms(mobile, msg))
             .isInstanceOf(BlockedNumberException.class)
             .hasMessageContaining("is blocked");
 
-        // Verify Kafka was called with "BLOCKED" status
-        verify(kafkaTemplate).send(eq("sms-topic"), eq(mobile), anyString());
-        // Verify we didn't start the async dummy process
-        verify(dummy, never()).dummy();
+        // Verify only the "BLOCKED" event was spooled, not the message itself
+        verify(outbox).append(Priority.STANDARD, event(mobile, msg, "BLOCKED"));
+        verify(outbox, never()).append(Priority.STANDARD, event(mobile, msg, "SUCCESS"));
     }
 
     @Test
-    void sendSms_shouldTriggerAsyncChain_whenUserIsNotBlocked() {
+    void sendSms_shouldSpoolMessage_whenUserIsNotBlocked() {
         // Arrange
         String mobile = "1234567890";
         String msg = "Hello";
-        when(blockedNumberRepo.isBlocked(mobile)).thenReturn(false);
+        when(blockedNumberRepo.isBlocked(1234567890L)).thenReturn(false);
 
         // Act
         smsService.sendSms(mobile, msg);
 
         // Assert
-        // Since the method is void and triggers async, we primarily verify valid inputs don't crash 
-        // and that it *attempts* to call the dummy service.
-        // Note: verifying execution inside CompletableFuture.runAsync in unit tests is non-deterministic 
-        // without complex thread mocking, but checking the repo call ensures we passed the guard clause.
-        verify(blockedNumberRepo).isBlocked(mobile);
+        verify(blockedNumberRepo).isBlocked(1234567890L);
+        verify(outbox).append(Priority.STANDARD, event(mobile, msg, "SUCCESS"));
+    }
+
+    @Test
+    void sendSms_shouldSpoolToRequestedLane() {
+        when(blockedNumberRepo.isBlocked(1234567890L)).thenReturn(false);
+
+        smsService.sendSms(null, "1234567890", "Your OTP is 1234", "OTP");
+
+        verify(outbox).append(Priority.OTP, event("1234567890", "Your OTP is 1234", "SUCCESS"));
+    }
+
+    @Test
+    void sendSms_shouldThrowException_whenPriorityIsUnknown() {
+        assertThatThrownBy(() -> smsService.sendSms(null, "1234567890", "Hello", "urgent"))
+            .isInstanceOf(ValidationException.class)
+            .hasMessage("Unknown priority 'urgent' (expected otp, standard or bulk).");
+        verifyNoInteractions(outbox);
+    }
+
+    @Test
+    void sendSmsReactive_shouldSpoolMessage_whenUserIsNotBlocked() {
+        when(blockedNumberRepo.isBlockedReactive(1234567890L)).thenReturn(Mono.just(false));
+
+        smsService.sendSmsReactive(null, new SmsRequest("1234567890", "Hello")).block();
+
+        verify(outbox).append(Priority.STANDARD, event("1234567890", "Hello", "SUCCESS"));
+        verify(blockedNumberRepo, never()).isBlocked(anyLong());
+    }
+
+    @Test
+    void sendSmsReactive_shouldSignalBlocked_andLogToKafka_whenUserIsBlocked() {
+        when(blockedNumberRepo.isBlockedReactive(9999999999L)).thenReturn(Mono.just(true));
+
+        assertThatThrownBy(() -> smsService.sendSmsReactive(null, new SmsRequest("9999999999", "Hello", "bulk")).block())
+            .isInstanceOf(BlockedNumberException.class);
+        verify(outbox).append(Priority.BULK, event("9999999999", "Hello", "BLOCKED"));
+    }
+
+    @Test
+    void sendSmsReactive_shouldSignalValidationError_withoutLookup() {
+        assertThatThrownBy(() -> smsService.sendSmsReactive(null, new SmsRequest("123", "Hello")).block())
+            .isInstanceOf(ValidationException.class);
+        verifyNoInteractions(blockedNumberRepo);
+    }
+
+    @Test
+    void sendSms_shouldPropagateRejection_whenOutboxIsFull() {
+        when(blockedNumberRepo.isBlocked(1234567890L)).thenReturn(false);
+        doThrow(new DispatchRejectedException("Outbox is full, retry later."))
+            .when(outbox).append(any(), any());
+
+        assertThatThrownBy(() -> smsService.sendSms("1234567890", "Hello"))
+            .isInstanceOf(DispatchRejectedException.class)
+            .hasMessage("Outbox is full, retry later.");
+    }
+
+    @Test
+    void sendSms_shouldThrowExceptionAndLogToKafka_whenThrottled() {
+        String mobile = "1234567890";
+        when(rateLimiter.acquire(1234567890L, "shop-a")).thenReturn(RateLimiter.Scope.NUMBER);
+
+        assertThatThrownBy(() -> smsService.sendSms("shop-a", mobile, "Hello"))
+            .isInstanceOf(ThrottledException.class)
+            .hasMessage(RateLimiter.Scope.NUMBER.message());
+
+        verify(outbox).append(Priority.STANDARD, event(mobile, "Hello", "THROTTLED"));
+        verify(blockedNumberRepo, never()).isBlocked(anyLong());
+        verify(outbox, never()).append(Priority.STANDARD, event(mobile, "Hello", "SUCCESS"));
+    }
+
+    @Test
+    void sendSms_shouldRecordStageLatencies_andOutcomes() {
+        when(blockedNumberRepo.isBlocked(1234567890L)).thenReturn(false);
+        when(blockedNumberRepo.isBlocked(9999999999L)).thenReturn(true);
+
+        smsService.sendSms("1234567890", "Hello");
+        assertThatThrownBy(() -> smsService.sendSms("9999999999", "Hello")).isInstanceOf(BlockedNumberException.class);
+        assertThatThrownBy(() -> smsService.sendSms("123", "Hello")).isInstanceOf(ValidationException.class);
+
+        assertThat(meterRegistry.get("sms.stage.latency").tag("stage", "validate").timer().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("sms.stage.latency").tag("stage", "blocklist").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("sms.messages").tag("outcome", "accepted").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("sms.messages").tag("outcome", "blocked").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("sms.messages").tag("outcome", "failed").counter().count()).isEqualTo(1);
+    }
+
+    // --- Idempotency ---
+
+    @Test
+    void sendSms_shouldRecordOutcome_whenKeyIsNew() {
+        Claim claim = new Claim("key-1", 7L, State.ACQUIRED);
+        when(idempotency.claim(eq("shop-a"), eq("key-1"), anyLong())).thenReturn(claim);
+        when(blockedNumberRepo.isBlocked(1234567890L)).thenReturn(false);
+        when(outbox.append(Priority.STANDARD, event("1234567890", "Hello", "SUCCESS"))).thenReturn(0x2aL);
+
+        smsService.sendSms("shop-a", new SmsRequest("1234567890", "Hello", null, "key-1"));
+
+        verify(idempotency).complete(claim, State.ENQUEUED, 0x2aL);
+    }
+
+    @Test
+    void sendSms_shouldReturnOriginalId_whenKeyIsReplayed_soItsStatusCanBePolled() {
+        long id = statuses.track();
+        when(idempotency.claim(eq("shop-a"), eq("key-1"), anyLong())).thenReturn(new Claim("key-1", 7L, State.ENQUEUED, id));
+
+        String replayed = smsService.sendSms("shop-a", new SmsRequest("1234567890", "Hello", null, "key-1"));
+
+        assertThat(replayed).isEqualTo(DeliveryStatusCache.format(id));
+        assertThat(smsService.status(replayed).status()).isEqualTo("ENQUEUED");
+        verifyNoInteractions(outbox, blockedNumberRepo);
+    }
+
+    @Test
+    void sendSms_shouldReturnWithoutSpooling_whenKeyWasAlreadyEnqueued() {
+        when(idempotency.claim(eq("shop-a"), eq("key-1"), anyLong())).thenReturn(new Claim("key-1", 7L, State.ENQUEUED));
+
+        smsService.sendSms("shop-a", new SmsRequest("1234567890", "Hello", null, "key-1"));
+
+        verifyNoInteractions(outbox, blockedNumberRepo, rateLimiter);
+        assertThat(meterRegistry.get("sms.messages").tag("outcome", "duplicate").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void sendSms_shouldReplayBlocked_withoutLoggingAgain() {
+        when(idempotency.claim(eq(null), eq("key-1"), anyLong())).thenReturn(new Claim("key-1", 7L, State.BLOCKED));
+
+        assertThatThrownBy(() -> smsService.sendSms(null, new SmsRequest("9999999999", "Hello", null, "key-1")))
+            .isInstanceOf(BlockedNumberException.class)
+            .hasMessage("The number 9999999999 is blocked.");
+        verifyNoInteractions(outbox, blockedNumberRepo);
+    }
+
+    @Test
+    void sendSms_shouldThrowConflict_whenKeyIsInProgress() {
+        when(idempotency.claim(eq(null), eq("key-1"), anyLong())).thenReturn(new Claim("key-1", 7L, State.IN_PROGRESS));
+
+        assertThatThrownBy(() -> smsService.sendSms(null, new SmsRequest("1234567890", "Hello", null, "key-1")))
+            .isInstanceOf(DuplicateRequestException.class);
+        verifyNoInteractions(outbox);
+    }
+
+    @Test
+    void sendSmsReactive_shouldSignalThrottled_withoutBlockingRateLimitCheck() {
+        when(rateLimiter.acquireReactive(1234567890L, "shop-a")).thenReturn(Mono.just(RateLimiter.Scope.CLUSTER));
+
+        assertThatThrownBy(() -> smsService.sendSmsReactive("shop-a", new SmsRequest("1234567890", "Hello")).block())
+            .isInstanceOf(ThrottledException.class)
+            .hasMessage(RateLimiter.Scope.CLUSTER.message());
+
+        verify(rateLimiter, never()).acquire(anyLong(), any());
+        verify(outbox).append(Priority.STANDARD, event("1234567890", "Hello", "THROTTLED"));
+        verify(blockedNumberRepo, never()).isBlockedReactive(anyLong());
+    }
+
+    @Test
+    void sendSms_shouldReleaseClaim_whenThrottled() {
+        Claim claim = new Claim("key-1", 7L, State.ACQUIRED);
+        when(idempotency.claim(eq(null), eq("key-1"), anyLong())).thenReturn(claim);
+        when(rateLimiter.acquire(1234567890L, null)).thenReturn(RateLimiter.Scope.NUMBER);
+
+        assertThatThrownBy(() -> smsService.sendSms(null, new SmsRequest("1234567890", "Hello", null, "key-1")))
+            .isInstanceOf(ThrottledException.class);
+        verify(idempotency).release(claim);
+        verify(idempotency, never()).complete(any(), any());
+    }
+
+    @Test
+    void sendSms_shouldThrowException_whenKeyIsTooLong() {
+        assertThatThrownBy(() -> smsService.sendSms(null, new SmsRequest("1234567890", "Hello", null, "k".repeat(129))))
+            .isInstanceOf(ValidationException.class)
+            .hasMessage("Idempotency key is too long (Max 128 chars).");
+        verifyNoInteractions(idempotency);
+    }
+
+    @Test
+    void sendSmsReactive_shouldReturnWithoutSpooling_whenKeyWasAlreadyEnqueued() {
+        when(idempotency.claimReactive(eq(null), eq("key-1"), anyLong()))
+            .thenReturn(Mono.just(new Claim("key-1", 7L, State.ENQUEUED, 0x2aL)));
+
+        String id = smsService.sendSmsReactive(null, new SmsRequest("1234567890", "Hello", null, "key-1")).block();
+
+        assertThat(id).isEqualTo("000000000000002a");
+        verifyNoInteractions(outbox, blockedNumberRepo);
+    }
+
+    @Test
+    void sendSmsBatch_shouldReplayDuplicateItems_andSendTheRest() {
+        List<SmsRequest> requests = List.of(
+            new SmsRequest("1234567890", "Hello", null, "key-1"),
+            new SmsRequest("9876543210", "Hello", null, "key-2"));
+        Claim fresh = new Claim("key-2", 7L, State.ACQUIRED);
+        when(idempotency.claim(eq(null), eq("key-1"), anyLong())).thenReturn(new Claim("key-1", 7L, State.ENQUEUED, 0x2aL));
+        when(idempotency.claim(eq(null), eq("key-2"), anyLong())).thenReturn(fresh);
+        when(blockedNumberRepo.areBlocked(new long[] { 9876543210L })).thenReturn(new boolean[] { false });
+
+        List<SmsResponse> results = smsService.sendSmsBatch(requests);
+
+        assertThat(results).extracting(SmsResponse::status).containsExactly("ENQUEUED", "ENQUEUED");
+        assertThat(results.get(0).id()).isEqualTo("000000000000002a");
+        verify(outbox, times(1)).append(any(), any());
+        verify(outbox).append(Priority.STANDARD, event("9876543210", "Hello", "SUCCESS"));
+        verify(idempotency).complete(fresh, State.ENQUEUED, 0L);
+    }
+
+    // --- Templates ---
+
+    @Test
+    void sendSms_shouldRenderTemplate_andSpoolTemplateWithParams() {
+        when(templates.find("otp")).thenReturn(MessageTemplate.compile("otp", "Your OTP is {code}"));
+        when(blockedNumberRepo.isBlocked(1234567890L)).thenReturn(false);
+
+        smsService.sendSms(null, new SmsRequest("1234567890", null, "otp", null, "otp", Map.of("code", "4821")));
+
+        verify(outbox).append(Priority.OTP,
+            event("1234567890", "Your OTP is 4821", "SUCCESS", "otp", Map.of("code", "4821")));
+    }
+
+    @Test
+    void sendSms_shouldThrowException_whenTemplateIsUnknown() {
+        assertThatThrownBy(() -> smsService.sendSms(null, new SmsRequest("1234567890", null, null, null, "nope", Map.of())))
+            .isInstanceOf(ValidationException.class)
+            .hasMessage("Unknown template 'nope'.");
+        verifyNoInteractions(outbox);
+    }
+
+    @Test
+    void sendSms_shouldThrowException_whenBothMessageAndTemplateAreSet() {
+        assertThatThrownBy(() -> smsService.sendSms(null, new SmsRequest("1234567890", "Hi", null, null, "otp", Map.of())))
+            .isInstanceOf(ValidationException.class)
+            .hasMessage("Set either message or templateId, not both.");
+    }
+
+    @Test
+    void sendSms_shouldValidateRenderedLength() {
+        ReflectionTestUtils.setField(smsService, "maxSegments", 1);
+        when(templates.find("long")).thenReturn(MessageTemplate.compile("long", "Hello {name}"));
+
+        assertThatThrownBy(() -> smsService.sendSms(null,
+                new SmsRequest("1234567890", null, null, null, "long", Map.of("name", "x".repeat(200)))))
+            .isInstanceOf(ValidationException.class)
+            .hasMessage("Message is too long (2 segments, Max 1).");
+    }
+
+    @Test
+    void sendSmsReactive_shouldRenderTemplate() {
+        when(templates.findReactive("otp")).thenReturn(Mono.just(MessageTemplate.compile("otp", "OTP {code}")));
+        when(blockedNumberRepo.isBlockedReactive(1234567890L)).thenReturn(Mono.just(false));
+
+        smsService.sendSmsReactive(null, new SmsRequest("1234567890", null, null, null, "otp", Map.of("code", "1"))).block();
+
+        verify(outbox).append(Priority.STANDARD,
+            event("1234567890", "OTP 1", "SUCCESS", "otp", Map.of("code", "1")));
+    }
+
+    @Test
+    void sendSmsBatchReactive_shouldLoadEachTemplateOnce() {
+        when(templates.findReactive("otp")).thenReturn(Mono.just(MessageTemplate.compile("otp", "OTP {code}")));
+        when(blockedNumberRepo.areBlockedReactive(new long[] { 1234567890L, 9876543210L }))
+            .thenReturn(Mono.just(new boolean[] { false, false }));
+
+        List<SmsResponse> results = smsService.sendSmsBatchReactive(null, List.of(
+            new SmsRequest("1234567890", null, null, null, "otp", Map.of("code", "1")),
+            new SmsRequest("9876543210", null, null, null, "otp", Map.of("code", "2")),
+            new SmsRequest("5555555555", null, null, null, "otp", Map.of()))).block();
+
+        assertThat(results).extracting(SmsResponse::status).containsExactly("ENQUEUED", "ENQUEUED", "FAILED");
+        assertThat(results.get(2).info()).isEqualTo("Missing template parameter 'code'.");
+        verify(templates, times(1)).findReactive("otp");
+    }
+
+    // --- Batch Send ---
+
+    @Test
+    void status_shouldReturnLatestState_fromMemory() {
+        long id = statuses.track();
+        statuses.update(id, DeliveryStatusCache.State.RETRYING);
+
+        SmsStatusResponse status = smsService.status(DeliveryStatusCache.format(id));
+
+        assertThat(status.id()).isEqualTo(DeliveryStatusCache.format(id));
+        assertThat(status.status()).isEqualTo("RETRYING");
+        assertThat(status.updatedAt()).isAfterOrEqualTo(status.acceptedAt());
+        verifyNoInteractions(blockedNumberRepo, idempotency);
+    }
+
+    @Test
+    void status_shouldThrowNotFound_whenIdIsUnknown() {
+        assertThatThrownBy(() -> smsService.status("00000000000000ff"))
+            .isInstanceOf(MessageNotFoundException.class)
+            .hasMessage("No recent message with id 00000000000000ff.");
+    }
+
+    @Test
+    void sendSmsBatch_shouldReturnPerItemStatus() {
+        List<SmsRequest> requests = List.of(
+            new SmsRequest("1234567890", "Hello"),
+            new SmsRequest("123", "Hello"),
+            new SmsRequest("9999999999", "Hello"));
+        when(blockedNumberRepo.areBlocked(new long[] { 1234567890L, 9999999999L }))
+            .thenReturn(new boolean[] { false, true });
+
+        List<SmsResponse> results = smsService.sendSmsBatch(requests);
+
+        assertThat(results).extracting(SmsResponse::status).containsExactly("ENQUEUED", "FAILED", "BLOCKED");
+        assertThat(results.get(1).info()).isEqualTo("Mobile number must be exactly 10 digits.");
+        verify(outbox).append(Priority.STANDARD, event("1234567890", "Hello", "SUCCESS"));
+        verify(outbox).append(Priority.STANDARD, event("9999999999", "Hello", "BLOCKED"));
+    }
+
+    @Test
+    void sendSmsBatch_shouldSpoolEachItemToItsLane() {
+        List<SmsRequest> requests = List.of(
+            new SmsRequest("1234567890", "OTP 1234", "otp"),
+            new SmsRequest("9876543210", "Sale!", "bulk"));
+        when(blockedNumberRepo.areBlocked(new long[] { 1234567890L, 9876543210L }))
+            .thenReturn(new boolean[] { false, false });
+
+        smsService.sendSmsBatch(requests);
+
+        verify(outbox).append(Priority.OTP, event("1234567890", "OTP 1234", "SUCCESS"));
+        verify(outbox).append(Priority.BULK, event("9876543210", "Sale!", "SUCCESS"));
+    }
+
+    @Test
+    void sendSmsBatchReactive_shouldReturnPerItemStatus() {
+        List<SmsRequest> requests = List.of(
+            new SmsRequest("1234567890", "Hello"),
+            new SmsRequest("9999999999", "Hello"));
+        when(blockedNumberRepo.areBlockedReactive(new long[] { 1234567890L, 9999999999L }))
+            .thenReturn(Mono.just(new boolean[] { false, true }));
+
+        List<SmsResponse> results = smsService.sendSmsBatchReactive(null, requests).block();
+
+        assertThat(results).extracting(SmsResponse::status).containsExactly("ENQUEUED", "BLOCKED");
+    }
+
+    @Test
+    void sendSmsBatch_shouldReportThrottledItems_withoutLookingThemUp() {
+        List<SmsRequest> requests = List.of(
+            new SmsRequest("1234567890", "Hello"),
+            new SmsRequest("1234567890", "Hello again"));
+        when(rateLimiter.acquire(1234567890L, null)).thenReturn(null, RateLimiter.Scope.NUMBER);
+        when(blockedNumberRepo.areBlocked(new long[] { 1234567890L })).thenReturn(new boolean[] { false });
+
+        List<SmsResponse> results = smsService.sendSmsBatch(requests);
+
+        assertThat(results).extracting(SmsResponse::status).containsExactly("ENQUEUED", "THROTTLED");
+        verify(outbox).append(Priority.STANDARD, event("1234567890", "Hello again", "THROTTLED"));
+    }
+
+    @Test
+    void sendSmsBatchReactive_shouldReportThrottledItems_withoutBlockingRateLimitCheck() {
+        List<SmsRequest> requests = List.of(
+            new SmsRequest("1234567890", "Hello"),
+            new SmsRequest("9999999999", "Hello"),
+            new SmsRequest("8888888888", "Hello"));
+        when(rateLimiter.acquireReactive(9999999999L, null)).thenReturn(Mono.just(RateLimiter.Scope.CLUSTER));
+        when(blockedNumberRepo.areBlockedReactive(new long[] { 1234567890L, 8888888888L }))
+            .thenReturn(Mono.just(new boolean[] { false, false }));
+
+        List<SmsResponse> results = smsService.sendSmsBatchReactive(null, requests).block();
+
+        assertThat(results).extracting(SmsResponse::status).containsExactly("ENQUEUED", "THROTTLED", "ENQUEUED");
+        verify(rateLimiter, never()).acquire(anyLong(), any());
+    }
+
+    @Test
+    void sendSmsBatch_shouldSkipRedis_whenNoItemIsValid() {
+        List<SmsResponse> results = smsService.sendSmsBatch(List.of(new SmsRequest("123", "Hello")));
+
+        assertThat(results).extracting(SmsResponse::status).containsExactly("FAILED");
+        verify(blockedNumberRepo, never()).areBlocked(any());
+    }
+
+    @Test
+    void sendSmsBatch_shouldThrowException_whenBatchIsTooLarge() {
+        List<SmsRequest> requests = Collections.nCopies(101, new SmsRequest("1234567890", "Hello"));
+
+        assertThatThrownBy(() -> smsService.sendSmsBatch(requests))
+            .isInstanceOf(ValidationException.class)
+            .hasMessage("Batch is too large (Max 100 messages).");
+    }
+
+    // --- Scheduled Send ---
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void scheduleSms_shouldStoreRequest_withoutTouchingSendPath() {
+        Instant sendAt = Instant.now().plus(Duration.ofHours(1));
+        SmsRequest request = new SmsRequest("9876543210", "Sale starts now", "bulk", "sale-1", null, null, sendAt);
+
+        SmsResponse response = smsService.scheduleSms("client-a", request);
+
+        assertThat(response.status()).isEqualTo("SCHEDULED");
+        ArgumentCaptor<List<ScheduledSms>> sends = ArgumentCaptor.forClass(List.class);
+        verify(scheduledSends).add(sends.capture());
+        ScheduledSms send = sends.getValue().get(0);
+        assertThat(send.clientId()).isEqualTo("client-a");
+        assertThat(send.dueAt()).isEqualTo(sendAt.toEpochMilli());
+        assertThat(send.request()).isEqualTo(new SmsRequest("9876543210", "Sale starts now", "bulk", "sale-1", null, null));
+        verifyNoInteractions(rateLimiter, idempotency, blockedNumberRepo, outbox);
+        assertThat(meterRegistry.get("sms.messages").tag("outcome", "scheduled").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void scheduleSms_shouldBeDueNow_whenSendAtHasPassed() {
+        long before = System.currentTimeMillis();
+
+        smsService.scheduleSms(null, new SmsRequest("9876543210", "Hello", null, null, null, null,
+            Instant.ofEpochMilli(before - 60_000)));
+
+        ArgumentCaptor<List<ScheduledSms>> sends = ArgumentCaptor.forClass(List.class);
+        verify(scheduledSends).add(sends.capture());
+        assertThat(sends.getValue().get(0).dueAt()).isGreaterThanOrEqualTo(before);
+    }
+
+    @Test
+    void scheduleSms_shouldThrowException_whenSendAtIsMissing() {
+        assertThatThrownBy(() -> smsService.scheduleSms(null, new SmsRequest("9876543210", "Hello")))
+            .isInstanceOf(ValidationException.class)
+            .hasMessage("sendAt is required to schedule a message.");
+        verifyNoInteractions(scheduledSends);
+    }
+
+    @Test
+    void scheduleSms_shouldThrowException_whenSendAtIsTooFarAhead() {
+        SmsRequest request = new SmsRequest("9876543210", "Hello", null, null, null, null,
+            Instant.now().plus(Duration.ofDays(31)));
+
+        assertThatThrownBy(() -> smsService.scheduleSms(null, request))
+            .isInstanceOf(ValidationException.class)
+            .hasMessageStartingWith("sendAt is too far ahead");
+        verifyNoInteractions(scheduledSends);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void scheduleSmsBatch_shouldReturnPerItemStatus_andStoreValidItemsTogether() {
+        Instant sendAt = Instant.now().plus(Duration.ofMinutes(5));
+        List<SmsRequest> requests = List.of(
+            new SmsRequest("9876543210", "Hello", null, null, null, null, sendAt),
+            new SmsRequest("123", "Hello", null, null, null, null, sendAt),
+            new SmsRequest("5555555555", "Hello"),
+            new SmsRequest("5555555555", "Hello", null, null, null, null, sendAt));
+
+        List<SmsResponse> results = smsService.scheduleSmsBatch("client-a", requests);
+
+        assertThat(results).extracting(SmsResponse::status).containsExactly("SCHEDULED", "FAILED", "FAILED", "SCHEDULED");
+        ArgumentCaptor<List<ScheduledSms>> sends = ArgumentCaptor.forClass(List.class);
+        verify(scheduledSends).add(sends.capture());
+        assertThat(sends.getValue()).extracting(ScheduledSms::mobileNumber).containsExactly("9876543210", "5555555555");
     }
 
     // --- Block/Unblock Logic ---
@@ -133,34 +669,70 @@ class SmsServiceTest {
     @Test
     void blockUser_shouldReturn1_whenNewBlock() {
         String mobile = "1234567890";
-        when(blockedNumberRepo.blockNumber(mobile)).thenReturn(1L);
+        when(blockedNumberRepo.blockNumber(1234567890L)).thenReturn(1L);
 
         Long result = smsService.blockUser(mobile);
 
         assertThat(result).isEqualTo(1L);
-        verify(kafkaTemplate).send(eq("user-topic"), eq(mobile), anyString());
+        verify(kafkaTemplate).send(eq("user-topic"), eq(1234567890L), any());
     }
 
     @Test
     void blockUser_shouldReturn0_whenAlreadyBlocked() {
         String mobile = "1234567890";
-        when(blockedNumberRepo.blockNumber(mobile)).thenReturn(0L);
+        when(blockedNumberRepo.blockNumber(1234567890L)).thenReturn(0L);
 
         Long result = smsService.blockUser(mobile);
 
         assertThat(result).isEqualTo(0L);
         // Should NOT send kafka event if status wasn't changed (based on code logic)
-        verify(kafkaTemplate, never()).send(anyString(), anyString(), anyString());
+        verify(kafkaTemplate, never()).send(anyString(), anyLong(), any());
     }
 
     @Test
     void unblockUser_shouldReturn1_whenUnblockedSuccessfully() {
         String mobile = "1234567890";
-        when(blockedNumberRepo.unblockNumber(mobile)).thenReturn(1L);
+        when(blockedNumberRepo.unblockNumber(1234567890L)).thenReturn(1L);
 
         Long result = smsService.unblockUser(mobile);
 
         assertThat(result).isEqualTo(1L);
-        verify(kafkaTemplate).send(eq("user-topic"), eq(mobile), anyString());
+        verify(kafkaTemplate).send(eq("user-topic"), eq(1234567890L), any());
+    }
+
+    @Test
+    void blockUsers_shouldApplyInChunks_andPublishOnlyNewBlocks() throws IOException {
+        when(blockedNumberRepo.blockNumbers(any(long[].class), eq(2))).thenReturn(new boolean[] { true, false });
+        when(blockedNumberRepo.blockNumbers(any(long[].class), eq(1))).thenReturn(new boolean[] { true });
+
+        BulkBlockResponse response = smsService.blockUsers(body("9876543210\n1234567890\nbad\n5555555555\n"));
+
+        assertThat(response).isEqualTo(new BulkBlockResponse("BLOCKED", 2, 1, 1,
+            List.of("line 3: Mobile number must be exactly 10 digits.")));
+        verify(kafkaTemplate).send(eq("user-topic"), eq(9876543210L), any());
+        verify(kafkaTemplate).send(eq("user-topic"), eq(5555555555L), any());
+        verify(kafkaTemplate, times(2)).send(anyString(), anyLong(), any());
+    }
+
+    @Test
+    void unblockUsers_shouldThrowException_whenBodyIsEmpty() {
+        assertThatThrownBy(() -> smsService.unblockUsers(body("\n\n")))
+            .isInstanceOf(ValidationException.class);
+        verify(blockedNumberRepo, never()).unblockNumbers(any(long[].class), any(Integer.class));
+    }
+
+    private static KafkaSmsData event(String mobileNumber, String message, String status) {
+        return event(mobileNumber, message, status, null, null);
+    }
+
+    private static KafkaSmsData event(String mobileNumber, String message, String status, String templateId,
+            Map<String, String> params) {
+        SmsSegments segments = SmsSegments.of(message);
+        return new KafkaSmsData(mobileNumber, message, status, templateId, params, segments.count(),
+            segments.encoding().name());
+    }
+
+    private static ByteArrayInputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,105 @@
+package com.meesho.smssender.startup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.data.redis.core.ReactiveRedisCallback;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.meesho.smssender.dispatch.Priority;
+import com.meesho.smssender.kafka.SmsEventSerializer;
+import com.meesho.smssender.kafka.WireFormat;
+import com.meesho.smssender.outbox.OutboxRouter;
+import com.meesho.smssender.service.SmsService;
+import com.meesho.smssender.util.SmsSegments;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import tools.jackson.databind.json.JsonMapper;
+
+@SuppressWarnings("unchecked")
+class WarmupTest {
+
+    private final SmsService smsService = mock(SmsService.class);
+    private final ObjectProvider<tools.jackson.databind.ObjectMapper> jsonMapper = mock(ObjectProvider.class);
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate = mock(ReactiveStringRedisTemplate.class);
+    private final OutboxRouter router = mock(OutboxRouter.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        when(jsonMapper.getIfAvailable()).thenReturn(JsonMapper.builder().build());
+        when(smsService.validateMessage(anyString())).thenAnswer(invocation -> SmsSegments.of(invocation.getArgument(0)));
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn("PONG");
+        when(reactiveRedisTemplate.execute(any(ReactiveRedisCallback.class))).thenReturn(Flux.just("PONG"));
+    }
+
+    @Test
+    void run_shouldExerciseSendPathAndConnectEveryLane() {
+        Warmup warmup = warmup(true, 500);
+        warmup.bindTo(registry);
+
+        warmup.run(new DefaultApplicationArguments());
+
+        verify(smsService, times(500)).validateMessage(anyString());
+        verify(redisTemplate).execute(any(RedisCallback.class));
+        verify(reactiveRedisTemplate).execute(any(ReactiveRedisCallback.class));
+        for (Priority priority : Priority.values()) {
+            verify(router).fetchMetadata(priority);
+        }
+        assertThat(registry.get("sms.warmup.duration").timeGauge().value(TimeUnit.NANOSECONDS)).isPositive();
+    }
+
+    @Test
+    void run_shouldNotWaitPastTimeout_whenBrokerIsUnreachable() {
+        doAnswer(invocation -> {
+            Thread.sleep(10_000);
+            return null;
+        }).when(router).fetchMetadata(Priority.BULK);
+        Warmup warmup = warmup(true, 10);
+
+        long start = System.nanoTime();
+        warmup.run(new DefaultApplicationArguments());
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5_000);
+        verify(router).fetchMetadata(Priority.OTP);
+    }
+
+    @Test
+    void run_shouldNotFail_whenRedisIsDown() {
+        when(redisTemplate.execute(any(RedisCallback.class))).thenThrow(new IllegalStateException("Connection refused"));
+
+        warmup(true, 10).run(new DefaultApplicationArguments());
+
+        verify(router).fetchMetadata(Priority.STANDARD);
+    }
+
+    @Test
+    void run_shouldDoNothing_whenDisabled() {
+        warmup(false, 500).run(new DefaultApplicationArguments());
+
+        verifyNoInteractions(smsService, redisTemplate, reactiveRedisTemplate, router);
+    }
+
+    private Warmup warmup(boolean enabled, int iterations) {
+        return new Warmup(smsService, new SmsEventSerializer(new ObjectMapper(), WireFormat.JSON), jsonMapper,
+            redisTemplate, reactiveRedisTemplate, router, enabled, iterations, 500);
+    }
+}
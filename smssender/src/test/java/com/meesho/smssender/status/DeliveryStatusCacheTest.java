@@ -0,0 +1,62 @@
+package com.meesho.smssender.status;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import com.meesho.smssender.status.DeliveryStatusCache.State;
+
+class DeliveryStatusCacheTest {
+
+    private final DeliveryStatusCache statuses = new DeliveryStatusCache(4);
+
+    @Test
+    void track_shouldStartEnqueued_andFollowUpdates() {
+        long id = statuses.track();
+
+        assertThat(statuses.find(id).state()).isEqualTo(State.ENQUEUED);
+        statuses.update(id, State.DELIVERED);
+
+        DeliveryStatusCache.Status status = statuses.find(DeliveryStatusCache.format(id));
+        assertThat(status.state()).isEqualTo(State.DELIVERED);
+        assertThat(status.updatedAt()).isGreaterThanOrEqualTo(status.acceptedAt());
+    }
+
+    @Test
+    void track_shouldOverwriteOldest_whenRingIsFull() {
+        long first = statuses.track();
+        for (int i = 0; i < 4; i++) {
+            statuses.track();
+        }
+
+        assertThat(statuses.find(first)).isNull();
+        statuses.update(first, State.DELIVERED);
+        assertThat(statuses.find(first + 4).state()).isEqualTo(State.ENQUEUED);
+    }
+
+    @Test
+    void find_shouldReturnNull_forUnknownOrMalformedIds() {
+        long id = statuses.track();
+        statuses.forget(id);
+
+        assertThat(statuses.find(id)).isNull();
+        assertThat(statuses.find("not-an-id")).isNull();
+        assertThat(statuses.find("0000000000000000")).isNull();
+        assertThat(DeliveryStatusCache.parse(DeliveryStatusCache.format(-1L))).isEqualTo(-1L);
+        assertThat(DeliveryStatusCache.format(DeliveryStatusCache.NO_ID)).isNull();
+    }
+
+    @Test
+    void constructor_shouldRoundCapacityUpToPowerOfTwo() {
+        assertThat(new DeliveryStatusCache(1000).capacity()).isEqualTo(1024);
+        assertThat(statuses.capacity()).isEqualTo(4);
+    }
+
+    @Test
+    void constructor_shouldRejectCapacity_aboveLargestRing() {
+        assertThatThrownBy(() -> new DeliveryStatusCache((1 << 30) + 1))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Status capacity must be at most 1073741824: 1073741825");
+    }
+}
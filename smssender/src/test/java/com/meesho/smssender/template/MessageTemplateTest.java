@@ -0,0 +1,56 @@
+package com.meesho.smssender.template;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.meesho.smssender.exception.ValidationException;
+
+class MessageTemplateTest {
+
+    @Test
+    void render_shouldFillPlaceholders() {
+        MessageTemplate template = MessageTemplate.compile("order", "Hi {name}, order {id} ships {day}. {name}!");
+
+        assertThat(template.render(Map.of("name", "Asha", "id", "A-17", "day", "today", "unused", "x")))
+            .isEqualTo("Hi Asha, order A-17 ships today. Asha!");
+        assertThat(template.params()).containsExactly("name", "id", "day");
+    }
+
+    @Test
+    void render_shouldKeepEscapedBraces() {
+        MessageTemplate template = MessageTemplate.compile("json", "{{code}}: {code}");
+
+        assertThat(template.render(Map.of("code", "42"))).isEqualTo("{code}: 42");
+    }
+
+    @Test
+    void render_shouldReturnBody_whenThereAreNoPlaceholders() {
+        assertThat(MessageTemplate.compile("plain", "Welcome!").render(null)).isEqualTo("Welcome!");
+    }
+
+    @Test
+    void render_shouldThrowException_whenParameterIsMissing() {
+        MessageTemplate template = MessageTemplate.compile("otp", "OTP {code}");
+
+        assertThatThrownBy(() -> template.render(Map.of()))
+            .isInstanceOf(ValidationException.class)
+            .hasMessage("Missing template parameter 'code'.");
+    }
+
+    @Test
+    void compile_shouldRejectMalformedPlaceholders() {
+        assertThatThrownBy(() -> MessageTemplate.compile("t", "Hi {name"))
+            .isInstanceOf(ValidationException.class)
+            .hasMessageContaining("Unterminated placeholder");
+        assertThatThrownBy(() -> MessageTemplate.compile("t", "Hi {first name}"))
+            .isInstanceOf(ValidationException.class)
+            .hasMessageContaining("Invalid placeholder '{first name}'");
+        assertThatThrownBy(() -> MessageTemplate.compile("t", "Hi }"))
+            .isInstanceOf(ValidationException.class)
+            .hasMessageContaining("Unmatched '}'");
+    }
+}
@@ -0,0 +1,61 @@
+package com.meesho.smssender.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+class KeySequencerTest {
+
+    private final KeySequencer sequencer = new KeySequencer(16);
+
+    @Test
+    void join_shouldHoldLaterTurns_untilEarlierOnesLeave() {
+        List<Integer> ran = new CopyOnWriteArrayList<>();
+        KeySequencer.Turn first = sequencer.join(42);
+        KeySequencer.Turn second = sequencer.join(42);
+        KeySequencer.Turn third = sequencer.join(42);
+
+        assertThat(first.isFirst()).isTrue();
+        assertThat(second.isFirst()).isFalse();
+        third.whenReady(() -> ran.add(3));
+        second.whenReady(() -> ran.add(2));
+        assertThat(sequencer.waiting()).isEqualTo(2);
+
+        sequencer.leave(first);
+        assertThat(ran).containsExactly(2);
+        sequencer.leave(second);
+        assertThat(ran).containsExactly(2, 3);
+        sequencer.leave(third);
+
+        assertThat(sequencer.waiting()).isZero();
+        assertThat(sequencer.keys()).isZero();
+    }
+
+    @Test
+    void join_shouldNotHoldUnrelatedKeys() {
+        KeySequencer.Turn busy = sequencer.join(42);
+
+        KeySequencer.Turn other = sequencer.join(43);
+
+        assertThat(other.isFirst()).isTrue();
+        assertThat(sequencer.keys()).isEqualTo(2);
+        sequencer.leave(busy);
+        sequencer.leave(other);
+        assertThat(sequencer.keys()).isZero();
+    }
+
+    @Test
+    void join_shouldBeFirst_whenTurnAheadLeftAfterItWasJoined() {
+        KeySequencer.Turn first = sequencer.join(42);
+        KeySequencer.Turn second = sequencer.join(42);
+
+        sequencer.leave(first);
+
+        assertThat(second.isFirst()).isTrue();
+        sequencer.leave(second);
+        assertThat(sequencer.join(42).isFirst()).isTrue();
+    }
+}
@@ -0,0 +1,27 @@
+package com.meesho.smssender.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class LogSamplerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final LogSampler sampler = new LogSampler(Duration.ofSeconds(1), clock::get);
+
+    @Test
+    void sample_shouldAllowOnePerInterval_andReportSuppressedCount() {
+        assertThat(sampler.sample()).isZero();
+        assertThat(sampler.sample()).isEqualTo(-1);
+        assertThat(sampler.sample()).isEqualTo(-1);
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+
+        assertThat(sampler.sample()).isEqualTo(2);
+        assertThat(sampler.sample()).isEqualTo(-1);
+    }
+}
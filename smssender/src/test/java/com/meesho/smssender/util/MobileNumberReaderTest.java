@@ -0,0 +1,60 @@
+package com.meesho.smssender.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class MobileNumberReaderTest {
+
+    @Test
+    void next_shouldReadFirstCsvColumn_skippingHeaderBomAndBlankLines() throws IOException {
+        MobileNumberReader reader = reader("\uFEFFmobile,added_on\r\n\"9876543210\",2024-01-01\r\n\r\n 0123456789 ;x\n1234567890");
+
+        assertThat(readAll(reader)).containsExactly(9876543210L, 123456789L, 1234567890L);
+        assertThat(reader.validCount()).isEqualTo(3);
+        assertThat(reader.invalidCount()).isZero();
+    }
+
+    @Test
+    void next_shouldCountInvalidLines_andKeepTheirReasons() throws IOException {
+        MobileNumberReader reader = reader("9876543210\n12345\n98765abcde\n" + "9".repeat(100) + "\n1234567890\n");
+
+        assertThat(readAll(reader)).containsExactly(9876543210L, 1234567890L);
+        assertThat(reader.invalidCount()).isEqualTo(3);
+        assertThat(reader.errors()).containsExactly(
+            "line 2: Mobile number must be exactly 10 digits.",
+            "line 3: Mobile number must contain only digits.",
+            "line 4: Mobile number must be exactly 10 digits.");
+    }
+
+    @Test
+    void next_shouldStreamBodiesLargerThanTheBuffer() throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (long n = 9000000000L; n < 9000050000L; n++) {
+            body.append(n).append('\n');
+        }
+
+        MobileNumberReader reader = reader(body.toString());
+
+        assertThat(readAll(reader)).hasSize(50_000).startsWith(9000000000L).endsWith(9000049999L);
+    }
+
+    private static MobileNumberReader reader(String body) {
+        return new MobileNumberReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static List<Long> readAll(MobileNumberReader reader) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        long number;
+        while ((number = reader.next()) >= 0) {
+            numbers.add(number);
+        }
+        return numbers;
+    }
+}
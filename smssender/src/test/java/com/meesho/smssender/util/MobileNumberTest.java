@@ -0,0 +1,38 @@
+package com.meesho.smssender.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import com.meesho.smssender.exception.ValidationException;
+
+class MobileNumberTest {
+
+    @Test
+    void parse_shouldReturnCanonicalLong() {
+        assertThat(MobileNumber.parse("9876543210")).isEqualTo(9876543210L);
+        assertThat(MobileNumber.parse("0000000042")).isEqualTo(42L);
+    }
+
+    @Test
+    void parse_shouldRejectBlankInput() {
+        assertThatThrownBy(() -> MobileNumber.parse("   "))
+            .isInstanceOf(ValidationException.class)
+            .hasMessage("Mobile number cannot be empty.");
+    }
+
+    @Test
+    void parse_shouldRejectNonAsciiDigits() {
+        // Arabic-Indic digits pass Character.isDigit but are not valid phone digits here.
+        assertThatThrownBy(() -> MobileNumber.parse("98765432١٢"))
+            .isInstanceOf(ValidationException.class)
+            .hasMessage("Mobile number must contain only digits.");
+    }
+
+    @Test
+    void format_shouldRoundTripWithLeadingZeros() {
+        assertThat(MobileNumber.format(42L)).isEqualTo("0000000042");
+        assertThat(MobileNumber.format(MobileNumber.parse("9876543210"))).isEqualTo("9876543210");
+    }
+}
@@ -0,0 +1,71 @@
+package com.meesho.smssender.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.meesho.smssender.util.SmsSegments.Encoding;
+
+class SmsSegmentsTest {
+
+    @Test
+    void of_shouldUseSingleSegmentLimits_whenMessageFits() {
+        assertThat(SmsSegments.of("Hello")).isEqualTo(new SmsSegments(Encoding.GSM7, 5, 1));
+        assertThat(SmsSegments.of("a".repeat(160))).isEqualTo(new SmsSegments(Encoding.GSM7, 160, 1));
+        assertThat(SmsSegments.of("ж".repeat(70))).isEqualTo(new SmsSegments(Encoding.UCS2, 70, 1));
+        assertThat(SmsSegments.of("")).isEqualTo(new SmsSegments(Encoding.GSM7, 0, 0));
+    }
+
+    @Test
+    void of_shouldUseConcatenatedLimits_whenMessageIsLong() {
+        assertThat(SmsSegments.of("a".repeat(161)).count()).isEqualTo(2);
+        assertThat(SmsSegments.of("a".repeat(306)).count()).isEqualTo(2);
+        assertThat(SmsSegments.of("a".repeat(307)).count()).isEqualTo(3);
+        assertThat(SmsSegments.of("ж".repeat(71)).count()).isEqualTo(2);
+        assertThat(SmsSegments.of("ж".repeat(135)).count()).isEqualTo(3);
+    }
+
+    @Test
+    void of_shouldCountExtensionCharactersTwice() {
+        assertThat(SmsSegments.of("{€}")).isEqualTo(new SmsSegments(Encoding.GSM7, 6, 1));
+        assertThat(SmsSegments.of("€".repeat(80)).count()).isEqualTo(1);
+        assertThat(SmsSegments.of("€".repeat(81)).count()).isEqualTo(2);
+    }
+
+    @Test
+    void of_shouldSwitchToUcs2_whenAnyCharacterIsOutsideGsm() {
+        assertThat(SmsSegments.of("Café").encoding()).isEqualTo(Encoding.GSM7);
+        assertThat(SmsSegments.of("a`b").encoding()).isEqualTo(Encoding.UCS2);
+        assertThat(SmsSegments.of("Hi 😀")).isEqualTo(new SmsSegments(Encoding.UCS2, 5, 1));
+    }
+
+    @Test
+    void of_shouldNotSplitEscapeOrSurrogatePairs() {
+        // 306 septets would fill two parts of 153 exactly, but only by splitting the euro's escape pair.
+        assertThat(SmsSegments.of("a".repeat(152) + "€" + "a".repeat(152)).count()).isEqualTo(3);
+        assertThat(SmsSegments.of("ж".repeat(66) + "😀" + "ж".repeat(66)).count()).isEqualTo(3);
+    }
+
+    @Test
+    void split_shouldCutOnCountedBoundaries() {
+        String gsm = "a".repeat(152) + "€" + "a".repeat(10);
+        assertThat(SmsSegments.split(gsm)).containsExactly("a".repeat(152), "€" + "a".repeat(10));
+
+        String ucs = "ж".repeat(66) + "😀" + "ж".repeat(10);
+        assertThat(SmsSegments.split(ucs)).containsExactly("ж".repeat(66), "😀" + "ж".repeat(10));
+
+        assertThat(SmsSegments.split("Hello")).isEqualTo(List.of("Hello"));
+    }
+
+    @Test
+    void split_shouldReturnAsManyPartsAsCounted() {
+        String message = "Your order {1234} has shipped ~ track it at example.com. ".repeat(8);
+        List<String> parts = SmsSegments.split(message);
+
+        assertThat(parts).hasSize(SmsSegments.of(message).count());
+        assertThat(String.join("", parts)).isEqualTo(message);
+        assertThat(parts).allSatisfy(part -> assertThat(SmsSegments.of(part).units()).isLessThanOrEqualTo(153));
+    }
+}
@@ -0,0 +1,104 @@
+package com.meesho.smssender.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+
+    private final TimerWheel wheel = new TimerWheel("test-wheel", 5, 8);
+
+    @AfterEach
+    void tearDown() {
+        wheel.close();
+    }
+
+    @Test
+    void schedule_shouldRunTasksInDeadlineOrder() throws InterruptedException {
+        List<Integer> ran = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+
+        wheel.schedule(150, () -> { ran.add(3); done.countDown(); });
+        wheel.schedule(10, () -> { ran.add(1); done.countDown(); });
+        wheel.schedule(60, () -> { ran.add(2); done.countDown(); });
+
+        assertThat(done.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(ran).containsExactly(1, 2, 3);
+        assertThat(wheel.pending()).isZero();
+    }
+
+    @Test
+    void schedule_shouldNotRunBeforeDeadline_whenDelaySpansSeveralTurns() throws InterruptedException {
+        // 8 buckets of 5 ms make a 40 ms turn; this task waits out several of them.
+        CountDownLatch done = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        wheel.schedule(120, done::countDown);
+
+        assertThat(done.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(120);
+    }
+
+    @Test
+    void schedule_shouldCascadeThroughLevels_whenDelayIsBeyondInnerWheel() throws InterruptedException {
+        // Level 0 spans 40 ms and level 1 spans 320 ms, so these start on levels 1 and 2.
+        List<Integer> ran = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+        long start = System.nanoTime();
+
+        wheel.schedule(700, () -> { ran.add(2); done.countDown(); });
+        wheel.schedule(200, () -> { ran.add(1); done.countDown(); });
+
+        assertThat(done.await(3, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(700);
+        assertThat(ran).containsExactly(1, 2);
+    }
+
+    @Test
+    void schedule_shouldRefileTask_whenDelayIsBeyondOutermostWheel() throws InterruptedException {
+        // Two 1 ms buckets per level cover 16 ms in all; 100 ms goes round the outer wheel several times.
+        try (TimerWheel small = new TimerWheel("small-wheel", 1, 2)) {
+            CountDownLatch done = new CountDownLatch(1);
+            long start = System.nanoTime();
+
+            small.schedule(100, done::countDown);
+
+            assertThat(done.await(2, TimeUnit.SECONDS)).isTrue();
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(100);
+        }
+    }
+
+    @Test
+    void schedule_shouldRunOnNextTick_whenDelayIsNotPositive() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+
+        wheel.schedule(-50, done::countDown);
+
+        assertThat(done.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void schedule_shouldKeepRunning_whenTaskThrows() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+
+        wheel.schedule(0, () -> { throw new IllegalStateException("boom"); });
+        wheel.schedule(20, done::countDown);
+
+        assertThat(done.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void schedule_shouldReject_whenClosed() {
+        wheel.close();
+
+        assertThatThrownBy(() -> wheel.schedule(10, () -> { }))
+            .isInstanceOf(IllegalStateException.class);
+    }
+}